@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.layers;
+
+import org.ml4j.nn.axons.DepthwiseConvolutionalAxons;
+
+/**
+ * A DepthwiseConvolutionalFeedForwardLayer is a FeedForwardLayer which composes input neurons and
+ * output neurons that are arranged in 3D volumes of the same depth, in such a way that each 
+ * output neuron is connected to a local region of the corresponding channel of the input volume
+ *  ( a depthwise convolution ).
+ * 
+ * @author Michael Lavelle
+ *
+ */
+public interface DepthwiseConvolutionalFeedForwardLayer 
+    extends FeedForwardLayer<DepthwiseConvolutionalAxons, 
+    DepthwiseConvolutionalFeedForwardLayer> {
+  
+  /**
+   * @return The stride.
+   */
+  int getStride();
+
+  /**
+   * @return The filter width.
+   */
+  int getFilterWidth();
+
+  /**
+   * @return The filter height.
+   */
+  int getFilterHeight();
+  
+  /**
+   * @return The amount of zero padding.
+   */
+  int getZeroPadding();
+}
@@ -18,6 +18,9 @@ import org.ml4j.nn.activationfunctions.DifferentiableActivationFunction;
 import org.ml4j.nn.axons.Axons;
 import org.ml4j.nn.neurons.NeuronsActivation;
 import org.ml4j.nn.synapses.DirectedSynapses;
+import org.ml4j.nn.synapses.DirectedSynapsesContext;
+
+import java.util.List;
 
 /**
  * Represents a Directed Layer of a NeuralNetwork - a Layer through which information propagates
@@ -74,4 +77,33 @@ public interface DirectedLayer<A extends Axons<?,?,?>, L extends DirectedLayer<A
    */
   NeuronsActivation getOptimalInputForOutputNeuron(int outpuNeuronIndex, 
       DirectedLayerContext directedLayerContext);
+
+  /**
+   * @param layerContext The layer context.
+   * @return Whether any Axons of this DirectedLayer are trainable within the context - false if
+   *         the layer is frozen out. Every Axons of every DirectedSynapses 
+   *         ( see DirectedSynapses.getAllAxons() ) is checked within its own AxonsContext, 
+   *         skipping synapses which are frozen out. Back propagation computes no weight 
+   *         gradients for layers which are not trainable, and need not propagate below the 
+   *         lowest trainable layer.
+   */
+  default boolean isTrainable(DirectedLayerContext layerContext) {
+    if (layerContext.isWithFreezeOut()) {
+      return false;
+    }
+    List<DirectedSynapses<?, ?>> synapses = getSynapses();
+    for (int synapsesIndex = 0; synapsesIndex < synapses.size(); synapsesIndex++) {
+      DirectedSynapsesContext synapsesContext = layerContext.getSynapsesContext(synapsesIndex);
+      if (synapsesContext.isWithFreezeOut()) {
+        continue;
+      }
+      List<Axons<?, ?, ?>> axons = synapses.get(synapsesIndex).getAllAxons();
+      for (int axonsIndex = 0; axonsIndex < axons.size(); axonsIndex++) {
+        if (axons.get(axonsIndex).isTrainable(synapsesContext.getAxonsContext(axonsIndex))) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
 }
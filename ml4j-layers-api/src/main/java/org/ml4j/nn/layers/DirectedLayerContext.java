@@ -39,4 +39,18 @@ public interface DirectedLayerContext extends LayerContext {
    * @param withFreezeOut Whether to freeze out this Layer for training.
    */
   void setWithFreezeOut(boolean withFreezeOut);
+
+  /**
+   * @return Whether back propagation through this Layer must produce the gradient with respect
+   *         to its input - true unless set otherwise, and set to false for the lowest trainable 
+   *         layer of a network and those below it by ForwardPropagation.planBackPropagation, 
+   *         allowing the input-delta computation to be skipped.
+   */
+  boolean isInputGradientRequired();
+
+  /**
+   * @param inputGradientRequired Whether back propagation through this Layer must produce the
+   *        gradient with respect to its input.
+   */
+  void setInputGradientRequired(boolean inputGradientRequired);
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.layers;
+
+import org.ml4j.nn.axons.TransposedConvolutionalAxons;
+
+/**
+ * A TransposedConvolutionalFeedForwardLayer is a FeedForwardLayer which upsamples an input 
+ * volume of neurons to a larger output volume via a transposed ( fractionally strided )
+ * convolution - eg. for the decoder of a convolutional AutoEncoder.
+ * 
+ * @author Michael Lavelle
+ *
+ */
+public interface TransposedConvolutionalFeedForwardLayer 
+    extends FeedForwardLayer<TransposedConvolutionalAxons, 
+    TransposedConvolutionalFeedForwardLayer> {
+  
+  /**
+   * @return The stride of the corresponding convolution.
+   */
+  int getStride();
+
+  /**
+   * @return The filter width.
+   */
+  int getFilterWidth();
+
+  /**
+   * @return The filter height.
+   */
+  int getFilterHeight();
+  
+  /**
+   * @return The amount of zero padding of the corresponding convolution.
+   */
+  int getZeroPadding();
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A compressed sparse row representation of a matrix, for sparse-dense products with one-hot or
+ * very sparse activations.
+ * 
+ * <p>Dense arrays are flattened row-major, ie. the value for row r, column c of a matrix with 
+ * cols columns is at index r * cols + c.
+ * 
+ * @author Michael Lavelle
+ */
+public class CompressedSparseRows implements Serializable {
+
+  /**
+   * Default serialization id.
+   */
+  private static final long serialVersionUID = 1L;
+
+  private int rows;
+  private int columns;
+  private int[] rowPointers;
+  private int[] columnIndexes;
+  private double[] values;
+
+  /**
+   * @param rows The number of rows.
+   * @param columns The number of columns.
+   * @param rowPointers The offsets into columnIndexes and values of the start of each row, with
+   *        rowPointers[rows] equal to the number of non-zero values.
+   * @param columnIndexes The column index of each non-zero value, ascending within each row.
+   * @param values The non-zero values.
+   */
+  public CompressedSparseRows(int rows, int columns, int[] rowPointers, int[] columnIndexes,
+      double[] values) {
+    this.rows = rows;
+    this.columns = columns;
+    this.rowPointers = rowPointers;
+    this.columnIndexes = columnIndexes;
+    this.values = values;
+  }
+
+  /**
+   * Compress a dense row-major matrix.
+   * 
+   * @param data The dense row-major data.
+   * @param rows The number of rows.
+   * @param columns The number of columns.
+   * @return The compressed sparse rows.
+   */
+  public static CompressedSparseRows fromRowMajor(double[] data, int rows, int columns) {
+    int nonZeroCount = 0;
+    for (double value : data) {
+      if (value != 0d) {
+        nonZeroCount++;
+      }
+    }
+    int[] rowPointers = new int[rows + 1];
+    int[] columnIndexes = new int[nonZeroCount];
+    double[] values = new double[nonZeroCount];
+    int index = 0;
+    for (int r = 0; r < rows; r++) {
+      rowPointers[r] = index;
+      for (int c = 0; c < columns; c++) {
+        double value = data[r * columns + c];
+        if (value != 0d) {
+          columnIndexes[index] = c;
+          values[index] = value;
+          index++;
+        }
+      }
+    }
+    rowPointers[rows] = index;
+    return new CompressedSparseRows(rows, columns, rowPointers, columnIndexes, values);
+  }
+
+  /**
+   * @return The number of rows.
+   */
+  public int getRows() {
+    return rows;
+  }
+
+  /**
+   * @return The number of columns.
+   */
+  public int getColumns() {
+    return columns;
+  }
+
+  /**
+   * @return The fraction of elements which are non-zero.
+   */
+  public double getDensity() {
+    long elements = (long) rows * columns;
+    return elements == 0 ? 0d : (double) rowPointers[rows] / elements;
+  }
+
+  /**
+   * Multiply this sparse matrix by a dense (columns x rightColumns) matrix.
+   * 
+   * @param right The dense row-major right matrix.
+   * @param rightColumns The number of columns of the right matrix.
+   * @param result The (rows x rightColumns) array to write the product into.
+   * @return The result array.
+   */
+  public double[] mmul(double[] right, int rightColumns, double[] result) {
+    Arrays.fill(result, 0, rows * rightColumns, 0d);
+    for (int r = 0; r < rows; r++) {
+      int resultOffset = r * rightColumns;
+      for (int i = rowPointers[r]; i < rowPointers[r + 1]; i++) {
+        double value = values[i];
+        int rightOffset = columnIndexes[i] * rightColumns;
+        for (int c = 0; c < rightColumns; c++) {
+          result[resultOffset + c] += value * right[rightOffset + c];
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return The ascending indexes of the columns containing at least one non-zero value - the
+   *         only rows of a product with the transpose of this matrix which can be non-zero.
+   */
+  public int[] getTouchedColumns() {
+    return getTouchedColumns(0);
+  }
+
+  /**
+   * Obtain the touched columns shifted by an offset - eg. an offset of 1 gives the connection 
+   * weights rows touched by sparse inputs without a bias column, when row 0 of the connection
+   * weights holds the bias weights.
+   * 
+   * @param columnOffset The offset added to each touched column index.
+   * @return The ascending indexes, plus columnOffset, of the columns containing at least one
+   *         non-zero value.
+   */
+  public int[] getTouchedColumns(int columnOffset) {
+    return getTouchedColumns(columnOffset, false);
+  }
+
+  /**
+   * Obtain the touched columns shifted by an offset, optionally preceded by index 0 for the 
+   * implicit bias column of sparse inputs without a bias column - eg. 
+   * getTouchedColumns(1, true) gives every connection weights row with non-zero gradient when
+   * row 0 of the connection weights holds the bias weights.
+   * 
+   * @param columnOffset The offset added to each touched column index - at least 1 if 
+   *        includeBias is set, so that the bias index does not collide with column 0.
+   * @param includeBias Whether to include index 0 for the bias column.
+   * @return The ascending indexes, plus columnOffset, of the columns containing at least one
+   *         non-zero value, preceded by 0 if includeBias is set.
+   */
+  public int[] getTouchedColumns(int columnOffset, boolean includeBias) {
+    if (includeBias && columnOffset < 1) {
+      throw new IllegalArgumentException(
+          "Column offset must be at least 1 to include the bias but was " + columnOffset);
+    }
+    boolean[] touched = new boolean[columns];
+    int touchedCount = 0;
+    for (int i = 0; i < rowPointers[rows]; i++) {
+      if (!touched[columnIndexes[i]]) {
+        touched[columnIndexes[i]] = true;
+        touchedCount++;
+      }
+    }
+    int index = includeBias ? 1 : 0;
+    int[] touchedColumns = new int[index + touchedCount];
+    for (int c = 0; c < columns; c++) {
+      if (touched[c]) {
+        touchedColumns[index++] = c + columnOffset;
+      }
+    }
+    return touchedColumns;
+  }
+
+  /**
+   * Multiply the transpose of this sparse matrix by a dense (rows x rightColumns) matrix, 
+   * writing only the rows of the product for the touched columns - eg. for the row-sparse 
+   * weight gradient X^T * delta of sparse inputs X.
+   * 
+   * @param right The dense row-major right matrix.
+   * @param rightColumns The number of columns of the right matrix.
+   * @param touchedColumns The touched columns, as returned by getTouchedColumns().
+   * @param result The (touchedColumns.length x rightColumns) array to write the compact product
+   *        rows into, in the order of touchedColumns.
+   * @return The result array.
+   */
+  public double[] transposeMmul(double[] right, int rightColumns, int[] touchedColumns,
+      double[] result) {
+    return transposeMmul(right, rightColumns, touchedColumns, 0, result);
+  }
+
+  /**
+   * Multiply the transpose of this sparse matrix by a dense (rows x rightColumns) matrix, 
+   * writing only the rows of the product for touched columns obtained with an offset. A touched
+   * index below columnOffset, such as the bias index 0 from getTouchedColumns(1, true), is the 
+   * row of an implicit all-ones column, so is filled with the column sums of the right matrix.
+   * 
+   * @param right The dense row-major right matrix.
+   * @param rightColumns The number of columns of the right matrix.
+   * @param touchedColumns The touched columns, as returned by 
+   *        getTouchedColumns(columnOffset, includeBias).
+   * @param columnOffset The offset the touched columns were obtained with.
+   * @param result The (touchedColumns.length x rightColumns) array to write the compact product
+   *        rows into, in the order of touchedColumns.
+   * @return The result array.
+   */
+  public double[] transposeMmul(double[] right, int rightColumns, int[] touchedColumns,
+      int columnOffset, double[] result) {
+    int[] compactRows = new int[columns];
+    Arrays.fill(compactRows, -1);
+    Arrays.fill(result, 0, touchedColumns.length * rightColumns, 0d);
+    for (int i = 0; i < touchedColumns.length; i++) {
+      int column = touchedColumns[i] - columnOffset;
+      if (touchedColumns[i] < 0 || column >= columns) {
+        throw new IllegalArgumentException("Touched column " + touchedColumns[i] 
+            + " is out of range for " + columns + " columns with offset " + columnOffset);
+      }
+      if (column >= 0) {
+        compactRows[column] = i;
+      } else {
+        int resultOffset = i * rightColumns;
+        for (int r = 0; r < rows; r++) {
+          int rightOffset = r * rightColumns;
+          for (int c = 0; c < rightColumns; c++) {
+            result[resultOffset + c] += right[rightOffset + c];
+          }
+        }
+      }
+    }
+    for (int r = 0; r < rows; r++) {
+      int rightOffset = r * rightColumns;
+      for (int i = rowPointers[r]; i < rowPointers[r + 1]; i++) {
+        int compactRow = compactRows[columnIndexes[i]];
+        if (compactRow < 0) {
+          throw new IllegalArgumentException(
+              "Column " + columnIndexes[i] + " is not in touchedColumns");
+        }
+        int resultOffset = compactRow * rightColumns;
+        double value = values[i];
+        for (int c = 0; c < rightColumns; c++) {
+          result[resultOffset + c] += value * right[rightOffset + c];
+        }
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * A MatrixFactory which routes the creation of each Matrix, concatenations and matrix 
+ * multiplications to the registered MatrixBackend with the highest preference score for the 
+ * requested shape. Other operations run on the backend owning the Matrix they are invoked on.
+ * 
+ * <p>Operands are converted to the selected backend through a MatrixConversionCache, so a versioned
+ * Matrix used repeatedly with another backend is moved once rather than back and forth, and moved
+ * again only after it is modified in place.
+ * 
+ * @author Michael Lavelle
+ */
+public class DispatchingMatrixFactory implements MatrixFactory {
+
+  /**
+   * Default serialization id.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The maximum number of elements of the right operand of a row-vector product routed to 
+   * SmallMatrixKernels - beyond this, copying the right operand costs more than the kernel saves.
+   */
+  public static final int MAX_SMALL_KERNEL_RIGHT_ELEMENTS = 1 << 16;
+
+  /**
+   * The available backends, in registration order.
+   */
+  private List<MatrixBackend> backends;
+
+  /**
+   * The autotuner choosing between backends for mmul, or null to choose by preference score.
+   */
+  private transient KernelAutotuner kernelAutotuner;
+
+  /**
+   * The cached conversions between backends.
+   */
+  private transient MatrixConversionCache conversionCache;
+
+  /**
+   * Constructs a DispatchingMatrixFactory from the backends registered with
+   * java.util.ServiceLoader, autotuning mmul with the default KernelAutotuner.
+   */
+  public DispatchingMatrixFactory() {
+    this(ServiceLoader.load(MatrixBackend.class), KernelAutotuner.createDefault());
+  }
+
+  /**
+   * Constructs a DispatchingMatrixFactory from the provided backends, without autotuning.
+   * 
+   * @param backends The candidate backends - unavailable backends are ignored.
+   */
+  public DispatchingMatrixFactory(Iterable<MatrixBackend> backends) {
+    this(backends, null);
+  }
+
+  /**
+   * Constructs a DispatchingMatrixFactory from the provided backends.
+   * 
+   * @param backends The candidate backends - unavailable backends are ignored.
+   * @param kernelAutotuner The autotuner used to choose between the backends supporting the 
+   *        shape of an mmul, or null to choose by preference score alone.
+   */
+  public DispatchingMatrixFactory(Iterable<MatrixBackend> backends, 
+      KernelAutotuner kernelAutotuner) {
+    this.kernelAutotuner = kernelAutotuner;
+    List<MatrixBackend> availableBackends = new ArrayList<>();
+    for (MatrixBackend backend : backends) {
+      if (backend.isAvailable()) {
+        availableBackends.add(backend);
+      }
+    }
+    if (availableBackends.isEmpty()) {
+      throw new IllegalStateException("No available MatrixBackend registered");
+    }
+    this.backends = Collections.unmodifiableList(availableBackends);
+  }
+
+  /**
+   * @return The available backends, in registration order.
+   */
+  public List<MatrixBackend> getBackends() {
+    return backends;
+  }
+
+  /**
+   * Select the backend with the highest preference score for the specified shape.
+   * 
+   * @param rows The number of rows
+   * @param columns The number of columns
+   * @return The selected backend
+   */
+  public MatrixBackend selectBackend(int rows, int columns) {
+    MatrixBackend selectedBackend = null;
+    int selectedScore = -1;
+    for (MatrixBackend backend : backends) {
+      int score = backend.getPreferenceScore(rows, columns);
+      if (score > selectedScore) {
+        selectedBackend = backend;
+        selectedScore = score;
+      }
+    }
+    if (selectedBackend == null) {
+      throw new IllegalArgumentException(
+          "No MatrixBackend supports shape:" + rows + "x" + columns);
+    }
+    return selectedBackend;
+  }
+
+  /**
+   * Convert the Matrix to the backend preferred for its shape.
+   * 
+   * @param matrix The Matrix.
+   * @return The Matrix owned by the backend preferred for its shape.
+   */
+  public Matrix toPreferredBackend(Matrix matrix) {
+    return toBackend(matrix, selectBackend(matrix.getRows(), matrix.getColumns()));
+  }
+
+  /**
+   * Convert the Matrix to the specified backend, reusing any cached conversion.
+   * 
+   * @param matrix The Matrix.
+   * @param backend The backend.
+   * @return The Matrix owned by the backend.
+   */
+  public Matrix toBackend(Matrix matrix, MatrixBackend backend) {
+    return getConversionCache().convert(matrix, backend);
+  }
+
+  /**
+   * Discard any cached conversions of or to the Matrix early. Not required for correctness - 
+   * conversions of a Matrix modified in place since are never reused.
+   * 
+   * @param matrix The Matrix.
+   */
+  public void invalidateConversions(Matrix matrix) {
+    getConversionCache().invalidate(matrix);
+  }
+
+  /**
+   * Multiply the matrices. Products of small matrices, and row-vector products with a right 
+   * operand of at most MAX_SMALL_KERNEL_RIGHT_ELEMENTS elements, are computed by 
+   * SmallMatrixKernels. Other products run on the backend preferred for the shape of the product.
+   * With a KernelAutotuner, the backends supporting the shape are benchmarked on scratch operands
+   * of the same shape on first use of the (rows, inner, columns) shape, and the tuned winner is 
+   * used thereafter - only the operands' conversions to the winner are cached.
+   * 
+   * @param left The left Matrix.
+   * @param right The right Matrix.
+   * @return The product.
+   */
+  public Matrix mmul(Matrix left, Matrix right) {
+    int rows = left.getRows();
+    int inner = left.getColumns();
+    int columns = right.getColumns();
+    if (isSmallKernelApplicable(rows, inner, columns)) {
+      double[] product = SmallMatrixKernels.mmul(left.getRowByRowArray(), 
+          right.getRowByRowArray(), rows, inner, columns, new double[rows * columns]);
+      return createMatrix(rows, columns, product);
+    }
+    MatrixBackend backend = selectMmulBackend(left, right);
+    return toBackend(left, backend).mmul(toBackend(right, backend));
+  }
+
+  private static boolean isSmallKernelApplicable(int rows, int inner, int columns) {
+    return SmallMatrixKernels.isApplicable(rows, inner, columns) 
+        && (long) inner * columns <= MAX_SMALL_KERNEL_RIGHT_ELEMENTS;
+  }
+
+  private MatrixBackend selectMmulBackend(Matrix left, Matrix right) {
+    int rows = left.getRows();
+    int columns = right.getColumns();
+    if (kernelAutotuner == null) {
+      return selectBackend(rows, columns);
+    }
+    int inner = left.getColumns();
+    Map<String, MatrixBackend> candidateBackends = new LinkedHashMap<>();
+    for (MatrixBackend backend : backends) {
+      if (backend.getPreferenceScore(rows, columns) >= 0) {
+        candidateBackends.put(backend.getName(), backend);
+      }
+    }
+    if (candidateBackends.size() < 2) {
+      return selectBackend(rows, columns);
+    }
+    KernelTuningKey key = new KernelTuningKey("mmul", KernelTuningCache.getHostCpuModel(), rows,
+        inner, columns);
+    String tunedConfiguration = kernelAutotuner.getTuningCache().getTunedConfiguration(key);
+    if (tunedConfiguration != null && candidateBackends.containsKey(tunedConfiguration)) {
+      return candidateBackends.get(tunedConfiguration);
+    }
+    // Benchmark on scratch operands created by each backend, so that the caller's operands are 
+    // neither read by the losing backends nor converted to them.
+    Map<String, Runnable> candidates = new LinkedHashMap<>();
+    for (MatrixBackend backend : candidateBackends.values()) {
+      MatrixFactory backendFactory = backend.getMatrixFactory();
+      Matrix scratchLeft = backendFactory.createRand(rows, inner);
+      Matrix scratchRight = backendFactory.createRand(inner, columns);
+      candidates.put(backend.getName(), () -> scratchLeft.mmul(scratchRight));
+    }
+    return candidateBackends.get(kernelAutotuner.selectConfiguration(key, candidates));
+  }
+
+  @Override
+  public KernelAutotuner getKernelAutotuner() {
+    return kernelAutotuner;
+  }
+
+  private synchronized MatrixConversionCache getConversionCache() {
+    if (conversionCache == null) {
+      conversionCache = new MatrixConversionCache();
+    }
+    return conversionCache;
+  }
+
+  @Override
+  public Matrix createOnes(int rows, int columns) {
+    return selectBackend(rows, columns).getMatrixFactory().createOnes(rows, columns);
+  }
+
+  @Override
+  public Matrix createOnes(int rows) {
+    return selectBackend(rows, 1).getMatrixFactory().createOnes(rows);
+  }
+
+  @Override
+  public Matrix createZeros(int rows, int columns) {
+    return selectBackend(rows, columns).getMatrixFactory().createZeros(rows, columns);
+  }
+
+  @Override
+  public Matrix createRandn(int rows, int columns) {
+    return selectBackend(rows, columns).getMatrixFactory().createRandn(rows, columns);
+  }
+
+  @Override
+  public Matrix createRand(int rows, int columns) {
+    return selectBackend(rows, columns).getMatrixFactory().createRand(rows, columns);
+  }
+
+  @Override
+  public Matrix createMatrix(double[][] data) {
+    int rows = data.length;
+    int columns = rows == 0 ? 0 : data[0].length;
+    return selectBackend(rows, columns).getMatrixFactory().createMatrix(data);
+  }
+
+  @Override
+  public Matrix createMatrix(int rows, int cols) {
+    return selectBackend(rows, cols).getMatrixFactory().createMatrix(rows, cols);
+  }
+
+  @Override
+  public Matrix createMatrix(int rows, int cols, double[] data) {
+    return selectBackend(rows, cols).getMatrixFactory().createMatrix(rows, cols, data);
+  }
+
+  @Override
+  public Matrix createMatrix() {
+    return selectBackend(0, 0).getMatrixFactory().createMatrix();
+  }
+
+  @Override
+  public Matrix createMatrix(double[] data) {
+    return selectBackend(1, data.length).getMatrixFactory().createMatrix(data);
+  }
+
+  @Override
+  public Matrix createHorizontalConcatenation(Matrix matrix1, Matrix matrix2) {
+    MatrixBackend backend = selectBackend(matrix1.getRows(), 
+        matrix1.getColumns() + matrix2.getColumns());
+    return backend.getMatrixFactory().createHorizontalConcatenation(
+        toBackend(matrix1, backend), toBackend(matrix2, backend));
+  }
+
+  @Override
+  public Matrix createVerticalConcatenation(Matrix matrix1, Matrix matrix2) {
+    MatrixBackend backend = selectBackend(matrix1.getRows() + matrix2.getRows(), 
+        matrix1.getColumns());
+    return backend.getMatrixFactory().createVerticalConcatenation(
+        toBackend(matrix1, backend), toBackend(matrix2, backend));
+  }
+}
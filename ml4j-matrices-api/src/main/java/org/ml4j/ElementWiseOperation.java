@@ -0,0 +1,208 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j;
+
+/**
+ * Element-wise operations which may be fused into the epilogue of a Matrix multiplication, so 
+ * they are applied while the results are still in cache.
+ * 
+ * @author Michael Lavelle
+ */
+public enum ElementWiseOperation {
+
+  /**
+   * The identity operation.
+   */
+  IDENTITY {
+    @Override
+    public double apply(double value) {
+      return value;
+    }
+
+    @Override
+    public double derivativeFromOutput(double output) {
+      return 1d;
+    }
+  },
+
+  /**
+   * The sigmoid operation 1 / (1 + exp(-value)).
+   */
+  SIGMOID {
+    @Override
+    public double apply(double value) {
+      return 1d / (1d + Math.exp(-value));
+    }
+
+    @Override
+    public double applyApproximate(double value) {
+      return SigmoidTable.sigmoid(value);
+    }
+
+    @Override
+    public double getMaximumApproximationError() {
+      return SigmoidTable.MAXIMUM_ERROR;
+    }
+
+    @Override
+    public double derivativeFromOutput(double output) {
+      return output * (1d - output);
+    }
+  },
+
+  /**
+   * The hyperbolic tangent operation.
+   */
+  TANH {
+    @Override
+    public double apply(double value) {
+      return Math.tanh(value);
+    }
+
+    @Override
+    public double applyApproximate(double value) {
+      return 2d * SigmoidTable.sigmoid(2d * value) - 1d;
+    }
+
+    @Override
+    public double getMaximumApproximationError() {
+      return 2d * SigmoidTable.MAXIMUM_ERROR;
+    }
+
+    @Override
+    public double derivativeFromOutput(double output) {
+      return 1d - output * output;
+    }
+  },
+
+  /**
+   * The rectified linear operation max(0, value).
+   */
+  RELU {
+    @Override
+    public double apply(double value) {
+      return value > 0d ? value : 0d;
+    }
+
+    @Override
+    public double derivativeFromOutput(double output) {
+      return output > 0d ? 1d : 0d;
+    }
+  };
+
+  /**
+   * @param value The input value.
+   * @return The result of applying this operation to the value.
+   */
+  public abstract double apply(double value);
+
+  /**
+   * @param value The input value.
+   * @param approximate Whether to apply the fast approximation.
+   * @return applyApproximate(value) if approximate, otherwise apply(value).
+   */
+  public double apply(double value, boolean approximate) {
+    return approximate ? applyApproximate(value) : apply(value);
+  }
+
+  /**
+   * Obtain the derivative of this operation expressed in terms of the output of the operation, 
+   * so that gradients can be computed without retaining the input.
+   * 
+   * @param output The output of this operation.
+   * @return The derivative of this operation at the input producing the output.
+   */
+  public abstract double derivativeFromOutput(double output);
+
+  /**
+   * Apply a fast approximation of this operation, for use in inference when 
+   * NeuronsActivationContext requests approximate activation functions. The absolute error is
+   * bounded by getMaximumApproximationError().
+   * 
+   * @param value The input value.
+   * @return The approximate result of applying this operation to the value.
+   */
+  public double applyApproximate(double value) {
+    return apply(value);
+  }
+
+  /**
+   * @return The bound on the absolute error of applyApproximate.
+   */
+  public double getMaximumApproximationError() {
+    return 0d;
+  }
+
+  /**
+   * Produces an accuracy report for applyApproximate by comparing against apply at evenly spaced
+   * points across the specified range.
+   * 
+   * @param from The start of the range.
+   * @param to The end of the range.
+   * @param points The number of points to compare, at least 2.
+   * @return The maximum absolute error observed.
+   */
+  public double getObservedMaximumApproximationError(double from, double to, int points) {
+    double maximumError = 0d;
+    for (int i = 0; i < points; i++) {
+      double value = from + (to - from) * i / (points - 1);
+      maximumError = Math.max(maximumError, Math.abs(applyApproximate(value) - apply(value)));
+    }
+    return maximumError;
+  }
+
+  /**
+   * A table of sigmoid values with linear interpolation, saturating outside the table range.
+   */
+  private static final class SigmoidTable {
+
+    private static final double RANGE = 16d;
+    private static final int STEPS_PER_UNIT = 64;
+
+    /**
+     * Bounds the interpolation error ( h^2 / 8 * max|sigmoid''| with h = 1 / 64 ) and the 
+     * saturation error ( sigmoid(-16) ), with margin for rounding.
+     */
+    private static final double MAXIMUM_ERROR = 1e-5;
+
+    private static final double[] VALUES = createValues();
+
+    private static double[] createValues() {
+      double[] values = new double[(int) (2 * RANGE * STEPS_PER_UNIT) + 1];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = 1d / (1d + Math.exp(-(i / (double) STEPS_PER_UNIT - RANGE)));
+      }
+      return values;
+    }
+
+    private static double sigmoid(double value) {
+      if (value <= -RANGE) {
+        return 0d;
+      }
+      if (value >= RANGE) {
+        return 1d;
+      }
+      double position = (value + RANGE) * STEPS_PER_UNIT;
+      int index = (int) position;
+      double fraction = position - index;
+      if (index >= VALUES.length - 1) {
+        return VALUES[VALUES.length - 1];
+      }
+      return VALUES[index] + fraction * (VALUES[index + 1] - VALUES[index]);
+    }
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Selects between candidate kernel configurations ( eg. the backend for mmul, or the algorithm for
+ * a convolution ) by micro-benchmarking each candidate on first use of a shape, and recording the
+ * winner in a KernelTuningCache.
+ * 
+ * @author Michael Lavelle
+ */
+public class KernelAutotuner {
+
+  private static final Logger LOGGER = Logger.getLogger(KernelAutotuner.class.getName());
+
+  /**
+   * The system property overriding the location of the default tuning file.
+   */
+  public static final String TUNING_FILE_PROPERTY = "ml4j.kernel.tuning.file";
+
+  private final KernelTuningCache tuningCache;
+  private final int warmupIterations;
+  private final int measuredIterations;
+
+  /**
+   * @param tuningCache The cache in which to record winning configurations.
+   * @param warmupIterations The number of untimed iterations per candidate.
+   * @param measuredIterations The number of timed iterations per candidate.
+   */
+  public KernelAutotuner(KernelTuningCache tuningCache, int warmupIterations,
+      int measuredIterations) {
+    if (measuredIterations < 1) {
+      throw new IllegalArgumentException("At least one measured iteration is required");
+    }
+    this.tuningCache = tuningCache;
+    this.warmupIterations = warmupIterations;
+    this.measuredIterations = measuredIterations;
+  }
+
+  /**
+   * Create a KernelAutotuner persisting to the tuning file named by the TUNING_FILE_PROPERTY 
+   * system property, or to .ml4j/kernel-tuning.properties under the user's home directory. If the
+   * tuning file cannot be read or parsed, tuning starts empty.
+   * 
+   * @return The default KernelAutotuner.
+   */
+  public static KernelAutotuner createDefault() {
+    Path tuningFile = Paths.get(System.getProperty(TUNING_FILE_PROPERTY, 
+        Paths.get(System.getProperty("user.home"), ".ml4j", "kernel-tuning.properties")
+        .toString()));
+    return new KernelAutotuner(new KernelTuningCache(tuningFile), 2, 5);
+  }
+
+  /**
+   * @return The tuning cache.
+   */
+  public KernelTuningCache getTuningCache() {
+    return tuningCache;
+  }
+
+  /**
+   * Obtain the name of the best candidate configuration for the key, benchmarking the candidates
+   * if the key has not been tuned before ( or if the previously tuned configuration is no longer
+   * a candidate ).
+   * 
+   * @param key The tuning key.
+   * @param candidates The candidate kernels, keyed by configuration name - each Runnable should
+   *        execute the kernel once for the shape described by the key.
+   * @return The name of the winning configuration.
+   */
+  public String selectConfiguration(KernelTuningKey key, Map<String, Runnable> candidates) {
+    if (candidates.isEmpty()) {
+      throw new IllegalArgumentException("No candidate configurations for:" + key);
+    }
+    String tunedConfiguration = tuningCache.getTunedConfiguration(key);
+    if (tunedConfiguration != null && candidates.containsKey(tunedConfiguration)) {
+      return tunedConfiguration;
+    }
+    if (candidates.size() == 1) {
+      return candidates.keySet().iterator().next();
+    }
+    String winningConfiguration = null;
+    long winningNanos = Long.MAX_VALUE;
+    for (Map.Entry<String, Runnable> candidate : candidates.entrySet()) {
+      long medianNanos = benchmark(candidate.getValue());
+      if (medianNanos < winningNanos) {
+        winningConfiguration = candidate.getKey();
+        winningNanos = medianNanos;
+      }
+    }
+    try {
+      tuningCache.putTunedConfiguration(key, winningConfiguration);
+    } catch (IOException e) {
+      // The winner is still cached in memory for this process.
+      LOGGER.log(Level.WARNING, "Unable to persist tuning for:" + key, e);
+    }
+    return winningConfiguration;
+  }
+
+  private long benchmark(Runnable kernel) {
+    for (int i = 0; i < warmupIterations; i++) {
+      kernel.run();
+    }
+    long[] timings = new long[measuredIterations];
+    for (int i = 0; i < measuredIterations; i++) {
+      long start = System.nanoTime();
+      kernel.run();
+      timings[i] = System.nanoTime() - start;
+    }
+    Arrays.sort(timings);
+    return timings[measuredIterations / 2];
+  }
+}
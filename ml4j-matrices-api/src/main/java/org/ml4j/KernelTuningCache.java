@@ -0,0 +1,189 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A local tuning file recording the winning kernel configuration for each KernelTuningKey, so that
+ * later runs on the same host pick the tuned kernel immediately.
+ * 
+ * <p>Several processes may share a tuning file - each update is merged with the entries on disk
+ * while holding a lock on a sibling ".lock" file, and the merged file is written to a unique 
+ * temporary file and atomically moved into place.
+ * 
+ * <p>A tuning file which cannot be read or parsed is logged and treated as empty - tuning is only
+ * ever an optimisation, so it must never prevent start up.
+ * 
+ * @author Michael Lavelle
+ */
+public class KernelTuningCache {
+
+  private static final Logger LOGGER = Logger.getLogger(KernelTuningCache.class.getName());
+
+  /**
+   * Serialises file updates between caches in this process, as file locks are held per process.
+   */
+  private static final Object FILE_UPDATE_MONITOR = new Object();
+
+  /**
+   * The host CPU model, read once.
+   */
+  private static volatile String hostCpuModel;
+
+  /**
+   * The tuning file, or null if this cache is not persisted.
+   */
+  private final Path tuningFile;
+
+  /**
+   * The winning configuration names keyed by KernelTuningKey.toPropertyKey().
+   */
+  private final Properties tunedConfigurations;
+
+  /**
+   * Constructs a KernelTuningCache, loading any existing entries from the tuning file. If the
+   * tuning file cannot be read or parsed, the cache starts empty.
+   * 
+   * @param tuningFile The tuning file, or null if this cache is not to be persisted.
+   */
+  public KernelTuningCache(Path tuningFile) {
+    this.tuningFile = tuningFile;
+    this.tunedConfigurations = new Properties();
+    if (tuningFile != null) {
+      load(tuningFile, tunedConfigurations);
+    }
+  }
+
+  /**
+   * @param key The tuning key.
+   * @return The name of the tuned configuration for the key, or null if not yet tuned.
+   */
+  public synchronized String getTunedConfiguration(KernelTuningKey key) {
+    return tunedConfigurations.getProperty(key.toPropertyKey());
+  }
+
+  /**
+   * Record the tuned configuration for the key, persisting the tuning file if configured. The 
+   * configuration is recorded in memory even if the tuning file cannot be written.
+   * 
+   * @param key The tuning key.
+   * @param configurationName The name of the winning configuration.
+   * @throws IOException If the tuning file cannot be written.
+   */
+  public synchronized void putTunedConfiguration(KernelTuningKey key, String configurationName)
+      throws IOException {
+    tunedConfigurations.setProperty(key.toPropertyKey(), configurationName);
+    if (tuningFile != null) {
+      Path directory = tuningFile.toAbsolutePath().getParent();
+      Files.createDirectories(directory);
+      Path lockFile = tuningFile.resolveSibling(tuningFile.getFileName() + ".lock");
+      synchronized (FILE_UPDATE_MONITOR) {
+        updateTuningFile(directory, lockFile);
+      }
+    }
+  }
+
+  private void updateTuningFile(Path directory, Path lockFile) throws IOException {
+    try (FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, 
+        StandardOpenOption.WRITE)) {
+      // The lock is released when the channel is closed.
+      lockChannel.lock();
+      // Merge with entries written by other processes since this cache was loaded, keeping 
+      // this process's entries where both have tuned the same key.
+      Properties mergedConfigurations = new Properties();
+      load(tuningFile, mergedConfigurations);
+      mergedConfigurations.putAll(tunedConfigurations);
+      Path tempFile = Files.createTempFile(directory, tuningFile.getFileName().toString(), 
+          ".tmp");
+      try {
+        try (OutputStream outputStream = Files.newOutputStream(tempFile)) {
+          mergedConfigurations.store(outputStream, "ml4j kernel tuning cache");
+        }
+        move(tempFile, tuningFile);
+      } finally {
+        Files.deleteIfExists(tempFile);
+      }
+      tunedConfigurations.putAll(mergedConfigurations);
+    }
+  }
+
+  private static void load(Path file, Properties properties) {
+    if (Files.exists(file)) {
+      Properties loadedProperties = new Properties();
+      try (InputStream inputStream = Files.newInputStream(file)) {
+        loadedProperties.load(inputStream);
+      } catch (IOException | RuntimeException e) {
+        // Eg. a malformed unicode escape causes an IllegalArgumentException.
+        LOGGER.log(Level.WARNING, "Ignoring unreadable tuning file:" + file, e);
+        return;
+      }
+      properties.putAll(loadedProperties);
+    }
+  }
+
+  private static void move(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * @return The model name of the host CPU, used as part of each KernelTuningKey.
+   */
+  public static String getHostCpuModel() {
+    String cpuModel = hostCpuModel;
+    if (cpuModel == null) {
+      cpuModel = readHostCpuModel();
+      hostCpuModel = cpuModel;
+    }
+    return cpuModel;
+  }
+
+  private static String readHostCpuModel() {
+    Path cpuInfo = Paths.get("/proc/cpuinfo");
+    if (Files.isReadable(cpuInfo)) {
+      try {
+        List<String> lines = Files.readAllLines(cpuInfo, StandardCharsets.UTF_8);
+        for (String line : lines) {
+          if (line.startsWith("model name")) {
+            return line.substring(line.indexOf(':') + 1).trim();
+          }
+        }
+      } catch (IOException e) {
+        // Fall back to the architecture below.
+      }
+    }
+    return System.getProperty("os.arch") + "-" + Runtime.getRuntime().availableProcessors();
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Identifies a kernel tuning decision - the kernel, the host CPU model and the shape the kernel is
+ * applied to.
+ * 
+ * @author Michael Lavelle
+ */
+public final class KernelTuningKey implements Serializable {
+
+  /**
+   * Default serialization id.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The kernel name, eg. mmul, im2col, sum.
+   */
+  private final String kernelName;
+
+  /**
+   * The host CPU model.
+   */
+  private final String cpuModel;
+
+  /**
+   * The dimensions of the shape the kernel is applied to.
+   */
+  private final int[] shape;
+
+  /**
+   * @param kernelName The kernel name, eg. mmul, im2col, sum.
+   * @param cpuModel The host CPU model.
+   * @param shape The dimensions of the shape the kernel is applied to.
+   */
+  public KernelTuningKey(String kernelName, String cpuModel, int... shape) {
+    this.kernelName = kernelName;
+    this.cpuModel = cpuModel;
+    this.shape = shape.clone();
+  }
+
+  /**
+   * @return The kernel name.
+   */
+  public String getKernelName() {
+    return kernelName;
+  }
+
+  /**
+   * @return The host CPU model.
+   */
+  public String getCpuModel() {
+    return cpuModel;
+  }
+
+  /**
+   * @return The dimensions of the shape the kernel is applied to.
+   */
+  public int[] getShape() {
+    return shape.clone();
+  }
+
+  /**
+   * @return A stable String representation of this key, used to persist tuning decisions.
+   */
+  public String toPropertyKey() {
+    StringBuilder builder = new StringBuilder();
+    builder.append(kernelName).append('|').append(cpuModel).append('|');
+    for (int i = 0; i < shape.length; i++) {
+      if (i > 0) {
+        builder.append('x');
+      }
+      builder.append(shape[i]);
+    }
+    return builder.toString();
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof KernelTuningKey)) {
+      return false;
+    }
+    KernelTuningKey otherKey = (KernelTuningKey) other;
+    return kernelName.equals(otherKey.kernelName) && cpuModel.equals(otherKey.cpuModel)
+        && Arrays.equals(shape, otherKey.shape);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * (31 * kernelName.hashCode() + cpuModel.hashCode()) + Arrays.hashCode(shape);
+  }
+
+  @Override
+  public String toString() {
+    return toPropertyKey();
+  }
+}
@@ -23,6 +23,23 @@ import java.io.Serializable;
  */
 public interface Matrix extends MatrixOperations<Matrix>, Serializable {
 
+  /**
+   * The version of a Matrix which does not track its in-place modifications.
+   */
+  long UNVERSIONED = -1;
+
+  /**
+   * Obtain the version of this Matrix. Implementations tracking their in-place modifications start
+   * at zero and increment the version on every in-place operation ( put, addi, subi, muli, divi,
+   * expi, applyi, fill... ), so that conversions of this Matrix to other backends can be cached
+   * safely. Conversions of an UNVERSIONED Matrix are never cached.
+   *
+   * @return The version of this Matrix, or UNVERSIONED.
+   */
+  default long getVersion() {
+    return UNVERSIONED;
+  }
+
   /**
    * Obtain the number of rows of this matrix.
    * 
@@ -44,6 +61,23 @@ public interface Matrix extends MatrixOperations<Matrix>, Serializable {
    */
   double[] toArray();
 
+  /**
+   * Obtain a copy of the data of this matrix in row-major order, with the value for row r, column c
+   * at index r * getColumns() + c, consistent with MatrixFactory.createMatrix(rows, cols, data).
+   * Implementations should override this default with a single bulk copy.
+   *
+   * @return A copy of the data of this matrix in row-major order
+   */
+  default double[] getRowByRowArray() {
+    int columns = getColumns();
+    double[][] rowData = toArray2();
+    double[] data = new double[getRows() * columns];
+    for (int r = 0; r < rowData.length; r++) {
+      System.arraycopy(rowData[r], 0, data, r * columns, columns);
+    }
+    return data;
+  }
+
   /**
    * Return the row of this Matrix identified by rowIndex.
    * 
@@ -140,13 +174,181 @@ public interface Matrix extends MatrixOperations<Matrix>, Serializable {
    */
   Matrix logi();
 
+  /**
+   * A Matrix formed by multiplying this matrix by the other Matrix, adding the bias row vector to
+   * each row and applying the element-wise operation. By default this composes mmul, 
+   * addiRowVector and applyi - implementations should override this default to apply the bias 
+   * and operation in the epilogue of the multiplication.
+   * 
+   * @param other The other Matrix
+   * @param biasRowVector The bias row vector to add to each row of the product, or null
+   * @param operation The element-wise operation to apply after adding the bias
+   * @return The result
+   */
+  default Matrix mmulAndApply(Matrix other, Matrix biasRowVector, 
+      ElementWiseOperation operation) {
+    return mmulAndApply(other, biasRowVector, operation, false);
+  }
+
+  /**
+   * As for mmulAndApply(other, biasRowVector, operation), optionally applying the fast 
+   * approximation of the operation ( see ElementWiseOperation.applyApproximate ).
+   * 
+   * @param other The other Matrix
+   * @param biasRowVector The bias row vector to add to each row of the product, or null
+   * @param operation The element-wise operation to apply after adding the bias
+   * @param approximate Whether to apply the approximation of the operation
+   * @return The result
+   */
+  default Matrix mmulAndApply(Matrix other, Matrix biasRowVector, 
+      ElementWiseOperation operation, boolean approximate) {
+    Matrix result = mmul(other);
+    if (biasRowVector != null) {
+      result.addiRowVector(biasRowVector);
+    }
+    return operation == ElementWiseOperation.IDENTITY ? result 
+        : result.applyi(operation, approximate);
+  }
+
+  /**
+   * Add the row vector to each row of this Matrix in place. Implementations should override 
+   * this default, which adds the row vector one row at a time, with a single broadcast pass over
+   * the underlying data.
+   * 
+   * @param rowVector The row vector
+   * @return This Matrix
+   */
+  default Matrix addiRowVector(Matrix rowVector) {
+    if (rowVector.getRows() != 1 || rowVector.getColumns() != getColumns()) {
+      throw new IllegalArgumentException("Row vector of shape " + rowVector.getRows() + "x" 
+          + rowVector.getColumns() + " cannot be added to the rows of a " + getRows() + "x" 
+          + getColumns() + " Matrix");
+    }
+    for (int r = 0; r < getRows(); r++) {
+      putRow(r, getRow(r).addi(rowVector));
+    }
+    return this;
+  }
+
+  /**
+   * Apply the element-wise operation to each element of this Matrix in place, optionally using 
+   * its fast approximation. Implementations should override this default with a single pass over
+   * the underlying data.
+   * 
+   * @param operation The element-wise operation
+   * @param approximate Whether to apply the approximation of the operation
+   * @return This Matrix
+   */
+  default Matrix applyi(ElementWiseOperation operation, boolean approximate) {
+    for (int r = 0; r < getRows(); r++) {
+      for (int c = 0; c < getColumns(); c++) {
+        put(r, c, operation.apply(get(r, c), approximate));
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Multiply each element of this Matrix in place by the derivative of the operation at the 
+   * corresponding element of outputs - ie. compute dZ = dA .* f'(Z) into this Matrix without 
+   * allocating the derivative Matrix. Implementations should override this default with a single 
+   * fused pass.
+   * 
+   * @param outputs The outputs of the operation, of the same shape as this Matrix
+   * @param operation The element-wise operation
+   * @return This Matrix
+   */
+  default Matrix muliDerivativeFromOutput(Matrix outputs, ElementWiseOperation operation) {
+    for (int r = 0; r < getRows(); r++) {
+      for (int c = 0; c < getColumns(); c++) {
+        put(r, c, get(r, c) * operation.derivativeFromOutput(outputs.get(r, c)));
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Set every element of the specified column of this Matrix to value in place. Implementations
+   * should override this default with a single bulk fill.
+   * 
+   * @param columnIndex The index of the column
+   * @param value The value
+   */
+  default void fillColumn(int columnIndex, double value) {
+    for (int r = 0; r < getRows(); r++) {
+      put(r, columnIndex, value);
+    }
+  }
+
+  /**
+   * Set every element of the specified row of this Matrix to value in place. Implementations
+   * should override this default with a single bulk fill.
+   * 
+   * @param rowIndex The index of the row
+   * @param value The value
+   */
+  default void fillRow(int rowIndex, double value) {
+    for (int c = 0; c < getColumns(); c++) {
+      put(rowIndex, c, value);
+    }
+  }
+
+  /**
+   * Determine whether every element of the specified column of this Matrix equals value.
+   * Implementations should override this default with a single bulk check.
+   * 
+   * @param columnIndex The index of the column
+   * @param value The value
+   * @return Whether every element of the column equals value
+   */
+  default boolean isColumnFilledWith(int columnIndex, double value) {
+    for (int r = 0; r < getRows(); r++) {
+      if (get(r, columnIndex) != value) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Determine whether every element of the specified row of this Matrix equals value.
+   * Implementations should override this default with a single bulk check.
+   * 
+   * @param rowIndex The index of the row
+   * @param value The value
+   * @return Whether every element of the row equals value
+   */
+  default boolean isRowFilledWith(int rowIndex, double value) {
+    for (int c = 0; c < getColumns(); c++) {
+      if (get(rowIndex, c) != value) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * @return This Matrix as a JBlasMatrix.
+   * @deprecated Use {@link #asBackendMatrix(MatrixBackend)} instead.
    */
+  @Deprecated
   Matrix asJBlasMatrix();
 
   /**
    * @return This Matrix as a CudaMatrix.
+   * @deprecated Use {@link #asBackendMatrix(MatrixBackend)} instead.
    */
+  @Deprecated
   Matrix asCudaMatrix();
+
+  /**
+   * Obtain this Matrix as a Matrix owned by the specified backend.
+   * 
+   * @param backend The MatrixBackend.
+   * @return This Matrix if already owned by the backend, otherwise the ( possibly cached )
+   *         conversion of this Matrix to the backend.
+   */
+  default Matrix asBackendMatrix(MatrixBackend backend) {
+    return backend.isBackendMatrix(this) ? this : backend.convert(this);
+  }
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j;
+
+import java.io.Serializable;
+
+/**
+ * Service provider interface for a Matrix backend ( eg. a pure-Java backend for small matrices,
+ * a blocked or native backend for large matrices ).
+ * 
+ * <p>Implementations are discovered by a DispatchingMatrixFactory via java.util.ServiceLoader, and
+ * should be registered in META-INF/services/org.ml4j.MatrixBackend.
+ * 
+ * @author Michael Lavelle
+ */
+public interface MatrixBackend extends Serializable {
+
+  /**
+   * @return The unique name of this backend.
+   */
+  String getName();
+
+  /**
+   * @return Whether this backend can be used in the current runtime environment.
+   */
+  boolean isAvailable();
+
+  /**
+   * Obtain the preference score of this backend for matrices of the specified shape. The backend
+   * with the highest score is chosen - backends encode their own shape thresholds here.
+   * 
+   * @param rows The number of rows
+   * @param columns The number of columns
+   * @return The preference score of this backend for the shape, or a negative value if this backend
+   *         does not support the shape.
+   */
+  int getPreferenceScore(int rows, int columns);
+
+  /**
+   * @return The MatrixFactory creating matrices owned by this backend.
+   */
+  MatrixFactory getMatrixFactory();
+
+  /**
+   * @param matrix The Matrix.
+   * @return Whether the Matrix is owned by this backend.
+   */
+  boolean isBackendMatrix(Matrix matrix);
+
+  /**
+   * Convert the Matrix to a Matrix owned by this backend. A DispatchingMatrixFactory caches 
+   * the conversions it requests in a MatrixConversionCache, so implementations need not.
+   * 
+   * @param matrix The Matrix to convert.
+   * @return The Matrix owned by this backend.
+   */
+  Matrix convert(Matrix matrix);
+}
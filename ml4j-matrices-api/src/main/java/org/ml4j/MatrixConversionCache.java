@@ -0,0 +1,210 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Caches the conversions of matrices between MatrixBackends, so that a Matrix used repeatedly
+ * with another backend is converted once, and a converted Matrix converted back to the backend
+ * of its source resolves to the source rather than being copied back.
+ * 
+ * <p>Entries are weakly keyed by identity, so a conversion is held only while its source is 
+ * reachable. Each entry records the versions ( see Matrix.getVersion() ) of the source and of its
+ * conversion, and is discarded as soon as either has been modified in place since, so callers need
+ * not invalidate conversions themselves. Conversions of an UNVERSIONED Matrix, or to an UNVERSIONED
+ * Matrix, are never cached.
+ * 
+ * @author Michael Lavelle
+ */
+public class MatrixConversionCache {
+
+  private Map<IdentityKey, Map<MatrixBackend, Conversion>> conversions;
+  private Map<IdentityKey, Conversion> sources;
+  private ReferenceQueue<Matrix> collectedKeys;
+
+  /**
+   * Constructs an empty MatrixConversionCache.
+   */
+  public MatrixConversionCache() {
+    this.conversions = new HashMap<>();
+    this.sources = new HashMap<>();
+    this.collectedKeys = new ReferenceQueue<>();
+  }
+
+  /**
+   * Convert the Matrix to the backend, using a cached conversion if still current.
+   * 
+   * @param matrix The Matrix.
+   * @param backend The target backend.
+   * @return The Matrix if already owned by the backend, otherwise its conversion.
+   */
+  public synchronized Matrix convert(Matrix matrix, MatrixBackend backend) {
+    if (backend.isBackendMatrix(matrix)) {
+      return matrix;
+    }
+    expungeCollectedKeys();
+    IdentityKey key = new IdentityKey(matrix, null);
+    Conversion sourceConversion = sources.get(key);
+    if (sourceConversion != null) {
+      Matrix source = sourceConversion.source.get();
+      if (source != null && sourceConversion.isCurrent(source, matrix)) {
+        if (backend.isBackendMatrix(source)) {
+          return source;
+        }
+      } else {
+        discard(sourceConversion);
+      }
+    }
+    Map<MatrixBackend, Conversion> matrixConversions = conversions.get(key);
+    Conversion conversion = matrixConversions == null ? null : matrixConversions.get(backend);
+    if (conversion != null) {
+      if (conversion.isCurrent(matrix, conversion.converted)) {
+        return conversion.converted;
+      }
+      discard(conversion);
+    }
+    Matrix converted = backend.convert(matrix);
+    if (matrix.getVersion() != Matrix.UNVERSIONED 
+        && converted.getVersion() != Matrix.UNVERSIONED) {
+      conversion = new Conversion(matrix, backend, converted);
+      conversions.computeIfAbsent(new IdentityKey(matrix, collectedKeys), 
+          newKey -> new HashMap<>()).put(backend, conversion);
+      sources.put(new IdentityKey(converted, collectedKeys), conversion);
+    }
+    return converted;
+  }
+
+  /**
+   * Discard the cached conversions of the Matrix. Not required for correctness, as conversions
+   * of a modified Matrix are discarded on next use, but releases them early.
+   * 
+   * @param matrix The Matrix.
+   */
+  public synchronized void invalidate(Matrix matrix) {
+    IdentityKey key = new IdentityKey(matrix, null);
+    Map<MatrixBackend, Conversion> matrixConversions = conversions.remove(key);
+    if (matrixConversions != null) {
+      for (Conversion conversion : matrixConversions.values()) {
+        sources.remove(new IdentityKey(conversion.converted, null));
+      }
+    }
+    Conversion sourceConversion = sources.remove(key);
+    if (sourceConversion != null) {
+      discard(sourceConversion);
+    }
+  }
+
+  /**
+   * @return The number of matrices with cached conversions.
+   */
+  public synchronized int size() {
+    expungeCollectedKeys();
+    return conversions.size();
+  }
+
+  private void discard(Conversion conversion) {
+    sources.remove(new IdentityKey(conversion.converted, null));
+    Matrix source = conversion.source.get();
+    if (source != null) {
+      IdentityKey sourceKey = new IdentityKey(source, null);
+      Map<MatrixBackend, Conversion> matrixConversions = conversions.get(sourceKey);
+      if (matrixConversions != null && matrixConversions.get(conversion.backend) == conversion) {
+        matrixConversions.remove(conversion.backend);
+        if (matrixConversions.isEmpty()) {
+          conversions.remove(sourceKey);
+        }
+      }
+    }
+  }
+
+  private void expungeCollectedKeys() {
+    Object collectedKey = collectedKeys.poll();
+    while (collectedKey != null) {
+      Map<MatrixBackend, Conversion> matrixConversions = conversions.remove(collectedKey);
+      if (matrixConversions != null) {
+        // The conversions of a collected source are keyed by the converted matrices they hold 
+        // strongly, so those keys would never be collected themselves.
+        for (Conversion conversion : matrixConversions.values()) {
+          sources.remove(new IdentityKey(conversion.converted, null));
+        }
+      }
+      sources.remove(collectedKey);
+      collectedKey = collectedKeys.poll();
+    }
+  }
+
+  /**
+   * A cached conversion, with the versions of the source and converted matrices it was made at.
+   */
+  private static class Conversion {
+
+    // The source is only weakly referenced, so that the strongly held conversion does not keep 
+    // the source reachable.
+    private WeakReference<Matrix> source;
+    private MatrixBackend backend;
+    private Matrix converted;
+    private long sourceVersion;
+    private long convertedVersion;
+
+    Conversion(Matrix source, MatrixBackend backend, Matrix converted) {
+      this.source = new WeakReference<>(source);
+      this.backend = backend;
+      this.converted = converted;
+      this.sourceVersion = source.getVersion();
+      this.convertedVersion = converted.getVersion();
+    }
+
+    boolean isCurrent(Matrix sourceMatrix, Matrix convertedMatrix) {
+      return sourceMatrix.getVersion() == sourceVersion 
+          && convertedMatrix.getVersion() == convertedVersion;
+    }
+  }
+
+  /**
+   * A weak, identity-based key.
+   */
+  private static class IdentityKey extends WeakReference<Matrix> {
+
+    private int hashCode;
+
+    IdentityKey(Matrix matrix, ReferenceQueue<Matrix> queue) {
+      super(matrix, queue);
+      this.hashCode = System.identityHashCode(matrix);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof IdentityKey)) {
+        return false;
+      }
+      Matrix matrix = get();
+      return matrix != null && matrix == ((IdentityKey) obj).get();
+    }
+  }
+}
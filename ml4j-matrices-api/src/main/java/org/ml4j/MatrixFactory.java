@@ -129,4 +129,12 @@ public interface MatrixFactory extends Serializable {
    * @return The vertical concatenation
    */
   Matrix createVerticalConcatenation(Matrix matrix1, Matrix matrix2);
+
+  /**
+   * @return The KernelAutotuner used by this MatrixFactory to select kernel configurations, or
+   *         null if this MatrixFactory does not autotune its kernels.
+   */
+  default KernelAutotuner getKernelAutotuner() {
+    return null;
+  }
 }
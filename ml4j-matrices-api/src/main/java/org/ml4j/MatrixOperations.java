@@ -61,6 +61,12 @@ public interface MatrixOperations<M extends MatrixOperations<M>> extends Seriali
 
   double[] toArray();
 
+  /**
+   * Implementations should be bit-reproducible across runs - see ReductionKernels.
+   * 
+   * @param matrices The other vector.
+   * @return The dot product of this vector with the other vector.
+   */
   double dot(M matrices);
 
   M copy(M matrices);
@@ -73,6 +79,11 @@ public interface MatrixOperations<M extends MatrixOperations<M>> extends Seriali
 
   int getLength();
 
+  /**
+   * Implementations should be bit-reproducible across runs - see ReductionKernels.
+   * 
+   * @return A column vector containing the sum of each row.
+   */
   M rowSums();
 
   void put(int index, double value);
@@ -87,6 +98,11 @@ public interface MatrixOperations<M extends MatrixOperations<M>> extends Seriali
 
   M diviColumnVector(M matrixOperations);
 
+  /**
+   * Implementations should be bit-reproducible across runs - see ReductionKernels.
+   * 
+   * @return The sum of all elements.
+   */
   double sum();
 
   int getRows();
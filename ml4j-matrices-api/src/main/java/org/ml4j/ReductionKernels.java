@@ -0,0 +1,126 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j;
+
+import java.util.stream.IntStream;
+
+/**
+ * Parallel, bit-reproducible reduction kernels for sum(), dot() and rowSums().
+ * 
+ * <p>Input is split into blocks of a fixed size independent of the number of available cores.
+ * Each block is summed with Kahan-compensated accumulation, and block partial sums are combined
+ * using a fixed pairwise reduction tree - so the result is identical from run to run, regardless
+ * of how blocks are scheduled across threads.
+ * 
+ * @author Michael Lavelle
+ */
+public final class ReductionKernels {
+
+  /**
+   * The number of elements in each reduction block.
+   */
+  public static final int BLOCK_SIZE = 4096;
+
+  /**
+   * The minimum number of elements for which blocks are reduced in parallel.
+   */
+  public static final int PARALLEL_THRESHOLD = 16 * BLOCK_SIZE;
+
+  private ReductionKernels() {
+  }
+
+  /**
+   * @param data The data to sum.
+   * @param offset The index of the first element to sum.
+   * @param length The number of elements to sum.
+   * @return The reproducible sum of the elements.
+   */
+  public static double sum(double[] data, int offset, int length) {
+    return reduce(null, data, offset, length);
+  }
+
+  /**
+   * @param first The first vector.
+   * @param second The second vector.
+   * @return The reproducible dot product of the two vectors.
+   */
+  public static double dot(double[] first, double[] second) {
+    if (first.length != second.length) {
+      throw new IllegalArgumentException(
+          "Vector lengths differ:" + first.length + "," + second.length);
+    }
+    return reduce(first, second, 0, first.length);
+  }
+
+  /**
+   * Sum each row of a row-major matrix. Rows are summed in parallel for large matrices, each with
+   * Kahan-compensated accumulation.
+   * 
+   * @param data The row-major matrix data.
+   * @param rows The number of rows.
+   * @param columns The number of columns.
+   * @param result The array of length rows to write the row sums into.
+   * @return The result array.
+   */
+  public static double[] rowSums(double[] data, int rows, int columns, double[] result) {
+    IntStream rowIndexes = IntStream.range(0, rows);
+    if ((long) rows * columns >= PARALLEL_THRESHOLD) {
+      rowIndexes = rowIndexes.parallel();
+    }
+    rowIndexes.forEach(r -> result[r] = reduce(null, data, r * columns, columns));
+    return result;
+  }
+
+  private static double reduce(double[] weights, double[] data, int offset, int length) {
+    int blocks = (length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    if (blocks <= 1) {
+      return kahanSum(weights, data, offset, offset + length);
+    }
+    double[] partials = new double[blocks];
+    IntStream blockIndexes = IntStream.range(0, blocks);
+    if (length >= PARALLEL_THRESHOLD) {
+      blockIndexes = blockIndexes.parallel();
+    }
+    blockIndexes.forEach(b -> {
+      int start = offset + b * BLOCK_SIZE;
+      int end = Math.min(start + BLOCK_SIZE, offset + length);
+      partials[b] = kahanSum(weights, data, start, end);
+    });
+    return pairwiseSum(partials, 0, blocks);
+  }
+
+  private static double kahanSum(double[] weights, double[] data, int start, int end) {
+    double sum = 0d;
+    double compensation = 0d;
+    for (int i = start; i < end; i++) {
+      double value = weights == null ? data[i] : weights[i] * data[i];
+      double adjusted = value - compensation;
+      double total = sum + adjusted;
+      compensation = (total - sum) - adjusted;
+      sum = total;
+    }
+    return sum;
+  }
+
+  private static double pairwiseSum(double[] partials, int start, int end) {
+    if (end - start == 1) {
+      return partials[start];
+    }
+    int middle = (start + end) >>> 1;
+    return pairwiseSum(partials, start, middle) + pairwiseSum(partials, middle, end);
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j;
+
+/**
+ * Specialised, allocation-free multiplication kernels for row-vector by matrix products
+ * ( eg. single-sample inference ) and small matrix products, where the setup cost of a general
+ * purpose mmul implementation dominates.
+ * 
+ * <p>All kernels operate on flattened row-major arrays, with the value for row r, column c of a
+ * matrix with cols columns at index r * cols + c, consistent with
+ * MatrixFactory.createMatrix(rows, cols, data). DispatchingMatrixFactory.mmul routes applicable
+ * shapes here ahead of any backend, and MatrixBackend implementations with direct access to their
+ * data should also select these kernels when isApplicable returns true for the requested shape.
+ * 
+ * @author Michael Lavelle
+ */
+public final class SmallMatrixKernels {
+
+  /**
+   * The maximum dimension for which the small fixed-size kernel is selected.
+   */
+  public static final int MAX_SMALL_DIMENSION = 32;
+
+  private SmallMatrixKernels() {
+  }
+
+  /**
+   * Determine whether a specialised kernel should be used for the product of a (rows x inner)
+   * matrix by an (inner x columns) matrix.
+   * 
+   * @param rows The number of rows of the left matrix
+   * @param inner The number of columns of the left matrix and rows of the right matrix
+   * @param columns The number of columns of the right matrix
+   * @return Whether a specialised kernel should be used for this shape
+   */
+  public static boolean isApplicable(int rows, int inner, int columns) {
+    return rows == 1 || (rows <= MAX_SMALL_DIMENSION && inner <= MAX_SMALL_DIMENSION 
+        && columns <= MAX_SMALL_DIMENSION);
+  }
+
+  /**
+   * Multiply the specified matrices into the result, selecting the row-vector kernel for a single
+   * row and the small kernel otherwise.
+   * 
+   * @param left The (rows x inner) left matrix data
+   * @param right The (inner x columns) right matrix data
+   * @param rows The number of rows of the left matrix
+   * @param inner The number of columns of the left matrix and rows of the right matrix
+   * @param columns The number of columns of the right matrix
+   * @param result The (rows x columns) array to write the product into
+   * @return The result array
+   */
+  public static double[] mmul(double[] left, double[] right, int rows, int inner, int columns,
+      double[] result) {
+    if (!isApplicable(rows, inner, columns)) {
+      throw new IllegalArgumentException(
+          "Shape not supported by small kernels:" + rows + "x" + inner + "x" + columns);
+    }
+    if (rows == 1) {
+      return rowVectorMmul(left, 0, right, inner, columns, result, 0);
+    }
+    for (int r = 0; r < rows; r++) {
+      rowVectorMmul(left, r * inner, right, inner, columns, result, r * columns);
+    }
+    return result;
+  }
+
+  /**
+   * Multiply a row vector by an (inner x columns) matrix, accumulating each row of the right
+   * matrix scaled by the corresponding vector element so the right matrix is streamed once in
+   * memory order. The column loop is unrolled by four.
+   * 
+   * @param vector The array containing the row vector
+   * @param vectorOffset The index of the first element of the row vector
+   * @param right The (inner x columns) right matrix data
+   * @param inner The length of the row vector and the number of rows of the right matrix
+   * @param columns The number of columns of the right matrix
+   * @param result The array to write the (1 x columns) product into
+   * @param resultOffset The index to write the first element of the product to
+   * @return The result array
+   */
+  public static double[] rowVectorMmul(double[] vector, int vectorOffset, double[] right, 
+      int inner, int columns, double[] result, int resultOffset) {
+    int unrolledColumns = columns & ~3;
+    for (int c = 0; c < columns; c++) {
+      result[resultOffset + c] = 0d;
+    }
+    for (int i = 0; i < inner; i++) {
+      double scale = vector[vectorOffset + i];
+      int rowOffset = i * columns;
+      int col = 0;
+      for (; col < unrolledColumns; col += 4) {
+        result[resultOffset + col] += scale * right[rowOffset + col];
+        result[resultOffset + col + 1] += scale * right[rowOffset + col + 1];
+        result[resultOffset + col + 2] += scale * right[rowOffset + col + 2];
+        result[resultOffset + col + 3] += scale * right[rowOffset + col + 3];
+      }
+      for (; col < columns; col++) {
+        result[resultOffset + col] += scale * right[rowOffset + col];
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Multiply the specified matrices into the result as for mmul, adding the bias to each row and 
+   * applying the element-wise operation to each row of the result while it is still in cache.
+   * 
+   * @param left The (rows x inner) left matrix data
+   * @param right The (inner x columns) right matrix data
+   * @param rows The number of rows of the left matrix
+   * @param inner The number of columns of the left matrix and rows of the right matrix
+   * @param columns The number of columns of the right matrix
+   * @param bias The bias of length columns to add to each row, or null
+   * @param operation The element-wise operation to apply
+   * @param result The (rows x columns) array to write the result into
+   * @return The result array
+   */
+  public static double[] mmulAndApply(double[] left, double[] right, int rows, int inner, 
+      int columns, double[] bias, ElementWiseOperation operation, double[] result) {
+    return mmulAndApply(left, right, rows, inner, columns, bias, operation, false, result);
+  }
+
+  /**
+   * As for mmulAndApply, optionally applying the fast approximation of the operation.
+   * 
+   * @param left The (rows x inner) left matrix data
+   * @param right The (inner x columns) right matrix data
+   * @param rows The number of rows of the left matrix
+   * @param inner The number of columns of the left matrix and rows of the right matrix
+   * @param columns The number of columns of the right matrix
+   * @param bias The bias of length columns to add to each row, or null
+   * @param operation The element-wise operation to apply
+   * @param approximate Whether to apply the approximation of the operation
+   * @param result The (rows x columns) array to write the result into
+   * @return The result array
+   */
+  public static double[] mmulAndApply(double[] left, double[] right, int rows, int inner, 
+      int columns, double[] bias, ElementWiseOperation operation, boolean approximate, 
+      double[] result) {
+    if (!isApplicable(rows, inner, columns)) {
+      throw new IllegalArgumentException(
+          "Shape not supported by small kernels:" + rows + "x" + inner + "x" + columns);
+    }
+    for (int r = 0; r < rows; r++) {
+      int resultOffset = r * columns;
+      rowVectorMmul(left, r * inner, right, inner, columns, result, resultOffset);
+      for (int c = 0; c < columns; c++) {
+        double value = result[resultOffset + c];
+        if (bias != null) {
+          value += bias[c];
+        }
+        result[resultOffset + c] = operation.apply(value, approximate);
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Tests the sparse-dense products of CompressedSparseRows against dense products.
+ *
+ * @author Michael Lavelle
+ */
+public class CompressedSparseRowsTest {
+
+  private static final int ROWS = 6;
+  private static final int COLUMNS = 9;
+  private static final int RIGHT_COLUMNS = 4;
+
+  /**
+   * One-hot rows, leaving columns 0, 2, 5 and 8 untouched.
+   */
+  private static final int[] HOT_COLUMNS = new int[] {3, 1, 7, 3, 4, 6};
+
+  @Test
+  public void testMmulMatchesDenseProduct() {
+    Random random = new Random(1);
+    double[] dense = sparseData(random);
+    double[] right = randomArray(random, COLUMNS * RIGHT_COLUMNS);
+    CompressedSparseRows sparse = CompressedSparseRows.fromRowMajor(dense, ROWS, COLUMNS);
+    Assert.assertEquals(8d / (ROWS * COLUMNS), sparse.getDensity(), 0d);
+    Assert.assertArrayEquals(mmul(dense, ROWS, COLUMNS, right, RIGHT_COLUMNS),
+        sparse.mmul(right, RIGHT_COLUMNS, new double[ROWS * RIGHT_COLUMNS]), 1e-12);
+  }
+
+  @Test
+  public void testTouchedColumns() {
+    CompressedSparseRows sparse = CompressedSparseRows.fromRowMajor(sparseData(new Random(2)),
+        ROWS, COLUMNS);
+    Assert.assertArrayEquals(new int[] {1, 3, 4, 6, 7}, sparse.getTouchedColumns());
+    Assert.assertArrayEquals(new int[] {2, 4, 5, 7, 8}, sparse.getTouchedColumns(1));
+    Assert.assertArrayEquals(new int[] {0, 2, 4, 5, 7, 8}, sparse.getTouchedColumns(1, true));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBiasRequiresAnOffset() {
+    CompressedSparseRows.fromRowMajor(sparseData(new Random(3)), ROWS, COLUMNS)
+        .getTouchedColumns(0, true);
+  }
+
+  @Test
+  public void testTransposeMmulMatchesTouchedRowsOfDenseProduct() {
+    Random random = new Random(4);
+    double[] dense = sparseData(random);
+    double[] right = randomArray(random, ROWS * RIGHT_COLUMNS);
+    CompressedSparseRows sparse = CompressedSparseRows.fromRowMajor(dense, ROWS, COLUMNS);
+    double[] expected = mmul(transpose(dense, ROWS, COLUMNS), COLUMNS, ROWS, right,
+        RIGHT_COLUMNS);
+    int[] touchedColumns = sparse.getTouchedColumns();
+    double[] compact = sparse.transposeMmul(right, RIGHT_COLUMNS, touchedColumns,
+        new double[touchedColumns.length * RIGHT_COLUMNS]);
+    assertCompactRows(expected, touchedColumns, compact);
+  }
+
+  @Test
+  public void testTransposeMmulWithBiasMatchesDenseProductWithBiasColumn() {
+    Random random = new Random(5);
+    double[] dense = sparseData(random);
+    double[] right = randomArray(random, ROWS * RIGHT_COLUMNS);
+    // The dense inputs with a leading bias column of ones.
+    double[] withBias = new double[ROWS * (COLUMNS + 1)];
+    for (int r = 0; r < ROWS; r++) {
+      withBias[r * (COLUMNS + 1)] = 1d;
+      System.arraycopy(dense, r * COLUMNS, withBias, r * (COLUMNS + 1) + 1, COLUMNS);
+    }
+    double[] expected = mmul(transpose(withBias, ROWS, COLUMNS + 1), COLUMNS + 1, ROWS, right,
+        RIGHT_COLUMNS);
+    CompressedSparseRows sparse = CompressedSparseRows.fromRowMajor(dense, ROWS, COLUMNS);
+    int[] touchedColumns = sparse.getTouchedColumns(1, true);
+    double[] compact = sparse.transposeMmul(right, RIGHT_COLUMNS, touchedColumns, 1,
+        new double[touchedColumns.length * RIGHT_COLUMNS]);
+    assertCompactRows(expected, touchedColumns, compact);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTransposeMmulRejectsUntouchedColumns() {
+    CompressedSparseRows sparse = CompressedSparseRows.fromRowMajor(sparseData(new Random(6)),
+        ROWS, COLUMNS);
+    sparse.transposeMmul(new double[ROWS * RIGHT_COLUMNS], RIGHT_COLUMNS, new int[] {1, 3},
+        new double[2 * RIGHT_COLUMNS]);
+  }
+
+  private static void assertCompactRows(double[] expected, int[] touchedColumns,
+      double[] compact) {
+    for (int i = 0; i < touchedColumns.length; i++) {
+      for (int c = 0; c < RIGHT_COLUMNS; c++) {
+        Assert.assertEquals(expected[touchedColumns[i] * RIGHT_COLUMNS + c],
+            compact[i * RIGHT_COLUMNS + c], 1e-12);
+      }
+    }
+  }
+
+  /**
+   * The one-hot HOT_COLUMNS rows, with a second non-zero value in the first two rows.
+   */
+  private static double[] sparseData(Random random) {
+    double[] data = new double[ROWS * COLUMNS];
+    for (int r = 0; r < ROWS; r++) {
+      data[r * COLUMNS + HOT_COLUMNS[r]] = 1d + random.nextDouble();
+    }
+    data[COLUMNS + 6] = random.nextGaussian();
+    data[4] = random.nextGaussian();
+    return data;
+  }
+
+  private static double[] randomArray(Random random, int length) {
+    double[] values = new double[length];
+    for (int i = 0; i < length; i++) {
+      values[i] = random.nextGaussian();
+    }
+    return values;
+  }
+
+  private static double[] transpose(double[] data, int rows, int columns) {
+    double[] transposed = new double[data.length];
+    for (int r = 0; r < rows; r++) {
+      for (int c = 0; c < columns; c++) {
+        transposed[c * rows + r] = data[r * columns + c];
+      }
+    }
+    return transposed;
+  }
+
+  private static double[] mmul(double[] left, int rows, int inner, double[] right,
+      int columns) {
+    double[] product = new double[rows * columns];
+    for (int r = 0; r < rows; r++) {
+      for (int i = 0; i < inner; i++) {
+        for (int c = 0; c < columns; c++) {
+          product[r * columns + c] += left[r * inner + i] * right[i * columns + c];
+        }
+      }
+    }
+    return product;
+  }
+}
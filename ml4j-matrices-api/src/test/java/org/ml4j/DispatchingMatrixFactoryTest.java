@@ -0,0 +1,386 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Tests DispatchingMatrixFactory routing and conversion caching with CPU-only test backends.
+ * 
+ * @author Michael Lavelle
+ */
+public class DispatchingMatrixFactoryTest {
+
+  private TestBackend smallBackend;
+  private TestBackend largeBackend;
+  private DispatchingMatrixFactory matrixFactory;
+
+  /**
+   * Registers a small-matrix backend preferred up to 1024 elements, and a large-matrix backend 
+   * supporting matrices of at least 64 elements.
+   */
+  @Before
+  public void setUp() {
+    smallBackend = new TestBackend("small", 0, 1024, 10, true);
+    largeBackend = new TestBackend("large", 64, Integer.MAX_VALUE, 5, true);
+    matrixFactory = new DispatchingMatrixFactory(Arrays.asList(smallBackend, largeBackend));
+  }
+
+  @Test
+  public void testCreationIsRoutedByShape() {
+    Assert.assertTrue(smallBackend.isBackendMatrix(matrixFactory.createZeros(4, 4)));
+    Assert.assertTrue(largeBackend.isBackendMatrix(matrixFactory.createZeros(100, 100)));
+    Assert.assertSame(smallBackend, matrixFactory.selectBackend(32, 32));
+    Assert.assertSame(largeBackend, matrixFactory.selectBackend(32, 33));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsupportedShapeIsRejected() {
+    new DispatchingMatrixFactory(Collections.singletonList(largeBackend)).createZeros(2, 2);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testNoAvailableBackendIsRejected() {
+    new DispatchingMatrixFactory(Collections.singletonList(
+        new TestBackend("unavailable", 0, 1, 1, false)));
+  }
+
+  @Test
+  public void testUnavailableBackendsAreIgnored() {
+    DispatchingMatrixFactory factory = new DispatchingMatrixFactory(Arrays.asList(
+        new TestBackend("unavailable", 0, Integer.MAX_VALUE, 100, false), smallBackend));
+    Assert.assertEquals(Collections.singletonList(smallBackend), factory.getBackends());
+  }
+
+  @Test
+  public void testConversionsAreCached() {
+    Matrix matrix = smallBackend.getMatrixFactory().createZeros(4, 4);
+    Matrix converted = matrixFactory.toBackend(matrix, largeBackend);
+    Assert.assertTrue(largeBackend.isBackendMatrix(converted));
+    Assert.assertSame(converted, matrixFactory.toBackend(matrix, largeBackend));
+    Assert.assertEquals(1, largeBackend.conversionCount);
+  }
+
+  @Test
+  public void testConversionBackResolvesToSource() {
+    Matrix matrix = smallBackend.getMatrixFactory().createZeros(4, 4);
+    Matrix converted = matrixFactory.toBackend(matrix, largeBackend);
+    Assert.assertSame(matrix, matrixFactory.toBackend(converted, smallBackend));
+    Assert.assertEquals(0, smallBackend.conversionCount);
+  }
+
+  @Test
+  public void testInvalidatedConversionsAreRepeated() {
+    Matrix matrix = smallBackend.getMatrixFactory().createZeros(4, 4);
+    Matrix converted = matrixFactory.toBackend(matrix, largeBackend);
+    matrixFactory.invalidateConversions(matrix);
+    Assert.assertNotSame(converted, matrixFactory.toBackend(matrix, largeBackend));
+    Assert.assertEquals(2, largeBackend.conversionCount);
+  }
+
+  @Test
+  public void testConversionsOfMatricesModifiedInPlaceAreRepeated() {
+    Matrix matrix = smallBackend.getMatrixFactory().createZeros(4, 4);
+    Matrix converted = matrixFactory.toBackend(matrix, largeBackend);
+    matrix.addi(1);
+    Matrix reconverted = matrixFactory.toBackend(matrix, largeBackend);
+    Assert.assertNotSame(converted, reconverted);
+    Assert.assertEquals(2, largeBackend.conversionCount);
+    Assert.assertSame(reconverted, matrixFactory.toBackend(matrix, largeBackend));
+    Assert.assertEquals(2, largeBackend.conversionCount);
+  }
+
+  @Test
+  public void testConversionBackIsRepeatedAfterConvertedMatrixIsModifiedInPlace() {
+    Matrix matrix = smallBackend.getMatrixFactory().createZeros(4, 4);
+    Matrix converted = matrixFactory.toBackend(matrix, largeBackend);
+    converted.addi(1);
+    Assert.assertNotSame(matrix, matrixFactory.toBackend(converted, smallBackend));
+    Assert.assertEquals(1, smallBackend.conversionCount);
+  }
+
+  @Test
+  public void testConversionsOfUnversionedMatricesAreNotCached() {
+    smallBackend.versioned = false;
+    Matrix matrix = smallBackend.getMatrixFactory().createZeros(4, 4);
+    Matrix converted = matrixFactory.toBackend(matrix, largeBackend);
+    Assert.assertNotSame(converted, matrixFactory.toBackend(matrix, largeBackend));
+    Assert.assertEquals(2, largeBackend.conversionCount);
+  }
+
+  @Test
+  public void testMmulIsRoutedByProductShapeAndConvertsOperandsOnce() {
+    Matrix weights = smallBackend.getMatrixFactory().createZeros(100, 10);
+    Matrix inputs = largeBackend.getMatrixFactory().createZeros(10, 200);
+    for (int i = 0; i < 3; i++) {
+      Matrix product = matrixFactory.mmul(weights, inputs);
+      Assert.assertTrue(largeBackend.isBackendMatrix(product));
+      Assert.assertEquals(100, product.getRows());
+      Assert.assertEquals(200, product.getColumns());
+    }
+    Assert.assertEquals(1, largeBackend.conversionCount);
+    Assert.assertEquals(0, smallBackend.conversionCount);
+  }
+
+  @Test
+  public void testConversionIsReleasedOnceItsSourceIsCollected() throws InterruptedException {
+    MatrixConversionCache conversionCache = new MatrixConversionCache();
+    Matrix matrix = smallBackend.getMatrixFactory().createZeros(4, 4);
+    WeakReference<Matrix> converted = 
+        new WeakReference<>(conversionCache.convert(matrix, largeBackend));
+    Assert.assertEquals(1, conversionCache.size());
+    matrix = null;
+    for (int i = 0; i < 100 && (conversionCache.size() != 0 || converted.get() != null); i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    Assert.assertEquals(0, conversionCache.size());
+    Assert.assertNull(converted.get());
+  }
+
+  @Test
+  public void testMmulBackendIsAutotunedWhereSeveralBackendsSupportTheShape() 
+      throws IOException {
+    KernelAutotuner autotuner = new KernelAutotuner(new KernelTuningCache(null), 0, 1);
+    DispatchingMatrixFactory factory = new DispatchingMatrixFactory(
+        Arrays.asList(smallBackend, largeBackend), autotuner);
+    Assert.assertSame(autotuner, factory.getKernelAutotuner());
+    Matrix product = factory.mmul(factory.createZeros(10, 40), factory.createZeros(40, 10));
+    String tunedBackendName = autotuner.getTuningCache().getTunedConfiguration(
+        new KernelTuningKey("mmul", KernelTuningCache.getHostCpuModel(), 10, 40, 10));
+    Assert.assertNotNull(tunedBackendName);
+    TestBackend tunedBackend = tunedBackendName.equals("small") ? smallBackend : largeBackend;
+    Assert.assertTrue(tunedBackend.isBackendMatrix(product));
+  }
+
+  @Test
+  public void testMmulAutotuningDoesNotConvertOperandsToLosingBackends() throws IOException {
+    KernelAutotuner autotuner = new KernelAutotuner(new KernelTuningCache(null), 0, 1);
+    DispatchingMatrixFactory factory = new DispatchingMatrixFactory(
+        Arrays.asList(smallBackend, largeBackend), autotuner);
+    Matrix left = smallBackend.getMatrixFactory().createZeros(10, 40);
+    Matrix right = smallBackend.getMatrixFactory().createZeros(40, 10);
+    Matrix product = factory.mmul(left, right);
+    if (smallBackend.isBackendMatrix(product)) {
+      Assert.assertEquals(0, largeBackend.conversionCount);
+    } else {
+      Assert.assertEquals(2, largeBackend.conversionCount);
+    }
+    Assert.assertEquals(0, smallBackend.conversionCount);
+    Assert.assertEquals(0, smallBackend.versionOf(left));
+    Assert.assertEquals(0, smallBackend.versionOf(right));
+  }
+
+  @Test
+  public void testSmallProductsAreComputedBySmallMatrixKernels() {
+    assertProductMatchesNaiveMmul(5, 7, 3);
+    assertProductMatchesNaiveMmul(32, 32, 32);
+    assertProductMatchesNaiveMmul(1, 1, 1);
+  }
+
+  @Test
+  public void testRowVectorProductsAreComputedBySmallMatrixKernels() {
+    assertProductMatchesNaiveMmul(1, 50, 70);
+    assertProductMatchesNaiveMmul(1, 200, 9);
+  }
+
+  @Test
+  public void testRowVectorProductsWithLargeRightOperandsAreRoutedToBackends() {
+    // Shape-only matrices, whose data cannot be read by SmallMatrixKernels.
+    Matrix vector = smallBackend.getMatrixFactory().createZeros(1, 300);
+    Matrix weights = largeBackend.getMatrixFactory().createZeros(300, 300);
+    Assert.assertTrue(smallBackend.isBackendMatrix(matrixFactory.mmul(vector, weights)));
+    Assert.assertEquals(1, smallBackend.conversionCount);
+  }
+
+  private void assertProductMatchesNaiveMmul(int rows, int inner, int columns) {
+    Random random = new Random(rows * 31 + inner * 7 + columns);
+    Matrix left = smallBackend.createMatrix(rows, inner, randomData(random, rows * inner));
+    Matrix right = largeBackend.createMatrix(inner, columns, 
+        randomData(random, inner * columns));
+    Matrix product = matrixFactory.mmul(left, right);
+    Assert.assertEquals(rows, product.getRows());
+    Assert.assertEquals(columns, product.getColumns());
+    for (int r = 0; r < rows; r++) {
+      for (int c = 0; c < columns; c++) {
+        double expected = 0d;
+        for (int i = 0; i < inner; i++) {
+          expected += left.get(r, i) * right.get(i, c);
+        }
+        Assert.assertEquals(expected, product.get(r, c), 1e-12);
+      }
+    }
+    // The operands are read directly, never converted.
+    Assert.assertEquals(0, smallBackend.conversionCount);
+    Assert.assertEquals(0, largeBackend.conversionCount);
+  }
+
+  private static double[] randomData(Random random, int length) {
+    double[] data = new double[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = random.nextDouble() * 2 - 1;
+    }
+    return data;
+  }
+
+  /**
+   * A CPU-only test backend whose matrices are proxies, holding row-major data where created
+   * with data and otherwise shape-only.
+   */
+  private static class TestBackend implements MatrixBackend {
+
+    private static final long serialVersionUID = 1L;
+
+    private String name;
+    private int minElements;
+    private int maxElements;
+    private int score;
+    private boolean available;
+    private int conversionCount;
+    private boolean versioned = true;
+
+    TestBackend(String name, int minElements, int maxElements, int score, boolean available) {
+      this.name = name;
+      this.minElements = minElements;
+      this.maxElements = maxElements;
+      this.score = score;
+      this.available = available;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public boolean isAvailable() {
+      return available;
+    }
+
+    @Override
+    public int getPreferenceScore(int rows, int columns) {
+      long elements = (long) rows * columns;
+      return elements >= minElements && elements <= maxElements ? score : -1;
+    }
+
+    @Override
+    public MatrixFactory getMatrixFactory() {
+      return (MatrixFactory) Proxy.newProxyInstance(getClass().getClassLoader(), 
+          new Class<?>[] {MatrixFactory.class}, (proxy, method, args) -> {
+            if (method.getName().equals("createZeros") 
+                || method.getName().equals("createRand")) {
+              return createMatrix((Integer) args[0], (Integer) args[1]);
+            }
+            if (method.getName().equals("createMatrix") && args.length == 3) {
+              return createMatrix((Integer) args[0], (Integer) args[1], (double[]) args[2]);
+            }
+            throw new UnsupportedOperationException(method.getName());
+          });
+    }
+
+    @Override
+    public boolean isBackendMatrix(Matrix matrix) {
+      return Proxy.isProxyClass(matrix.getClass()) 
+          && Proxy.getInvocationHandler(matrix) instanceof TestMatrix
+          && ((TestMatrix) Proxy.getInvocationHandler(matrix)).backend == this;
+    }
+
+    @Override
+    public Matrix convert(Matrix matrix) {
+      conversionCount++;
+      return createMatrix(matrix.getRows(), matrix.getColumns());
+    }
+
+    private Matrix createMatrix(int rows, int columns) {
+      return createMatrix(rows, columns, null);
+    }
+
+    private Matrix createMatrix(int rows, int columns, double[] data) {
+      return (Matrix) Proxy.newProxyInstance(getClass().getClassLoader(), 
+          new Class<?>[] {Matrix.class}, new TestMatrix(this, rows, columns, data,
+              versioned ? 0 : Matrix.UNVERSIONED));
+    }
+
+    private long versionOf(Matrix matrix) {
+      return ((TestMatrix) Proxy.getInvocationHandler(matrix)).version;
+    }
+  }
+
+  /**
+   * A shape-only Matrix owned by a TestBackend, versioned unless created with UNVERSIONED.
+   */
+  private static class TestMatrix implements InvocationHandler {
+
+    private TestBackend backend;
+    private int rows;
+    private int columns;
+    private double[] data;
+    private long version;
+
+    TestMatrix(TestBackend backend, int rows, int columns, double[] data, long version) {
+      this.backend = backend;
+      this.rows = rows;
+      this.columns = columns;
+      this.data = data;
+      this.version = version;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+      switch (method.getName()) {
+        case "getRows":
+          return rows;
+        case "getColumns":
+          return columns;
+        case "getVersion":
+          return version;
+        case "get":
+          return data[(Integer) args[0] * columns + (Integer) args[1]];
+        case "getRowByRowArray":
+          return data.clone();
+        case "addi":
+          if (version != Matrix.UNVERSIONED) {
+            version++;
+          }
+          return proxy;
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "equals":
+          return proxy == args[0];
+        case "toString":
+          return backend.getName() + ":" + rows + "x" + columns;
+        case "mmul":
+          Matrix other = (Matrix) args[0];
+          Assert.assertTrue(backend.isBackendMatrix(other));
+          return backend.createMatrix(rows, other.getColumns());
+        default:
+          throw new UnsupportedOperationException(method.getName());
+      }
+    }
+  }
+}
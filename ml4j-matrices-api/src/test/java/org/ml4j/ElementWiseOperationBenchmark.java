@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j;
+
+import java.util.Random;
+
+/**
+ * Compares the accuracy and throughput of exact and approximate ElementWiseOperations, both 
+ * element-wise and fused into the epilogue of a small matrix multiplication ( as for a 
+ * sigmoid-heavy fully connected network ). Run with:
+ * 
+ * <pre>
+ * java -cp target/classes:target/test-classes org.ml4j.ElementWiseOperationBenchmark
+ * </pre>
+ * 
+ * @author Michael Lavelle
+ */
+public final class ElementWiseOperationBenchmark {
+
+  private static final int ELEMENTS = 1 << 20;
+  private static final int ITERATIONS = 20;
+
+  private ElementWiseOperationBenchmark() {
+  }
+
+  /**
+   * @param args Unused.
+   */
+  public static void main(String[] args) {
+    Random random = new Random(1);
+    double[] values = new double[ELEMENTS];
+    for (int i = 0; i < ELEMENTS; i++) {
+      values[i] = random.nextGaussian() * 4d;
+    }
+    int rows = 32;
+    int inner = 32;
+    int columns = 32;
+    double[] left = new double[rows * inner];
+    double[] right = new double[inner * columns];
+    for (int i = 0; i < left.length; i++) {
+      left[i] = random.nextGaussian();
+      right[i] = random.nextGaussian() / Math.sqrt(inner);
+    }
+    double[] result = new double[rows * columns];
+    System.out.println("operation, maximum error bound, observed maximum error, "
+        + "exact Melements/s, approximate Melements/s, exact fused layers/s, "
+        + "approximate fused layers/s");
+    for (ElementWiseOperation operation : new ElementWiseOperation[] {
+        ElementWiseOperation.SIGMOID, ElementWiseOperation.TANH}) {
+      double observedError = operation.getObservedMaximumApproximationError(-40d, 40d, 1000001);
+      double exactRate = elementsPerSecond(values, operation, false);
+      double approximateRate = elementsPerSecond(values, operation, true);
+      double exactFusedRate = layersPerSecond(left, right, rows, inner, columns, operation, false,
+          result);
+      double approximateFusedRate = layersPerSecond(left, right, rows, inner, columns, operation,
+          true, result);
+      System.out.println(String.format("%s, %.2e, %.2e, %.1f, %.1f, %.0f, %.0f", operation,
+          operation.getMaximumApproximationError(), observedError, exactRate / 1e6, 
+          approximateRate / 1e6, exactFusedRate, approximateFusedRate));
+    }
+  }
+
+  private static double elementsPerSecond(double[] values, ElementWiseOperation operation,
+      boolean approximate) {
+    double checksum = 0d;
+    long best = Long.MAX_VALUE;
+    for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+      long start = System.nanoTime();
+      for (double value : values) {
+        checksum += operation.apply(value, approximate);
+      }
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    consume(checksum);
+    return values.length * 1e9 / best;
+  }
+
+  private static double layersPerSecond(double[] left, double[] right, int rows, int inner, 
+      int columns, ElementWiseOperation operation, boolean approximate, double[] result) {
+    int layers = 2000;
+    double checksum = 0d;
+    long best = Long.MAX_VALUE;
+    for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+      long start = System.nanoTime();
+      for (int layer = 0; layer < layers; layer++) {
+        SmallMatrixKernels.mmulAndApply(left, right, rows, inner, columns, null, operation, 
+            approximate, result);
+        checksum += result[layer % result.length];
+      }
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    consume(checksum);
+    return layers * 1e9 / best;
+  }
+
+  private static void consume(double checksum) {
+    if (checksum == Double.MIN_VALUE) {
+      System.out.println(checksum);
+    }
+  }
+}
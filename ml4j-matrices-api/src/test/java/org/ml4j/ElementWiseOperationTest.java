@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Accuracy report for the approximate ElementWiseOperations, and tests of the approximate fused
+ * kernel path.
+ * 
+ * @author Michael Lavelle
+ */
+public class ElementWiseOperationTest {
+
+  @Test
+  public void testObservedApproximationErrorIsWithinBound() {
+    for (ElementWiseOperation operation : ElementWiseOperation.values()) {
+      double observedError = operation.getObservedMaximumApproximationError(-40d, 40d, 1000001);
+      Assert.assertTrue(operation + " observed error " + observedError, 
+          observedError <= operation.getMaximumApproximationError());
+    }
+  }
+
+  @Test
+  public void testApproximateIsExactForOperationsWithoutApproximation() {
+    Assert.assertEquals(0d, ElementWiseOperation.RELU.getMaximumApproximationError(), 0d);
+    Assert.assertEquals(ElementWiseOperation.RELU.apply(-0.5d), 
+        ElementWiseOperation.RELU.apply(-0.5d, true), 0d);
+  }
+
+  @Test
+  public void testApproximateFusedKernelIsWithinBound() {
+    Random random = new Random(1);
+    int rows = 8;
+    int inner = 16;
+    int columns = 8;
+    double[] left = randomArray(random, rows * inner);
+    double[] right = randomArray(random, inner * columns);
+    double[] bias = randomArray(random, columns);
+    for (ElementWiseOperation operation : new ElementWiseOperation[] {
+        ElementWiseOperation.SIGMOID, ElementWiseOperation.TANH}) {
+      double[] exact = SmallMatrixKernels.mmulAndApply(left, right, rows, inner, columns, bias, 
+          operation, false, new double[rows * columns]);
+      double[] approximate = SmallMatrixKernels.mmulAndApply(left, right, rows, inner, columns,
+          bias, operation, true, new double[rows * columns]);
+      boolean approximated = false;
+      for (int i = 0; i < exact.length; i++) {
+        Assert.assertEquals(exact[i], approximate[i], operation.getMaximumApproximationError());
+        approximated |= exact[i] != approximate[i];
+      }
+      Assert.assertTrue(operation + " was not approximated", approximated);
+    }
+  }
+
+  private static double[] randomArray(Random random, int length) {
+    double[] values = new double[length];
+    for (int i = 0; i < length; i++) {
+      values[i] = random.nextGaussian();
+    }
+    return values;
+  }
+}
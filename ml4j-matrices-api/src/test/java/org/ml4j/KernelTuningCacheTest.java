@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tests KernelTuningCache persistence and KernelAutotuner selection.
+ * 
+ * @author Michael Lavelle
+ */
+public class KernelTuningCacheTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static final KernelTuningKey FIRST_KEY = new KernelTuningKey("mmul", "cpu", 1, 2, 3);
+  private static final KernelTuningKey SECOND_KEY = new KernelTuningKey("mmul", "cpu", 4, 5, 6);
+
+  @Test
+  public void testTuningIsReloaded() throws IOException {
+    Path tuningFile = temporaryFolder.getRoot().toPath().resolve("tuning.properties");
+    new KernelTuningCache(tuningFile).putTunedConfiguration(FIRST_KEY, "blocked");
+    Assert.assertEquals("blocked", new KernelTuningCache(tuningFile).getTunedConfiguration(
+        FIRST_KEY));
+  }
+
+  @Test
+  public void testConcurrentCachesMergeEntries() throws IOException {
+    Path tuningFile = temporaryFolder.getRoot().toPath().resolve("tuning.properties");
+    KernelTuningCache firstCache = new KernelTuningCache(tuningFile);
+    KernelTuningCache secondCache = new KernelTuningCache(tuningFile);
+    firstCache.putTunedConfiguration(FIRST_KEY, "blocked");
+    secondCache.putTunedConfiguration(SECOND_KEY, "unrolled");
+    KernelTuningCache reloadedCache = new KernelTuningCache(tuningFile);
+    Assert.assertEquals("blocked", reloadedCache.getTunedConfiguration(FIRST_KEY));
+    Assert.assertEquals("unrolled", reloadedCache.getTunedConfiguration(SECOND_KEY));
+    Assert.assertEquals("blocked", secondCache.getTunedConfiguration(FIRST_KEY));
+    for (File file : temporaryFolder.getRoot().listFiles()) {
+      Assert.assertFalse(file.getName(), file.getName().endsWith(".tmp"));
+    }
+  }
+
+  @Test
+  public void testCorruptTuningFileIsTreatedAsEmptyAndReplaced() throws IOException {
+    Path tuningFile = temporaryFolder.getRoot().toPath().resolve("tuning.properties");
+    // A truncated unicode escape, which Properties.load rejects with IllegalArgumentException.
+    Files.write(tuningFile, "mmul=\\u12".getBytes(StandardCharsets.ISO_8859_1));
+    KernelTuningCache tuningCache = new KernelTuningCache(tuningFile);
+    Assert.assertNull(tuningCache.getTunedConfiguration(FIRST_KEY));
+    tuningCache.putTunedConfiguration(FIRST_KEY, "blocked");
+    Assert.assertEquals("blocked", new KernelTuningCache(tuningFile).getTunedConfiguration(
+        FIRST_KEY));
+  }
+
+  @Test
+  public void testWinnerIsReturnedWhenTuningFileIsUnwritable() throws IOException {
+    // The parent of the tuning file is a regular file, so the tuning file cannot be written.
+    Path parentFile = temporaryFolder.newFile("not-a-directory").toPath();
+    KernelAutotuner autotuner = new KernelAutotuner(new KernelTuningCache(
+        parentFile.resolve("tuning.properties")), 0, 1);
+    Map<String, Runnable> candidates = new LinkedHashMap<>();
+    candidates.put("slow", () -> sleep(20));
+    candidates.put("fast", () -> { });
+    Assert.assertEquals("fast", autotuner.selectConfiguration(FIRST_KEY, candidates));
+    Assert.assertEquals("fast", autotuner.getTuningCache().getTunedConfiguration(FIRST_KEY));
+    Assert.assertTrue(Files.isRegularFile(parentFile));
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
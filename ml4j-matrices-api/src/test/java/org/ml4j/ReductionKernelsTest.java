@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Tests the reproducibility of ReductionKernels across parallelism, and the accuracy of its
+ * compensated summation against the exact sum.
+ *
+ * @author Michael Lavelle
+ */
+public class ReductionKernelsTest {
+
+  private static final int[] PARALLELISMS = new int[] {1, 2, 3, 4, 8};
+
+  /**
+   * Enough elements to exceed PARALLEL_THRESHOLD, with a partial final block.
+   */
+  private static final int LENGTH = 20 * ReductionKernels.BLOCK_SIZE + 123;
+
+  @Test
+  public void testSumIsBitReproducibleAcrossParallelism() throws Exception {
+    double[] data = illConditionedData(new Random(1), LENGTH);
+    long expectedBits = Double.doubleToLongBits(ReductionKernels.sum(data, 0, LENGTH));
+    for (int parallelism : PARALLELISMS) {
+      double sum = runWithParallelism(parallelism, () -> ReductionKernels.sum(data, 0, LENGTH));
+      Assert.assertEquals("parallelism " + parallelism, expectedBits,
+          Double.doubleToLongBits(sum));
+    }
+  }
+
+  @Test
+  public void testDotIsBitReproducibleAcrossParallelism() throws Exception {
+    Random random = new Random(2);
+    double[] first = illConditionedData(random, LENGTH);
+    double[] second = illConditionedData(random, LENGTH);
+    long expectedBits = Double.doubleToLongBits(ReductionKernels.dot(first, second));
+    for (int parallelism : PARALLELISMS) {
+      double dot = runWithParallelism(parallelism, () -> ReductionKernels.dot(first, second));
+      Assert.assertEquals("parallelism " + parallelism, expectedBits,
+          Double.doubleToLongBits(dot));
+    }
+  }
+
+  @Test
+  public void testRowSumsAreBitReproducibleAcrossParallelism() throws Exception {
+    int rows = 40;
+    int columns = ReductionKernels.PARALLEL_THRESHOLD / rows + 7;
+    double[] data = illConditionedData(new Random(3), rows * columns);
+    double[] expected = ReductionKernels.rowSums(data, rows, columns, new double[rows]);
+    for (int parallelism : PARALLELISMS) {
+      double[] rowSums = runWithParallelism(parallelism,
+          () -> ReductionKernels.rowSums(data, rows, columns, new double[rows]));
+      for (int r = 0; r < rows; r++) {
+        Assert.assertEquals("parallelism " + parallelism + " row " + r,
+            Double.doubleToLongBits(expected[r]), Double.doubleToLongBits(rowSums[r]));
+      }
+    }
+  }
+
+  @Test
+  public void testSumIsWithinCompensatedErrorBound() {
+    double[] data = illConditionedData(new Random(4), LENGTH);
+    BigDecimal exactSum = BigDecimal.ZERO;
+    double absoluteSum = 0d;
+    double naiveSum = 0d;
+    for (double value : data) {
+      exactSum = exactSum.add(new BigDecimal(value));
+      absoluteSum += Math.abs(value);
+      naiveSum += value;
+    }
+    int blocks = (LENGTH + ReductionKernels.BLOCK_SIZE - 1) / ReductionKernels.BLOCK_SIZE;
+    // Kahan summation within each block contributes at most 2 eps sum|x|, and the pairwise tree
+    // over the block partials at most ceil(log2(blocks)) eps sum|x|, each to first order.
+    double epsilon = Math.ulp(1d) / 2;
+    int treeDepth = 32 - Integer.numberOfLeadingZeros(blocks - 1);
+    double errorBound = (2 + treeDepth + 1) * epsilon * absoluteSum;
+    double compensatedError = error(ReductionKernels.sum(data, 0, LENGTH), exactSum);
+    Assert.assertTrue("compensated error " + compensatedError + " exceeds " + errorBound,
+        compensatedError <= errorBound);
+    Assert.assertTrue("compensated error " + compensatedError + " not below naive error "
+        + error(naiveSum, exactSum), compensatedError < error(naiveSum, exactSum));
+  }
+
+  @Test
+  public void testCompensationRecoversSmallAddends() {
+    // Naive summation loses every addend below half an ulp of the running total.
+    int length = ReductionKernels.BLOCK_SIZE / 2;
+    double[] data = new double[length];
+    data[0] = 1d;
+    for (int i = 1; i < length; i++) {
+      data[i] = Math.ulp(1d) / 4;
+    }
+    double expected = 1d + (length - 1) * (Math.ulp(1d) / 4);
+    Assert.assertEquals(expected, ReductionKernels.sum(data, 0, length), Math.ulp(1d));
+  }
+
+  private static double error(double sum, BigDecimal exactSum) {
+    return Math.abs(new BigDecimal(sum).subtract(exactSum).doubleValue());
+  }
+
+  private static <T> T runWithParallelism(int parallelism, Callable<T> reduction)
+      throws Exception {
+    // Parallel streams started from within a ForkJoinPool task run in that pool.
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      return pool.submit(reduction).get();
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Values of mixed sign spanning sixteen orders of magnitude, so that naive summation loses
+   * significant bits to cancellation.
+   */
+  private static double[] illConditionedData(Random random, int length) {
+    double[] data = new double[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = random.nextGaussian() * Math.pow(10, random.nextInt(17) - 8);
+    }
+    return data;
+  }
+}
@@ -25,5 +25,9 @@ import java.util.List;
  */
 public interface BackPropagation {
 
+  /**
+   * @return The gradients of the layers back propagated through, from the output layer down to
+   *         the lowest trainable layer - layers below it are not back propagated through.
+   */
   List<DirectedLayerGradient> getDirectedLayerGradients();
 }
@@ -1,5 +1,7 @@
 package org.ml4j.nn;
 
+import org.ml4j.nn.neurons.Neurons3DLayout;
+
 /**
  * Encapsulates the runtime context used with a FeedForwareNeuralNetwork.
  * 
@@ -7,4 +9,12 @@ package org.ml4j.nn;
  */
 public interface FeedForwardNeuralNetworkContext extends DirectedNeuralNetworkContext {
 
+  /**
+   * @return The preferred layout for Neurons3D activations within the FeedForwardNeuralNetwork -
+   *         layout conversions are only inserted at the network boundaries and between Axons 
+   *         which do not support this layout.
+   */
+  default Neurons3DLayout getPreferredNeurons3DLayout() {
+    return Neurons3DLayout.CHANNELS_FIRST;
+  }
 }
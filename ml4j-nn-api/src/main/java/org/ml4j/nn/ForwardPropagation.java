@@ -38,9 +38,58 @@ public interface ForwardPropagation {
    */
   List<DirectedLayerActivation> getLayerActivations();
 
+  /**
+   * Back propagate from the outputs of this ForwardPropagation. Implementations should plan the
+   * backward pass ahead with planBackPropagation - computing no weight gradients for axons which
+   * are not trainable in their context, skipping the input gradient of each layer whose context
+   * does not require it, and stopping at the layer activation given by 
+   * getLowestTrainableLayerActivationIndex, below which no gradient is required.
+   * 
+   * @param neuronActivationGradients The gradient of the cost function with respect to the 
+   *        outputs.
+   * @param context The context.
+   * @return The BackPropagation.
+   */
   BackPropagation backPropagate(CostFunctionGradient neuronActivationGradients,
       DirectedNeuralNetworkContext context);
+
+  /**
+   * @param context The context.
+   * @return The index within getLayerActivations() of the lowest layer which is trainable 
+   *         within the context, or -1 if no layer is trainable and back propagation can be 
+   *         skipped entirely.
+   */
+  default int getLowestTrainableLayerActivationIndex(DirectedNeuralNetworkContext context) {
+    List<DirectedLayerActivation> layerActivations = getLayerActivations();
+    for (int i = 0; i < layerActivations.size(); i++) {
+      int layerIndex = context.getStartLayerIndex() + i;
+      if (layerActivations.get(i).getLayer().isTrainable(context.getLayerContext(layerIndex))) {
+        return i;
+      }
+    }
+    return -1;
+  }
   
+  /**
+   * Plan the back propagation of this ForwardPropagation within the context, marking the 
+   * DirectedLayerContext of each layer as requiring its input gradient only if a trainable layer
+   * lies below it - so that back propagation stops at the lowest trainable layer without
+   * computing that layer's input gradient.
+   * 
+   * @param context The context.
+   * @return The index within getLayerActivations() of the lowest trainable layer, or -1 if no 
+   *         layer is trainable and back propagation can be skipped entirely.
+   */
+  default int planBackPropagation(DirectedNeuralNetworkContext context) {
+    int lowestTrainableLayerActivationIndex = getLowestTrainableLayerActivationIndex(context);
+    int layerActivationCount = getLayerActivations().size();
+    for (int i = 0; i < layerActivationCount; i++) {
+      context.getLayerContext(context.getStartLayerIndex() + i).setInputGradientRequired(
+          lowestTrainableLayerActivationIndex != -1 && i > lowestTrainableLayerActivationIndex);
+    }
+    return lowestTrainableLayerActivationIndex;
+  }
+
   /**
    * @param context The context.
    * @return The regularisation cost of this forward propagation.
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.supervised;
+
+import org.ml4j.Matrix;
+import org.ml4j.nn.neurons.NeuronsActivationFeatureOrientation;
+
+import java.util.Spliterator;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Evaluates chunks of a dataset with bounded parallelism, and counts correct classifications 
+ * within a chunk.
+ * 
+ * @author Michael Lavelle
+ */
+final class ChunkedEvaluator {
+
+  /**
+   * The threshold at or above which a single output classifies an example as positive.
+   */
+  static final double BINARY_THRESHOLD = 0.5;
+
+  private ChunkedEvaluator() {
+  }
+
+  /**
+   * Evaluate the chunks, taking them from the Spliterator one at a time on the calling thread so
+   * that no more than parallelism chunks are taken and not yet evaluated.
+   * 
+   * @param chunkEvaluator Evaluates a single chunk.
+   * @param chunks The chunks.
+   * @param parallelism The maximum number of chunks evaluated concurrently.
+   * @return The merged evaluation of all the chunks.
+   */
+  static SupervisedEvaluation evaluate(
+      Function<LabelledNeuronsActivation, SupervisedEvaluation> chunkEvaluator,
+      Spliterator<LabelledNeuronsActivation> chunks, int parallelism) {
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("Parallelism must be positive but was " + parallelism);
+    }
+    SupervisedEvaluation[] evaluation = { new SupervisedEvaluation(0, 0, 0d) };
+    if (parallelism == 1) {
+      chunks.forEachRemaining(
+          chunk -> evaluation[0] = evaluation[0].merge(chunkEvaluator.apply(chunk)));
+      return evaluation[0];
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+    try {
+      CompletionService<SupervisedEvaluation> completionService = 
+          new ExecutorCompletionService<>(executor);
+      int inFlight = 0;
+      boolean remaining = true;
+      while (remaining || inFlight > 0) {
+        while (remaining && inFlight < parallelism) {
+          remaining = chunks.tryAdvance(
+              chunk -> completionService.submit(() -> chunkEvaluator.apply(chunk)));
+          if (remaining) {
+            inFlight++;
+          }
+        }
+        if (inFlight > 0) {
+          evaluation[0] = evaluation[0].merge(completionService.take().get());
+          inFlight--;
+        }
+      }
+      return evaluation[0];
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while evaluating chunks", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new IllegalStateException("Unable to evaluate chunk", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * @param desiredOutputs The desired outputs.
+   * @param actualOutputs The actual outputs, in the same orientation as the desired outputs.
+   * @param featureOrientation The orientation of both matrices.
+   * @return The number of examples whose largest actual output has the same feature index as 
+   *         their largest desired output - or, for a single output feature, whose actual and
+   *         desired outputs are on the same side of the BINARY_THRESHOLD.
+   */
+  static long countCorrectClassifications(Matrix desiredOutputs, Matrix actualOutputs,
+      NeuronsActivationFeatureOrientation featureOrientation) {
+    boolean examplesAreRows = 
+        featureOrientation == NeuronsActivationFeatureOrientation.COLUMNS_SPAN_FEATURE_SET;
+    int exampleCount = examplesAreRows ? desiredOutputs.getRows() : desiredOutputs.getColumns();
+    int featureCount = examplesAreRows ? desiredOutputs.getColumns() : desiredOutputs.getRows();
+    long correctCount = 0;
+    if (featureCount == 1) {
+      for (int example = 0; example < exampleCount; example++) {
+        int row = examplesAreRows ? example : 0;
+        int column = examplesAreRows ? 0 : example;
+        if ((desiredOutputs.get(row, column) >= BINARY_THRESHOLD) 
+            == (actualOutputs.get(row, column) >= BINARY_THRESHOLD)) {
+          correctCount++;
+        }
+      }
+      return correctCount;
+    }
+    for (int example = 0; example < exampleCount; example++) {
+      int desiredIndex = 0;
+      int actualIndex = 0;
+      for (int feature = 1; feature < featureCount; feature++) {
+        int row = examplesAreRows ? example : feature;
+        int column = examplesAreRows ? feature : example;
+        int desiredRow = examplesAreRows ? example : desiredIndex;
+        int desiredColumn = examplesAreRows ? desiredIndex : example;
+        if (desiredOutputs.get(row, column) > desiredOutputs.get(desiredRow, desiredColumn)) {
+          desiredIndex = feature;
+        }
+        int actualRow = examplesAreRows ? example : actualIndex;
+        int actualColumn = examplesAreRows ? actualIndex : example;
+        if (actualOutputs.get(row, column) > actualOutputs.get(actualRow, actualColumn)) {
+          actualIndex = feature;
+        }
+      }
+      if (desiredIndex == actualIndex) {
+        correctCount++;
+      }
+    }
+    return correctCount;
+  }
+}
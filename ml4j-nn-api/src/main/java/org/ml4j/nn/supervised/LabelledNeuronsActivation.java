@@ -0,0 +1,55 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.supervised;
+
+import org.ml4j.nn.neurons.NeuronsActivation;
+
+/**
+ * Encapsulates a chunk of input activations together with the corresponding desired output 
+ * activations, for streaming evaluation of a supervised NeuralNetwork.
+ * 
+ * @author Michael Lavelle
+ */
+public class LabelledNeuronsActivation {
+
+  private NeuronsActivation inputActivations;
+  private NeuronsActivation desiredOutputActivations;
+
+  /**
+   * @param inputActivations The input activations.
+   * @param desiredOutputActivations The desired output activations.
+   */
+  public LabelledNeuronsActivation(NeuronsActivation inputActivations,
+      NeuronsActivation desiredOutputActivations) {
+    this.inputActivations = inputActivations;
+    this.desiredOutputActivations = desiredOutputActivations;
+  }
+
+  /**
+   * @return The input activations.
+   */
+  public NeuronsActivation getInputActivations() {
+    return inputActivations;
+  }
+
+  /**
+   * @return The desired output activations.
+   */
+  public NeuronsActivation getDesiredOutputActivations() {
+    return desiredOutputActivations;
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.supervised;
+
+/**
+ * Partial cost and accuracy counts from evaluating a supervised NeuralNetwork over one or more 
+ * chunks of a dataset, which can be merged to give the evaluation over the whole dataset. The
+ * data cost is summed over the examples, whereas the regularisation cost depends only on the 
+ * weights - it is the same for every chunk evaluated with the same weights, so is counted once.
+ * 
+ * @author Michael Lavelle
+ */
+public class SupervisedEvaluation {
+
+  private long exampleCount;
+  private long correctClassificationCount;
+  private double dataCost;
+  private double regularisationCost;
+
+  /**
+   * @param exampleCount The number of examples evaluated.
+   * @param correctClassificationCount The number of examples classified correctly.
+   * @param dataCost The total cost over the examples evaluated, excluding regularisation.
+   */
+  public SupervisedEvaluation(long exampleCount, long correctClassificationCount, 
+      double dataCost) {
+    this(exampleCount, correctClassificationCount, dataCost, 0d);
+  }
+
+  /**
+   * @param exampleCount The number of examples evaluated.
+   * @param correctClassificationCount The number of examples classified correctly.
+   * @param dataCost The total cost over the examples evaluated, excluding regularisation.
+   * @param regularisationCost The regularisation cost of the weights the examples were 
+   *        evaluated with.
+   */
+  public SupervisedEvaluation(long exampleCount, long correctClassificationCount, 
+      double dataCost, double regularisationCost) {
+    this.exampleCount = exampleCount;
+    this.correctClassificationCount = correctClassificationCount;
+    this.dataCost = dataCost;
+    this.regularisationCost = regularisationCost;
+  }
+
+  /**
+   * Merges the evaluation of other examples, evaluated with the same weights. The data costs
+   * are summed, and the regularisation cost is taken once.
+   * 
+   * @param other The evaluation of other examples.
+   * @return The evaluation over the examples of both evaluations.
+   */
+  public SupervisedEvaluation merge(SupervisedEvaluation other) {
+    return new SupervisedEvaluation(exampleCount + other.exampleCount,
+        correctClassificationCount + other.correctClassificationCount, 
+        dataCost + other.dataCost, 
+        exampleCount == 0 ? other.regularisationCost : regularisationCost);
+  }
+
+  /**
+   * @return The number of examples evaluated.
+   */
+  public long getExampleCount() {
+    return exampleCount;
+  }
+
+  /**
+   * @return The number of examples classified correctly.
+   */
+  public long getCorrectClassificationCount() {
+    return correctClassificationCount;
+  }
+
+  /**
+   * @return The total cost over the examples evaluated, excluding regularisation.
+   */
+  public double getDataCost() {
+    return dataCost;
+  }
+
+  /**
+   * @return The regularisation cost of the weights the examples were evaluated with.
+   */
+  public double getRegularisationCost() {
+    return regularisationCost;
+  }
+
+  /**
+   * @return The total cost over the examples evaluated, including regularisation.
+   */
+  public double getTotalCost() {
+    return dataCost + regularisationCost;
+  }
+
+  /**
+   * @return The average cost over the examples evaluated.
+   */
+  public double getAverageCost() {
+    return exampleCount == 0 ? 0d : getTotalCost() / exampleCount;
+  }
+
+  /**
+   * @return The classification accuracy over the examples evaluated.
+   */
+  public double getClassificationAccuracy() {
+    return exampleCount == 0 ? 0d : (double) correctClassificationCount / exampleCount;
+  }
+}
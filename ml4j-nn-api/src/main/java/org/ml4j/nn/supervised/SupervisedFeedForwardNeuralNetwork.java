@@ -16,12 +16,17 @@
 
 package org.ml4j.nn.supervised;
 
+import org.ml4j.Matrix;
 import org.ml4j.nn.CostAndGradients;
 import org.ml4j.nn.FeedForwardNeuralNetwork;
 import org.ml4j.nn.FeedForwardNeuralNetworkContext;
+import org.ml4j.nn.ForwardPropagation;
+import org.ml4j.nn.costfunctions.CostFunction;
 import org.ml4j.nn.layers.FeedForwardLayer;
 import org.ml4j.nn.neurons.NeuronsActivation;
 
+import java.util.Spliterator;
+
 /**
  * Interface for a supervised FeedForwardNeuralNetwork.
  * 
@@ -70,4 +75,71 @@ public interface SupervisedFeedForwardNeuralNetwork extends
   public CostAndGradients getCostAndGradients(NeuronsActivation inputActivations, 
           NeuronsActivation desiredOutputActivations, 
           FeedForwardNeuralNetworkContext trainingContext);
+
+  /**
+   * Obtains the total cost calculated for the outputs of this FeedForwardNeuralNetwork, including
+   * the regularisation cost, from a single forward propagation without calculating gradients.
+   * 
+   * @param inputActivations The NeuronsActivation produced by the input data
+   * @param desiredOutputActivations The NeuronsActivation produced by the desired output data.
+   * @param costFunction The CostFunction this neural network is trained to minimise
+   * @param context The NeuralNetworkContext used for evaluation
+   * @return The total cost for the provided parameters.
+   */
+  public default double getTotalCost(NeuronsActivation inputActivations, 
+      NeuronsActivation desiredOutputActivations, CostFunction costFunction, 
+      FeedForwardNeuralNetworkContext context) {
+    return evaluate(new LabelledNeuronsActivation(inputActivations, desiredOutputActivations), 
+        costFunction, context).getTotalCost();
+  }
+
+  /**
+   * Evaluates the cost and classification accuracy of this neural network over one chunk of a 
+   * dataset. Both are obtained from a single forward propagation, and no gradients are 
+   * calculated. An example is classified correctly when the index of its largest output 
+   * activation matches the index of its largest desired output activation - or, for a single
+   * output, when both activations are on the same side of 0.5.
+   * 
+   * @param chunk The input and desired output activations
+   * @param costFunction The CostFunction this neural network is trained to minimise
+   * @param context The NeuralNetworkContext used for evaluation
+   * @return The evaluation of the chunk
+   */
+  public default SupervisedEvaluation evaluate(LabelledNeuronsActivation chunk,
+      CostFunction costFunction, FeedForwardNeuralNetworkContext context) {
+    NeuronsActivation desiredOutputActivations = chunk.getDesiredOutputActivations();
+    ForwardPropagation forwardPropagation = 
+        forwardPropagate(chunk.getInputActivations(), context);
+    Matrix desiredOutputs = desiredOutputActivations.getActivations();
+    Matrix actualOutputs = forwardPropagation.getOutputs()
+        .withFeatureOrientation(desiredOutputActivations.getFeatureOrientation())
+        .getActivations();
+    double dataCost = costFunction.evaluate(desiredOutputs, actualOutputs, false).getTotalCost();
+    return new SupervisedEvaluation(desiredOutputActivations.getExampleCount(),
+        ChunkedEvaluator.countCorrectClassifications(desiredOutputs, actualOutputs, 
+            desiredOutputActivations.getFeatureOrientation()), dataCost, 
+        forwardPropagation.getTotalRegularisationCost(context));
+  }
+
+  /**
+   * Evaluates the cost and classification accuracy of this neural network over a dataset 
+   * supplied as chunks, merging the partial counts of each chunk. Chunks are taken from the 
+   * Spliterator one at a time and evaluated on a fixed pool of parallelism threads, with at 
+   * most parallelism chunks taken and not yet evaluated at any time - so at most that many 
+   * chunks are held in memory and the dataset need not fit in the heap. The data costs of the
+   * chunks are summed, and the regularisation cost of the weights is added once.
+   * 
+   * @param chunks The chunks of input and desired output activations
+   * @param costFunction The CostFunction this neural network is trained to minimise
+   * @param context The NeuralNetworkContext used for evaluation - must be safe for concurrent 
+   *        use if parallelism is greater than one
+   * @param parallelism The maximum number of chunks evaluated concurrently - one evaluates the 
+   *        chunks sequentially on the calling thread
+   * @return The evaluation over all the chunks
+   */
+  public default SupervisedEvaluation evaluate(Spliterator<LabelledNeuronsActivation> chunks,
+      CostFunction costFunction, FeedForwardNeuralNetworkContext context, int parallelism) {
+    return ChunkedEvaluator.evaluate(chunk -> evaluate(chunk, costFunction, context), chunks, 
+        parallelism);
+  }
 }
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ml4j.nn.activationfunctions.DifferentiableActivationFunction;
+import org.ml4j.nn.axons.Axons;
+import org.ml4j.nn.axons.AxonsContext;
+import org.ml4j.nn.costfunctions.CostFunctionGradient;
+import org.ml4j.nn.layers.DirectedLayer;
+import org.ml4j.nn.layers.DirectedLayerActivation;
+import org.ml4j.nn.layers.DirectedLayerContext;
+import org.ml4j.nn.neurons.NeuronsActivation;
+import org.ml4j.nn.synapses.DirectedSynapses;
+import org.ml4j.nn.synapses.DirectedSynapsesContext;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Tests that DirectedLayer.isTrainable checks every Axons of every DirectedSynapses in its own
+ * context, and that ForwardPropagation.planBackPropagation requires input gradients only above 
+ * the lowest trainable layer.
+ *
+ * @author Michael Lavelle
+ */
+public class ForwardPropagationTest {
+
+  @Test
+  public void testLayerIsTrainableIfAnyAxonsOfAnySynapsesIsTrainable() {
+    AxonsContext[][] axonsContexts = axonsContexts(1, 2);
+    // The second Axons of the second synapses is the only trainable one.
+    TestLayer layer = new TestLayer(synapses(axonsContexts[0], false),
+        synapses(axonsContexts[1], false, true));
+    Assert.assertTrue(layer.isTrainable(layerContext(axonsContexts, false)));
+    Assert.assertFalse(layer.isTrainable(layerContext(axonsContexts, true)));
+    Assert.assertFalse(new TestLayer(synapses(axonsContexts[0], false),
+        synapses(axonsContexts[1], false, false)).isTrainable(layerContext(axonsContexts, false)));
+  }
+
+  @Test
+  public void testPlanRequiresInputGradientsOnlyAboveLowestTrainableLayer() {
+    List<DirectedLayerContext> layerContexts = new ArrayList<>();
+    ForwardPropagation forwardPropagation = forwardPropagation(layerContexts, false, true, false,
+        true);
+    Assert.assertEquals(1, forwardPropagation.planBackPropagation(
+        networkContext(layerContexts)));
+    boolean[] expected = new boolean[] {false, false, true, true};
+    for (int i = 0; i < expected.length; i++) {
+      Assert.assertEquals("layer " + i, expected[i],
+          layerContexts.get(i).isInputGradientRequired());
+    }
+
+    layerContexts.clear();
+    forwardPropagation = forwardPropagation(layerContexts, false, false);
+    Assert.assertEquals(-1, forwardPropagation.planBackPropagation(
+        networkContext(layerContexts)));
+    for (DirectedLayerContext layerContext : layerContexts) {
+      Assert.assertFalse(layerContext.isInputGradientRequired());
+    }
+  }
+
+  private static ForwardPropagation forwardPropagation(List<DirectedLayerContext> layerContexts,
+      boolean... trainable) {
+    List<DirectedLayerActivation> layerActivations = new ArrayList<>();
+    for (boolean layerTrainable : trainable) {
+      AxonsContext[][] axonsContexts = axonsContexts(1);
+      TestLayer layer = new TestLayer(synapses(axonsContexts[0], layerTrainable));
+      layerContexts.add(layerContext(axonsContexts, false));
+      layerActivations.add(stub(DirectedLayerActivation.class,
+          (method, args) -> "getLayer".equals(method) ? layer : null));
+    }
+    return new ForwardPropagation() {
+
+      @Override
+      public NeuronsActivation getOutputs() {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public List<DirectedLayerActivation> getLayerActivations() {
+        return layerActivations;
+      }
+
+      @Override
+      public BackPropagation backPropagate(CostFunctionGradient neuronActivationGradients,
+          DirectedNeuralNetworkContext context) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public double getTotalRegularisationCost(DirectedNeuralNetworkContext context) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public double getAverageRegularisationCost(DirectedNeuralNetworkContext context) {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  private static DirectedNeuralNetworkContext networkContext(
+      List<DirectedLayerContext> layerContexts) {
+    return stub(DirectedNeuralNetworkContext.class, (method, args) -> {
+      switch (method) {
+        case "getStartLayerIndex":
+          return 0;
+        case "getLayerContext":
+          return layerContexts.get((Integer) args[0]);
+        default:
+          throw new UnsupportedOperationException(method);
+      }
+    });
+  }
+
+  /**
+   * @return An AxonsContext for each Axons of each synapses, indexed [synapsesIndex][axonsIndex].
+   */
+  private static AxonsContext[][] axonsContexts(int... axonsCounts) {
+    AxonsContext[][] axonsContexts = new AxonsContext[axonsCounts.length][];
+    for (int synapsesIndex = 0; synapsesIndex < axonsCounts.length; synapsesIndex++) {
+      axonsContexts[synapsesIndex] = new AxonsContext[axonsCounts[synapsesIndex]];
+      for (int axonsIndex = 0; axonsIndex < axonsCounts[synapsesIndex]; axonsIndex++) {
+        axonsContexts[synapsesIndex][axonsIndex] = stub(AxonsContext.class, (method, args) -> {
+          throw new UnsupportedOperationException(method);
+        });
+      }
+    }
+    return axonsContexts;
+  }
+
+  private static DirectedLayerContext layerContext(AxonsContext[][] axonsContexts,
+      boolean withFreezeOut) {
+    boolean[] inputGradientRequired = new boolean[] {true};
+    return stub(DirectedLayerContext.class, (method, args) -> {
+      switch (method) {
+        case "isWithFreezeOut":
+          return withFreezeOut;
+        case "isInputGradientRequired":
+          return inputGradientRequired[0];
+        case "setInputGradientRequired":
+          inputGradientRequired[0] = (Boolean) args[0];
+          return null;
+        case "getSynapsesContext":
+          AxonsContext[] synapsesAxonsContexts = axonsContexts[(Integer) args[0]];
+          return stub(DirectedSynapsesContext.class, (synapsesMethod, synapsesArgs) -> {
+            switch (synapsesMethod) {
+              case "isWithFreezeOut":
+                return false;
+              case "getAxonsContext":
+                return synapsesAxonsContexts[(Integer) synapsesArgs[0]];
+              default:
+                throw new UnsupportedOperationException(synapsesMethod);
+            }
+          });
+        default:
+          throw new UnsupportedOperationException(method);
+      }
+    });
+  }
+
+  /**
+   * DirectedSynapses containing one Axons per flag, each trainable only within its own context.
+   */
+  private static DirectedSynapses<?, ?> synapses(AxonsContext[] axonsContexts,
+      boolean... trainable) {
+    List<Axons<?, ?, ?>> axons = new ArrayList<>();
+    for (int axonsIndex = 0; axonsIndex < trainable.length; axonsIndex++) {
+      boolean axonsTrainable = trainable[axonsIndex];
+      AxonsContext ownContext = axonsContexts[axonsIndex];
+      axons.add(stub(Axons.class, (method, args) -> {
+        if (!"isTrainable".equals(method)) {
+          throw new UnsupportedOperationException(method);
+        }
+        return axonsTrainable && args[0] == ownContext;
+      }));
+    }
+    return stub(DirectedSynapses.class, (method, args) -> {
+      switch (method) {
+        case "getAxons":
+          return axons.get(0);
+        case "getAllAxons":
+          return axons;
+        default:
+          throw new UnsupportedOperationException(method);
+      }
+    });
+  }
+
+  private static final class TestLayer implements DirectedLayer<Axons<?, ?, ?>, TestLayer> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<DirectedSynapses<?, ?>> synapses;
+
+    private TestLayer(DirectedSynapses<?, ?>... synapses) {
+      this.synapses = Collections.unmodifiableList(Arrays.asList(synapses));
+    }
+
+    @Override
+    public List<DirectedSynapses<?, ?>> getSynapses() {
+      return synapses;
+    }
+
+    @Override
+    public Axons<?, ?, ?> getPrimaryAxons() {
+      return synapses.get(0).getAxons();
+    }
+
+    @Override
+    public TestLayer dup() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getInputNeuronCount() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getOutputNeuronCount() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public DifferentiableActivationFunction getPrimaryActivationFunction() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public DirectedLayerActivation forwardPropagate(
+        NeuronsActivation inputNeuronsActivation, DirectedLayerContext directedLayerContext) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public NeuronsActivation getOptimalInputForOutputNeuron(int outpuNeuronIndex,
+        DirectedLayerContext directedLayerContext) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Stub an interface, answering each method by name - including default methods.
+   */
+  @SuppressWarnings("unchecked")
+  private static <T> T stub(Class<T> type, BiFunction<String, Object[], Object> answer) {
+    return (T) Proxy.newProxyInstance(ForwardPropagationTest.class.getClassLoader(),
+        new Class<?>[] {type}, (proxy, method, args) -> answer.apply(method.getName(), args));
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.supervised;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ml4j.Matrix;
+import org.ml4j.nn.neurons.NeuronsActivationFeatureOrientation;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Tests the merging of chunk evaluations, the bound on chunks in flight, and the counting of
+ * correct classifications by ChunkedEvaluator.
+ *
+ * @author Michael Lavelle
+ */
+public class ChunkedEvaluatorTest {
+
+  private static final int CHUNK_COUNT = 20;
+
+  @Test
+  public void testChunkEvaluationsAreMergedForAnyParallelism() {
+    for (int parallelism = 1; parallelism <= 4; parallelism++) {
+      List<LabelledNeuronsActivation> chunks = chunks(CHUNK_COUNT);
+      // Chunk i has i + 1 examples, i of them correct, with a cost of 2i.
+      SupervisedEvaluation evaluation = ChunkedEvaluator.evaluate(chunk -> {
+        int index = chunks.indexOf(chunk);
+        return new SupervisedEvaluation(index + 1, index, 2d * index);
+      }, chunks.spliterator(), parallelism);
+      long exampleCount = CHUNK_COUNT * (CHUNK_COUNT + 1) / 2;
+      Assert.assertEquals(exampleCount, evaluation.getExampleCount());
+      Assert.assertEquals(exampleCount - CHUNK_COUNT, evaluation.getCorrectClassificationCount());
+      Assert.assertEquals(2d * (exampleCount - CHUNK_COUNT), evaluation.getTotalCost(), 0d);
+    }
+  }
+
+  @Test
+  public void testNoMoreThanParallelismChunksAreInFlight() {
+    int parallelism = 3;
+    AtomicInteger taken = new AtomicInteger();
+    AtomicInteger evaluated = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    Spliterator<LabelledNeuronsActivation> source = chunks(CHUNK_COUNT).spliterator();
+    Spliterator<LabelledNeuronsActivation> chunks = 
+        new Spliterators.AbstractSpliterator<LabelledNeuronsActivation>(CHUNK_COUNT, 
+            Spliterator.ORDERED) {
+          @Override
+          public boolean tryAdvance(Consumer<? super LabelledNeuronsActivation> action) {
+            // Chunks evaluated but not yet merged are still in flight, so this underestimates.
+            maxInFlight.accumulateAndGet(taken.get() - evaluated.get() + 1, Math::max);
+            return source.tryAdvance(chunk -> {
+              taken.incrementAndGet();
+              action.accept(chunk);
+            });
+          }
+        };
+    SupervisedEvaluation evaluation = ChunkedEvaluator.evaluate(chunk -> {
+      try {
+        Thread.sleep(2);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      evaluated.incrementAndGet();
+      return new SupervisedEvaluation(1, 1, 0d);
+    }, chunks, parallelism);
+    Assert.assertEquals(CHUNK_COUNT, evaluation.getExampleCount());
+    Assert.assertEquals(CHUNK_COUNT, taken.get());
+    Assert.assertTrue("max in flight " + maxInFlight.get(), maxInFlight.get() <= parallelism);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testChunkFailureIsPropagated() {
+    ChunkedEvaluator.evaluate(chunk -> {
+      throw new IllegalStateException("failed");
+    }, chunks(CHUNK_COUNT).spliterator(), 2);
+  }
+
+  @Test
+  public void testMultiClassCorrectClassificationsInEitherOrientation() {
+    // Examples 0 and 2 are classified correctly.
+    double[][] desired = new double[][] {{0, 1, 0}, {1, 0, 0}, {0, 0, 1}};
+    double[][] actual = new double[][] {{0.2, 0.7, 0.1}, {0.3, 0.6, 0.1}, {0.1, 0.1, 0.8}};
+    assertCorrectClassifications(2, desired, actual);
+  }
+
+  @Test
+  public void testBinaryCorrectClassificationsUseThreshold() {
+    // Examples 0, 1 and 4 are classified correctly.
+    double[][] desired = new double[][] {{1}, {0}, {1}, {0}, {1}};
+    double[][] actual = new double[][] {{0.9}, {0.1}, {0.4}, {0.6}, {0.5}};
+    assertCorrectClassifications(3, desired, actual);
+  }
+
+  private static void assertCorrectClassifications(long expected, double[][] desired,
+      double[][] actual) {
+    Assert.assertEquals(expected, ChunkedEvaluator.countCorrectClassifications(matrix(desired),
+        matrix(actual), NeuronsActivationFeatureOrientation.COLUMNS_SPAN_FEATURE_SET));
+    Assert.assertEquals(expected, ChunkedEvaluator.countCorrectClassifications(
+        matrix(transpose(desired)), matrix(transpose(actual)), 
+        NeuronsActivationFeatureOrientation.ROWS_SPAN_FEATURE_SET));
+  }
+
+  private static List<LabelledNeuronsActivation> chunks(int count) {
+    List<LabelledNeuronsActivation> chunks = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      chunks.add(new LabelledNeuronsActivation(null, null));
+    }
+    return chunks;
+  }
+
+  private static double[][] transpose(double[][] values) {
+    double[][] transposed = new double[values[0].length][values.length];
+    for (int r = 0; r < values.length; r++) {
+      for (int c = 0; c < values[0].length; c++) {
+        transposed[c][r] = values[r][c];
+      }
+    }
+    return transposed;
+  }
+
+  /**
+   * A read-only Matrix over the values, supporting only the operations counting needs.
+   */
+  private static Matrix matrix(double[][] values) {
+    return (Matrix) Proxy.newProxyInstance(ChunkedEvaluatorTest.class.getClassLoader(),
+        new Class<?>[] {Matrix.class}, (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getRows":
+              return values.length;
+            case "getColumns":
+              return values[0].length;
+            case "get":
+              return values[(Integer) args[0]][(Integer) args[1]];
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+}
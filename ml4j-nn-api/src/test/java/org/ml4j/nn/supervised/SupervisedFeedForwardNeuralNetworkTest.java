@@ -0,0 +1,213 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.ml4j.nn.supervised;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ml4j.Matrix;
+import org.ml4j.nn.CostAndGradients;
+import org.ml4j.nn.FeedForwardNeuralNetworkContext;
+import org.ml4j.nn.ForwardPropagation;
+import org.ml4j.nn.costfunctions.CostFunction;
+import org.ml4j.nn.layers.FeedForwardLayer;
+import org.ml4j.nn.neurons.NeuronsActivation;
+import org.ml4j.nn.neurons.NeuronsActivationFeatureOrientation;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests that evaluating a SupervisedFeedForwardNeuralNetwork over chunks of a dataset gives the 
+ * same evaluation as evaluating the whole dataset as a single batch.
+ *
+ * @author Michael Lavelle
+ */
+public class SupervisedFeedForwardNeuralNetworkTest {
+
+  private static final double REGULARISATION_COST = 5d;
+
+  private static final double[][] INPUTS = new double[][] {{0.9, 0.1}, {0.2, 0.8}, {0.6, 0.3},
+      {0.4, 0.7}, {0.1, 0.5}, {0.8, 0.4}, {0.3, 0.2}, {0.7, 0.9}, {0.5, 0.6}, {0.2, 0.1}};
+  
+  private static final double[][] DESIRED_OUTPUTS = new double[][] {{1, 0}, {0, 1}, {0, 1},
+      {0, 1}, {1, 0}, {1, 0}, {0, 1}, {1, 0}, {1, 0}, {0, 1}};
+
+  @Test
+  public void testChunkedEvaluationEqualsSingleBatchEvaluation() {
+    SupervisedFeedForwardNeuralNetwork network = new IdentityNeuralNetwork();
+    CostFunction costFunction = new SquaredErrorCostFunction();
+    SupervisedEvaluation batchEvaluation = network.evaluate(
+        chunk(0, INPUTS.length), costFunction, null);
+    Assert.assertEquals(REGULARISATION_COST, batchEvaluation.getRegularisationCost(), 0d);
+    Assert.assertEquals(batchEvaluation.getTotalCost(), network.getTotalCost(
+        chunk(0, INPUTS.length).getInputActivations(), 
+        chunk(0, INPUTS.length).getDesiredOutputActivations(), costFunction, null), 0d);
+    for (int parallelism = 1; parallelism <= 3; parallelism++) {
+      List<LabelledNeuronsActivation> chunks = 
+          Arrays.asList(chunk(0, 3), chunk(3, 6), chunk(6, INPUTS.length));
+      SupervisedEvaluation chunkedEvaluation = network.evaluate(chunks.spliterator(), 
+          costFunction, null, parallelism);
+      Assert.assertEquals(batchEvaluation.getExampleCount(), 
+          chunkedEvaluation.getExampleCount());
+      Assert.assertEquals(batchEvaluation.getCorrectClassificationCount(), 
+          chunkedEvaluation.getCorrectClassificationCount());
+      Assert.assertEquals(batchEvaluation.getDataCost(), chunkedEvaluation.getDataCost(), 1e-12);
+      Assert.assertEquals(REGULARISATION_COST, chunkedEvaluation.getRegularisationCost(), 0d);
+      Assert.assertEquals(batchEvaluation.getTotalCost(), chunkedEvaluation.getTotalCost(), 
+          1e-12);
+      Assert.assertEquals(batchEvaluation.getAverageCost(), chunkedEvaluation.getAverageCost(), 
+          1e-12);
+    }
+  }
+
+  private static LabelledNeuronsActivation chunk(int start, int end) {
+    return new LabelledNeuronsActivation(activation(Arrays.copyOfRange(INPUTS, start, end)),
+        activation(Arrays.copyOfRange(DESIRED_OUTPUTS, start, end)));
+  }
+
+  private static NeuronsActivation activation(double[][] values) {
+    return new NeuronsActivation(matrix(values), 
+        NeuronsActivationFeatureOrientation.COLUMNS_SPAN_FEATURE_SET);
+  }
+
+  /**
+   * A read-only Matrix over the values, supporting only the operations evaluation needs.
+   */
+  private static Matrix matrix(double[][] values) {
+    return (Matrix) Proxy.newProxyInstance(
+        SupervisedFeedForwardNeuralNetworkTest.class.getClassLoader(),
+        new Class<?>[] {Matrix.class}, (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getRows":
+              return values.length;
+            case "getColumns":
+              return values[0].length;
+            case "get":
+              return values[(Integer) args[0]][(Integer) args[1]];
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+
+  /**
+   * Sums the squared differences between the desired and actual outputs.
+   */
+  private static class SquaredErrorCostFunction implements CostFunction {
+
+    @Override
+    public double getTotalCost(Matrix desiredOutputs, Matrix actualOutputs) {
+      double totalCost = 0;
+      for (int r = 0; r < desiredOutputs.getRows(); r++) {
+        for (int c = 0; c < desiredOutputs.getColumns(); c++) {
+          double difference = desiredOutputs.get(r, c) - actualOutputs.get(r, c);
+          totalCost += difference * difference;
+        }
+      }
+      return totalCost;
+    }
+
+    @Override
+    public double getAverageCost(Matrix desiredOutputs, Matrix actualOutputs) {
+      return getTotalCost(desiredOutputs, actualOutputs) / desiredOutputs.getRows();
+    }
+  }
+
+  /**
+   * A network whose outputs are its inputs, with a constant non-zero regularisation cost.
+   */
+  private static class IdentityNeuralNetwork implements SupervisedFeedForwardNeuralNetwork {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public ForwardPropagation forwardPropagate(NeuronsActivation inputActivation,
+        FeedForwardNeuralNetworkContext context) {
+      return (ForwardPropagation) Proxy.newProxyInstance(
+          SupervisedFeedForwardNeuralNetworkTest.class.getClassLoader(),
+          new Class<?>[] {ForwardPropagation.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+              case "getOutputs":
+                return inputActivation;
+              case "getTotalRegularisationCost":
+                return REGULARISATION_COST;
+              default:
+                throw new UnsupportedOperationException(method.getName());
+            }
+          });
+    }
+
+    @Override
+    public List<FeedForwardLayer<?, ?>> getLayers() {
+      return new ArrayList<>();
+    }
+
+    @Override
+    public int getNumberOfLayers() {
+      return 0;
+    }
+
+    @Override
+    public FeedForwardLayer<?, ?> getLayer(int layerIndex) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public FeedForwardLayer<?, ?> getFirstLayer() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public FeedForwardLayer<?, ?> getFinalLayer() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SupervisedFeedForwardNeuralNetwork dup() {
+      return new IdentityNeuralNetwork();
+    }
+
+    @Override
+    public FeedForwardNeuralNetworkContext getLastEpochTrainingContext() {
+      return null;
+    }
+
+    @Override
+    public void train(NeuronsActivation trainingDataActivations,
+        NeuronsActivation trainingLabelActivations, 
+        FeedForwardNeuralNetworkContext trainingContext) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public double getClassificationAccuracy(NeuronsActivation inputActivations,
+        NeuronsActivation desiredClassificationActivations, 
+        FeedForwardNeuralNetworkContext context) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CostAndGradients getCostAndGradients(NeuronsActivation inputActivations,
+        NeuronsActivation desiredOutputActivations, 
+        FeedForwardNeuralNetworkContext trainingContext) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
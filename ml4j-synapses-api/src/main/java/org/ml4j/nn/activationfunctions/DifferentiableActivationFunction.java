@@ -14,6 +14,7 @@
 
 package org.ml4j.nn.activationfunctions;
 
+import org.ml4j.ElementWiseOperation;
 import org.ml4j.nn.neurons.NeuronsActivation;
 import org.ml4j.nn.neurons.NeuronsActivationContext;
 
@@ -38,4 +39,34 @@ public interface DifferentiableActivationFunction
   */
   NeuronsActivation activationGradient(DifferentiableActivationFunctionActivation outputActivation, 
       NeuronsActivationContext context);
+
+  /**
+   * @return The ElementWiseOperation this function applies, if this function is a known 
+   *         element-wise function that DirectedSynapses may fuse into the Axons forward 
+   *         propagation - or null otherwise.
+   */
+  default ElementWiseOperation getElementWiseOperation() {
+    return null;
+  }
+
+  /**
+   * @param context The activation context.
+   * @return Whether this function's ElementWiseOperation should be evaluated with its fast
+   *         approximation under the context - in which case implementations, and DirectedSynapses
+   *         fusing the operation, pass approximate = true to Matrix.mmulAndApply or 
+   *         Matrix.applyi.
+   */
+  default boolean isApproximated(NeuronsActivationContext context) {
+    ElementWiseOperation operation = getElementWiseOperation();
+    return operation != null && context.isWithApproximateActivationFunctions()
+        && operation.getMaximumApproximationError() > 0d;
+  }
+
+  /**
+   * @return Whether this function is the softmax function, allowing a softmax cross-entropy
+   *         CostFunctionGradient to be back propagated through it in a single fused step.
+   */
+  default boolean isSoftmax() {
+    return false;
+  }
 }
@@ -1,6 +1,9 @@
 package org.ml4j.nn.activationfunctions;
 
+import org.ml4j.ElementWiseOperation;
+import org.ml4j.Matrix;
 import org.ml4j.nn.costfunctions.CostFunctionGradient;
+import org.ml4j.nn.neurons.NeuronsActivation;
 import org.ml4j.nn.synapses.DirectedSynapsesContext;
 import org.ml4j.nn.synapses.DirectedSynapsesGradient;
 
@@ -25,5 +28,31 @@ public interface DifferentiableActivationFunctionActivation extends
    */
   ActivationFunctionGradient backPropagate(CostFunctionGradient da, 
       DirectedSynapsesContext context);
-
+  
+  /**
+   * Back propagates the outer gradient, computing dZ = dA .* f'(Z) directly into the outer 
+   * gradient's activations Matrix if the activation function is a known element-wise function,
+   * avoiding the allocation of both the activation gradient and the product. 
+   * 
+   * <p>The caller must own the outer gradient's activations Matrix, as it is overwritten.
+   * 
+   * @param da The outer gradient, whose activations Matrix is overwritten.
+   * @param context The synapses context.
+   * @return The backpropagated gradient.
+   */
+  default ActivationFunctionGradient backPropagateInPlace(DirectedSynapsesGradient da, 
+      DirectedSynapsesContext context) {
+    ElementWiseOperation operation = getActivationFunction().getElementWiseOperation();
+    NeuronsActivation outerGradient = da.getOutput();
+    if (operation == null 
+        || outerGradient.getFeatureOrientation() != getOutput().getFeatureOrientation()) {
+      return backPropagate(da, context);
+    }
+    Matrix activations = outerGradient.getActivations();
+    activations.muliDerivativeFromOutput(getOutput().getActivations(), operation);
+    if (activations.getVersion() == Matrix.UNVERSIONED) {
+      outerGradient.invalidateTransposedActivations();
+    }
+    return () -> outerGradient;
+  }
 }
@@ -82,6 +82,18 @@ public interface Axons<L extends Neurons, R extends Neurons, A extends Axons<L,
    * @return A clone of the connection weights Matrix for these Axons.
    */
   Matrix getDetachedConnectionWeights();
+
+  /**
+   * @return A version-stamped read-only snapshot of the connection weights, for readers such as 
+   *         monitoring, checkpointing or serving which need a consistent view but not a private 
+   *         copy. Implementations holding VersionedConnectionWeights can share one copy between 
+   *         the snapshots of each version - by default a detached copy is wrapped, with version 
+   *         ConnectionWeightsSnapshot.UNVERSIONED.
+   */
+  default ConnectionWeightsSnapshot getConnectionWeightsSnapshot() {
+    return new ConnectionWeightsSnapshot(ConnectionWeightsSnapshot.UNVERSIONED, 
+        getDetachedConnectionWeights());
+  }
   
   /**
    * @return A deep copy of these Axons.
@@ -28,7 +28,19 @@ public interface AxonsActivation {
 
   Axons<?, ?, ?> getAxons();
   
+  /**
+   * @return The input dropout mask as a dense matrix of zeros and ones, or null if dropout was 
+   *         not applied - implementations holding a packed mask may materialise this lazily.
+   */
   Matrix getInputDropoutMask();
+
+  /**
+   * @return The input dropout mask packed as a bitset, replayed over gradients on back 
+   *         propagation - or null if dropout was not applied or the mask is only held densely.
+   */
+  default DropoutMask getPackedInputDropoutMask() {
+    return null;
+  }
   
   NeuronsActivation getOutput();
   
@@ -18,6 +18,8 @@ package org.ml4j.nn.axons;
 
 import org.ml4j.nn.neurons.NeuronsActivationContext;
 
+import java.util.concurrent.ThreadLocalRandom;
+
 /**
  * Defines the context for activations travelling through Axons.
  * 
@@ -30,6 +32,14 @@ public interface AxonsContext extends NeuronsActivationContext {
    * @return The keep probability for input dropout on the left hand side of an Axons instance.
    */
   double getLeftHandInputDropoutKeepProbability();
+
+  /**
+   * @return The seed from which the next input dropout mask is generated, so that masks can be
+   *         regenerated deterministically - by default a fresh seed per call.
+   */
+  default long getLeftHandInputDropoutSeed() {
+    return ThreadLocalRandom.current().nextLong();
+  }
   
   /**
    * @return Whether these Axons are frozen out for training.
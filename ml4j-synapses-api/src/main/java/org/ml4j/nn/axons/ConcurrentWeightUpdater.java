@@ -0,0 +1,216 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.axons;
+
+import org.ml4j.Matrix;
+
+/**
+ * Applies dense or row-sparse adjustments to shared, row-major connection weights from several 
+ * training threads, with the semantics of a WeightUpdateConcurrency mode.
+ * 
+ * <p>The value for row r, column c of weights with cols columns is at index r * cols + c.
+ * 
+ * @author Michael Lavelle
+ */
+public class ConcurrentWeightUpdater {
+
+  /**
+   * The default number of rows guarded by each lock in STRIPED mode.
+   */
+  public static final int DEFAULT_ROWS_PER_STRIPE = 16;
+
+  private WeightUpdateConcurrency concurrency;
+  private int rows;
+  private int columns;
+  private int rowsPerStripe;
+  private Object[] stripeLocks;
+
+  /**
+   * @param concurrency The concurrency mode.
+   * @param rows The number of rows of the weights.
+   * @param columns The number of columns of the weights.
+   * @param rowsPerStripe The number of rows guarded by each lock in STRIPED mode - must be 
+   *        positive.
+   */
+  public ConcurrentWeightUpdater(WeightUpdateConcurrency concurrency, int rows, int columns,
+      int rowsPerStripe) {
+    if (rowsPerStripe <= 0) {
+      throw new IllegalArgumentException("Rows per stripe must be positive but was " 
+          + rowsPerStripe);
+    }
+    this.concurrency = concurrency;
+    this.rows = rows;
+    this.columns = columns;
+    this.rowsPerStripe = rowsPerStripe;
+    if (concurrency == WeightUpdateConcurrency.STRIPED) {
+      this.stripeLocks = new Object[(rows + rowsPerStripe - 1) / rowsPerStripe];
+      for (int i = 0; i < stripeLocks.length; i++) {
+        stripeLocks[i] = new Object();
+      }
+    }
+  }
+
+  /**
+   * @param concurrency The concurrency mode.
+   * @param rows The number of rows of the weights.
+   * @param columns The number of columns of the weights.
+   */
+  public ConcurrentWeightUpdater(WeightUpdateConcurrency concurrency, int rows, int columns) {
+    this(concurrency, rows, columns, DEFAULT_ROWS_PER_STRIPE);
+  }
+
+  /**
+   * @return The concurrency mode.
+   */
+  public WeightUpdateConcurrency getConcurrency() {
+    return concurrency;
+  }
+
+  /**
+   * Apply a dense adjustment.
+   * 
+   * @param weights The shared weights.
+   * @param adjustments The adjustments, with the same shape as the weights.
+   * @param adjustmentDirection The adjustment direction.
+   */
+  public void adjust(double[] weights, double[] adjustments,
+      ConnectionWeightsAdjustmentDirection adjustmentDirection) {
+    double sign = getSign(adjustmentDirection);
+    if (concurrency == WeightUpdateConcurrency.STRIPED) {
+      for (int stripe = 0; stripe < stripeLocks.length; stripe++) {
+        int start = stripe * rowsPerStripe * columns;
+        int end = Math.min(rows, (stripe + 1) * rowsPerStripe) * columns;
+        synchronized (stripeLocks[stripe]) {
+          for (int i = start; i < end; i++) {
+            weights[i] += sign * adjustments[i];
+          }
+        }
+      }
+    } else {
+      for (int i = 0; i < weights.length; i++) {
+        weights[i] += sign * adjustments[i];
+      }
+    }
+  }
+
+  /**
+   * Apply a dense adjustment to shared weights held in a Matrix, eg. the connection weights of
+   * TrainableAxons. The Matrix must support concurrent put calls to distinct elements.
+   * 
+   * @param weights The shared weights.
+   * @param adjustments The adjustments, with the same shape as the weights.
+   * @param adjustmentDirection The adjustment direction.
+   */
+  public void adjust(Matrix weights, Matrix adjustments,
+      ConnectionWeightsAdjustmentDirection adjustmentDirection) {
+    validateShape(weights, rows);
+    validateShape(adjustments, rows);
+    double sign = getSign(adjustmentDirection);
+    if (concurrency == WeightUpdateConcurrency.STRIPED) {
+      for (int stripe = 0; stripe < stripeLocks.length; stripe++) {
+        int endRow = Math.min(rows, (stripe + 1) * rowsPerStripe);
+        synchronized (stripeLocks[stripe]) {
+          for (int row = stripe * rowsPerStripe; row < endRow; row++) {
+            adjustRow(weights, row, adjustments, row, sign);
+          }
+        }
+      }
+    } else {
+      for (int row = 0; row < rows; row++) {
+        adjustRow(weights, row, adjustments, row, sign);
+      }
+    }
+  }
+
+  /**
+   * Apply an adjustment to the specified rows only.
+   * 
+   * @param weights The shared weights.
+   * @param rowIndexes The indexes of the rows to adjust.
+   * @param rowAdjustments The compact row-major adjustments, with row i holding the adjustment 
+   *        for weights row rowIndexes[i].
+   * @param adjustmentDirection The adjustment direction.
+   */
+  public void adjustRows(double[] weights, int[] rowIndexes, double[] rowAdjustments,
+      ConnectionWeightsAdjustmentDirection adjustmentDirection) {
+    double sign = getSign(adjustmentDirection);
+    for (int i = 0; i < rowIndexes.length; i++) {
+      int row = rowIndexes[i];
+      if (concurrency == WeightUpdateConcurrency.STRIPED) {
+        synchronized (stripeLocks[row / rowsPerStripe]) {
+          adjustRow(weights, row, rowAdjustments, i, sign);
+        }
+      } else {
+        adjustRow(weights, row, rowAdjustments, i, sign);
+      }
+    }
+  }
+
+  /**
+   * Apply an adjustment to the specified rows only of shared weights held in a Matrix - eg. a 
+   * RowSparseAxonsGradient. The Matrix must support concurrent put calls to distinct elements.
+   * 
+   * @param weights The shared weights.
+   * @param rowIndexes The indexes of the rows to adjust.
+   * @param rowAdjustments The compact adjustments, with row i holding the adjustment for weights
+   *        row rowIndexes[i].
+   * @param adjustmentDirection The adjustment direction.
+   */
+  public void adjustRows(Matrix weights, int[] rowIndexes, Matrix rowAdjustments,
+      ConnectionWeightsAdjustmentDirection adjustmentDirection) {
+    validateShape(weights, rows);
+    validateShape(rowAdjustments, rowIndexes.length);
+    double sign = getSign(adjustmentDirection);
+    for (int i = 0; i < rowIndexes.length; i++) {
+      int row = rowIndexes[i];
+      if (concurrency == WeightUpdateConcurrency.STRIPED) {
+        synchronized (stripeLocks[row / rowsPerStripe]) {
+          adjustRow(weights, row, rowAdjustments, i, sign);
+        }
+      } else {
+        adjustRow(weights, row, rowAdjustments, i, sign);
+      }
+    }
+  }
+
+  private void validateShape(Matrix matrix, int expectedRows) {
+    if (matrix.getRows() != expectedRows || matrix.getColumns() != columns) {
+      throw new IllegalArgumentException("Expected a " + expectedRows + "x" + columns 
+          + " matrix but was " + matrix.getRows() + "x" + matrix.getColumns());
+    }
+  }
+
+  private void adjustRow(Matrix weights, int row, Matrix rowAdjustments, int adjustmentRow,
+      double sign) {
+    for (int c = 0; c < columns; c++) {
+      weights.put(row, c, weights.get(row, c) + sign * rowAdjustments.get(adjustmentRow, c));
+    }
+  }
+
+  private void adjustRow(double[] weights, int row, double[] rowAdjustments, int adjustmentRow,
+      double sign) {
+    int weightsOffset = row * columns;
+    int adjustmentsOffset = adjustmentRow * columns;
+    for (int c = 0; c < columns; c++) {
+      weights[weightsOffset + c] += sign * rowAdjustments[adjustmentsOffset + c];
+    }
+  }
+
+  private static double getSign(ConnectionWeightsAdjustmentDirection adjustmentDirection) {
+    return adjustmentDirection == ConnectionWeightsAdjustmentDirection.ADDITION ? 1d : -1d;
+  }
+}
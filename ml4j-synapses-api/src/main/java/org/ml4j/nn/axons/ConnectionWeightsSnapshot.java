@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.axons;
+
+import org.ml4j.Matrix;
+
+import java.io.Serializable;
+
+/**
+ * A version-stamped, read-only view of the connection weights of an Axons instance which stays 
+ * valid while training continues.
+ * 
+ * @author Michael Lavelle
+ */
+public class ConnectionWeightsSnapshot implements Serializable {
+
+  /**
+   * The version of snapshots taken from Axons which do not version their connection weights - 
+   * such snapshots carry no guarantee of equality with each other.
+   */
+  public static final long UNVERSIONED = -1;
+
+  /**
+   * Default serialization id.
+   */
+  private static final long serialVersionUID = 1L;
+
+  private long version;
+  private Matrix connectionWeights;
+
+  /**
+   * @param version The version of the connection weights, or UNVERSIONED.
+   * @param connectionWeights The connection weights, which must not be modified subsequently.
+   */
+  public ConnectionWeightsSnapshot(long version, Matrix connectionWeights) {
+    this.version = version;
+    this.connectionWeights = connectionWeights;
+  }
+
+  /**
+   * @return The version of the connection weights, incremented on each adjustment - snapshots
+   *         from the same Axons with equal versions other than UNVERSIONED hold equal weights.
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * @return The connection weights, which are never the live weights of the Axons but may be 
+   *         shared with other snapshots of the same version - dup() before modifying.
+   */
+  public Matrix getConnectionWeights() {
+    return connectionWeights;
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.axons;
+
+/**
+ * Enum of the algorithms a ConvolutionalAxons implementation may use to compute its forward, 
+ * input-gradient and weight-gradient paths. ConvolutionEngine implements all three paths for 
+ * each algorithm, and ConvolutionAlgorithmSelector determines which algorithms are applicable to
+ * a filter configuration.
+ * 
+ * @author Michael Lavelle
+ */
+public enum ConvolutionAlgorithm {
+
+  /**
+   * A single GEMM across channels over the activations viewed as a (depth x area) matrix, 
+   * applicable to pointwise ( 1x1, stride 1, no padding ) convolutions - no lowering is required.
+   */
+  POINTWISE_GEMM,
+
+  /**
+   * Lowering of each receptive field into a column ( im2col ) followed by a single GEMM - the
+   * general purpose algorithm, applicable to every filter configuration.
+   */
+  IM2COL_GEMM,
+
+  /**
+   * Winograd minimal filtering F(2x2,3x3), computing each 2x2 output tile from a 4x4 input tile
+   * with 16 rather than 36 multiplications per channel - applicable to 3x3, stride 1 filters.
+   */
+  WINOGRAD_F2X2_3X3,
+
+  /**
+   * Pointwise products of two-dimensional fast Fourier transforms, whose cost is independent of
+   * the filter size - applicable to stride 1 filters, and the fastest for large filters.
+   */
+  FFT
+}
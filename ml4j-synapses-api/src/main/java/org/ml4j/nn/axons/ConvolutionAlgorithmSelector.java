@@ -0,0 +1,222 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.axons;
+
+import org.ml4j.KernelAutotuner;
+import org.ml4j.KernelTuningCache;
+import org.ml4j.KernelTuningKey;
+import org.ml4j.MatrixFactory;
+
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Selects the ConvolutionAlgorithm for a convolution layer - from its filter configuration 
+ * alone, or by autotuning the applicable algorithms for its geometry and batch size.
+ * 
+ * @author Michael Lavelle
+ */
+public final class ConvolutionAlgorithmSelector {
+
+  /**
+   * The kernel name of convolution algorithm tuning decisions.
+   */
+  public static final String KERNEL_NAME = "convolution";
+
+  /**
+   * The smallest filter width and height for which FFT is selected without autotuning.
+   */
+  public static final int FFT_MINIMUM_FILTER_SIZE = 7;
+
+  /**
+   * The largest batch size benchmarked when autotuning - larger batches are benchmarked on 
+   * this many examples, as the relative cost of the algorithms is already established.
+   */
+  public static final int MAX_TUNING_EXAMPLE_COUNT = 32;
+
+  private ConvolutionAlgorithmSelector() {
+  }
+
+  /**
+   * @param axons The ConvolutionalAxons.
+   * @return The selected ConvolutionAlgorithm.
+   */
+  public static ConvolutionAlgorithm select(ConvolutionalAxons axons) {
+    return select(axons.getFilterWidth(), axons.getFilterHeight(), axons.getStride(), 
+        axons.getZeroPadding());
+  }
+
+  /**
+   * Select the algorithm for a batch of activations of the ConvolutionalAxons, autotuned for 
+   * the geometry of its Neurons and the batch size if the MatrixFactory has a KernelAutotuner.
+   * 
+   * @param axons The ConvolutionalAxons.
+   * @param exampleCount The batch size.
+   * @param matrixFactory The MatrixFactory whose backend performs any GEMM.
+   * @return The selected ConvolutionAlgorithm.
+   */
+  public static ConvolutionAlgorithm select(ConvolutionalAxons axons, int exampleCount, 
+      MatrixFactory matrixFactory) {
+    return select(matrixFactory.getKernelAutotuner(), matrixFactory, exampleCount, 
+        axons.getLeftNeurons().getDepth(), axons.getLeftNeurons().getHeight(), 
+        axons.getLeftNeurons().getWidth(), axons.getRightNeurons().getDepth(), 
+        axons.getFilterHeight(), axons.getFilterWidth(), axons.getStride(), 
+        axons.getZeroPadding());
+  }
+
+  /**
+   * Select the algorithm for a convolution geometry and batch size by benchmarking the forward
+   * path of each applicable algorithm on scratch data on first use, and recording the winner 
+   * in the tuning cache of the autotuner. A recorded decision is returned without creating any
+   * scratch data, and the scratch batch is capped at MAX_TUNING_EXAMPLE_COUNT examples.
+   * 
+   * @param autotuner The KernelAutotuner, or null to select from the filter configuration.
+   * @param matrixFactory The MatrixFactory whose backend performs any GEMM.
+   * @param exampleCount The batch size.
+   * @param depth The input depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param outputDepth The number of filters.
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param stride The stride.
+   * @param zeroPadding The amount of zero padding.
+   * @return The selected ConvolutionAlgorithm.
+   */
+  public static ConvolutionAlgorithm select(KernelAutotuner autotuner, 
+      MatrixFactory matrixFactory, int exampleCount, int depth, int height, int width, 
+      int outputDepth, int filterHeight, int filterWidth, int stride, int zeroPadding) {
+    Set<ConvolutionAlgorithm> algorithms = getApplicableAlgorithms(filterWidth, filterHeight, 
+        stride, zeroPadding);
+    if (autotuner == null || algorithms.size() == 1) {
+      return select(filterWidth, filterHeight, stride, zeroPadding);
+    }
+    KernelTuningKey key = new KernelTuningKey(KERNEL_NAME, KernelTuningCache.getHostCpuModel(),
+        exampleCount, depth, height, width, outputDepth, filterHeight, filterWidth, stride, 
+        zeroPadding);
+    String tunedConfiguration = autotuner.getTuningCache().getTunedConfiguration(key);
+    for (ConvolutionAlgorithm algorithm : algorithms) {
+      if (algorithm.name().equals(tunedConfiguration)) {
+        return algorithm;
+      }
+    }
+    final int tuningExampleCount = Math.min(exampleCount, MAX_TUNING_EXAMPLE_COUNT);
+    Random random = new Random(1);
+    double[] input = randomArray(random, tuningExampleCount * depth * height * width);
+    double[] filters = randomArray(random, outputDepth * depth * filterHeight * filterWidth);
+    double[] output = new double[tuningExampleCount * outputDepth 
+        * ConvolutionKernels.getOutputSize(height, filterHeight, stride, zeroPadding) 
+        * ConvolutionKernels.getOutputSize(width, filterWidth, stride, zeroPadding)];
+    Map<String, Runnable> candidates = new LinkedHashMap<>();
+    for (ConvolutionAlgorithm algorithm : algorithms) {
+      candidates.put(algorithm.name(), () -> ConvolutionEngine.forward(algorithm, 
+          matrixFactory, input, tuningExampleCount, depth, height, width, filters, outputDepth,
+          filterHeight, filterWidth, stride, zeroPadding, output));
+    }
+    return ConvolutionAlgorithm.valueOf(autotuner.selectConfiguration(key, candidates));
+  }
+
+  /**
+   * @param filterWidth The filter width.
+   * @param filterHeight The filter height.
+   * @param stride The stride.
+   * @param zeroPadding The amount of zero padding.
+   * @return POINTWISE_GEMM for pointwise convolutions, WINOGRAD_F2X2_3X3 for 3x3 stride 1 
+   *         filters, FFT for stride 1 filters of at least FFT_MINIMUM_FILTER_SIZE, otherwise
+   *         IM2COL_GEMM.
+   */
+  public static ConvolutionAlgorithm select(int filterWidth, int filterHeight, int stride, 
+      int zeroPadding) {
+    if (isPointwise(filterWidth, filterHeight, stride, zeroPadding)) {
+      return ConvolutionAlgorithm.POINTWISE_GEMM;
+    }
+    if (isApplicable(ConvolutionAlgorithm.WINOGRAD_F2X2_3X3, filterWidth, filterHeight, stride,
+        zeroPadding)) {
+      return ConvolutionAlgorithm.WINOGRAD_F2X2_3X3;
+    }
+    if (stride == 1 && filterWidth >= FFT_MINIMUM_FILTER_SIZE 
+        && filterHeight >= FFT_MINIMUM_FILTER_SIZE) {
+      return ConvolutionAlgorithm.FFT;
+    }
+    return ConvolutionAlgorithm.IM2COL_GEMM;
+  }
+
+  /**
+   * @param algorithm The ConvolutionAlgorithm.
+   * @param filterWidth The filter width.
+   * @param filterHeight The filter height.
+   * @param stride The stride.
+   * @param zeroPadding The amount of zero padding.
+   * @return Whether ConvolutionEngine can execute the algorithm for the filter configuration.
+   */
+  public static boolean isApplicable(ConvolutionAlgorithm algorithm, int filterWidth, 
+      int filterHeight, int stride, int zeroPadding) {
+    switch (algorithm) {
+      case POINTWISE_GEMM:
+        return isPointwise(filterWidth, filterHeight, stride, zeroPadding);
+      case WINOGRAD_F2X2_3X3:
+        return filterWidth == WinogradConvolutionKernels.FILTER_SIZE 
+            && filterHeight == WinogradConvolutionKernels.FILTER_SIZE && stride == 1;
+      case FFT:
+        return stride == 1;
+      default:
+        return true;
+    }
+  }
+
+  /**
+   * @param filterWidth The filter width.
+   * @param filterHeight The filter height.
+   * @param stride The stride.
+   * @param zeroPadding The amount of zero padding.
+   * @return The algorithms applicable to the filter configuration.
+   */
+  public static Set<ConvolutionAlgorithm> getApplicableAlgorithms(int filterWidth, 
+      int filterHeight, int stride, int zeroPadding) {
+    Set<ConvolutionAlgorithm> algorithms = EnumSet.noneOf(ConvolutionAlgorithm.class);
+    for (ConvolutionAlgorithm algorithm : ConvolutionAlgorithm.values()) {
+      if (isApplicable(algorithm, filterWidth, filterHeight, stride, zeroPadding)) {
+        algorithms.add(algorithm);
+      }
+    }
+    return algorithms;
+  }
+
+  /**
+   * @param filterWidth The filter width.
+   * @param filterHeight The filter height.
+   * @param stride The stride.
+   * @param zeroPadding The amount of zero padding.
+   * @return Whether the convolution is pointwise ( 1x1, stride 1, no padding ) and so can be 
+   *         executed as a single GEMM across channels.
+   */
+  public static boolean isPointwise(int filterWidth, int filterHeight, int stride, 
+      int zeroPadding) {
+    return filterWidth == 1 && filterHeight == 1 && stride == 1 && zeroPadding == 0;
+  }
+
+  private static double[] randomArray(Random random, int length) {
+    double[] values = new double[length];
+    for (int i = 0; i < length; i++) {
+      values[i] = random.nextGaussian();
+    }
+    return values;
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.axons;
+
+import org.ml4j.Matrix;
+import org.ml4j.MatrixFactory;
+
+/**
+ * Executes the forward, input-gradient and weight-gradient paths of a convolution over a batch 
+ * with a chosen ConvolutionAlgorithm ( see ConvolutionAlgorithmSelector ). Every algorithm 
+ * computes the same results as the direct reference kernels of ConvolutionKernels, to within 
+ * rounding.
+ * 
+ * <p>Batches of CHANNELS_FIRST volumes are held feature-major, as the activations of a batch 
+ * oriented with ROWS_SPAN_FEATURE_SET ( see ConvolutionKernels.batchIm2col ) - so that the 
+ * GEMM-based algorithms convolve the whole batch with a single GEMM. Filters are flattened as 
+ * [outputDepth][depth][filterHeight][filterWidth].
+ * 
+ * @author Michael Lavelle
+ */
+public final class ConvolutionEngine {
+
+  private ConvolutionEngine() {
+  }
+
+  /**
+   * Convolve a feature-major batch of volumes.
+   * 
+   * @param algorithm The algorithm, which must be applicable to the filter configuration.
+   * @param matrixFactory The MatrixFactory whose backend performs any GEMM.
+   * @param input The feature-major batch of input volumes.
+   * @param exampleCount The number of examples.
+   * @param depth The input depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param filters The filters.
+   * @param outputDepth The number of filters.
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param stride The stride.
+   * @param zeroPadding The amount of zero padding.
+   * @param output The feature-major batch of output volumes to write into.
+   * @return The output array.
+   */
+  public static double[] forward(ConvolutionAlgorithm algorithm, MatrixFactory matrixFactory,
+      double[] input, int exampleCount, int depth, int height, int width, double[] filters, 
+      int outputDepth, int filterHeight, int filterWidth, int stride, int zeroPadding, 
+      double[] output) {
+    validate(algorithm, filterWidth, filterHeight, stride, zeroPadding);
+    int columnCount = ConvolutionKernels.getOutputSize(height, filterHeight, stride, zeroPadding)
+        * ConvolutionKernels.getOutputSize(width, filterWidth, stride, zeroPadding) 
+        * exampleCount;
+    switch (algorithm) {
+      case POINTWISE_GEMM:
+        return copy(ConvolutionKernels.pointwiseConvolution(matrixFactory, input, exampleCount,
+            depth, height * width, filters, outputDepth), output);
+      case WINOGRAD_F2X2_3X3:
+        return WinogradConvolutionKernels.forward(input, exampleCount, depth, height, width, 
+            filters, outputDepth, zeroPadding, output);
+      case FFT:
+        return FftConvolutionKernels.forward(input, exampleCount, depth, height, width, 
+            filters, outputDepth, filterHeight, filterWidth, zeroPadding, output);
+      default:
+        int fieldSize = depth * filterHeight * filterWidth;
+        double[] columns = ConvolutionKernels.batchIm2col(input, exampleCount, depth, height, 
+            width, filterHeight, filterWidth, stride, zeroPadding, 
+            new double[fieldSize * columnCount]);
+        return copy(matrixFactory.createMatrix(outputDepth, fieldSize, filters)
+            .mmul(matrixFactory.createMatrix(fieldSize, columnCount, columns)), output);
+    }
+  }
+
+  /**
+   * Obtain the gradient with respect to a feature-major batch of input volumes.
+   * 
+   * @param algorithm The algorithm, which must be applicable to the filter configuration.
+   * @param matrixFactory The MatrixFactory whose backend performs any GEMM.
+   * @param outputGradient The feature-major batch of output volume gradients.
+   * @param exampleCount The number of examples.
+   * @param depth The input depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param filters The filters.
+   * @param outputDepth The number of filters.
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param stride The stride.
+   * @param zeroPadding The amount of zero padding.
+   * @param inputGradient The feature-major batch of input volume gradients to write into.
+   * @return The inputGradient array.
+   */
+  public static double[] inputGradient(ConvolutionAlgorithm algorithm, 
+      MatrixFactory matrixFactory, double[] outputGradient, int exampleCount, int depth, 
+      int height, int width, double[] filters, int outputDepth, int filterHeight, 
+      int filterWidth, int stride, int zeroPadding, double[] inputGradient) {
+    validate(algorithm, filterWidth, filterHeight, stride, zeroPadding);
+    int columnCount = ConvolutionKernels.getOutputSize(height, filterHeight, stride, zeroPadding)
+        * ConvolutionKernels.getOutputSize(width, filterWidth, stride, zeroPadding) 
+        * exampleCount;
+    switch (algorithm) {
+      case POINTWISE_GEMM:
+        return copy(matrixFactory.createMatrix(outputDepth, depth, filters).transpose()
+            .mmul(matrixFactory.createMatrix(outputDepth, columnCount, outputGradient)), 
+            inputGradient);
+      case WINOGRAD_F2X2_3X3:
+        return WinogradConvolutionKernels.inputGradient(outputGradient, exampleCount, depth, 
+            height, width, filters, outputDepth, zeroPadding, inputGradient);
+      case FFT:
+        return FftConvolutionKernels.inputGradient(outputGradient, exampleCount, depth, height,
+            width, filters, outputDepth, filterHeight, filterWidth, zeroPadding, inputGradient);
+      default:
+        int fieldSize = depth * filterHeight * filterWidth;
+        double[] columns = matrixFactory.createMatrix(outputDepth, fieldSize, filters)
+            .transpose().mmul(matrixFactory.createMatrix(outputDepth, columnCount, 
+                outputGradient)).getRowByRowArray();
+        return ConvolutionKernels.batchCol2im(columns, exampleCount, depth, height, width, 
+            filterHeight, filterWidth, stride, zeroPadding, inputGradient);
+    }
+  }
+
+  /**
+   * Obtain the gradient with respect to the filters, summed over a feature-major batch.
+   * 
+   * @param algorithm The algorithm, which must be applicable to the filter configuration.
+   * @param matrixFactory The MatrixFactory whose backend performs any GEMM.
+   * @param input The feature-major batch of input volumes.
+   * @param outputGradient The feature-major batch of output volume gradients.
+   * @param exampleCount The number of examples.
+   * @param depth The input depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param outputDepth The number of filters.
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param stride The stride.
+   * @param zeroPadding The amount of zero padding.
+   * @param weightGradient The filters gradient to write into - overwritten.
+   * @return The weightGradient array.
+   */
+  public static double[] weightGradient(ConvolutionAlgorithm algorithm, 
+      MatrixFactory matrixFactory, double[] input, double[] outputGradient, int exampleCount,
+      int depth, int height, int width, int outputDepth, int filterHeight, int filterWidth, 
+      int stride, int zeroPadding, double[] weightGradient) {
+    validate(algorithm, filterWidth, filterHeight, stride, zeroPadding);
+    int columnCount = ConvolutionKernels.getOutputSize(height, filterHeight, stride, zeroPadding)
+        * ConvolutionKernels.getOutputSize(width, filterWidth, stride, zeroPadding) 
+        * exampleCount;
+    switch (algorithm) {
+      case POINTWISE_GEMM:
+        return copy(matrixFactory.createMatrix(outputDepth, columnCount, outputGradient)
+            .mmul(matrixFactory.createMatrix(depth, columnCount, input).transpose()), 
+            weightGradient);
+      case WINOGRAD_F2X2_3X3:
+        return WinogradConvolutionKernels.weightGradient(input, outputGradient, exampleCount, 
+            depth, height, width, outputDepth, zeroPadding, weightGradient);
+      case FFT:
+        return FftConvolutionKernels.weightGradient(input, outputGradient, exampleCount, depth,
+            height, width, outputDepth, filterHeight, filterWidth, zeroPadding, weightGradient);
+      default:
+        int fieldSize = depth * filterHeight * filterWidth;
+        double[] columns = ConvolutionKernels.batchIm2col(input, exampleCount, depth, height, 
+            width, filterHeight, filterWidth, stride, zeroPadding, 
+            new double[fieldSize * columnCount]);
+        return copy(matrixFactory.createMatrix(outputDepth, columnCount, outputGradient)
+            .mmul(matrixFactory.createMatrix(fieldSize, columnCount, columns).transpose()), 
+            weightGradient);
+    }
+  }
+
+  private static void validate(ConvolutionAlgorithm algorithm, int filterWidth, 
+      int filterHeight, int stride, int zeroPadding) {
+    if (!ConvolutionAlgorithmSelector.isApplicable(algorithm, filterWidth, filterHeight, stride,
+        zeroPadding)) {
+      throw new IllegalArgumentException(algorithm + " is not applicable to " + filterWidth 
+          + "x" + filterHeight + " filters with stride " + stride + " and zero padding " 
+          + zeroPadding);
+    }
+  }
+
+  private static double[] copy(Matrix result, double[] target) {
+    double[] data = result.getRowByRowArray();
+    System.arraycopy(data, 0, target, 0, data.length);
+    return target;
+  }
+}
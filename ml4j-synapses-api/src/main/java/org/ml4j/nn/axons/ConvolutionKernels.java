@@ -0,0 +1,794 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.axons;
+
+import org.ml4j.Matrix;
+import org.ml4j.MatrixFactory;
+import org.ml4j.nn.neurons.Neurons3DLayout;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Lowering kernels for the IM2COL_GEMM ConvolutionAlgorithm, together with a direct reference 
+ * convolution against which other algorithms can be verified and benchmarked.
+ * 
+ * <p>Volumes are flattened for a single example in the CHANNELS_FIRST layout, ie. the value at
+ * (depth d, height h, width w) is at index (d * height + h) * width + w. Column matrices are 
+ * flattened row-major with one row per (input depth, filter row, filter column) and one column
+ * per output position.
+ * 
+ * <p>The im2col and col2im overloads taking a Neurons3DLayout also accept CHANNELS_LAST volumes,
+ * where the value at (depth d, height h, width w) is at index (h * width + w) * depth + d. Their
+ * CHANNELS_LAST column matrix is the transpose - one row per output position and one column per
+ * (filter row, filter column, input depth) - so that each receptive field is copied as runs of 
+ * contiguous channels, and the product of the column matrix with the transposed filters, 
+ * flattened as [outputDepth][filterHeight][filterWidth][depth], is the CHANNELS_LAST output.
+ * 
+ * <p>The batch kernels lower a batch of CHANNELS_FIRST volumes held feature-major - as the 
+ * activations of a batch oriented with ROWS_SPAN_FEATURE_SET - so that the value for example n
+ * at (depth d, height h, width w) is at index ((d * height + h) * width + w) * exampleCount + n.
+ * Their column matrix has one column per (output position, example), so that a single GEMM 
+ * convolves the whole batch ( see ConvolutionEngine ). A batch of one example is a single 
+ * CHANNELS_FIRST volume.
+ * 
+ * @author Michael Lavelle
+ */
+public final class ConvolutionKernels {
+
+  /**
+   * The minimum number of multiply-adds for which the channels of a depthwise convolution are
+   * processed in parallel.
+   */
+  public static final int PARALLEL_THRESHOLD = 1 << 16;
+
+  private ConvolutionKernels() {
+  }
+
+  /**
+   * @param inputSize The input width or height.
+   * @param filterSize The filter width or height.
+   * @param stride The stride.
+   * @param zeroPadding The amount of zero padding.
+   * @return The output width or height.
+   */
+  public static int getOutputSize(int inputSize, int filterSize, int stride, int zeroPadding) {
+    return (inputSize + 2 * zeroPadding - filterSize) / stride + 1;
+  }
+
+  /**
+   * @param inputSize The input width or height of the transposed convolution.
+   * @param filterSize The filter width or height.
+   * @param stride The stride of the corresponding convolution.
+   * @param zeroPadding The amount of zero padding of the corresponding convolution.
+   * @return The output width or height of the transposed convolution.
+   */
+  public static int getTransposedOutputSize(int inputSize, int filterSize, int stride, 
+      int zeroPadding) {
+    return (inputSize - 1) * stride - 2 * zeroPadding + filterSize;
+  }
+
+  /**
+   * Lower the receptive fields of the input volume into the columns of a column matrix.
+   * 
+   * @param input The input volume.
+   * @param depth The input depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param stride The stride.
+   * @param zeroPadding The amount of zero padding.
+   * @param columns The (depth * filterHeight * filterWidth) x (outputHeight * outputWidth) array
+   *        to write the column matrix into.
+   * @return The columns array.
+   */
+  public static double[] im2col(double[] input, int depth, int height, int width, 
+      int filterHeight, int filterWidth, int stride, int zeroPadding, double[] columns) {
+    int outputHeight = getOutputSize(height, filterHeight, stride, zeroPadding);
+    int outputWidth = getOutputSize(width, filterWidth, stride, zeroPadding);
+    int outputArea = outputHeight * outputWidth;
+    for (int d = 0; d < depth; d++) {
+      for (int fh = 0; fh < filterHeight; fh++) {
+        for (int fw = 0; fw < filterWidth; fw++) {
+          int rowOffset = ((d * filterHeight + fh) * filterWidth + fw) * outputArea;
+          for (int oh = 0; oh < outputHeight; oh++) {
+            int inputRow = oh * stride + fh - zeroPadding;
+            for (int ow = 0; ow < outputWidth; ow++) {
+              int inputColumn = ow * stride + fw - zeroPadding;
+              columns[rowOffset + oh * outputWidth + ow] = inputRow >= 0 && inputRow < height 
+                  && inputColumn >= 0 && inputColumn < width 
+                      ? input[(d * height + inputRow) * width + inputColumn] : 0d;
+            }
+          }
+        }
+      }
+    }
+    return columns;
+  }
+
+  /**
+   * Lower the receptive fields of an input volume in the specified layout into a column matrix
+   * ( see the class documentation for the CHANNELS_LAST column matrix layout ).
+   * 
+   * @param input The input volume.
+   * @param depth The input depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param stride The stride.
+   * @param zeroPadding The amount of zero padding.
+   * @param layout The layout of the input volume.
+   * @param columns The array of depth * filterHeight * filterWidth * outputHeight * outputWidth
+   *        elements to write the column matrix into.
+   * @return The columns array.
+   */
+  public static double[] im2col(double[] input, int depth, int height, int width, 
+      int filterHeight, int filterWidth, int stride, int zeroPadding, Neurons3DLayout layout, 
+      double[] columns) {
+    if (layout != Neurons3DLayout.CHANNELS_LAST) {
+      return im2col(input, depth, height, width, filterHeight, filterWidth, stride, zeroPadding,
+          columns);
+    }
+    int outputHeight = getOutputSize(height, filterHeight, stride, zeroPadding);
+    int outputWidth = getOutputSize(width, filterWidth, stride, zeroPadding);
+    int fieldSize = filterHeight * filterWidth * depth;
+    for (int oh = 0; oh < outputHeight; oh++) {
+      for (int ow = 0; ow < outputWidth; ow++) {
+        int rowOffset = (oh * outputWidth + ow) * fieldSize;
+        for (int fh = 0; fh < filterHeight; fh++) {
+          int inputRow = oh * stride + fh - zeroPadding;
+          for (int fw = 0; fw < filterWidth; fw++) {
+            int inputColumn = ow * stride + fw - zeroPadding;
+            int columnOffset = rowOffset + (fh * filterWidth + fw) * depth;
+            if (inputRow >= 0 && inputRow < height && inputColumn >= 0 && inputColumn < width) {
+              System.arraycopy(input, (inputRow * width + inputColumn) * depth, columns, 
+                  columnOffset, depth);
+            } else {
+              Arrays.fill(columns, columnOffset, columnOffset + depth, 0d);
+            }
+          }
+        }
+      }
+    }
+    return columns;
+  }
+
+  /**
+   * Scatter-add a column matrix back into a volume - the adjoint of im2col, used for the 
+   * input-gradient path and for transposed convolution.
+   * 
+   * @param columns The (depth * filterHeight * filterWidth) x (outputHeight * outputWidth) 
+   *        column matrix.
+   * @param depth The volume depth.
+   * @param height The volume height.
+   * @param width The volume width.
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param stride The stride.
+   * @param zeroPadding The amount of zero padding.
+   * @param volume The volume to write into - overwritten.
+   * @return The volume array.
+   */
+  public static double[] col2im(double[] columns, int depth, int height, int width, 
+      int filterHeight, int filterWidth, int stride, int zeroPadding, double[] volume) {
+    int outputHeight = getOutputSize(height, filterHeight, stride, zeroPadding);
+    int outputWidth = getOutputSize(width, filterWidth, stride, zeroPadding);
+    int outputArea = outputHeight * outputWidth;
+    Arrays.fill(volume, 0, depth * height * width, 0d);
+    for (int d = 0; d < depth; d++) {
+      for (int fh = 0; fh < filterHeight; fh++) {
+        for (int fw = 0; fw < filterWidth; fw++) {
+          int rowOffset = ((d * filterHeight + fh) * filterWidth + fw) * outputArea;
+          for (int oh = 0; oh < outputHeight; oh++) {
+            int inputRow = oh * stride + fh - zeroPadding;
+            if (inputRow < 0 || inputRow >= height) {
+              continue;
+            }
+            for (int ow = 0; ow < outputWidth; ow++) {
+              int inputColumn = ow * stride + fw - zeroPadding;
+              if (inputColumn >= 0 && inputColumn < width) {
+                volume[(d * height + inputRow) * width + inputColumn] += 
+                    columns[rowOffset + oh * outputWidth + ow];
+              }
+            }
+          }
+        }
+      }
+    }
+    return volume;
+  }
+
+  /**
+   * Scatter-add a column matrix back into a volume in the specified layout - the adjoint of the
+   * im2col overload taking a layout.
+   * 
+   * @param columns The column matrix, as written by im2col for the layout.
+   * @param depth The volume depth.
+   * @param height The volume height.
+   * @param width The volume width.
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param stride The stride.
+   * @param zeroPadding The amount of zero padding.
+   * @param layout The layout of the volume.
+   * @param volume The volume to write into - overwritten.
+   * @return The volume array.
+   */
+  public static double[] col2im(double[] columns, int depth, int height, int width, 
+      int filterHeight, int filterWidth, int stride, int zeroPadding, Neurons3DLayout layout,
+      double[] volume) {
+    if (layout != Neurons3DLayout.CHANNELS_LAST) {
+      return col2im(columns, depth, height, width, filterHeight, filterWidth, stride, 
+          zeroPadding, volume);
+    }
+    int outputHeight = getOutputSize(height, filterHeight, stride, zeroPadding);
+    int outputWidth = getOutputSize(width, filterWidth, stride, zeroPadding);
+    int fieldSize = filterHeight * filterWidth * depth;
+    Arrays.fill(volume, 0, depth * height * width, 0d);
+    for (int oh = 0; oh < outputHeight; oh++) {
+      for (int ow = 0; ow < outputWidth; ow++) {
+        int rowOffset = (oh * outputWidth + ow) * fieldSize;
+        for (int fh = 0; fh < filterHeight; fh++) {
+          int inputRow = oh * stride + fh - zeroPadding;
+          if (inputRow < 0 || inputRow >= height) {
+            continue;
+          }
+          for (int fw = 0; fw < filterWidth; fw++) {
+            int inputColumn = ow * stride + fw - zeroPadding;
+            if (inputColumn >= 0 && inputColumn < width) {
+              int columnOffset = rowOffset + (fh * filterWidth + fw) * depth;
+              int volumeOffset = (inputRow * width + inputColumn) * depth;
+              for (int d = 0; d < depth; d++) {
+                volume[volumeOffset + d] += columns[columnOffset + d];
+              }
+            }
+          }
+        }
+      }
+    }
+    return volume;
+  }
+
+  /**
+   * Lower the receptive fields of a feature-major batch of volumes into a column matrix ( see 
+   * the class documentation ), copying the examples of each element as a contiguous run.
+   * 
+   * @param input The feature-major batch of input volumes.
+   * @param exampleCount The number of examples.
+   * @param depth The input depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param stride The stride.
+   * @param zeroPadding The amount of zero padding.
+   * @param columns The (depth * filterHeight * filterWidth) x 
+   *        (outputHeight * outputWidth * exampleCount) array to write the column matrix into.
+   * @return The columns array.
+   */
+  public static double[] batchIm2col(double[] input, int exampleCount, int depth, int height,
+      int width, int filterHeight, int filterWidth, int stride, int zeroPadding, 
+      double[] columns) {
+    int outputHeight = getOutputSize(height, filterHeight, stride, zeroPadding);
+    int outputWidth = getOutputSize(width, filterWidth, stride, zeroPadding);
+    int columnCount = outputHeight * outputWidth * exampleCount;
+    for (int d = 0; d < depth; d++) {
+      for (int fh = 0; fh < filterHeight; fh++) {
+        for (int fw = 0; fw < filterWidth; fw++) {
+          int rowOffset = ((d * filterHeight + fh) * filterWidth + fw) * columnCount;
+          for (int oh = 0; oh < outputHeight; oh++) {
+            int inputRow = oh * stride + fh - zeroPadding;
+            for (int ow = 0; ow < outputWidth; ow++) {
+              int inputColumn = ow * stride + fw - zeroPadding;
+              int columnOffset = rowOffset + (oh * outputWidth + ow) * exampleCount;
+              if (inputRow >= 0 && inputRow < height && inputColumn >= 0 
+                  && inputColumn < width) {
+                System.arraycopy(input, ((d * height + inputRow) * width + inputColumn) 
+                    * exampleCount, columns, columnOffset, exampleCount);
+              } else {
+                Arrays.fill(columns, columnOffset, columnOffset + exampleCount, 0d);
+              }
+            }
+          }
+        }
+      }
+    }
+    return columns;
+  }
+
+  /**
+   * Scatter-add a column matrix back into a feature-major batch of volumes - the adjoint of 
+   * batchIm2col.
+   * 
+   * @param columns The column matrix, as written by batchIm2col.
+   * @param exampleCount The number of examples.
+   * @param depth The volume depth.
+   * @param height The volume height.
+   * @param width The volume width.
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param stride The stride.
+   * @param zeroPadding The amount of zero padding.
+   * @param volumes The feature-major batch of volumes to write into - overwritten.
+   * @return The volumes array.
+   */
+  public static double[] batchCol2im(double[] columns, int exampleCount, int depth, int height,
+      int width, int filterHeight, int filterWidth, int stride, int zeroPadding, 
+      double[] volumes) {
+    int outputHeight = getOutputSize(height, filterHeight, stride, zeroPadding);
+    int outputWidth = getOutputSize(width, filterWidth, stride, zeroPadding);
+    int columnCount = outputHeight * outputWidth * exampleCount;
+    Arrays.fill(volumes, 0, depth * height * width * exampleCount, 0d);
+    for (int d = 0; d < depth; d++) {
+      for (int fh = 0; fh < filterHeight; fh++) {
+        for (int fw = 0; fw < filterWidth; fw++) {
+          int rowOffset = ((d * filterHeight + fh) * filterWidth + fw) * columnCount;
+          for (int oh = 0; oh < outputHeight; oh++) {
+            int inputRow = oh * stride + fh - zeroPadding;
+            if (inputRow < 0 || inputRow >= height) {
+              continue;
+            }
+            for (int ow = 0; ow < outputWidth; ow++) {
+              int inputColumn = ow * stride + fw - zeroPadding;
+              if (inputColumn >= 0 && inputColumn < width) {
+                int columnOffset = rowOffset + (oh * outputWidth + ow) * exampleCount;
+                int volumeOffset = ((d * height + inputRow) * width + inputColumn) 
+                    * exampleCount;
+                for (int n = 0; n < exampleCount; n++) {
+                  volumes[volumeOffset + n] += columns[columnOffset + n];
+                }
+              }
+            }
+          }
+        }
+      }
+    }
+    return volumes;
+  }
+
+  /**
+   * Direct reference convolution ( cross-correlation, as for ConvolutionalAxons ).
+   * 
+   * @param input The input volume.
+   * @param depth The input depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param filters The filters, flattened as 
+   *        [outputDepth][depth][filterHeight][filterWidth].
+   * @param outputDepth The number of filters.
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param stride The stride.
+   * @param zeroPadding The amount of zero padding.
+   * @param output The output volume to write into.
+   * @return The output array.
+   */
+  public static double[] directConvolution(double[] input, int depth, int height, int width,
+      double[] filters, int outputDepth, int filterHeight, int filterWidth, int stride, 
+      int zeroPadding, double[] output) {
+    int outputHeight = getOutputSize(height, filterHeight, stride, zeroPadding);
+    int outputWidth = getOutputSize(width, filterWidth, stride, zeroPadding);
+    for (int od = 0; od < outputDepth; od++) {
+      for (int oh = 0; oh < outputHeight; oh++) {
+        for (int ow = 0; ow < outputWidth; ow++) {
+          double sum = 0d;
+          for (int d = 0; d < depth; d++) {
+            for (int fh = 0; fh < filterHeight; fh++) {
+              int inputRow = oh * stride + fh - zeroPadding;
+              if (inputRow < 0 || inputRow >= height) {
+                continue;
+              }
+              for (int fw = 0; fw < filterWidth; fw++) {
+                int inputColumn = ow * stride + fw - zeroPadding;
+                if (inputColumn >= 0 && inputColumn < width) {
+                  sum += input[(d * height + inputRow) * width + inputColumn] 
+                      * filters[((od * depth + d) * filterHeight + fh) * filterWidth + fw];
+                }
+              }
+            }
+          }
+          output[(od * outputHeight + oh) * outputWidth + ow] = sum;
+        }
+      }
+    }
+    return output;
+  }
+
+  /**
+   * Direct reference input gradient of directConvolution - the gradient of the loss with 
+   * respect to the input volume, given its gradient with respect to the output volume.
+   * 
+   * @param outputGradient The output volume gradient.
+   * @param depth The input depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param filters The filters, flattened as 
+   *        [outputDepth][depth][filterHeight][filterWidth].
+   * @param outputDepth The number of filters.
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param stride The stride.
+   * @param zeroPadding The amount of zero padding.
+   * @param inputGradient The input volume gradient to write into - overwritten.
+   * @return The inputGradient array.
+   */
+  public static double[] directInputGradient(double[] outputGradient, int depth, int height, 
+      int width, double[] filters, int outputDepth, int filterHeight, int filterWidth, 
+      int stride, int zeroPadding, double[] inputGradient) {
+    int outputHeight = getOutputSize(height, filterHeight, stride, zeroPadding);
+    int outputWidth = getOutputSize(width, filterWidth, stride, zeroPadding);
+    Arrays.fill(inputGradient, 0, depth * height * width, 0d);
+    for (int od = 0; od < outputDepth; od++) {
+      for (int oh = 0; oh < outputHeight; oh++) {
+        for (int ow = 0; ow < outputWidth; ow++) {
+          double gradient = outputGradient[(od * outputHeight + oh) * outputWidth + ow];
+          for (int d = 0; d < depth; d++) {
+            for (int fh = 0; fh < filterHeight; fh++) {
+              int inputRow = oh * stride + fh - zeroPadding;
+              if (inputRow < 0 || inputRow >= height) {
+                continue;
+              }
+              for (int fw = 0; fw < filterWidth; fw++) {
+                int inputColumn = ow * stride + fw - zeroPadding;
+                if (inputColumn >= 0 && inputColumn < width) {
+                  inputGradient[(d * height + inputRow) * width + inputColumn] += gradient
+                      * filters[((od * depth + d) * filterHeight + fh) * filterWidth + fw];
+                }
+              }
+            }
+          }
+        }
+      }
+    }
+    return inputGradient;
+  }
+
+  /**
+   * Direct reference weight gradient of directConvolution - the gradient of the loss with 
+   * respect to the filters, given its gradient with respect to the output volume.
+   * 
+   * @param input The input volume.
+   * @param outputGradient The output volume gradient.
+   * @param depth The input depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param outputDepth The number of filters.
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param stride The stride.
+   * @param zeroPadding The amount of zero padding.
+   * @param weightGradient The filters gradient to add into, flattened as 
+   *        [outputDepth][depth][filterHeight][filterWidth] - accumulated, so that the gradients 
+   *        of several examples can be summed.
+   * @return The weightGradient array.
+   */
+  public static double[] directWeightGradient(double[] input, double[] outputGradient, 
+      int depth, int height, int width, int outputDepth, int filterHeight, int filterWidth, 
+      int stride, int zeroPadding, double[] weightGradient) {
+    int outputHeight = getOutputSize(height, filterHeight, stride, zeroPadding);
+    int outputWidth = getOutputSize(width, filterWidth, stride, zeroPadding);
+    for (int od = 0; od < outputDepth; od++) {
+      for (int d = 0; d < depth; d++) {
+        for (int fh = 0; fh < filterHeight; fh++) {
+          for (int fw = 0; fw < filterWidth; fw++) {
+            double sum = 0d;
+            for (int oh = 0; oh < outputHeight; oh++) {
+              int inputRow = oh * stride + fh - zeroPadding;
+              if (inputRow < 0 || inputRow >= height) {
+                continue;
+              }
+              for (int ow = 0; ow < outputWidth; ow++) {
+                int inputColumn = ow * stride + fw - zeroPadding;
+                if (inputColumn >= 0 && inputColumn < width) {
+                  sum += outputGradient[(od * outputHeight + oh) * outputWidth + ow] 
+                      * input[(d * height + inputRow) * width + inputColumn];
+                }
+              }
+            }
+            weightGradient[((od * depth + d) * filterHeight + fh) * filterWidth + fw] += sum;
+          }
+        }
+      }
+    }
+    return weightGradient;
+  }
+
+  /**
+   * Pointwise ( 1x1, stride 1, no padding ) convolution of a feature-major batch of 
+   * CHANNELS_FIRST volumes, executed as a single Matrix GEMM of the (outputDepth x depth) weights
+   * by the whole batch viewed as a (depth x area * exampleCount) matrix - the flattened batch 
+   * already has this row-major layout, so the buffer is wrapped once with no lowering, and the 
+   * product is the feature-major (outputDepth x area * exampleCount) batch of output volumes.
+   * 
+   * @param matrixFactory The MatrixFactory whose backend performs the GEMM.
+   * @param input The feature-major batch of input volumes.
+   * @param exampleCount The number of examples.
+   * @param depth The input depth.
+   * @param area The input width * height.
+   * @param weights The weights, flattened row-major as [outputDepth][depth].
+   * @param outputDepth The number of filters.
+   * @return The (outputDepth x area * exampleCount) output Matrix.
+   */
+  public static Matrix pointwiseConvolution(MatrixFactory matrixFactory, double[] input, 
+      int exampleCount, int depth, int area, double[] weights, int outputDepth) {
+    return pointwiseConvolution(matrixFactory, input, exampleCount, depth, area, weights, 
+        outputDepth, Neurons3DLayout.CHANNELS_FIRST);
+  }
+
+  /**
+   * Pointwise convolution of a batch of volumes in the specified layout, as a single Matrix GEMM
+   * over the whole batch. A CHANNELS_FIRST batch must be feature-major, as for 
+   * pointwiseConvolution(matrixFactory, input, exampleCount, depth, area, weights, outputDepth).
+   * A CHANNELS_LAST batch is example-major - one volume after another, as the activations of a 
+   * batch oriented with COLUMNS_SPAN_FEATURE_SET - and is viewed as an 
+   * (exampleCount * area x depth) matrix, whose product with the transposed weights is the 
+   * (exampleCount * area x outputDepth) CHANNELS_LAST batch of output volumes.
+   * 
+   * @param matrixFactory The MatrixFactory whose backend performs the GEMM.
+   * @param input The batch of input volumes.
+   * @param exampleCount The number of examples.
+   * @param depth The input depth.
+   * @param area The input width * height.
+   * @param weights The weights, flattened row-major as [outputDepth][depth].
+   * @param outputDepth The number of filters.
+   * @param layout The layout of the volumes.
+   * @return The output Matrix, whose row-major data is the batch of output volumes.
+   */
+  public static Matrix pointwiseConvolution(MatrixFactory matrixFactory, double[] input, 
+      int exampleCount, int depth, int area, double[] weights, int outputDepth, 
+      Neurons3DLayout layout) {
+    if (input.length != exampleCount * depth * area) {
+      throw new IllegalArgumentException("Input length " + input.length + " is not " 
+          + exampleCount + " volumes of " + depth + "x" + area);
+    }
+    if (layout == Neurons3DLayout.CHANNELS_LAST) {
+      return matrixFactory.createMatrix(exampleCount * area, depth, input)
+          .mmul(matrixFactory.createMatrix(outputDepth, depth, weights).transpose());
+    }
+    return matrixFactory.createMatrix(outputDepth, depth, weights)
+        .mmul(matrixFactory.createMatrix(depth, area * exampleCount, input));
+  }
+
+  /**
+   * Depthwise convolution of a CHANNELS_FIRST volume - each channel is convolved with its own 
+   * spatial filter, so the output has the same depth as the input. Equivalent to 
+   * directConvolution with block-diagonal filters - zero except where the filter index equals 
+   * the channel index.
+   * 
+   * @param input The input volume.
+   * @param depth The input ( and output ) depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param filters The filters, flattened as [depth][filterHeight][filterWidth].
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param stride The stride.
+   * @param zeroPadding The amount of zero padding.
+   * @param output The output volume to write into.
+   * @return The output array.
+   */
+  public static double[] depthwiseConvolution(double[] input, int depth, int height, int width,
+      double[] filters, int filterHeight, int filterWidth, int stride, int zeroPadding, 
+      double[] output) {
+    return depthwiseConvolution(input, 1, depth, height, width, filters, filterHeight, 
+        filterWidth, stride, zeroPadding, output);
+  }
+
+  /**
+   * Depthwise convolution of a feature-major batch of volumes. Channels are independent, so are
+   * processed in parallel for large batches, one plane at a time so that each plane and its 
+   * filter stay in cache - with the examples of each element as the contiguous innermost loop.
+   * 
+   * @param input The feature-major batch of input volumes.
+   * @param exampleCount The number of examples.
+   * @param depth The input ( and output ) depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param filters The filters, flattened as [depth][filterHeight][filterWidth].
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param stride The stride.
+   * @param zeroPadding The amount of zero padding.
+   * @param output The feature-major batch of output volumes to write into - overwritten.
+   * @return The output array.
+   */
+  public static double[] depthwiseConvolution(double[] input, int exampleCount, int depth, 
+      int height, int width, double[] filters, int filterHeight, int filterWidth, int stride,
+      int zeroPadding, double[] output) {
+    int outputHeight = getOutputSize(height, filterHeight, stride, zeroPadding);
+    int outputWidth = getOutputSize(width, filterWidth, stride, zeroPadding);
+    channels(depth, (long) outputHeight * outputWidth * filterHeight * filterWidth 
+        * exampleCount).forEach(d -> {
+          for (int oh = 0; oh < outputHeight; oh++) {
+            for (int ow = 0; ow < outputWidth; ow++) {
+              int outputOffset = ((d * outputHeight + oh) * outputWidth + ow) * exampleCount;
+              Arrays.fill(output, outputOffset, outputOffset + exampleCount, 0d);
+              for (int fh = 0; fh < filterHeight; fh++) {
+                int inputRow = oh * stride + fh - zeroPadding;
+                if (inputRow < 0 || inputRow >= height) {
+                  continue;
+                }
+                for (int fw = 0; fw < filterWidth; fw++) {
+                  int inputColumn = ow * stride + fw - zeroPadding;
+                  if (inputColumn >= 0 && inputColumn < width) {
+                    double weight = filters[(d * filterHeight + fh) * filterWidth + fw];
+                    int inputOffset = ((d * height + inputRow) * width + inputColumn) 
+                        * exampleCount;
+                    for (int n = 0; n < exampleCount; n++) {
+                      output[outputOffset + n] += weight * input[inputOffset + n];
+                    }
+                  }
+                }
+              }
+            }
+          }
+        });
+    return output;
+  }
+
+  /**
+   * Input gradient of the depthwise convolution of a feature-major batch of volumes, given the
+   * gradient with respect to the output volumes. Channels are processed as for 
+   * depthwiseConvolution.
+   * 
+   * @param outputGradient The feature-major batch of output volume gradients.
+   * @param exampleCount The number of examples.
+   * @param depth The input ( and output ) depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param filters The filters, flattened as [depth][filterHeight][filterWidth].
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param stride The stride.
+   * @param zeroPadding The amount of zero padding.
+   * @param inputGradient The feature-major batch of input volume gradients to write into - 
+   *        overwritten.
+   * @return The inputGradient array.
+   */
+  public static double[] depthwiseInputGradient(double[] outputGradient, int exampleCount, 
+      int depth, int height, int width, double[] filters, int filterHeight, int filterWidth, 
+      int stride, int zeroPadding, double[] inputGradient) {
+    int outputHeight = getOutputSize(height, filterHeight, stride, zeroPadding);
+    int outputWidth = getOutputSize(width, filterWidth, stride, zeroPadding);
+    channels(depth, (long) outputHeight * outputWidth * filterHeight * filterWidth 
+        * exampleCount).forEach(d -> {
+          int planeLength = height * width * exampleCount;
+          Arrays.fill(inputGradient, d * planeLength, (d + 1) * planeLength, 0d);
+          for (int oh = 0; oh < outputHeight; oh++) {
+            for (int ow = 0; ow < outputWidth; ow++) {
+              int outputOffset = ((d * outputHeight + oh) * outputWidth + ow) * exampleCount;
+              for (int fh = 0; fh < filterHeight; fh++) {
+                int inputRow = oh * stride + fh - zeroPadding;
+                if (inputRow < 0 || inputRow >= height) {
+                  continue;
+                }
+                for (int fw = 0; fw < filterWidth; fw++) {
+                  int inputColumn = ow * stride + fw - zeroPadding;
+                  if (inputColumn >= 0 && inputColumn < width) {
+                    double weight = filters[(d * filterHeight + fh) * filterWidth + fw];
+                    int inputOffset = ((d * height + inputRow) * width + inputColumn) 
+                        * exampleCount;
+                    for (int n = 0; n < exampleCount; n++) {
+                      inputGradient[inputOffset + n] += weight * outputGradient[outputOffset + n];
+                    }
+                  }
+                }
+              }
+            }
+          }
+        });
+    return inputGradient;
+  }
+
+  /**
+   * Weight gradient of the depthwise convolution of a feature-major batch of volumes, summed 
+   * over the examples, given the gradient with respect to the output volumes. Channels are 
+   * processed as for depthwiseConvolution.
+   * 
+   * @param input The feature-major batch of input volumes.
+   * @param outputGradient The feature-major batch of output volume gradients.
+   * @param exampleCount The number of examples.
+   * @param depth The input ( and output ) depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param stride The stride.
+   * @param zeroPadding The amount of zero padding.
+   * @param weightGradient The filters gradient to write into, flattened as 
+   *        [depth][filterHeight][filterWidth] - overwritten.
+   * @return The weightGradient array.
+   */
+  public static double[] depthwiseWeightGradient(double[] input, double[] outputGradient, 
+      int exampleCount, int depth, int height, int width, int filterHeight, int filterWidth, 
+      int stride, int zeroPadding, double[] weightGradient) {
+    int outputHeight = getOutputSize(height, filterHeight, stride, zeroPadding);
+    int outputWidth = getOutputSize(width, filterWidth, stride, zeroPadding);
+    channels(depth, (long) outputHeight * outputWidth * filterHeight * filterWidth 
+        * exampleCount).forEach(d -> {
+          for (int fh = 0; fh < filterHeight; fh++) {
+            for (int fw = 0; fw < filterWidth; fw++) {
+              double sum = 0d;
+              for (int oh = 0; oh < outputHeight; oh++) {
+                int inputRow = oh * stride + fh - zeroPadding;
+                if (inputRow < 0 || inputRow >= height) {
+                  continue;
+                }
+                for (int ow = 0; ow < outputWidth; ow++) {
+                  int inputColumn = ow * stride + fw - zeroPadding;
+                  if (inputColumn >= 0 && inputColumn < width) {
+                    int outputOffset = ((d * outputHeight + oh) * outputWidth + ow) 
+                        * exampleCount;
+                    int inputOffset = ((d * height + inputRow) * width + inputColumn) 
+                        * exampleCount;
+                    for (int n = 0; n < exampleCount; n++) {
+                      sum += outputGradient[outputOffset + n] * input[inputOffset + n];
+                    }
+                  }
+                }
+              }
+              weightGradient[(d * filterHeight + fh) * filterWidth + fw] = sum;
+            }
+          }
+        });
+    return weightGradient;
+  }
+
+  /**
+   * Transposed ( fractionally strided ) convolution of a CHANNELS_FIRST volume - the adjoint of 
+   * directConvolution with the same filters. Each input position is projected through the 
+   * filters into a column matrix by a single Matrix GEMM, whose row-major data is then 
+   * scattered into the output volume with col2im.
+   * 
+   * @param matrixFactory The MatrixFactory whose backend performs the GEMM.
+   * @param input The input volume.
+   * @param inputDepth The input depth.
+   * @param inputHeight The input height.
+   * @param inputWidth The input width.
+   * @param filters The filters, flattened as [inputDepth][outputDepth][filterHeight][filterWidth]
+   *        - the same layout as the filters of the corresponding convolution.
+   * @param outputDepth The output depth.
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param stride The stride of the corresponding convolution.
+   * @param zeroPadding The amount of zero padding of the corresponding convolution.
+   * @param output The output volume to write into.
+   * @return The output array.
+   */
+  public static double[] transposedConvolution(MatrixFactory matrixFactory, double[] input, 
+      int inputDepth, int inputHeight, int inputWidth, double[] filters, int outputDepth, 
+      int filterHeight, int filterWidth, int stride, int zeroPadding, double[] output) {
+    int outputHeight = getTransposedOutputSize(inputHeight, filterHeight, stride, zeroPadding);
+    int outputWidth = getTransposedOutputSize(inputWidth, filterWidth, stride, zeroPadding);
+    double[] columns = matrixFactory.createMatrix(inputDepth, 
+        outputDepth * filterHeight * filterWidth, filters).transpose()
+        .mmul(matrixFactory.createMatrix(inputDepth, inputHeight * inputWidth, input))
+        .getRowByRowArray();
+    return col2im(columns, outputDepth, outputHeight, outputWidth, filterHeight, filterWidth,
+        stride, zeroPadding, output);
+  }
+
+  private static IntStream channels(int depth, long multiplyAddsPerChannel) {
+    IntStream channels = IntStream.range(0, depth);
+    if (depth > 1 && multiplyAddsPerChannel * depth >= PARALLEL_THRESHOLD) {
+      channels = channels.parallel();
+    }
+    return channels;
+  }
+}
@@ -16,7 +16,9 @@
 
 package org.ml4j.nn.axons;
 
+import org.ml4j.MatrixFactory;
 import org.ml4j.nn.neurons.Neurons3D;
+import org.ml4j.nn.neurons.Neurons3DLayout;
 
 /**
  * Encapsulates the connections between two sets of Neurons which are 
@@ -48,5 +50,48 @@ public interface ConvolutionalAxons
    * @return The filter height.
    */
   int getFilterHeight();
- 
+
+  /**
+   * @param layout The layout of the Neurons3D activations.
+   * @return Whether these Axons can push activations in the specified layout without conversion -
+   *         by default CHANNELS_FIRST, or CHANNELS_LAST where the IM2COL_GEMM algorithm is used,
+   *         as only the im2col lowering kernels support it, and only if the left and right 
+   *         Neurons share the layout.
+   */
+  default boolean isLayoutSupported(Neurons3DLayout layout) {
+    return getLeftNeurons().getLayout() == layout && getRightNeurons().getLayout() == layout
+        && (layout == Neurons3DLayout.CHANNELS_FIRST 
+            || getConvolutionAlgorithm() == ConvolutionAlgorithm.IM2COL_GEMM);
+  }
+
+  /**
+   * @return The algorithm these Axons use for the forward, input-gradient and weight-gradient
+   *         paths - by default chosen by ConvolutionAlgorithmSelector from the filter 
+   *         configuration.
+   */
+  default ConvolutionAlgorithm getConvolutionAlgorithm() {
+    return ConvolutionAlgorithmSelector.select(this);
+  }
+
+  /**
+   * @param exampleCount The batch size.
+   * @param matrixFactory The MatrixFactory whose backend performs any GEMM.
+   * @return The algorithm these Axons use for the forward, input-gradient and weight-gradient
+   *         paths of a batch ( see ConvolutionEngine ) - by default autotuned by 
+   *         ConvolutionAlgorithmSelector for the geometry of the Neurons and the batch size, if
+   *         the MatrixFactory has a KernelAutotuner.
+   */
+  default ConvolutionAlgorithm getConvolutionAlgorithm(int exampleCount, 
+      MatrixFactory matrixFactory) {
+    return ConvolutionAlgorithmSelector.select(this, exampleCount, matrixFactory);
+  }
+
+  /**
+   * @return Whether these Axons are pointwise ( 1x1, stride 1, no padding ) and so are executed 
+   *         as a single GEMM over a reshaped view of the activations, without lowering.
+   */
+  default boolean isPointwise() {
+    return ConvolutionAlgorithmSelector.isPointwise(getFilterWidth(), getFilterHeight(), 
+        getStride(), getZeroPadding());
+  }
 }
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.axons;
+
+import org.ml4j.nn.neurons.Neurons3D;
+
+/**
+ * Encapsulates the connections between two sets of Neurons which are depthwise 
+ * convolutionally connected (ie. each channel of the Neurons on the right of the Axons is
+ * connected to a locally connected region of the corresponding channel only on the left, 
+ * with one spatial filter per channel )
+ * 
+ * <p>Followed by pointwise ( 1x1 ) ConvolutionalAxons, these form a depthwise-separable 
+ * convolution.
+ * 
+ * @author Michael Lavelle
+ *
+ */
+public interface DepthwiseConvolutionalAxons
+    extends TrainableAxons<Neurons3D, Neurons3D, DepthwiseConvolutionalAxons> {
+
+  /**
+   * @return The stride.
+   */
+  int getStride();
+
+  /**
+   * @return The amount of zero padding.
+   */
+  int getZeroPadding();
+  
+  /**
+   * @return The filter width.
+   */
+  int getFilterWidth();
+  
+  /**
+   * @return The filter height.
+   */
+  int getFilterHeight();
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.axons;
+
+import org.ml4j.Matrix;
+import org.ml4j.MatrixFactory;
+
+import java.io.Serializable;
+
+/**
+ * A dropout mask packed one bit per element into a long[] bitset, generated from a seeded 
+ * SplitMix64 stream so that it can be regenerated or replayed on back propagation.
+ * 
+ * <p>Elements are indexed row-major over the activations being masked, ie. the element for 
+ * row r, column c of an activation matrix with cols columns is at index r * cols + c. Kept 
+ * elements are scaled by 1 / keepProbability when applied ( inverted dropout ), so no rescaling
+ * is required at inference time.
+ * 
+ * @author Michael Lavelle
+ */
+public class DropoutMask implements Serializable {
+
+  /**
+   * Default serialization id.
+   */
+  private static final long serialVersionUID = 1L;
+
+  private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+  private int length;
+  private double keepProbability;
+  private long[] bits;
+
+  /**
+   * @param length The number of elements masked.
+   * @param keepProbability The probability with which each element was kept, in (0, 1].
+   * @param bits The packed mask, bit (i % 64) of bits[i / 64] being set if element i is kept - 
+   *        not copied, so must not be modified afterwards.
+   */
+  public DropoutMask(int length, double keepProbability, long[] bits) {
+    validateKeepProbability(keepProbability);
+    this.length = length;
+    this.keepProbability = keepProbability;
+    this.bits = bits;
+  }
+
+  /**
+   * Generate a mask keeping each element independently with the specified probability.
+   * 
+   * @param length The number of elements to mask.
+   * @param keepProbability The keep probability, in (0, 1].
+   * @param seed The seed of the random stream.
+   * @return The mask.
+   */
+  public static DropoutMask generate(int length, double keepProbability, long seed) {
+    validateKeepProbability(keepProbability);
+    long[] bits = new long[(length + 63) >>> 6];
+    // Each 64-bit draw decides two elements by comparing its unsigned 32-bit halves against 
+    // the threshold.
+    long threshold = (long) Math.ceil(keepProbability * (1L << 32));
+    long state = seed;
+    for (int i = 0; i < length; i += 2) {
+      state += GOLDEN_GAMMA;
+      long random = mix(state);
+      if ((random >>> 32) < threshold) {
+        bits[i >>> 6] |= 1L << i;
+      }
+      if ((random & 0xFFFFFFFFL) < threshold && i + 1 < length) {
+        bits[(i + 1) >>> 6] |= 1L << (i + 1);
+      }
+    }
+    return new DropoutMask(length, keepProbability, bits);
+  }
+
+  private static void validateKeepProbability(double keepProbability) {
+    // Kept elements are scaled by 1 / keepProbability, so it must be positive - and not NaN.
+    if (!(keepProbability > 0d && keepProbability <= 1d)) {
+      throw new IllegalArgumentException("Keep probability " + keepProbability 
+          + " is not in (0, 1]");
+    }
+  }
+
+  private static long mix(long state) {
+    long mixed = state;
+    mixed = (mixed ^ (mixed >>> 30)) * 0xBF58476D1CE4E5B9L;
+    mixed = (mixed ^ (mixed >>> 27)) * 0x94D049BB133111EBL;
+    return mixed ^ (mixed >>> 31);
+  }
+
+  /**
+   * @return The number of elements masked.
+   */
+  public int getLength() {
+    return length;
+  }
+
+  /**
+   * @return The probability with which each element was kept.
+   */
+  public double getKeepProbability() {
+    return keepProbability;
+  }
+
+  /**
+   * @return A copy of the packed mask, bit (i % 64) of element i / 64 being set if element i is
+   *         kept.
+   */
+  public long[] getBits() {
+    return bits.clone();
+  }
+
+  /**
+   * @param index The element index.
+   * @return Whether the element is kept.
+   */
+  public boolean isKept(int index) {
+    return (bits[index >>> 6] & (1L << index)) != 0;
+  }
+
+  /**
+   * @return The number of kept elements.
+   */
+  public int getKeptCount() {
+    int count = 0;
+    for (long word : bits) {
+      count += Long.bitCount(word);
+    }
+    return count;
+  }
+
+  /**
+   * Apply this mask with inverted dropout scaling in a single pass, zeroing dropped elements and
+   * scaling kept elements by 1 / keepProbability. Used both on the forward pass and to replay 
+   * the mask over gradients on back propagation. 
+   * 
+   * @param values The row-major values to mask.
+   * @param output The array to write the masked values into - may be the values array.
+   * @return The output array.
+   */
+  public double[] applyInverted(double[] values, double[] output) {
+    double scale = 1d / keepProbability;
+    for (int w = 0; w < bits.length; w++) {
+      long word = bits[w];
+      int start = w << 6;
+      int end = Math.min(start + 64, length);
+      for (int i = start; i < end; i++) {
+        output[i] = (word & 1L) != 0 ? values[i] * scale : 0d;
+        word >>>= 1;
+      }
+    }
+    return output;
+  }
+
+  /**
+   * Materialise this mask as a dense matrix of zeros and ones, for consumers of 
+   * AxonsActivation.getInputDropoutMask().
+   * 
+   * @param matrixFactory The MatrixFactory.
+   * @param rows The number of rows of the masked activations.
+   * @param columns The number of columns of the masked activations.
+   * @return The dense mask.
+   */
+  public Matrix toMatrix(MatrixFactory matrixFactory, int rows, int columns) {
+    double[][] data = new double[rows][columns];
+    for (int r = 0; r < rows; r++) {
+      for (int c = 0; c < columns; c++) {
+        data[r][c] = isKept(r * columns + c) ? 1d : 0d;
+      }
+    }
+    return matrixFactory.createMatrix(data);
+  }
+}
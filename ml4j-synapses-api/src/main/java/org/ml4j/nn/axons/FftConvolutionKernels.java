@@ -0,0 +1,334 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.axons;
+
+import java.util.Arrays;
+
+/**
+ * Fast Fourier transform kernels for the FFT ConvolutionAlgorithm, for stride 1 filters of any 
+ * size. Each channel is transformed once per example with a two-dimensional radix-2 FFT, large 
+ * enough that the circular products coincide with the linear ones at every output position, and
+ * the sums over channels are taken in the frequency domain - so each output channel needs one
+ * inverse transform, whatever the filter size.
+ * 
+ * <p>Batches are held feature-major, as for ConvolutionKernels.batchIm2col, and filters are 
+ * flattened as [outputDepth][depth][filterHeight][filterWidth].
+ * 
+ * @author Michael Lavelle
+ */
+public final class FftConvolutionKernels {
+
+  private FftConvolutionKernels() {
+  }
+
+  /**
+   * @param size The width or height of the zero-padded input.
+   * @return The smallest power of two not less than size - the transform size, at which the 
+   *         circular correlation of the padded input with a filter does not wrap around.
+   */
+  public static int getTransformSize(int size) {
+    return size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+  }
+
+  /**
+   * Convolve a feature-major batch of volumes with filters at a stride of 1.
+   * 
+   * @param input The feature-major batch of input volumes.
+   * @param exampleCount The number of examples.
+   * @param depth The input depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param filters The filters, flattened as [outputDepth][depth][filterHeight][filterWidth].
+   * @param outputDepth The number of filters.
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param zeroPadding The amount of zero padding.
+   * @param output The feature-major batch of output volumes to write into.
+   * @return The output array.
+   */
+  public static double[] forward(double[] input, int exampleCount, int depth, int height, 
+      int width, double[] filters, int outputDepth, int filterHeight, int filterWidth, 
+      int zeroPadding, double[] output) {
+    int outputHeight = height + 2 * zeroPadding - filterHeight + 1;
+    int outputWidth = width + 2 * zeroPadding - filterWidth + 1;
+    int rows = getTransformSize(height + 2 * zeroPadding);
+    int columns = getTransformSize(width + 2 * zeroPadding);
+    Spectra filterSpectra = transformFilters(filters, outputDepth * depth, filterHeight, 
+        filterWidth, rows, columns);
+    Spectra inputSpectra = new Spectra(depth, rows * columns);
+    double[] sumReal = new double[rows * columns];
+    double[] sumImaginary = new double[rows * columns];
+    for (int n = 0; n < exampleCount; n++) {
+      for (int d = 0; d < depth; d++) {
+        transformChannel(input, exampleCount, n, d, height, width, zeroPadding, rows, columns,
+            inputSpectra, d);
+      }
+      for (int od = 0; od < outputDepth; od++) {
+        Arrays.fill(sumReal, 0d);
+        Arrays.fill(sumImaginary, 0d);
+        for (int d = 0; d < depth; d++) {
+          // Correlation is the product with the conjugate of the filter spectrum.
+          multiplyAccumulate(inputSpectra, d, filterSpectra, od * depth + d, true, sumReal,
+              sumImaginary);
+        }
+        fft2(sumReal, sumImaginary, rows, columns, true);
+        for (int oh = 0; oh < outputHeight; oh++) {
+          for (int ow = 0; ow < outputWidth; ow++) {
+            output[((od * outputHeight + oh) * outputWidth + ow) * exampleCount + n] = 
+                sumReal[oh * columns + ow];
+          }
+        }
+      }
+    }
+    return output;
+  }
+
+  /**
+   * Obtain the input gradient of forward - the linear convolution of the output gradient with 
+   * the filters, cropped by the zero padding.
+   * 
+   * @param outputGradient The feature-major batch of output volume gradients.
+   * @param exampleCount The number of examples.
+   * @param depth The input depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param filters The filters, flattened as [outputDepth][depth][filterHeight][filterWidth].
+   * @param outputDepth The number of filters.
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param zeroPadding The amount of zero padding.
+   * @param inputGradient The feature-major batch of input volume gradients to write into.
+   * @return The inputGradient array.
+   */
+  public static double[] inputGradient(double[] outputGradient, int exampleCount, int depth, 
+      int height, int width, double[] filters, int outputDepth, int filterHeight, 
+      int filterWidth, int zeroPadding, double[] inputGradient) {
+    int outputHeight = height + 2 * zeroPadding - filterHeight + 1;
+    int outputWidth = width + 2 * zeroPadding - filterWidth + 1;
+    int rows = getTransformSize(height + 2 * zeroPadding);
+    int columns = getTransformSize(width + 2 * zeroPadding);
+    Spectra filterSpectra = transformFilters(filters, outputDepth * depth, filterHeight, 
+        filterWidth, rows, columns);
+    Spectra gradientSpectra = new Spectra(outputDepth, rows * columns);
+    double[] sumReal = new double[rows * columns];
+    double[] sumImaginary = new double[rows * columns];
+    for (int n = 0; n < exampleCount; n++) {
+      for (int od = 0; od < outputDepth; od++) {
+        transformChannel(outputGradient, exampleCount, n, od, outputHeight, outputWidth, 0, 
+            rows, columns, gradientSpectra, od);
+      }
+      for (int d = 0; d < depth; d++) {
+        Arrays.fill(sumReal, 0d);
+        Arrays.fill(sumImaginary, 0d);
+        for (int od = 0; od < outputDepth; od++) {
+          multiplyAccumulate(gradientSpectra, od, filterSpectra, od * depth + d, false, 
+              sumReal, sumImaginary);
+        }
+        fft2(sumReal, sumImaginary, rows, columns, true);
+        for (int h = 0; h < height; h++) {
+          for (int w = 0; w < width; w++) {
+            inputGradient[((d * height + h) * width + w) * exampleCount + n] = 
+                sumReal[(h + zeroPadding) * columns + w + zeroPadding];
+          }
+        }
+      }
+    }
+    return inputGradient;
+  }
+
+  /**
+   * Obtain the weight gradient of forward, summed over the batch - the correlation of the 
+   * padded input with the output gradient, accumulated over the examples in the frequency 
+   * domain so that each filter needs a single inverse transform.
+   * 
+   * @param input The feature-major batch of input volumes.
+   * @param outputGradient The feature-major batch of output volume gradients.
+   * @param exampleCount The number of examples.
+   * @param depth The input depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param outputDepth The number of filters.
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param zeroPadding The amount of zero padding.
+   * @param weightGradient The filters gradient to write into, flattened as 
+   *        [outputDepth][depth][filterHeight][filterWidth] - overwritten.
+   * @return The weightGradient array.
+   */
+  public static double[] weightGradient(double[] input, double[] outputGradient, 
+      int exampleCount, int depth, int height, int width, int outputDepth, int filterHeight, 
+      int filterWidth, int zeroPadding, double[] weightGradient) {
+    int outputHeight = height + 2 * zeroPadding - filterHeight + 1;
+    int outputWidth = width + 2 * zeroPadding - filterWidth + 1;
+    int rows = getTransformSize(height + 2 * zeroPadding);
+    int columns = getTransformSize(width + 2 * zeroPadding);
+    Spectra inputSpectra = new Spectra(depth, rows * columns);
+    Spectra gradientSpectra = new Spectra(outputDepth, rows * columns);
+    Spectra sums = new Spectra(outputDepth * depth, rows * columns);
+    for (int n = 0; n < exampleCount; n++) {
+      for (int d = 0; d < depth; d++) {
+        transformChannel(input, exampleCount, n, d, height, width, zeroPadding, rows, columns,
+            inputSpectra, d);
+      }
+      for (int od = 0; od < outputDepth; od++) {
+        transformChannel(outputGradient, exampleCount, n, od, outputHeight, outputWidth, 0, 
+            rows, columns, gradientSpectra, od);
+        for (int d = 0; d < depth; d++) {
+          multiplyAccumulate(inputSpectra, d, gradientSpectra, od, true, 
+              sums.real[od * depth + d], sums.imaginary[od * depth + d]);
+        }
+      }
+    }
+    for (int filter = 0; filter < outputDepth * depth; filter++) {
+      fft2(sums.real[filter], sums.imaginary[filter], rows, columns, true);
+      for (int fh = 0; fh < filterHeight; fh++) {
+        for (int fw = 0; fw < filterWidth; fw++) {
+          weightGradient[(filter * filterHeight + fh) * filterWidth + fw] = 
+              sums.real[filter][fh * columns + fw];
+        }
+      }
+    }
+    return weightGradient;
+  }
+
+  /**
+   * The real and imaginary parts of a set of two-dimensional spectra.
+   */
+  private static class Spectra {
+
+    private final double[][] real;
+    private final double[][] imaginary;
+
+    Spectra(int count, int size) {
+      this.real = new double[count][size];
+      this.imaginary = new double[count][size];
+    }
+  }
+
+  private static Spectra transformFilters(double[] filters, int filterCount, int filterHeight,
+      int filterWidth, int rows, int columns) {
+    Spectra spectra = new Spectra(filterCount, rows * columns);
+    for (int filter = 0; filter < filterCount; filter++) {
+      for (int fh = 0; fh < filterHeight; fh++) {
+        System.arraycopy(filters, (filter * filterHeight + fh) * filterWidth, 
+            spectra.real[filter], fh * columns, filterWidth);
+      }
+      fft2(spectra.real[filter], spectra.imaginary[filter], rows, columns, false);
+    }
+    return spectra;
+  }
+
+  /**
+   * Transform one channel of one example, offset by the zero padding.
+   */
+  private static void transformChannel(double[] volumes, int exampleCount, int example, 
+      int channel, int height, int width, int zeroPadding, int rows, int columns, 
+      Spectra spectra, int index) {
+    double[] real = spectra.real[index];
+    double[] imaginary = spectra.imaginary[index];
+    Arrays.fill(real, 0d);
+    Arrays.fill(imaginary, 0d);
+    for (int h = 0; h < height; h++) {
+      for (int w = 0; w < width; w++) {
+        real[(h + zeroPadding) * columns + w + zeroPadding] = 
+            volumes[((channel * height + h) * width + w) * exampleCount + example];
+      }
+    }
+    fft2(real, imaginary, rows, columns, false);
+  }
+
+  /**
+   * Add the product of the first spectrum with the second, or with its conjugate, to the sum.
+   */
+  private static void multiplyAccumulate(Spectra first, int firstIndex, Spectra second, 
+      int secondIndex, boolean conjugateSecond, double[] sumReal, double[] sumImaginary) {
+    double[] firstReal = first.real[firstIndex];
+    double[] firstImaginary = first.imaginary[firstIndex];
+    double[] secondReal = second.real[secondIndex];
+    double[] secondImaginary = second.imaginary[secondIndex];
+    double sign = conjugateSecond ? -1d : 1d;
+    for (int k = 0; k < sumReal.length; k++) {
+      double imaginary = sign * secondImaginary[k];
+      sumReal[k] += firstReal[k] * secondReal[k] - firstImaginary[k] * imaginary;
+      sumImaginary[k] += firstReal[k] * imaginary + firstImaginary[k] * secondReal[k];
+    }
+  }
+
+  /**
+   * In-place two-dimensional FFT of a rows x columns row-major array, both powers of two - the 
+   * inverse transform is scaled by 1 / (rows * columns).
+   */
+  static void fft2(double[] real, double[] imaginary, int rows, int columns, boolean inverse) {
+    for (int r = 0; r < rows; r++) {
+      fft(real, imaginary, r * columns, 1, columns, inverse);
+    }
+    for (int c = 0; c < columns; c++) {
+      fft(real, imaginary, c, columns, rows, inverse);
+    }
+    if (inverse) {
+      double scale = 1d / (rows * columns);
+      for (int k = 0; k < rows * columns; k++) {
+        real[k] *= scale;
+        imaginary[k] *= scale;
+      }
+    }
+  }
+
+  /**
+   * In-place iterative radix-2 FFT of length elements starting at offset, separated by stride.
+   */
+  private static void fft(double[] real, double[] imaginary, int offset, int stride, 
+      int length, boolean inverse) {
+    for (int i = 1, j = 0; i < length; i++) {
+      int bit = length >> 1;
+      while ((j & bit) != 0) {
+        j ^= bit;
+        bit >>= 1;
+      }
+      j ^= bit;
+      if (i < j) {
+        int first = offset + i * stride;
+        int second = offset + j * stride;
+        double swap = real[first];
+        real[first] = real[second];
+        real[second] = swap;
+        swap = imaginary[first];
+        imaginary[first] = imaginary[second];
+        imaginary[second] = swap;
+      }
+    }
+    for (int size = 2; size <= length; size <<= 1) {
+      int half = size >> 1;
+      double angle = (inverse ? 2 : -2) * Math.PI / size;
+      for (int k = 0; k < half; k++) {
+        double twiddleReal = Math.cos(angle * k);
+        double twiddleImaginary = Math.sin(angle * k);
+        for (int start = 0; start < length; start += size) {
+          int first = offset + (start + k) * stride;
+          int second = first + half * stride;
+          double productReal = real[second] * twiddleReal - imaginary[second] * twiddleImaginary;
+          double productImaginary = 
+              real[second] * twiddleImaginary + imaginary[second] * twiddleReal;
+          real[second] = real[first] - productReal;
+          imaginary[second] = imaginary[first] - productImaginary;
+          real[first] += productReal;
+          imaginary[first] += productImaginary;
+        }
+      }
+    }
+  }
+}
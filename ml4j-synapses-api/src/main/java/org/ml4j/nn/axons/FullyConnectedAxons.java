@@ -16,6 +16,7 @@
 
 package org.ml4j.nn.axons;
 
+import org.ml4j.Matrix;
 import org.ml4j.nn.neurons.Neurons;
 
 /**
@@ -28,4 +29,40 @@ import org.ml4j.nn.neurons.Neurons;
 public interface FullyConnectedAxons
     extends TrainableAxons<Neurons, Neurons, FullyConnectedAxons> {
 
+  /**
+   * @return Whether these Axons hold the connection weights for the left hand bias unit 
+   *         separately from the connection weights Matrix - if so, these Axons accept 
+   *         activations with an implicit bias unit and compute X * W + b directly, without 
+   *         materialising the bias activations.
+   */
+  default boolean isWithSeparateBiasWeights() {
+    return false;
+  }
+
+  /**
+   * @return The number of rows of the connection weights Matrix, which has a row for the left 
+   *         hand bias unit unless its weights are held separately.
+   */
+  @Override
+  default int getConnectionWeightsRows() {
+    return isWithSeparateBiasWeights() ? getLeftNeurons().getNeuronCountExcludingBias() 
+        : getLeftNeurons().getNeuronCountIncludingBias();
+  }
+
+  /**
+   * @return A clone of the connection weights for the left hand bias unit, or null if these 
+   *         weights are held within the connection weights Matrix.
+   */
+  default Matrix getDetachedBiasWeights() {
+    return null;
+  }
+
+  /**
+   * @return The input density ( fraction of non-zero left hand activations ) below which these 
+   *         Axons push activations with sparse-dense products ( see CompressedSparseRows ) and 
+   *         produce RowSparseAxonsGradients - 0 disables the sparse path.
+   */
+  default double getSparseInputDensityThreshold() {
+    return 0d;
+  }
 }
@@ -20,6 +20,10 @@ package org.ml4j.nn.axons;
  * Encapsulates the connections between two sets of Neurons which are max-pooled
  * from left to right.
  * 
+ * <p>Pushing left to right produces a MaxPoolingAxonsActivation recording the argmax of each 
+ * pooling window, which pushRightToLeft uses to scatter gradients when provided as the previous
+ * left-to-right activation.
+ * 
  * @author Michael Lavelle
  *
  */
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.axons;
+
+/**
+ * Encapsulates the artifacts produced when pushing NeuronsActivations left to right through a
+ * MaxPoolingAxons instance, including the index of the maximum input of each pooling window - so
+ * that gradients can be routed back in O(outputs) without re-scanning the input or building a
+ * dense mask.
+ * 
+ * @author Michael Lavelle
+ */
+public interface MaxPoolingAxonsActivation extends AxonsActivation {
+
+  /**
+   * @return For each output cell, the index within the example's flattened input volume of the 
+   *         input that was the maximum of the cell's pooling window - one entry per example and
+   *         output neuron, flattened example-major.
+   */
+  int[] getArgmaxIndexes();
+}
@@ -17,6 +17,7 @@
 package org.ml4j.nn.axons;
 
 import org.ml4j.nn.neurons.Neurons3D;
+import org.ml4j.nn.neurons.Neurons3DLayout;
 
 /**
  * Encapsulates the connections between two sets of Neurons which are pooled
@@ -42,5 +43,15 @@ public interface PoolingAxons<A extends PoolingAxons<A>>
    * @return The filter height.
    */
   int getFilterHeight();
-  
+
+  /**
+   * @param layout The layout of the Neurons3D activations.
+   * @return Whether these Axons can push activations in the specified layout without conversion -
+   *         by default either layout, as PoolingKernels supports both, but only if the left and 
+   *         right Neurons share it. Implementations not passing the layout through to 
+   *         PoolingKernels should override this.
+   */
+  default boolean isLayoutSupported(Neurons3DLayout layout) {
+    return getLeftNeurons().getLayout() == layout && getRightNeurons().getLayout() == layout;
+  }
 }
@@ -0,0 +1,553 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.axons;
+
+import org.ml4j.nn.neurons.Neurons3DLayout;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Direct strided pooling kernels over Neurons3D volumes, writing into caller-supplied (and so
+ * reusable) output buffers without building pooling-weight matrices or gathered copies.
+ * 
+ * <p>Volumes are flattened for a single example in the CHANNELS_FIRST layout, ie. the value at
+ * (depth d, height h, width w) is at index (d * height + h) * width + w, unless a batched kernel
+ * is passed the CHANNELS_LAST layout, where it is at index (h * width + w) * depth + d and the 
+ * output is in the same layout. Batches are flattened example-major, each example's volume being
+ * contiguous. Windows may overlap ( stride less than the filter size ). CHANNELS_FIRST kernels 
+ * process each (example, channel) plane independently, and CHANNELS_LAST kernels each (example, 
+ * output row) with all channels of a position in the innermost loop, in parallel for large 
+ * batches.
+ * 
+ * @author Michael Lavelle
+ */
+public final class PoolingKernels {
+
+  /**
+   * The minimum number of window element visits for which planes are pooled in parallel.
+   */
+  public static final int PARALLEL_THRESHOLD = 1 << 16;
+
+  private PoolingKernels() {
+  }
+
+  /**
+   * @param inputSize The input width or height.
+   * @param filterSize The filter width or height.
+   * @param stride The stride.
+   * @return The output width or height.
+   */
+  public static int getOutputSize(int inputSize, int filterSize, int stride) {
+    return (inputSize - filterSize) / stride + 1;
+  }
+
+  /**
+   * Max pool an input volume, recording the index of the maximum input of each window.
+   * 
+   * @param input The input volume.
+   * @param depth The depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param stride The stride.
+   * @param output The output volume to write into.
+   * @param argmaxIndexes The array to write the input index of each output's maximum into.
+   * @return The output array.
+   */
+  public static double[] maxPool(double[] input, int depth, int height, int width, 
+      int filterHeight, int filterWidth, int stride, double[] output, int[] argmaxIndexes) {
+    return maxPool(input, 1, depth, height, width, filterHeight, filterWidth, stride, output,
+        argmaxIndexes);
+  }
+
+  /**
+   * Max pool a batch of input volumes, recording the index of the maximum input of each window
+   * within its example's volume.
+   * 
+   * @param input The input volumes.
+   * @param exampleCount The number of examples.
+   * @param depth The depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param stride The stride.
+   * @param output The output volumes to write into.
+   * @param argmaxIndexes The array to write the input index of each output's maximum into.
+   * @return The output array.
+   */
+  public static double[] maxPool(double[] input, int exampleCount, int depth, int height,
+      int width, int filterHeight, int filterWidth, int stride, double[] output,
+      int[] argmaxIndexes) {
+    int outputHeight = getOutputSize(height, filterHeight, stride);
+    int outputWidth = getOutputSize(width, filterWidth, stride);
+    planes(exampleCount, depth, (long) outputHeight * outputWidth * filterHeight * filterWidth)
+        .forEach(plane -> {
+          int example = plane / depth;
+          int channel = plane % depth;
+          int exampleOffset = example * depth * height * width;
+          int inputOffset = channel * height * width;
+          int outputOffset = plane * outputHeight * outputWidth;
+          for (int oh = 0; oh < outputHeight; oh++) {
+            for (int ow = 0; ow < outputWidth; ow++) {
+              int argmax = inputOffset + oh * stride * width + ow * stride;
+              double max = input[exampleOffset + argmax];
+              for (int fh = 0; fh < filterHeight; fh++) {
+                int rowOffset = inputOffset + (oh * stride + fh) * width + ow * stride;
+                for (int fw = 0; fw < filterWidth; fw++) {
+                  double value = input[exampleOffset + rowOffset + fw];
+                  if (value > max) {
+                    max = value;
+                    argmax = rowOffset + fw;
+                  }
+                }
+              }
+              int outputIndex = outputOffset + oh * outputWidth + ow;
+              output[outputIndex] = max;
+              argmaxIndexes[outputIndex] = argmax;
+            }
+          }
+        });
+    return output;
+  }
+
+  /**
+   * Max pool a batch of input volumes in the specified layout, recording the index of the maximum
+   * input of each window within its example's volume.
+   * 
+   * @param input The input volumes.
+   * @param exampleCount The number of examples.
+   * @param depth The depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param stride The stride.
+   * @param layout The layout of the input and output volumes.
+   * @param output The output volumes to write into.
+   * @param argmaxIndexes The array to write the input index of each output's maximum into.
+   * @return The output array.
+   */
+  public static double[] maxPool(double[] input, int exampleCount, int depth, int height,
+      int width, int filterHeight, int filterWidth, int stride, Neurons3DLayout layout,
+      double[] output, int[] argmaxIndexes) {
+    if (layout != Neurons3DLayout.CHANNELS_LAST) {
+      return maxPool(input, exampleCount, depth, height, width, filterHeight, filterWidth, stride,
+          output, argmaxIndexes);
+    }
+    int outputHeight = getOutputSize(height, filterHeight, stride);
+    int outputWidth = getOutputSize(width, filterWidth, stride);
+    outputRows(exampleCount, outputHeight, 
+        (long) outputWidth * depth * filterHeight * filterWidth).forEach(outputRow -> {
+          int exampleOffset = (outputRow / outputHeight) * height * width * depth;
+          int oh = outputRow % outputHeight;
+          for (int ow = 0; ow < outputWidth; ow++) {
+            int outputOffset = (outputRow * outputWidth + ow) * depth;
+            int firstOffset = (oh * stride * width + ow * stride) * depth;
+            for (int d = 0; d < depth; d++) {
+              output[outputOffset + d] = input[exampleOffset + firstOffset + d];
+              argmaxIndexes[outputOffset + d] = firstOffset + d;
+            }
+            for (int fh = 0; fh < filterHeight; fh++) {
+              for (int fw = 0; fw < filterWidth; fw++) {
+                int positionOffset = ((oh * stride + fh) * width + ow * stride + fw) * depth;
+                for (int d = 0; d < depth; d++) {
+                  double value = input[exampleOffset + positionOffset + d];
+                  if (value > output[outputOffset + d]) {
+                    output[outputOffset + d] = value;
+                    argmaxIndexes[outputOffset + d] = positionOffset + d;
+                  }
+                }
+              }
+            }
+          }
+        });
+    return output;
+  }
+
+  /**
+   * Route output gradients back to the inputs that were the maximum of each window, in 
+   * O(outputs) using the argmax indexes recorded by maxPool. Gradients of overlapping windows 
+   * sharing a maximum are accumulated.
+   * 
+   * @param outputGradient The gradient with respect to the pooled output.
+   * @param argmaxIndexes The argmax indexes recorded by maxPool.
+   * @param depth The depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param stride The stride.
+   * @param inputGradient The array to write the gradient with respect to the input into - the 
+   *        first depth * height * width elements are overwritten.
+   * @return The inputGradient array.
+   */
+  public static double[] maxPoolBackward(double[] outputGradient, int[] argmaxIndexes,
+      int depth, int height, int width, int filterHeight, int filterWidth, int stride,
+      double[] inputGradient) {
+    return maxPoolBackward(outputGradient, argmaxIndexes, 1, depth, height, width, filterHeight,
+        filterWidth, stride, inputGradient);
+  }
+
+  /**
+   * Route output gradients of a batch back to the inputs that were the maximum of each window, 
+   * in O(outputs) using the argmax indexes recorded by maxPool. The buffers may be larger than 
+   * the batch, eg. when reused across batches of different sizes. As the argmax indexes are 
+   * indexes into each example's flattened volume, this applies to either layout.
+   * 
+   * @param outputGradient The gradient with respect to the pooled outputs.
+   * @param argmaxIndexes The argmax indexes recorded by maxPool.
+   * @param exampleCount The number of examples.
+   * @param depth The depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param stride The stride.
+   * @param inputGradient The array to write the gradient with respect to the inputs into - the 
+   *        first exampleCount * depth * height * width elements are overwritten.
+   * @return The inputGradient array.
+   */
+  public static double[] maxPoolBackward(double[] outputGradient, int[] argmaxIndexes,
+      int exampleCount, int depth, int height, int width, int filterHeight, int filterWidth, 
+      int stride, double[] inputGradient) {
+    int outputVolume = depth * getOutputSize(height, filterHeight, stride) 
+        * getOutputSize(width, filterWidth, stride);
+    int inputVolume = depth * height * width;
+    Arrays.fill(inputGradient, 0, exampleCount * inputVolume, 0d);
+    for (int example = 0; example < exampleCount; example++) {
+      int outputOffset = example * outputVolume;
+      int inputOffset = example * inputVolume;
+      for (int i = outputOffset; i < outputOffset + outputVolume; i++) {
+        inputGradient[inputOffset + argmaxIndexes[i]] += outputGradient[i];
+      }
+    }
+    return inputGradient;
+  }
+
+  /**
+   * Average pool a batch of input volumes.
+   * 
+   * @param input The input volumes.
+   * @param exampleCount The number of examples.
+   * @param depth The depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param stride The stride.
+   * @param output The output volumes to write into.
+   * @return The output array.
+   */
+  public static double[] averagePool(double[] input, int exampleCount, int depth, int height,
+      int width, int filterHeight, int filterWidth, int stride, double[] output) {
+    int outputHeight = getOutputSize(height, filterHeight, stride);
+    int outputWidth = getOutputSize(width, filterWidth, stride);
+    double scale = 1d / (filterHeight * filterWidth);
+    planes(exampleCount, depth, (long) outputHeight * outputWidth * filterHeight * filterWidth)
+        .forEach(plane -> {
+          int inputOffset = plane * height * width;
+          int outputOffset = plane * outputHeight * outputWidth;
+          for (int oh = 0; oh < outputHeight; oh++) {
+            for (int ow = 0; ow < outputWidth; ow++) {
+              double sum = 0d;
+              for (int fh = 0; fh < filterHeight; fh++) {
+                int rowOffset = inputOffset + (oh * stride + fh) * width + ow * stride;
+                for (int fw = 0; fw < filterWidth; fw++) {
+                  sum += input[rowOffset + fw];
+                }
+              }
+              output[outputOffset + oh * outputWidth + ow] = sum * scale;
+            }
+          }
+        });
+    return output;
+  }
+
+  /**
+   * Average pool a batch of input volumes in the specified layout.
+   * 
+   * @param input The input volumes.
+   * @param exampleCount The number of examples.
+   * @param depth The depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param stride The stride.
+   * @param layout The layout of the input and output volumes.
+   * @param output The output volumes to write into.
+   * @return The output array.
+   */
+  public static double[] averagePool(double[] input, int exampleCount, int depth, int height,
+      int width, int filterHeight, int filterWidth, int stride, Neurons3DLayout layout, 
+      double[] output) {
+    if (layout != Neurons3DLayout.CHANNELS_LAST) {
+      return averagePool(input, exampleCount, depth, height, width, filterHeight, filterWidth,
+          stride, output);
+    }
+    int outputHeight = getOutputSize(height, filterHeight, stride);
+    int outputWidth = getOutputSize(width, filterWidth, stride);
+    double scale = 1d / (filterHeight * filterWidth);
+    outputRows(exampleCount, outputHeight, 
+        (long) outputWidth * depth * filterHeight * filterWidth).forEach(outputRow -> {
+          int exampleOffset = (outputRow / outputHeight) * height * width * depth;
+          int oh = outputRow % outputHeight;
+          for (int ow = 0; ow < outputWidth; ow++) {
+            int outputOffset = (outputRow * outputWidth + ow) * depth;
+            Arrays.fill(output, outputOffset, outputOffset + depth, 0d);
+            for (int fh = 0; fh < filterHeight; fh++) {
+              for (int fw = 0; fw < filterWidth; fw++) {
+                int inputOffset = exampleOffset 
+                    + ((oh * stride + fh) * width + ow * stride + fw) * depth;
+                for (int d = 0; d < depth; d++) {
+                  output[outputOffset + d] += input[inputOffset + d];
+                }
+              }
+            }
+            for (int d = 0; d < depth; d++) {
+              output[outputOffset + d] *= scale;
+            }
+          }
+        });
+    return output;
+  }
+
+  /**
+   * Spread output gradients of a batch evenly over each window's inputs, accumulating where
+   * windows overlap.
+   * 
+   * @param outputGradient The gradient with respect to the pooled outputs.
+   * @param exampleCount The number of examples.
+   * @param depth The depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param stride The stride.
+   * @param inputGradient The array to write the gradient with respect to the inputs into - 
+   *        overwritten.
+   * @return The inputGradient array.
+   */
+  public static double[] averagePoolBackward(double[] outputGradient, int exampleCount,
+      int depth, int height, int width, int filterHeight, int filterWidth, int stride,
+      double[] inputGradient) {
+    int outputHeight = getOutputSize(height, filterHeight, stride);
+    int outputWidth = getOutputSize(width, filterWidth, stride);
+    double scale = 1d / (filterHeight * filterWidth);
+    planes(exampleCount, depth, (long) outputHeight * outputWidth * filterHeight * filterWidth)
+        .forEach(plane -> {
+          int inputOffset = plane * height * width;
+          int outputOffset = plane * outputHeight * outputWidth;
+          Arrays.fill(inputGradient, inputOffset, inputOffset + height * width, 0d);
+          for (int oh = 0; oh < outputHeight; oh++) {
+            for (int ow = 0; ow < outputWidth; ow++) {
+              double gradient = outputGradient[outputOffset + oh * outputWidth + ow] * scale;
+              for (int fh = 0; fh < filterHeight; fh++) {
+                int rowOffset = inputOffset + (oh * stride + fh) * width + ow * stride;
+                for (int fw = 0; fw < filterWidth; fw++) {
+                  inputGradient[rowOffset + fw] += gradient;
+                }
+              }
+            }
+          }
+        });
+    return inputGradient;
+  }
+
+  /**
+   * Spread output gradients of a batch in the specified layout evenly over each window's inputs,
+   * accumulating where windows overlap. CHANNELS_LAST examples are processed in parallel, as 
+   * overlapping windows of different output rows of an example share inputs.
+   * 
+   * @param outputGradient The gradient with respect to the pooled outputs.
+   * @param exampleCount The number of examples.
+   * @param depth The depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param filterHeight The filter height.
+   * @param filterWidth The filter width.
+   * @param stride The stride.
+   * @param layout The layout of the gradient volumes.
+   * @param inputGradient The array to write the gradient with respect to the inputs into - 
+   *        overwritten.
+   * @return The inputGradient array.
+   */
+  public static double[] averagePoolBackward(double[] outputGradient, int exampleCount,
+      int depth, int height, int width, int filterHeight, int filterWidth, int stride,
+      Neurons3DLayout layout, double[] inputGradient) {
+    if (layout != Neurons3DLayout.CHANNELS_LAST) {
+      return averagePoolBackward(outputGradient, exampleCount, depth, height, width, 
+          filterHeight, filterWidth, stride, inputGradient);
+    }
+    int outputHeight = getOutputSize(height, filterHeight, stride);
+    int outputWidth = getOutputSize(width, filterWidth, stride);
+    int inputVolume = height * width * depth;
+    double scale = 1d / (filterHeight * filterWidth);
+    outputRows(exampleCount, 1, 
+        (long) outputHeight * outputWidth * depth * filterHeight * filterWidth).forEach(example -> {
+          int exampleOffset = example * inputVolume;
+          Arrays.fill(inputGradient, exampleOffset, exampleOffset + inputVolume, 0d);
+          for (int oh = 0; oh < outputHeight; oh++) {
+            for (int ow = 0; ow < outputWidth; ow++) {
+              int outputOffset = ((example * outputHeight + oh) * outputWidth + ow) * depth;
+              for (int fh = 0; fh < filterHeight; fh++) {
+                for (int fw = 0; fw < filterWidth; fw++) {
+                  int inputOffset = exampleOffset 
+                      + ((oh * stride + fh) * width + ow * stride + fw) * depth;
+                  for (int d = 0; d < depth; d++) {
+                    inputGradient[inputOffset + d] += outputGradient[outputOffset + d] * scale;
+                  }
+                }
+              }
+            }
+          }
+        });
+    return inputGradient;
+  }
+
+  /**
+   * Global average pool a batch of input volumes, producing one output per example and channel.
+   * 
+   * @param input The input volumes.
+   * @param exampleCount The number of examples.
+   * @param depth The depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param output The array of length exampleCount * depth to write into.
+   * @return The output array.
+   */
+  public static double[] globalAveragePool(double[] input, int exampleCount, int depth,
+      int height, int width, double[] output) {
+    int area = height * width;
+    planes(exampleCount, depth, area).forEach(plane -> {
+      double sum = 0d;
+      for (int i = plane * area; i < (plane + 1) * area; i++) {
+        sum += input[i];
+      }
+      output[plane] = sum / area;
+    });
+    return output;
+  }
+
+  /**
+   * Global average pool a batch of input volumes in the specified layout, producing one output 
+   * per example and channel - the (depth x 1 x 1) output is the same in either layout.
+   * 
+   * @param input The input volumes.
+   * @param exampleCount The number of examples.
+   * @param depth The depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param layout The layout of the input volumes.
+   * @param output The array of length exampleCount * depth to write into.
+   * @return The output array.
+   */
+  public static double[] globalAveragePool(double[] input, int exampleCount, int depth,
+      int height, int width, Neurons3DLayout layout, double[] output) {
+    if (layout != Neurons3DLayout.CHANNELS_LAST) {
+      return globalAveragePool(input, exampleCount, depth, height, width, output);
+    }
+    int area = height * width;
+    outputRows(exampleCount, 1, (long) area * depth).forEach(example -> {
+      int outputOffset = example * depth;
+      Arrays.fill(output, outputOffset, outputOffset + depth, 0d);
+      for (int position = 0; position < area; position++) {
+        int inputOffset = (example * area + position) * depth;
+        for (int d = 0; d < depth; d++) {
+          output[outputOffset + d] += input[inputOffset + d];
+        }
+      }
+      for (int d = 0; d < depth; d++) {
+        output[outputOffset + d] /= area;
+      }
+    });
+    return output;
+  }
+
+  /**
+   * Spread global average pooling output gradients evenly over each channel's inputs.
+   * 
+   * @param outputGradient The gradient with respect to the pooled outputs.
+   * @param exampleCount The number of examples.
+   * @param depth The depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param inputGradient The array to write the gradient with respect to the inputs into - 
+   *        overwritten.
+   * @return The inputGradient array.
+   */
+  public static double[] globalAveragePoolBackward(double[] outputGradient, int exampleCount,
+      int depth, int height, int width, double[] inputGradient) {
+    int area = height * width;
+    planes(exampleCount, depth, area).forEach(plane -> Arrays.fill(inputGradient, plane * area,
+        (plane + 1) * area, outputGradient[plane] / area));
+    return inputGradient;
+  }
+
+  /**
+   * Spread global average pooling output gradients evenly over each channel's inputs, in the 
+   * specified layout.
+   * 
+   * @param outputGradient The gradient with respect to the pooled outputs.
+   * @param exampleCount The number of examples.
+   * @param depth The depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param layout The layout of the input gradient volumes.
+   * @param inputGradient The array to write the gradient with respect to the inputs into - 
+   *        overwritten.
+   * @return The inputGradient array.
+   */
+  public static double[] globalAveragePoolBackward(double[] outputGradient, int exampleCount,
+      int depth, int height, int width, Neurons3DLayout layout, double[] inputGradient) {
+    if (layout != Neurons3DLayout.CHANNELS_LAST) {
+      return globalAveragePoolBackward(outputGradient, exampleCount, depth, height, width,
+          inputGradient);
+    }
+    int area = height * width;
+    outputRows(exampleCount, 1, (long) area * depth).forEach(example -> {
+      int outputOffset = example * depth;
+      for (int position = 0; position < area; position++) {
+        int inputOffset = (example * area + position) * depth;
+        for (int d = 0; d < depth; d++) {
+          inputGradient[inputOffset + d] = outputGradient[outputOffset + d] / area;
+        }
+      }
+    });
+    return inputGradient;
+  }
+
+  private static IntStream outputRows(int exampleCount, int outputHeight, long visitsPerRow) {
+    IntStream outputRows = IntStream.range(0, exampleCount * outputHeight);
+    if (exampleCount * outputHeight > 1 
+        && visitsPerRow * exampleCount * outputHeight >= PARALLEL_THRESHOLD) {
+      outputRows = outputRows.parallel();
+    }
+    return outputRows;
+  }
+
+  private static IntStream planes(int exampleCount, int depth, long visitsPerPlane) {
+    IntStream planes = IntStream.range(0, exampleCount * depth);
+    if (exampleCount * depth > 1 && visitsPerPlane * exampleCount * depth >= PARALLEL_THRESHOLD) {
+      planes = planes.parallel();
+    }
+    return planes;
+  }
+}
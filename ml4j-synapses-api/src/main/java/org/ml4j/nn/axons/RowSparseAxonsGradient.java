@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.axons;
+
+import org.ml4j.Matrix;
+
+/**
+ * An AxonsGradient which is non-zero only in a subset of the rows of the connection weights
+ * Matrix - eg. the gradient of FullyConnectedAxons receiving one-hot or very sparse inputs, for
+ * which only the rows for active inputs are non-zero.
+ * 
+ * <p>Row indexes are rows of the connection weights Matrix itself. When the bias weights are held
+ * within that Matrix ( left hand Neurons with a bias unit and no separate bias weights ), row 0
+ * is the bias row and the row for input feature f is f + 1 - so indexes obtained from sparse 
+ * inputs without a bias column should use CompressedSparseRows.getTouchedColumns(1, true), and
+ * the gradient rows CompressedSparseRows.transposeMmul with a column offset of 1. The bias row 
+ * is non-zero whenever any example is present, so is then always included.
+ * 
+ * @author Michael Lavelle
+ */
+public interface RowSparseAxonsGradient extends AxonsGradient {
+
+  /**
+   * @return The ascending indexes of the connection weights rows with non-zero gradient, 
+   *         counting the bias row if held within the connection weights.
+   */
+  int[] getRowIndexes();
+
+  /**
+   * @return The compact Matrix of gradient rows, with row i holding the gradient for 
+   *         connection weights row getRowIndexes()[i].
+   */
+  Matrix getRowGradients();
+}
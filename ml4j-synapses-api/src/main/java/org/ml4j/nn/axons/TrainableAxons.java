@@ -15,6 +15,7 @@
 package org.ml4j.nn.axons;
 
 import org.ml4j.Matrix;
+import org.ml4j.MatrixFactory;
 import org.ml4j.nn.neurons.Neurons;
 
 /**
@@ -32,9 +33,91 @@ public interface TrainableAxons<L extends Neurons, R extends Neurons,
     extends Axons<L, R, A> {
   
   /**
+   * @return The number of rows of the connection weights Matrix - by default one for each left
+   *         hand Neuron, including the bias unit.
+   */
+  public default int getConnectionWeightsRows() {
+    return getLeftNeurons().getNeuronCountIncludingBias();
+  }
+
+  /**
+   * @return The number of columns of the connection weights Matrix - by default one for each 
+   *         right hand Neuron, excluding the bias unit.
+   */
+  public default int getConnectionWeightsColumns() {
+    return getRightNeurons().getNeuronCountExcludingBias();
+  }
+
+  /**
+   * Adjust the connection weights. Concurrent calls from several threads have the semantics of
+   * getWeightUpdateConcurrency(). Implementations holding VersionedConnectionWeights should 
+   * delegate to its adjust method.
+   * 
    * @param adjustments The adjustment Matrix.
    * @param adjustmentDirection The adjustment direction.
    */
   public void adjustConnectionWeights(Matrix adjustments, 
       ConnectionWeightsAdjustmentDirection adjustmentDirection);
+  
+  /**
+   * Adjust only the specified rows of the connection weights, eg. when applying a 
+   * RowSparseAxonsGradient. By default this delegates to getVersionedConnectionWeights(), and 
+   * so to its ConcurrentWeightUpdater, if present - otherwise it materialises a dense adjustment 
+   * Matrix of getConnectionWeightsRows() x getConnectionWeightsColumns(), which implementations 
+   * should avoid by overriding this default.
+   * 
+   * @param rowIndexes The indexes of the connection weights rows to adjust, counting the bias 
+   *        row if held within the connection weights - see RowSparseAxonsGradient.
+   * @param rowAdjustments The compact adjustment Matrix, with row i holding the adjustment for 
+   *        connection weights row rowIndexes[i].
+   * @param adjustmentDirection The adjustment direction.
+   * @param matrixFactory The MatrixFactory used to create the dense adjustment Matrix.
+   */
+  public default void adjustConnectionWeights(int[] rowIndexes, Matrix rowAdjustments,
+      ConnectionWeightsAdjustmentDirection adjustmentDirection, MatrixFactory matrixFactory) {
+    VersionedConnectionWeights versionedConnectionWeights = getVersionedConnectionWeights();
+    if (versionedConnectionWeights != null) {
+      versionedConnectionWeights.adjustRows(rowIndexes, rowAdjustments, adjustmentDirection);
+      return;
+    }
+    Matrix adjustments = matrixFactory.createZeros(getConnectionWeightsRows(), 
+        getConnectionWeightsColumns());
+    for (int i = 0; i < rowIndexes.length; i++) {
+      adjustments.putRow(rowIndexes[i], rowAdjustments.getRow(i));
+    }
+    adjustConnectionWeights(adjustments, adjustmentDirection);
+  }
+
+  /**
+   * @return The VersionedConnectionWeights holding the connection weights of these Axons, if 
+   *         any - null by default. Implementations holding their weights in 
+   *         VersionedConnectionWeights should return them, so that the defaults of these 
+   *         TrainableAxons apply row adjustments through its ConcurrentWeightUpdater and report
+   *         its WeightUpdateConcurrency.
+   */
+  public default VersionedConnectionWeights getVersionedConnectionWeights() {
+    return null;
+  }
+
+  /**
+   * @return A snapshot of getVersionedConnectionWeights(), sharing one copy between the 
+   *         snapshots of each version, if present - otherwise a detached copy, as for Axons.
+   */
+  @Override
+  public default ConnectionWeightsSnapshot getConnectionWeightsSnapshot() {
+    VersionedConnectionWeights versionedConnectionWeights = getVersionedConnectionWeights();
+    return versionedConnectionWeights == null ? Axons.super.getConnectionWeightsSnapshot()
+        : versionedConnectionWeights.getSnapshot();
+  }
+
+  /**
+   * @return The semantics of concurrent calls to adjustConnectionWeights - by default those of 
+   *         getVersionedConnectionWeights(), if present, otherwise callers must serialise 
+   *         adjustments.
+   */
+  public default WeightUpdateConcurrency getWeightUpdateConcurrency() {
+    VersionedConnectionWeights versionedConnectionWeights = getVersionedConnectionWeights();
+    return versionedConnectionWeights == null ? WeightUpdateConcurrency.EXTERNALLY_SYNCHRONIZED
+        : versionedConnectionWeights.getWeightUpdateConcurrency();
+  }
 }
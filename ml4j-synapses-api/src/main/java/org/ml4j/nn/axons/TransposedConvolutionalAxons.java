@@ -0,0 +1,55 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.axons;
+
+import org.ml4j.nn.neurons.Neurons3D;
+
+/**
+ * Encapsulates the connections between two sets of Neurons which are connected by a transposed
+ * ( fractionally strided ) convolution - the adjoint of ConvolutionalAxons with the same filter,
+ * stride and zero padding configuration, which upsamples the volume on the left to the larger 
+ * volume on the right.
+ * 
+ * <p>The right hand width is (leftWidth - 1) * stride - 2 * zeroPadding + filterWidth, and 
+ * similarly for height.
+ * 
+ * @author Michael Lavelle
+ *
+ */
+public interface TransposedConvolutionalAxons
+    extends TrainableAxons<Neurons3D, Neurons3D, TransposedConvolutionalAxons> {
+
+  /**
+   * @return The stride of the corresponding convolution.
+   */
+  int getStride();
+
+  /**
+   * @return The amount of zero padding of the corresponding convolution.
+   */
+  int getZeroPadding();
+  
+  /**
+   * @return The filter width.
+   */
+  int getFilterWidth();
+  
+  /**
+   * @return The filter height.
+   */
+  int getFilterHeight();
+}
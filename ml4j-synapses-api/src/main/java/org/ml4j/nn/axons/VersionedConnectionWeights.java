@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.axons;
+
+import org.ml4j.Matrix;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the connection weights of an Axons instance, so that training adjusts them in place 
+ * while readers take version-stamped ConnectionWeightsSnapshots.
+ * 
+ * <p>The owning Axons reads the live weights with getConnectionWeightsForOwner, which never 
+ * copies. Adjustments are always applied in place, each incrementing the version. A snapshot 
+ * copies the weights at most once per version, the copy being shared by all snapshots of that
+ * version - so a run of adjustments with no reads copies nothing, and a run of reads with no 
+ * adjustments copies once. Snapshots never share the live weights, so readers cannot corrupt 
+ * training.
+ * 
+ * <p>How adjustments combine depends on the WeightUpdateConcurrency. EXTERNALLY_SYNCHRONIZED
+ * adjustments synchronize on this instance, so they are serialised with each other and with 
+ * snapshots, and each snapshot holds exactly the adjustments up to its version. HOGWILD and 
+ * STRIPED adjustments take no lock of this instance and are applied by the 
+ * ConcurrentWeightUpdater with its semantics, so concurrent training threads are not 
+ * serialised here - a snapshot taken while such adjustments are in flight may then include 
+ * part of them, and is stamped with the version preceding them.
+ * 
+ * @author Michael Lavelle
+ */
+public class VersionedConnectionWeights implements Serializable {
+
+  /**
+   * Default serialization id.
+   */
+  private static final long serialVersionUID = 1L;
+
+  private final Matrix connectionWeights;
+  private final WeightUpdateConcurrency concurrency;
+  private final AtomicLong version;
+  private transient ConcurrentWeightUpdater weightUpdater;
+  private transient volatile ConnectionWeightsSnapshot snapshot;
+
+  /**
+   * @param connectionWeights The initial connection weights, owned by this instance.
+   */
+  public VersionedConnectionWeights(Matrix connectionWeights) {
+    this(connectionWeights, WeightUpdateConcurrency.EXTERNALLY_SYNCHRONIZED);
+  }
+
+  /**
+   * @param connectionWeights The initial connection weights, owned by this instance.
+   * @param concurrency The concurrency mode of adjustments.
+   */
+  public VersionedConnectionWeights(Matrix connectionWeights, 
+      WeightUpdateConcurrency concurrency) {
+    this.connectionWeights = connectionWeights;
+    this.concurrency = concurrency;
+    this.version = new AtomicLong();
+    this.weightUpdater = createWeightUpdater();
+  }
+
+  /**
+   * @return The concurrency mode of adjustments.
+   */
+  public WeightUpdateConcurrency getWeightUpdateConcurrency() {
+    return concurrency;
+  }
+
+  /**
+   * @return The live connection weights, for the owning Axons only - eg. for forward and 
+   *         backward propagation within a training step. They are adjusted in place, so must not
+   *         be modified, retained across adjustments or handed to other readers, which should 
+   *         use getSnapshot instead.
+   */
+  public Matrix getConnectionWeightsForOwner() {
+    return connectionWeights;
+  }
+
+  /**
+   * @return A snapshot of the current connection weights, holding a copy shared by all snapshots 
+   *         of the current version.
+   */
+  public ConnectionWeightsSnapshot getSnapshot() {
+    ConnectionWeightsSnapshot currentSnapshot = snapshot;
+    if (currentSnapshot != null && currentSnapshot.getVersion() == version.get()) {
+      return currentSnapshot;
+    }
+    synchronized (this) {
+      long currentVersion = version.get();
+      if (snapshot == null || snapshot.getVersion() != currentVersion) {
+        snapshot = new ConnectionWeightsSnapshot(currentVersion, connectionWeights.dup());
+      }
+      return snapshot;
+    }
+  }
+
+  /**
+   * @return The current version - the number of adjustments applied.
+   */
+  public long getVersion() {
+    return version.get();
+  }
+
+  /**
+   * @param adjustments The adjustment Matrix.
+   * @param adjustmentDirection The adjustment direction.
+   * @return The new version.
+   */
+  public long adjust(Matrix adjustments,
+      ConnectionWeightsAdjustmentDirection adjustmentDirection) {
+    if (concurrency != WeightUpdateConcurrency.EXTERNALLY_SYNCHRONIZED) {
+      weightUpdater.adjust(connectionWeights, adjustments, adjustmentDirection);
+      return version.incrementAndGet();
+    }
+    synchronized (this) {
+      if (adjustmentDirection == ConnectionWeightsAdjustmentDirection.ADDITION) {
+        connectionWeights.addi(adjustments);
+      } else {
+        connectionWeights.subi(adjustments);
+      }
+      return version.incrementAndGet();
+    }
+  }
+
+  /**
+   * Adjust only the specified rows, through the ConcurrentWeightUpdater.
+   * 
+   * @param rowIndexes The indexes of the rows to adjust.
+   * @param rowAdjustments The compact adjustments, with row i holding the adjustment for row 
+   *        rowIndexes[i].
+   * @param adjustmentDirection The adjustment direction.
+   * @return The new version.
+   */
+  public long adjustRows(int[] rowIndexes, Matrix rowAdjustments,
+      ConnectionWeightsAdjustmentDirection adjustmentDirection) {
+    if (concurrency != WeightUpdateConcurrency.EXTERNALLY_SYNCHRONIZED) {
+      weightUpdater.adjustRows(connectionWeights, rowIndexes, rowAdjustments, 
+          adjustmentDirection);
+      return version.incrementAndGet();
+    }
+    synchronized (this) {
+      weightUpdater.adjustRows(connectionWeights, rowIndexes, rowAdjustments, 
+          adjustmentDirection);
+      return version.incrementAndGet();
+    }
+  }
+
+  private ConcurrentWeightUpdater createWeightUpdater() {
+    return new ConcurrentWeightUpdater(concurrency, connectionWeights.getRows(),
+        connectionWeights.getColumns());
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    weightUpdater = createWeightUpdater();
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.axons;
+
+/**
+ * Enum of the concurrency semantics TrainableAxons may offer for connection weight adjustments
+ * made by several training threads at once.
+ * 
+ * @author Michael Lavelle
+ */
+public enum WeightUpdateConcurrency {
+
+  /**
+   * Adjustments are not thread-safe - callers must serialise calls to adjustConnectionWeights.
+   */
+  EXTERNALLY_SYNCHRONIZED,
+
+  /**
+   * Adjustments are applied without locking ( Hogwild ) - concurrent adjustments to the same 
+   * weight may occasionally be lost and readers may observe partially applied adjustments. This
+   * converges for sparse updates where collisions are rare.
+   */
+  HOGWILD,
+
+  /**
+   * Each block of connection weight rows is guarded by its own lock, so adjustments are never 
+   * lost and each row is updated atomically, while adjustments to different row blocks proceed in
+   * parallel. Dense adjustments lock one block at a time and so are not atomic as a whole.
+   */
+  STRIPED;
+}
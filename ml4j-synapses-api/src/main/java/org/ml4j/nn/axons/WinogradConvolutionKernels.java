@@ -0,0 +1,339 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.axons;
+
+import java.util.Arrays;
+
+/**
+ * Winograd minimal filtering kernels F(2x2,3x3) for the WINOGRAD_F2X2_3X3 ConvolutionAlgorithm,
+ * for 3x3 filters with a stride of 1 and any zero padding. Each 2x2 output tile is computed from
+ * a 4x4 input tile as A^T [ (G g G^T) . (B^T d B) ] A, taking 16 multiplications per channel 
+ * rather than the 36 of the direct convolution, with the transformed filters G g G^T computed 
+ * once per call.
+ * 
+ * <p>Batches are held feature-major, as for ConvolutionKernels.batchIm2col, and filters are 
+ * flattened as [outputDepth][depth][3][3].
+ * 
+ * @author Michael Lavelle
+ */
+public final class WinogradConvolutionKernels {
+
+  /**
+   * The filter width and height.
+   */
+  public static final int FILTER_SIZE = 3;
+
+  private static final int TILE_SIZE = 4;
+  private static final int TILE_AREA = TILE_SIZE * TILE_SIZE;
+  private static final int OUTPUT_TILE_SIZE = 2;
+
+  private WinogradConvolutionKernels() {
+  }
+
+  /**
+   * Convolve a feature-major batch of volumes with 3x3 filters at a stride of 1.
+   * 
+   * @param input The feature-major batch of input volumes.
+   * @param exampleCount The number of examples.
+   * @param depth The input depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param filters The filters, flattened as [outputDepth][depth][3][3].
+   * @param outputDepth The number of filters.
+   * @param zeroPadding The amount of zero padding.
+   * @param output The feature-major batch of output volumes to write into.
+   * @return The output array.
+   */
+  public static double[] forward(double[] input, int exampleCount, int depth, int height, 
+      int width, double[] filters, int outputDepth, int zeroPadding, double[] output) {
+    int outputHeight = height + 2 * zeroPadding - FILTER_SIZE + 1;
+    int outputWidth = width + 2 * zeroPadding - FILTER_SIZE + 1;
+    double[] transformedFilters = transformFilters(filters, outputDepth, depth);
+    double[] tile = new double[TILE_AREA];
+    double[] transformedTiles = new double[depth * TILE_AREA];
+    double[] product = new double[TILE_AREA];
+    double[] outputTile = new double[OUTPUT_TILE_SIZE * OUTPUT_TILE_SIZE];
+    for (int n = 0; n < exampleCount; n++) {
+      for (int top = 0; top < outputHeight; top += OUTPUT_TILE_SIZE) {
+        for (int left = 0; left < outputWidth; left += OUTPUT_TILE_SIZE) {
+          for (int d = 0; d < depth; d++) {
+            gatherTile(input, exampleCount, n, d, height, width, top - zeroPadding, 
+                left - zeroPadding, TILE_SIZE, tile);
+            transformInputTile(tile, transformedTiles, d * TILE_AREA);
+          }
+          for (int od = 0; od < outputDepth; od++) {
+            Arrays.fill(product, 0d);
+            for (int d = 0; d < depth; d++) {
+              int filterOffset = (od * depth + d) * TILE_AREA;
+              int tileOffset = d * TILE_AREA;
+              for (int k = 0; k < TILE_AREA; k++) {
+                product[k] += transformedFilters[filterOffset + k] 
+                    * transformedTiles[tileOffset + k];
+              }
+            }
+            transformOutputTile(product, outputTile);
+            for (int i = 0; i < OUTPUT_TILE_SIZE && top + i < outputHeight; i++) {
+              for (int j = 0; j < OUTPUT_TILE_SIZE && left + j < outputWidth; j++) {
+                output[((od * outputHeight + top + i) * outputWidth + left + j) * exampleCount
+                    + n] = outputTile[i * OUTPUT_TILE_SIZE + j];
+              }
+            }
+          }
+        }
+      }
+    }
+    return output;
+  }
+
+  /**
+   * Obtain the input gradient of forward - the gradient of a stride 1 convolution with respect
+   * to its input is itself a stride 1 convolution of the output gradient, with the filters 
+   * rotated by 180 degrees and their input and output depths exchanged, and with 
+   * 2 - zeroPadding padding.
+   * 
+   * @param outputGradient The feature-major batch of output volume gradients.
+   * @param exampleCount The number of examples.
+   * @param depth The input depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param filters The filters, flattened as [outputDepth][depth][3][3].
+   * @param outputDepth The number of filters.
+   * @param zeroPadding The amount of zero padding.
+   * @param inputGradient The feature-major batch of input volume gradients to write into.
+   * @return The inputGradient array.
+   */
+  public static double[] inputGradient(double[] outputGradient, int exampleCount, int depth, 
+      int height, int width, double[] filters, int outputDepth, int zeroPadding, 
+      double[] inputGradient) {
+    double[] rotatedFilters = new double[filters.length];
+    int filterArea = FILTER_SIZE * FILTER_SIZE;
+    for (int od = 0; od < outputDepth; od++) {
+      for (int d = 0; d < depth; d++) {
+        int filterOffset = (od * depth + d) * filterArea;
+        int rotatedOffset = (d * outputDepth + od) * filterArea;
+        for (int k = 0; k < filterArea; k++) {
+          rotatedFilters[rotatedOffset + filterArea - 1 - k] = filters[filterOffset + k];
+        }
+      }
+    }
+    return forward(outputGradient, exampleCount, outputDepth, 
+        height + 2 * zeroPadding - FILTER_SIZE + 1, width + 2 * zeroPadding - FILTER_SIZE + 1,
+        rotatedFilters, depth, FILTER_SIZE - 1 - zeroPadding, inputGradient);
+  }
+
+  /**
+   * Obtain the weight gradient of forward, summed over the batch, as the adjoint of the 
+   * Winograd transforms - G^T [ (A dY A^T) . (B^T d B) ] G accumulated over the tiles, so that
+   * the elementwise products are again taken in the 4x4 transformed domain.
+   * 
+   * @param input The feature-major batch of input volumes.
+   * @param outputGradient The feature-major batch of output volume gradients.
+   * @param exampleCount The number of examples.
+   * @param depth The input depth.
+   * @param height The input height.
+   * @param width The input width.
+   * @param outputDepth The number of filters.
+   * @param zeroPadding The amount of zero padding.
+   * @param weightGradient The filters gradient to write into, flattened as 
+   *        [outputDepth][depth][3][3] - overwritten.
+   * @return The weightGradient array.
+   */
+  public static double[] weightGradient(double[] input, double[] outputGradient, 
+      int exampleCount, int depth, int height, int width, int outputDepth, int zeroPadding, 
+      double[] weightGradient) {
+    int outputHeight = height + 2 * zeroPadding - FILTER_SIZE + 1;
+    int outputWidth = width + 2 * zeroPadding - FILTER_SIZE + 1;
+    double[] accumulated = new double[outputDepth * depth * TILE_AREA];
+    double[] tile = new double[TILE_AREA];
+    double[] transformedTiles = new double[depth * TILE_AREA];
+    double[] gradientTile = new double[OUTPUT_TILE_SIZE * OUTPUT_TILE_SIZE];
+    double[] transformedGradientTile = new double[TILE_AREA];
+    for (int n = 0; n < exampleCount; n++) {
+      for (int top = 0; top < outputHeight; top += OUTPUT_TILE_SIZE) {
+        for (int left = 0; left < outputWidth; left += OUTPUT_TILE_SIZE) {
+          for (int d = 0; d < depth; d++) {
+            gatherTile(input, exampleCount, n, d, height, width, top - zeroPadding, 
+                left - zeroPadding, TILE_SIZE, tile);
+            transformInputTile(tile, transformedTiles, d * TILE_AREA);
+          }
+          for (int od = 0; od < outputDepth; od++) {
+            // Outputs beyond the edge of an odd-sized output do not exist, so have no gradient.
+            gatherTile(outputGradient, exampleCount, n, od, outputHeight, outputWidth, top, left,
+                OUTPUT_TILE_SIZE, gradientTile);
+            transformGradientTile(gradientTile, transformedGradientTile);
+            for (int d = 0; d < depth; d++) {
+              int accumulatedOffset = (od * depth + d) * TILE_AREA;
+              int tileOffset = d * TILE_AREA;
+              for (int k = 0; k < TILE_AREA; k++) {
+                accumulated[accumulatedOffset + k] += transformedGradientTile[k] 
+                    * transformedTiles[tileOffset + k];
+              }
+            }
+          }
+        }
+      }
+    }
+    int filterArea = FILTER_SIZE * FILTER_SIZE;
+    for (int filter = 0; filter < outputDepth * depth; filter++) {
+      transformAccumulatedGradient(accumulated, filter * TILE_AREA, weightGradient, 
+          filter * filterArea);
+    }
+    return weightGradient;
+  }
+
+  /**
+   * @param filters The filters, flattened as [outputDepth][depth][3][3].
+   * @param outputDepth The number of filters.
+   * @param depth The input depth.
+   * @return The transformed filters G g G^T, flattened as [outputDepth][depth][4][4].
+   */
+  static double[] transformFilters(double[] filters, int outputDepth, int depth) {
+    double[] transformedFilters = new double[outputDepth * depth * TILE_AREA];
+    double[] rows = new double[TILE_SIZE * FILTER_SIZE];
+    for (int filter = 0; filter < outputDepth * depth; filter++) {
+      int offset = filter * FILTER_SIZE * FILTER_SIZE;
+      for (int j = 0; j < FILTER_SIZE; j++) {
+        double g0 = filters[offset + j];
+        double g1 = filters[offset + FILTER_SIZE + j];
+        double g2 = filters[offset + 2 * FILTER_SIZE + j];
+        rows[j] = g0;
+        rows[FILTER_SIZE + j] = (g0 + g1 + g2) / 2;
+        rows[2 * FILTER_SIZE + j] = (g0 - g1 + g2) / 2;
+        rows[3 * FILTER_SIZE + j] = g2;
+      }
+      int transformedOffset = filter * TILE_AREA;
+      for (int i = 0; i < TILE_SIZE; i++) {
+        double s0 = rows[i * FILTER_SIZE];
+        double s1 = rows[i * FILTER_SIZE + 1];
+        double s2 = rows[i * FILTER_SIZE + 2];
+        int rowOffset = transformedOffset + i * TILE_SIZE;
+        transformedFilters[rowOffset] = s0;
+        transformedFilters[rowOffset + 1] = (s0 + s1 + s2) / 2;
+        transformedFilters[rowOffset + 2] = (s0 - s1 + s2) / 2;
+        transformedFilters[rowOffset + 3] = s2;
+      }
+    }
+    return transformedFilters;
+  }
+
+  /**
+   * Copy a size x size tile of one channel of one example, zero outside the volume.
+   */
+  private static void gatherTile(double[] volumes, int exampleCount, int example, int channel,
+      int height, int width, int top, int left, int size, double[] tile) {
+    for (int i = 0; i < size; i++) {
+      int row = top + i;
+      for (int j = 0; j < size; j++) {
+        int column = left + j;
+        tile[i * size + j] = row >= 0 && row < height && column >= 0 && column < width 
+            ? volumes[((channel * height + row) * width + column) * exampleCount + example] 
+            : 0d;
+      }
+    }
+  }
+
+  /**
+   * B^T d B, with B^T = [[1, 0, -1, 0], [0, 1, 1, 0], [0, -1, 1, 0], [0, 1, 0, -1]].
+   */
+  private static void transformInputTile(double[] tile, double[] transformed, int offset) {
+    for (int j = 0; j < TILE_SIZE; j++) {
+      double d0 = tile[j];
+      double d1 = tile[TILE_SIZE + j];
+      double d2 = tile[2 * TILE_SIZE + j];
+      final double d3 = tile[3 * TILE_SIZE + j];
+      transformed[offset + j] = d0 - d2;
+      transformed[offset + TILE_SIZE + j] = d1 + d2;
+      transformed[offset + 2 * TILE_SIZE + j] = d2 - d1;
+      transformed[offset + 3 * TILE_SIZE + j] = d1 - d3;
+    }
+    for (int i = 0; i < TILE_SIZE; i++) {
+      int rowOffset = offset + i * TILE_SIZE;
+      double t0 = transformed[rowOffset];
+      double t1 = transformed[rowOffset + 1];
+      double t2 = transformed[rowOffset + 2];
+      final double t3 = transformed[rowOffset + 3];
+      transformed[rowOffset] = t0 - t2;
+      transformed[rowOffset + 1] = t1 + t2;
+      transformed[rowOffset + 2] = t2 - t1;
+      transformed[rowOffset + 3] = t1 - t3;
+    }
+  }
+
+  /**
+   * A^T m A, with A^T = [[1, 1, 1, 0], [0, 1, -1, -1]].
+   */
+  private static void transformOutputTile(double[] product, double[] outputTile) {
+    double[] rows = new double[OUTPUT_TILE_SIZE * TILE_SIZE];
+    for (int j = 0; j < TILE_SIZE; j++) {
+      double m1 = product[TILE_SIZE + j];
+      double m2 = product[2 * TILE_SIZE + j];
+      rows[j] = product[j] + m1 + m2;
+      rows[TILE_SIZE + j] = m1 - m2 - product[3 * TILE_SIZE + j];
+    }
+    for (int i = 0; i < OUTPUT_TILE_SIZE; i++) {
+      double r1 = rows[i * TILE_SIZE + 1];
+      double r2 = rows[i * TILE_SIZE + 2];
+      outputTile[i * OUTPUT_TILE_SIZE] = rows[i * TILE_SIZE] + r1 + r2;
+      outputTile[i * OUTPUT_TILE_SIZE + 1] = r1 - r2 - rows[i * TILE_SIZE + 3];
+    }
+  }
+
+  /**
+   * A y A^T for a 2x2 output gradient tile y - the adjoint of transformOutputTile.
+   */
+  private static void transformGradientTile(double[] gradientTile, double[] transformed) {
+    double y00 = gradientTile[0];
+    double y01 = gradientTile[1];
+    double y10 = gradientTile[2];
+    double y11 = gradientTile[3];
+    // The rows of A y, with A = [[1, 0], [1, 1], [1, -1], [0, -1]].
+    double[] rows = new double[] {y00, y01, y00 + y10, y01 + y11, y00 - y10, y01 - y11, 
+        -y10, -y11};
+    for (int i = 0; i < TILE_SIZE; i++) {
+      double q0 = rows[i * OUTPUT_TILE_SIZE];
+      double q1 = rows[i * OUTPUT_TILE_SIZE + 1];
+      int rowOffset = i * TILE_SIZE;
+      transformed[rowOffset] = q0;
+      transformed[rowOffset + 1] = q0 + q1;
+      transformed[rowOffset + 2] = q0 - q1;
+      transformed[rowOffset + 3] = -q1;
+    }
+  }
+
+  /**
+   * G^T m G - the adjoint of the filter transform.
+   */
+  private static void transformAccumulatedGradient(double[] accumulated, int offset, 
+      double[] weightGradient, int filterOffset) {
+    double[] rows = new double[FILTER_SIZE * TILE_SIZE];
+    for (int j = 0; j < TILE_SIZE; j++) {
+      double m1 = accumulated[offset + TILE_SIZE + j];
+      double m2 = accumulated[offset + 2 * TILE_SIZE + j];
+      rows[j] = accumulated[offset + j] + (m1 + m2) / 2;
+      rows[TILE_SIZE + j] = (m1 - m2) / 2;
+      rows[2 * TILE_SIZE + j] = (m1 + m2) / 2 + accumulated[offset + 3 * TILE_SIZE + j];
+    }
+    for (int i = 0; i < FILTER_SIZE; i++) {
+      double w1 = rows[i * TILE_SIZE + 1];
+      double w2 = rows[i * TILE_SIZE + 2];
+      int rowOffset = filterOffset + i * FILTER_SIZE;
+      weightGradient[rowOffset] = rows[i * TILE_SIZE] + (w1 + w2) / 2;
+      weightGradient[rowOffset + 1] = (w1 - w2) / 2;
+      weightGradient[rowOffset + 2] = (w1 + w2) / 2 + rows[i * TILE_SIZE + 3];
+    }
+  }
+}
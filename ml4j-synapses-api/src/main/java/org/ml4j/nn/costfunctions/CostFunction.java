@@ -30,4 +30,22 @@ public interface CostFunction {
   
   double getAverageCost(Matrix desiredOutputs, Matrix actualOutputs);
 
+  /**
+   * Evaluate the total cost, average cost and optionally the per-sample costs. This default is a
+   * fallback evaluating the cost twice - implementations should override it to produce all 
+   * values from a single fused pass over the outputs, as SoftmaxCrossEntropyCostFunction and 
+   * SigmoidCrossEntropyCostFunction do. Cost functions which can be evaluated from the 
+   * pre-activations of the final activation function implement PreActivationCostFunction.
+   * 
+   * @param desiredOutputs The desired outputs.
+   * @param actualOutputs The actual outputs.
+   * @param withPerSampleCosts Whether per-sample costs are requested - the default 
+   *        implementation does not provide them.
+   * @return The CostFunctionEvaluation.
+   */
+  default CostFunctionEvaluation evaluate(Matrix desiredOutputs, Matrix actualOutputs,
+      boolean withPerSampleCosts) {
+    return new CostFunctionEvaluation(getTotalCost(desiredOutputs, actualOutputs),
+        getAverageCost(desiredOutputs, actualOutputs), null);
+  }
 }
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.costfunctions;
+
+/**
+ * Encapsulates the total cost, average cost and optional per-sample costs produced by a single
+ * evaluation of a CostFunction.
+ * 
+ * @author Michael Lavelle
+ */
+public class CostFunctionEvaluation {
+
+  private double totalCost;
+  private double averageCost;
+  private double[] perSampleCosts;
+
+  /**
+   * @param totalCost The total cost.
+   * @param averageCost The average cost.
+   * @param perSampleCosts The cost of each sample, or null if not requested.
+   */
+  public CostFunctionEvaluation(double totalCost, double averageCost, double[] perSampleCosts) {
+    this.totalCost = totalCost;
+    this.averageCost = averageCost;
+    this.perSampleCosts = perSampleCosts;
+  }
+
+  /**
+   * @return The total cost.
+   */
+  public double getTotalCost() {
+    return totalCost;
+  }
+
+  /**
+   * @return The average cost.
+   */
+  public double getAverageCost() {
+    return averageCost;
+  }
+
+  /**
+   * @return The cost of each sample, or null if not requested.
+   */
+  public double[] getPerSampleCosts() {
+    return perSampleCosts;
+  }
+}
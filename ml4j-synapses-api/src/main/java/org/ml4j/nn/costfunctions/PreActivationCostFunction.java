@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.costfunctions;
+
+import org.ml4j.Matrix;
+
+/**
+ * A CostFunction which can also be evaluated directly from the pre-activations of the final 
+ * activation function, in a single numerically stable fused pass, rather than from its outputs.
+ * 
+ * <p>Matrices have one row per sample and one column per output.
+ * 
+ * @author Michael Lavelle
+ */
+public interface PreActivationCostFunction extends CostFunction {
+
+  /**
+   * Evaluate the total cost, average cost and optionally the per-sample costs from the 
+   * pre-activations of the final activation function, in a single pass.
+   * 
+   * @param desiredOutputs The desired outputs.
+   * @param preActivations The pre-activations of the final activation function.
+   * @param withPerSampleCosts Whether per-sample costs are requested.
+   * @return The CostFunctionEvaluation, with the average cost taken over samples.
+   */
+  CostFunctionEvaluation evaluateFromPreActivations(Matrix desiredOutputs, 
+      Matrix preActivations, boolean withPerSampleCosts);
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.costfunctions;
+
+import org.ml4j.Matrix;
+
+/**
+ * A cross-entropy CostFunction for sigmoid outputs, which can be evaluated directly from the 
+ * sigmoid pre-activations in fused log-sigmoid form ( see SigmoidCrossEntropyKernels ).
+ * 
+ * <p>Matrices have one row per sample and one column per output.
+ * 
+ * @author Michael Lavelle
+ */
+public interface SigmoidCrossEntropyCostFunction extends PreActivationCostFunction {
+
+  @Override
+  default CostFunctionEvaluation evaluateFromPreActivations(Matrix desiredOutputs, 
+      Matrix preActivations, boolean withPerSampleCosts) {
+    return SigmoidCrossEntropyKernels.evaluate(preActivations.getRowByRowArray(), 
+        desiredOutputs.getRowByRowArray(), preActivations.getRows(), 
+        preActivations.getColumns(), withPerSampleCosts);
+  }
+
+  /**
+   * Evaluate the cost from the sigmoid outputs in a single pass ( see 
+   * SigmoidCrossEntropyKernels.evaluateOutputs ). Prefer evaluateFromPreActivations where the
+   * pre-activations are available, which is stable for saturated outputs.
+   */
+  @Override
+  default CostFunctionEvaluation evaluate(Matrix desiredOutputs, Matrix actualOutputs,
+      boolean withPerSampleCosts) {
+    return SigmoidCrossEntropyKernels.evaluateOutputs(actualOutputs.getRowByRowArray(), 
+        desiredOutputs.getRowByRowArray(), actualOutputs.getRows(), actualOutputs.getColumns(),
+        withPerSampleCosts);
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.costfunctions;
+
+/**
+ * Numerically stable, fused cross-entropy kernels for sigmoid outputs, operating directly on the
+ * sigmoid pre-activations.
+ * 
+ * <p>The logs are computed in fused log-sigmoid form, using 
+ * log(sigmoid(z)) = -softplus(-z) and log(1 - sigmoid(z)) = -softplus(z), so that the total,
+ * average and per-sample costs are produced in a single pass with no log matrices.
+ * 
+ * <p>Arrays are flattened row-major with one row per sample and one column per output, ie. the 
+ * value for sample s and output o is at index s * outputs + o.
+ * 
+ * @author Michael Lavelle
+ */
+public final class SigmoidCrossEntropyKernels {
+
+  private SigmoidCrossEntropyKernels() {
+  }
+
+  /**
+   * Evaluate the cross-entropy cost of the sigmoid of the pre-activations in a single pass.
+   * 
+   * @param preActivations The sigmoid pre-activations
+   * @param desiredOutputs The desired outputs
+   * @param samples The number of samples
+   * @param outputs The number of outputs per sample
+   * @param withPerSampleCosts Whether to record the cost of each sample
+   * @return The CostFunctionEvaluation, with the average cost taken over samples
+   */
+  public static CostFunctionEvaluation evaluate(double[] preActivations, 
+      double[] desiredOutputs, int samples, int outputs, boolean withPerSampleCosts) {
+    double[] perSampleCosts = withPerSampleCosts ? new double[samples] : null;
+    double totalCost = 0d;
+    for (int s = 0; s < samples; s++) {
+      int offset = s * outputs;
+      double sampleCost = 0d;
+      for (int o = 0; o < outputs; o++) {
+        double preActivation = preActivations[offset + o];
+        double desiredOutput = desiredOutputs[offset + o];
+        // -y * log(sigmoid(z)) - (1 - y) * log(1 - sigmoid(z)) == softplus(z) - y * z
+        sampleCost += softplus(preActivation) - desiredOutput * preActivation;
+      }
+      if (perSampleCosts != null) {
+        perSampleCosts[s] = sampleCost;
+      }
+      totalCost += sampleCost;
+    }
+    return new CostFunctionEvaluation(totalCost, samples == 0 ? 0d : totalCost / samples, 
+        perSampleCosts);
+  }
+
+  /**
+   * Evaluate the cross-entropy cost of sigmoid outputs in a single pass, for callers without the
+   * pre-activations. Unlike evaluate, a saturated output of exactly zero or one which disagrees
+   * with the desired output gives an infinite cost.
+   * 
+   * @param outputs The sigmoid outputs
+   * @param desiredOutputs The desired outputs
+   * @param samples The number of samples
+   * @param outputCount The number of outputs per sample
+   * @param withPerSampleCosts Whether to record the cost of each sample
+   * @return The CostFunctionEvaluation, with the average cost taken over samples
+   */
+  public static CostFunctionEvaluation evaluateOutputs(double[] outputs, 
+      double[] desiredOutputs, int samples, int outputCount, boolean withPerSampleCosts) {
+    double[] perSampleCosts = withPerSampleCosts ? new double[samples] : null;
+    double totalCost = 0d;
+    for (int s = 0; s < samples; s++) {
+      int offset = s * outputCount;
+      double sampleCost = 0d;
+      for (int o = 0; o < outputCount; o++) {
+        double output = outputs[offset + o];
+        double desiredOutput = desiredOutputs[offset + o];
+        // Terms with a zero coefficient are skipped, so that log(0) does not give 0 * -Infinity.
+        if (desiredOutput != 0d) {
+          sampleCost -= desiredOutput * Math.log(output);
+        }
+        if (desiredOutput != 1d) {
+          sampleCost -= (1 - desiredOutput) * Math.log1p(-output);
+        }
+      }
+      if (perSampleCosts != null) {
+        perSampleCosts[s] = sampleCost;
+      }
+      totalCost += sampleCost;
+    }
+    return new CostFunctionEvaluation(totalCost, samples == 0 ? 0d : totalCost / samples, 
+        perSampleCosts);
+  }
+
+  /**
+   * @param value The value.
+   * @return log(1 + exp(value)), evaluated without overflow.
+   */
+  public static double softplus(double value) {
+    return Math.max(value, 0d) + Math.log1p(Math.exp(-Math.abs(value)));
+  }
+}
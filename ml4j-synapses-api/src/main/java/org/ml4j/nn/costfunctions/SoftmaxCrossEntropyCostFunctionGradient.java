@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.costfunctions;
+
+import org.ml4j.nn.activationfunctions.ActivationFunctionGradient;
+
+/**
+ * The gradient of a SoftmaxCrossEntropyCostFunction, computed with respect to the softmax 
+ * pre-activations in a single fused step as y_hat - y.
+ * 
+ * <p>When the final activation function is softmax, backPropagateThroughFinalActivationFunction
+ * returns getPreActivationGradient() rather than differentiating the cost and the softmax 
+ * separately.
+ * 
+ * @author Michael Lavelle
+ */
+public interface SoftmaxCrossEntropyCostFunctionGradient extends CostFunctionGradient {
+
+  @Override
+  SoftmaxCrossEntropyCostFunction getCostFunction();
+
+  /**
+   * @return The gradient y_hat - y of the cost with respect to the softmax pre-activations.
+   */
+  ActivationFunctionGradient getPreActivationGradient();
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.costfunctions;
+
+/**
+ * Numerically stable, fused softmax and cross-entropy kernels operating directly on the
+ * pre-activations ( logits ) of a softmax output.
+ * 
+ * <p>Each sample's log-sum-exp is computed relative to the sample's maximum logit, and the cost 
+ * and the gradient y_hat - y are produced in a single pass over the output matrix, with no 
+ * intermediate exp or log matrices.
+ * 
+ * <p>Arrays are flattened row-major with one row per sample and one column per class, ie. the 
+ * value for sample s and class c is at index s * classes + c.
+ * 
+ * @author Michael Lavelle
+ */
+public final class SoftmaxCrossEntropyKernels {
+
+  private SoftmaxCrossEntropyKernels() {
+  }
+
+  /**
+   * Compute the total cross-entropy cost of the softmax of the pre-activations, and optionally
+   * the gradient of the cost with respect to the pre-activations.
+   * 
+   * @param preActivations The softmax pre-activations
+   * @param desiredOutputs The desired outputs
+   * @param samples The number of samples
+   * @param classes The number of classes
+   * @param gradient The array to write the gradient y_hat - y into, or null if not required - may 
+   *        be the preActivations array itself, to compute the gradient in place
+   * @return The total cost over all samples
+   */
+  public static double totalCostAndGradient(double[] preActivations, double[] desiredOutputs,
+      int samples, int classes, double[] gradient) {
+    return costAndGradient(preActivations, desiredOutputs, samples, classes, gradient, null);
+  }
+
+  /**
+   * Evaluate the cross-entropy cost of the softmax of the pre-activations in a single pass.
+   * 
+   * @param preActivations The softmax pre-activations
+   * @param desiredOutputs The desired outputs
+   * @param samples The number of samples
+   * @param classes The number of classes
+   * @param withPerSampleCosts Whether to record the cost of each sample
+   * @return The CostFunctionEvaluation, with the average cost taken over samples
+   */
+  public static CostFunctionEvaluation evaluate(double[] preActivations, 
+      double[] desiredOutputs, int samples, int classes, boolean withPerSampleCosts) {
+    double[] perSampleCosts = withPerSampleCosts ? new double[samples] : null;
+    double totalCost = costAndGradient(preActivations, desiredOutputs, samples, classes, null,
+        perSampleCosts);
+    return new CostFunctionEvaluation(totalCost, samples == 0 ? 0d : totalCost / samples, 
+        perSampleCosts);
+  }
+
+  /**
+   * Evaluate the cross-entropy cost of softmax outputs in a single pass, for callers without the
+   * pre-activations. Unlike evaluate, a zero output for a desired class gives an infinite cost.
+   * 
+   * @param outputs The softmax outputs
+   * @param desiredOutputs The desired outputs
+   * @param samples The number of samples
+   * @param classes The number of classes
+   * @param withPerSampleCosts Whether to record the cost of each sample
+   * @return The CostFunctionEvaluation, with the average cost taken over samples
+   */
+  public static CostFunctionEvaluation evaluateOutputs(double[] outputs, 
+      double[] desiredOutputs, int samples, int classes, boolean withPerSampleCosts) {
+    double[] perSampleCosts = withPerSampleCosts ? new double[samples] : null;
+    double totalCost = 0d;
+    for (int s = 0; s < samples; s++) {
+      int offset = s * classes;
+      double sampleCost = 0d;
+      for (int c = 0; c < classes; c++) {
+        double desiredOutput = desiredOutputs[offset + c];
+        if (desiredOutput != 0d) {
+          sampleCost -= desiredOutput * Math.log(outputs[offset + c]);
+        }
+      }
+      if (perSampleCosts != null) {
+        perSampleCosts[s] = sampleCost;
+      }
+      totalCost += sampleCost;
+    }
+    return new CostFunctionEvaluation(totalCost, samples == 0 ? 0d : totalCost / samples, 
+        perSampleCosts);
+  }
+
+  private static double costAndGradient(double[] preActivations, double[] desiredOutputs,
+      int samples, int classes, double[] gradient, double[] perSampleCosts) {
+    double totalCost = 0d;
+    for (int s = 0; s < samples; s++) {
+      int offset = s * classes;
+      double max = Double.NEGATIVE_INFINITY;
+      for (int c = 0; c < classes; c++) {
+        max = Math.max(max, preActivations[offset + c]);
+      }
+      double sumExp = 0d;
+      for (int c = 0; c < classes; c++) {
+        sumExp += Math.exp(preActivations[offset + c] - max);
+      }
+      double logSumExp = max + Math.log(sumExp);
+      double sampleCost = 0d;
+      for (int c = 0; c < classes; c++) {
+        double preActivation = preActivations[offset + c];
+        double desiredOutput = desiredOutputs[offset + c];
+        if (desiredOutput != 0d) {
+          sampleCost += desiredOutput * (logSumExp - preActivation);
+        }
+        if (gradient != null) {
+          gradient[offset + c] = Math.exp(preActivation - logSumExp) - desiredOutput;
+        }
+      }
+      if (perSampleCosts != null) {
+        perSampleCosts[s] = sampleCost;
+      }
+      totalCost += sampleCost;
+    }
+    return totalCost;
+  }
+}
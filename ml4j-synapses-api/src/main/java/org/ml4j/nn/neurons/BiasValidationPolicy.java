@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.neurons;
+
+/**
+ * Enum determining how thoroughly the bias unit activations of a 
+ * NeuronsActivationWithPossibleBiasUnit are validated on construction.
+ * 
+ * @author Michael Lavelle
+ */
+public enum BiasValidationPolicy {
+
+  /**
+   * Indicates that bias unit activations are not validated.
+   */
+  OFF,
+
+  /**
+   * Indicates that a fixed number of bias unit activations, evenly spaced across the batch, are
+   * validated - so validation costs O(1) calls regardless of batch size.
+   */
+  SAMPLED,
+
+  /**
+   * Indicates that every bias unit activation is validated.
+   */
+  FULL
+}
@@ -31,6 +31,7 @@ public class Neurons3D extends Neurons {
   private int width;
   private int height;
   private int depth;
+  private Neurons3DLayout layout;
 
   /**
    * @param width The width.
@@ -39,10 +40,23 @@ public class Neurons3D extends Neurons {
    * @param hasBiasUnit Whether these Neurons also have a bias unit.
    */
   public Neurons3D(int width, int height, int depth, boolean hasBiasUnit) {
+    this(width, height, depth, hasBiasUnit, Neurons3DLayout.CHANNELS_FIRST);
+  }
+
+  /**
+   * @param width The width.
+   * @param height The height.
+   * @param depth the depth.
+   * @param hasBiasUnit Whether these Neurons also have a bias unit.
+   * @param layout The order in which the features of the volume are flattened.
+   */
+  public Neurons3D(int width, int height, int depth, boolean hasBiasUnit, 
+      Neurons3DLayout layout) {
     super(width * height * depth, hasBiasUnit);
     this.width = width;
     this.height = height;
     this.depth = depth;
+    this.layout = layout;
   }
 
   /**
@@ -65,5 +79,48 @@ public class Neurons3D extends Neurons {
   public int getDepth() {
     return depth;
   }
-}
 
+  /**
+   * @return The order in which the features of the volume are flattened.
+   */
+  public Neurons3DLayout getLayout() {
+    return layout == null ? Neurons3DLayout.CHANNELS_FIRST : layout;
+  }
+
+  /**
+   * Obtain the index of the feature ( excluding any bias unit ) at the specified position.
+   * 
+   * @param depthIndex The depth index.
+   * @param heightIndex The height index.
+   * @param widthIndex The width index.
+   * @return The index of the feature at the specified position, according to the layout.
+   */
+  public int getFeatureIndex(int depthIndex, int heightIndex, int widthIndex) {
+    if (getLayout() == Neurons3DLayout.CHANNELS_LAST) {
+      return (heightIndex * width + widthIndex) * depth + depthIndex;
+    } else {
+      return (depthIndex * height + heightIndex) * width + widthIndex;
+    }
+  }
+
+  /**
+   * Obtain the feature permutation converting activations of these Neurons to the target layout -
+   * feature i of the converted activations is feature permutation[i] of these activations. 
+   * Conversion is intended to be applied only at boundaries between layout-aware Axons.
+   * 
+   * @param targetLayout The target layout.
+   * @return The feature permutation.
+   */
+  public int[] getFeaturePermutation(Neurons3DLayout targetLayout) {
+    Neurons3D target = new Neurons3D(width, height, depth, false, targetLayout);
+    int[] permutation = new int[getNeuronCountExcludingBias()];
+    for (int d = 0; d < depth; d++) {
+      for (int h = 0; h < height; h++) {
+        for (int w = 0; w < width; w++) {
+          permutation[target.getFeatureIndex(d, h, w)] = getFeatureIndex(d, h, w);
+        }
+      }
+    }
+    return permutation;
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.neurons;
+
+/**
+ * Enum defining the order in which the features of a Neurons3D volume are flattened.
+ * 
+ * @author Michael Lavelle
+ */
+public enum Neurons3DLayout {
+
+  /**
+   * Indicates depth-major ( NCHW ) flattening - the features of each channel are contiguous, with
+   * the feature at (depth d, height h, width w) at index (d * height + h) * width + w.
+   */
+  CHANNELS_FIRST,
+
+  /**
+   * Indicates channel-last ( NHWC ) flattening - the channels of each spatial position are
+   * contiguous, with the feature at (depth d, height h, width w) at index 
+   * (h * width + w) * depth + d. This layout gives better cache and SIMD use for convolution and
+   * pooling on CPUs. It is supported by PoolingKernels and by the im2col lowering in 
+   * ConvolutionKernels - other kernels are CHANNELS_FIRST only, so Axons report the layouts they
+   * can push without conversion through isLayoutSupported.
+   */
+  CHANNELS_LAST
+}
@@ -28,16 +28,17 @@ public class NeuronsActivation {
   private static final Logger LOGGER = LoggerFactory.getLogger(NeuronsActivation.class);
   
   /**
-   * The matrix of activations.
+   * The matrix of activations in each feature orientation, shared with any NeuronsActivation 
+   * obtained from this one by withFeatureOrientation.
    */
-  private Matrix activations;
+  private OrientedActivations orientedActivations;
   
   /**
    * Defines whether the features of the activations are represented by the columns
    * or the rows of the activations Matrix.
    */
   private NeuronsActivationFeatureOrientation featureOrientation;
-
+  
 
   /**
    * Constructs a NeuronsActivation instance from a matrix of activations.
@@ -48,7 +49,13 @@ public class NeuronsActivation {
   public NeuronsActivation(Matrix activations,
       NeuronsActivationFeatureOrientation featureOrientation) {
     LOGGER.debug("Creating new NeuronsActivation");
-    this.activations = activations;
+    this.orientedActivations = new OrientedActivations(activations, featureOrientation);
+    this.featureOrientation = featureOrientation;
+  }
+
+  private NeuronsActivation(OrientedActivations orientedActivations,
+      NeuronsActivationFeatureOrientation featureOrientation) {
+    this.orientedActivations = orientedActivations;
     this.featureOrientation = featureOrientation;
   }
 
@@ -70,7 +77,71 @@ public class NeuronsActivation {
   */
   
   public Matrix getActivations() {
-    return activations;
+    return orientedActivations.get(featureOrientation);
+  }
+  
+  /**
+   * Obtain the matrix of activations in the requested feature orientation. The activations are
+   * transposed at most once - the transpose is cached until the activations are modified in 
+   * place ( see Matrix.getVersion() ), or for an UNVERSIONED Matrix until 
+   * invalidateTransposedActivations() is called.
+   * 
+   * @param featureOrientation The requested feature orientation.
+   * @return The matrix of activations in the requested feature orientation.
+   */
+  public Matrix getActivations(NeuronsActivationFeatureOrientation featureOrientation) {
+    return orientedActivations.get(featureOrientation);
+  }
+  
+  /**
+   * Obtain these activations in the requested feature orientation, sharing the cached transpose
+   * so that converting back to the original orientation does not transpose again. The two 
+   * instances share their cache - invalidating the transpose of either invalidates it for both.
+   * 
+   * @param featureOrientation The requested feature orientation.
+   * @return These activations in the requested feature orientation.
+   */
+  public NeuronsActivation withFeatureOrientation(
+      NeuronsActivationFeatureOrientation featureOrientation) {
+    if (this.featureOrientation == featureOrientation) {
+      return this;
+    }
+    return new NeuronsActivation(orientedActivations, featureOrientation);
+  }
+  
+  /**
+   * Obtain these activations of the specified Neurons3D converted to the target layout. The 
+   * activations must not include a bias unit.
+   * 
+   * @param neurons The Neurons3D these activations are activations of, in their current layout.
+   * @param targetLayout The target layout.
+   * @return These activations converted to the target layout.
+   */
+  public NeuronsActivation withLayout(Neurons3D neurons, Neurons3DLayout targetLayout) {
+    if (neurons.getLayout() == targetLayout) {
+      return this;
+    }
+    if (getFeatureCount() != neurons.getNeuronCountExcludingBias()) {
+      throw new IllegalArgumentException("Feature count " + getFeatureCount()
+          + " does not match neuron count " + neurons.getNeuronCountExcludingBias());
+    }
+    LOGGER.debug("Converting activations to " + targetLayout);
+    int[] permutation = neurons.getFeaturePermutation(targetLayout);
+    Matrix converted = 
+        featureOrientation == NeuronsActivationFeatureOrientation.COLUMNS_SPAN_FEATURE_SET
+            ? getActivations().getColumns(permutation) : getActivations().getRows(permutation);
+    return new NeuronsActivation(converted, featureOrientation);
+  }
+  
+  /**
+   * Invalidates any cached transpose - must be called after mutating an UNVERSIONED activations
+   * Matrix in place, whereas the transpose of a versioned Matrix is recomputed once it has been 
+   * modified without being invalidated. The invalidation is shared with any NeuronsActivation 
+   * obtained from or giving this one by withFeatureOrientation, whose activations are 
+   * recomputed from these on next request.
+   */
+  public void invalidateTransposedActivations() {
+    orientedActivations.invalidateOtherThan(featureOrientation);
   }
 
   /**
@@ -81,12 +152,87 @@ public class NeuronsActivation {
   public int getFeatureCount() {
 
     if (featureOrientation == NeuronsActivationFeatureOrientation.COLUMNS_SPAN_FEATURE_SET) {
-      int featureCount = activations.getColumns();
+      int featureCount = getActivations().getColumns();
       return featureCount;
     } else {
-      int featureCount = activations.getRows();
+      int featureCount = getActivations().getRows();
       return featureCount;
     }
   }
+  
+  /**
+   * Obtain the number of examples ( parallel activations ) represented by this NeuronsActivation.
+   * 
+   * @return the number of examples represented by this NeuronsActivation.
+   */
+  public int getExampleCount() {
+    if (featureOrientation == NeuronsActivationFeatureOrientation.COLUMNS_SPAN_FEATURE_SET) {
+      return getActivations().getRows();
+    } else {
+      return getActivations().getColumns();
+    }
+  }
 
+  /**
+   * The activations Matrix in each feature orientation, with at least one orientation present. 
+   * A transpose is recomputed once the Matrix it was computed from has been modified in place 
+   * since ( see Matrix.getVersion() ), or once invalidated for an UNVERSIONED Matrix.
+   */
+  private static class OrientedActivations {
+
+    private Matrix columnsSpanFeatureSetActivations;
+    private Matrix rowsSpanFeatureSetActivations;
+    
+    // The version of each Matrix when the two were last consistent.
+    private long columnsSpanFeatureSetVersion;
+    private long rowsSpanFeatureSetVersion;
+
+    OrientedActivations(Matrix activations, 
+        NeuronsActivationFeatureOrientation featureOrientation) {
+      if (featureOrientation == NeuronsActivationFeatureOrientation.COLUMNS_SPAN_FEATURE_SET) {
+        columnsSpanFeatureSetActivations = activations;
+      } else {
+        rowsSpanFeatureSetActivations = activations;
+      }
+    }
+
+    Matrix get(NeuronsActivationFeatureOrientation featureOrientation) {
+      boolean columnsSpanFeatureSet = 
+          featureOrientation == NeuronsActivationFeatureOrientation.COLUMNS_SPAN_FEATURE_SET;
+      Matrix activations = columnsSpanFeatureSet ? columnsSpanFeatureSetActivations 
+          : rowsSpanFeatureSetActivations;
+      Matrix otherActivations = columnsSpanFeatureSet ? rowsSpanFeatureSetActivations 
+          : columnsSpanFeatureSetActivations;
+      if (activations != null && (otherActivations == null 
+          || !isModified(otherActivations, columnsSpanFeatureSet ? rowsSpanFeatureSetVersion 
+              : columnsSpanFeatureSetVersion) 
+          || isModified(activations, columnsSpanFeatureSet ? columnsSpanFeatureSetVersion 
+              : rowsSpanFeatureSetVersion))) {
+        return activations;
+      }
+      LOGGER.debug("Transposing activations to " + featureOrientation);
+      activations = otherActivations.transpose();
+      if (columnsSpanFeatureSet) {
+        columnsSpanFeatureSetActivations = activations;
+      } else {
+        rowsSpanFeatureSetActivations = activations;
+      }
+      columnsSpanFeatureSetVersion = columnsSpanFeatureSetActivations.getVersion();
+      rowsSpanFeatureSetVersion = rowsSpanFeatureSetActivations.getVersion();
+      return activations;
+    }
+
+    void invalidateOtherThan(NeuronsActivationFeatureOrientation featureOrientation) {
+      if (featureOrientation == NeuronsActivationFeatureOrientation.COLUMNS_SPAN_FEATURE_SET) {
+        rowsSpanFeatureSetActivations = null;
+      } else {
+        columnsSpanFeatureSetActivations = null;
+      }
+    }
+
+    private static boolean isModified(Matrix activations, long version) {
+      return activations.getVersion() != Matrix.UNVERSIONED 
+          && activations.getVersion() != version;
+    }
+  }
 }
@@ -28,4 +28,22 @@ import java.io.Serializable;
 public interface NeuronsActivationContext extends Serializable {
 
   MatrixFactory getMatrixFactory();
+
+  /**
+   * @return The policy determining how thoroughly bias unit activations are validated by the
+   *         NeuronsActivationWithPossibleBiasUnit instances created with this context - FULL by 
+   *         default.
+   */
+  default BiasValidationPolicy getBiasValidationPolicy() {
+    return BiasValidationPolicy.FULL;
+  }
+
+  /**
+   * @return Whether ActivationFunctions may use fast approximations with bounded error in place of
+   *         exact evaluation ( see ElementWiseOperation.applyApproximate and 
+   *         DifferentiableActivationFunction.isApproximated ) - intended for inference only.
+   */
+  default boolean isWithApproximateActivationFunctions() {
+    return false;
+  }
 }
@@ -29,6 +29,11 @@ public class NeuronsActivationWithPossibleBiasUnit {
   private static final Logger LOGGER = 
         LoggerFactory.getLogger(NeuronsActivationWithPossibleBiasUnit.class);
   
+  /**
+   * The number of bias unit activations checked under BiasValidationPolicy.SAMPLED.
+   */
+  private static final int BIAS_VALIDATION_SAMPLE_SIZE = 8;
+  
   /**
    * The matrix of activations.
    */
@@ -46,6 +51,26 @@ public class NeuronsActivationWithPossibleBiasUnit {
    */
   private boolean biasUnitIncluded;
   
+  /**
+   * Whether an included bias unit is implicit - ie. not materialised in the activations Matrix.
+   */
+  private boolean biasUnitImplicit;
+  
+  /**
+   * The factory used to materialise an implicit bias unit on request.
+   */
+  private MatrixFactory matrixFactory;
+  
+  /**
+   * The lazily materialised activations including the bias unit, for an implicit bias unit.
+   */
+  private Matrix materialisedActivationsWithBias;
+  
+  /**
+   * The version of the activations Matrix the bias unit was materialised from.
+   */
+  private long materialisedActivationsVersion;
+  
 
   /**
    * Constructs a NeuronsActivation instance from a matrix of activations.
@@ -57,6 +82,23 @@ public class NeuronsActivationWithPossibleBiasUnit {
    */
   public NeuronsActivationWithPossibleBiasUnit(Matrix activations, boolean biasUnitIncluded,
       NeuronsActivationFeatureOrientation featureOrientation, boolean resetBiasValues) {
+    this(activations, biasUnitIncluded, featureOrientation, resetBiasValues, 
+        BiasValidationPolicy.FULL);
+  }
+  
+  /**
+   * Constructs a NeuronsActivation instance from a matrix of activations.
+   * 
+   * @param activations A matrix of activations
+   * @param biasUnitIncluded Whether a bias unit is included in the activation features
+   * @param featureOrientation The orientation of the features of the activation matrix
+   * @param resetBiasValues Whether to reset the bias values of the activations matrix
+   * @param biasValidationPolicy The policy determining how thoroughly the bias values are 
+   *        validated - bias values which have just been reset are not validated.
+   */
+  public NeuronsActivationWithPossibleBiasUnit(Matrix activations, boolean biasUnitIncluded,
+      NeuronsActivationFeatureOrientation featureOrientation, boolean resetBiasValues,
+      BiasValidationPolicy biasValidationPolicy) {
     LOGGER.debug("Creating new NeuronsActivationWithPossibleBiasUnit");
     this.activations = activations;
     this.biasUnitIncluded = biasUnitIncluded;
@@ -64,10 +106,57 @@ public class NeuronsActivationWithPossibleBiasUnit {
     if (biasUnitIncluded) {
       if (resetBiasValues) {
         resetBiasActivations(activations, featureOrientation);
+      } else {
+        validateBiasActivations(activations, featureOrientation, biasValidationPolicy);
       }
-      validateBiasActivations(activations, featureOrientation);
     }
   }
+  
+  /**
+   * Constructs a NeuronsActivation instance from a matrix of activations, validating any bias 
+   * values according to the context's BiasValidationPolicy.
+   * 
+   * @param activations A matrix of activations
+   * @param biasUnitIncluded Whether a bias unit is included in the activation features
+   * @param featureOrientation The orientation of the features of the activation matrix
+   * @param resetBiasValues Whether to reset the bias values of the activations matrix
+   * @param neuronsActivationContext The activation context
+   */
+  public NeuronsActivationWithPossibleBiasUnit(Matrix activations, boolean biasUnitIncluded,
+      NeuronsActivationFeatureOrientation featureOrientation, boolean resetBiasValues,
+      NeuronsActivationContext neuronsActivationContext) {
+    this(activations, biasUnitIncluded, featureOrientation, resetBiasValues, 
+        neuronsActivationContext.getBiasValidationPolicy());
+  }
+
+  private NeuronsActivationWithPossibleBiasUnit(Matrix activationsWithoutBias,
+      NeuronsActivationFeatureOrientation featureOrientation, MatrixFactory matrixFactory) {
+    LOGGER.debug("Creating new NeuronsActivationWithPossibleBiasUnit with implicit bias");
+    this.activations = activationsWithoutBias;
+    this.biasUnitIncluded = true;
+    this.biasUnitImplicit = true;
+    this.featureOrientation = featureOrientation;
+    this.matrixFactory = matrixFactory;
+  }
+
+  /**
+   * Creates a NeuronsActivation instance from a matrix of activations excluding the bias, with an
+   * implicit bias unit - the bias unit is carried as a flag and is not materialised in the 
+   * activations Matrix, so adding or removing it does not copy the activations. The activations
+   * Matrix is not copied.
+   * 
+   * @param activationsWithoutBias A matrix of activations excluding the bias unit
+   * @param featureOrientation The orientation of the features of the activation matrix
+   * @param matrixFactory The factory used to materialise the implicit bias unit, should a 
+   *        consumer request the activations including the bias
+   * @return The NeuronsActivation instance with an implicit bias unit
+   */
+  public static NeuronsActivationWithPossibleBiasUnit withImplicitBiasUnit(
+      Matrix activationsWithoutBias, NeuronsActivationFeatureOrientation featureOrientation, 
+      MatrixFactory matrixFactory) {
+    return new NeuronsActivationWithPossibleBiasUnit(activationsWithoutBias, featureOrientation,
+        matrixFactory);
+  }
 
   /**
    * Obtain the feature orientation of the Matrix representing the activations - whether the
@@ -80,20 +169,29 @@ public class NeuronsActivationWithPossibleBiasUnit {
     return featureOrientation;
   }
 
-
+  /**
+   * Getting activations with any bias unit materialised - see getActivationsWithBias().
+   * 
+   * @return activations including any bias unit.
+   */
   public Matrix getActivations() {
-    return activations;
+    return getActivationsWithBias();
   }
 
 
   /**
    * Getting activations without bias.
    * 
+   * <p>Unless the bias unit is explicit, the returned Matrix is the activations Matrix this 
+   * instance was created with rather than a copy - it is shared with the upstream producer of the
+   * activations, so in-place operations on it ( eg. dropout, or in-place back propagation ) 
+   * modify the upstream activations too. Call dup() first if they must be preserved.
+   * 
    * @return activations without bias.
    */
   public Matrix getActivationsWithoutBias() {
 
-    if (biasUnitIncluded) {
+    if (biasUnitIncluded && !biasUnitImplicit) {
       if (featureOrientation == NeuronsActivationFeatureOrientation.COLUMNS_SPAN_FEATURE_SET) {
         return removeFirstColumn(this.activations);
       } else {
@@ -104,10 +202,48 @@ public class NeuronsActivationWithPossibleBiasUnit {
     }
   }
   
+  /**
+   * Getting activations with any bias unit materialised. For an implicit bias unit the bias is
+   * materialised into a copy of the activations on first request, so is costly on hot paths - 
+   * axons holding their bias weights separately should instead compute X * W + b from 
+   * getActivationsWithoutBias(), eg. with Matrix.mmulAndApply.
+   * 
+   * <p>The copy is cached, and is materialised again once the activations have been modified in
+   * place ( see Matrix.getVersion() ). For an UNVERSIONED activations Matrix the copy is a 
+   * snapshot of the activations when first requested. Modifying the copy in place does not 
+   * modify the activations.
+   * 
+   * @return activations including any bias unit.
+   */
   public Matrix getActivationsWithBias() {
+    if (biasUnitImplicit) {
+      long activationsVersion = activations.getVersion();
+      if (materialisedActivationsWithBias == null || (activationsVersion != Matrix.UNVERSIONED 
+          && activationsVersion != materialisedActivationsVersion)) {
+        LOGGER.debug("Materialising implicit bias unit");
+        materialisedActivationsVersion = activationsVersion;
+        materialisedActivationsWithBias = 
+            NeuronsActivationFeatureOrientation.COLUMNS_SPAN_FEATURE_SET == featureOrientation
+                ? matrixFactory.createOnes(activations.getRows(), 1)
+                    .appendHorizontally(activations)
+                : matrixFactory.createOnes(1, activations.getColumns())
+                    .appendVertically(activations);
+      }
+      return materialisedActivationsWithBias;
+    }
     return activations;
   }
 
+  /**
+   * Indicates whether an included bias unit is implicit - ie. carried as a flag rather than
+   * materialised in the activations Matrix.
+   * 
+   * @return Whether an included bias unit is implicit
+   */
+  public boolean isBiasUnitImplicit() {
+    return biasUnitImplicit;
+  }
+
   /**
    * Indicates whether the features represented by this NeuronsActivation include a bias unit.
    * 
@@ -124,11 +260,12 @@ public class NeuronsActivationWithPossibleBiasUnit {
    */
   public int getFeatureCountIncludingBias() {
 
+    int implicitBiasCount = biasUnitImplicit ? 1 : 0;
     if (featureOrientation == NeuronsActivationFeatureOrientation.COLUMNS_SPAN_FEATURE_SET) {
-      int featureCount = activations.getColumns();
+      int featureCount = activations.getColumns() + implicitBiasCount;
       return featureCount;
     } else {
-      int featureCount = activations.getRows();
+      int featureCount = activations.getRows() + implicitBiasCount;
       return featureCount;
     }
   }
@@ -160,6 +297,10 @@ public class NeuronsActivationWithPossibleBiasUnit {
     if (isBiasUnitIncluded()) {
       if (withBiasUnit) {
         return this;
+      } else if (biasUnitImplicit) {
+        LOGGER.debug("Removing implicit bias unit from activations");
+        return new NeuronsActivationWithPossibleBiasUnit(activations, false, featureOrientation,
+            false, neuronsActivationContext);
       } else {
 
         if (featureOrientation == NeuronsActivationFeatureOrientation.COLUMNS_SPAN_FEATURE_SET) {
@@ -167,14 +308,16 @@ public class NeuronsActivationWithPossibleBiasUnit {
           LOGGER.debug("Removing bias unit from activations");
           
           return new NeuronsActivationWithPossibleBiasUnit(removeFirstColumn(activations), false,
-              NeuronsActivationFeatureOrientation.COLUMNS_SPAN_FEATURE_SET, false);
+              NeuronsActivationFeatureOrientation.COLUMNS_SPAN_FEATURE_SET, false,
+              neuronsActivationContext);
 
         } else if (featureOrientation 
             == NeuronsActivationFeatureOrientation.ROWS_SPAN_FEATURE_SET) {
           LOGGER.debug("Removing bias unit from activations");
         
           return new NeuronsActivationWithPossibleBiasUnit(removeFirstRow(activations), false,
-              NeuronsActivationFeatureOrientation.ROWS_SPAN_FEATURE_SET, false);
+              NeuronsActivationFeatureOrientation.ROWS_SPAN_FEATURE_SET, false,
+              neuronsActivationContext);
         } else {
           throw new IllegalStateException(
               "Unsupported feature orientation type:" + featureOrientation);
@@ -183,57 +326,52 @@ public class NeuronsActivationWithPossibleBiasUnit {
       }
     } else {
       if (withBiasUnit) {
-
-        if (featureOrientation == NeuronsActivationFeatureOrientation.COLUMNS_SPAN_FEATURE_SET) {
-
-          Matrix bias = matrixFactory.createOnes(activations.getRows(), 1);
-          LOGGER.debug("Adding bias unit to activations");
-          Matrix activationsWithBias = bias.appendHorizontally(activations);
-          return new NeuronsActivationWithPossibleBiasUnit(activationsWithBias, true,
-              NeuronsActivationFeatureOrientation.COLUMNS_SPAN_FEATURE_SET, false);
-
-        } else if (featureOrientation 
-            == NeuronsActivationFeatureOrientation.ROWS_SPAN_FEATURE_SET) {
-          Matrix bias = matrixFactory.createOnes(1, activations.getColumns());
-          LOGGER.debug("Adding bias unit to activations");
-          Matrix activationsWithBias = bias.appendVertically(activations);
-          return new NeuronsActivationWithPossibleBiasUnit(activationsWithBias, true,
-              NeuronsActivationFeatureOrientation.ROWS_SPAN_FEATURE_SET, false);
-        } else {
-          throw new IllegalStateException(
-              "Unsupported feature orientation type:" + featureOrientation);
-        }
+        LOGGER.debug("Adding implicit bias unit to activations");
+        return withImplicitBiasUnit(activations, featureOrientation, matrixFactory);
       } else {
         return this;
       }
     }
   }
   
-  
   private void validateBiasActivations(Matrix activations,
-      NeuronsActivationFeatureOrientation featureOrientation) {
+      NeuronsActivationFeatureOrientation featureOrientation, 
+      BiasValidationPolicy biasValidationPolicy) {
     if (!biasUnitIncluded) {
       throw new IllegalStateException("Cannot validate bias activations as bias unit not included");
     }
+    if (BiasValidationPolicy.OFF == biasValidationPolicy) {
+      return;
+    }
     LOGGER.debug("Validating bias activations");
+    boolean valid;
     if (NeuronsActivationFeatureOrientation.COLUMNS_SPAN_FEATURE_SET == featureOrientation) {
-      Matrix firstColumn = activations.getColumn(0);
-      for (int r = 0; r < activations.getRows(); r++) {
-        if (firstColumn.get(r, 0) != 1d) {
-          throw new IllegalArgumentException("Values of bias unit is not 1");
-        }
-      }
+      valid = BiasValidationPolicy.FULL == biasValidationPolicy 
+          ? activations.isColumnFilledWith(0, 1d)
+          : isSampleFilledWithOnes(activations, activations.getRows(), true);
     } else if (NeuronsActivationFeatureOrientation.ROWS_SPAN_FEATURE_SET == featureOrientation) {
-      Matrix firstRow = activations.getRow(0);
-      for (int c = 0; c < activations.getColumns(); c++) {
-        if (firstRow.get(0, c) != 1d) {
-          throw new IllegalArgumentException("Values of bias unit is not 1");
-        }
-      }
+      valid = BiasValidationPolicy.FULL == biasValidationPolicy 
+          ? activations.isRowFilledWith(0, 1d)
+          : isSampleFilledWithOnes(activations, activations.getColumns(), false);
     } else {
       throw new IllegalStateException(
           "Unsupported feature orientation type:" + featureOrientation);
     }
+    if (!valid) {
+      throw new IllegalArgumentException("Values of bias unit is not 1");
+    }
+  }
+  
+  private boolean isSampleFilledWithOnes(Matrix activations, int length, boolean biasColumn) {
+    int samples = Math.min(length, BIAS_VALIDATION_SAMPLE_SIZE);
+    for (int s = 0; s < samples; s++) {
+      int index = samples == 1 ? 0 : (int) ((long) s * (length - 1) / (samples - 1));
+      double value = biasColumn ? activations.get(index, 0) : activations.get(0, index);
+      if (value != 1d) {
+        return false;
+      }
+    }
+    return true;
   }
   
   private Matrix removeFirstColumn(Matrix activations) {
@@ -267,14 +405,10 @@ public class NeuronsActivationWithPossibleBiasUnit {
     }
     LOGGER.debug("Resetting bias activations");
     if (NeuronsActivationFeatureOrientation.COLUMNS_SPAN_FEATURE_SET == featureOrientation) {
-      for (int r = 0; r < activations.getRows(); r++) {
-        activations.put(r, 0, 1);
-      }
+      activations.fillColumn(0, 1d);
     }
     if (NeuronsActivationFeatureOrientation.ROWS_SPAN_FEATURE_SET == featureOrientation) {
-      for (int c = 0; c < activations.getColumns(); c++) {
-        activations.put(0, c, 1);
-      }
+      activations.fillRow(0, 1d);
     }
   }
 }
@@ -18,6 +18,9 @@ import org.ml4j.nn.activationfunctions.DifferentiableActivationFunction;
 import org.ml4j.nn.axons.Axons;
 import org.ml4j.nn.neurons.Neurons;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * DirectedSynapses are containers for Axons with a DifferentiableActivationFunction applied
  * to the right hand Axons output on a push of data left-to-right during forward propagation.
@@ -40,6 +43,16 @@ public interface DirectedSynapses<L extends Neurons, R extends Neurons>
    * @return The Axons within these DirectedSynapses.
    */
   Axons<? ,? ,?> getAxons();
+
+  /**
+   * @return All the Axons within these DirectedSynapses, in the order of the axonsIndex of their
+   *         SynapsesContext.getAxonsContext(axonsIndex) - by default only getAxons(). Synapses 
+   *         containing further Axons, such as trainable batch normalisation Axons, must override
+   *         this.
+   */
+  default List<Axons<?, ?, ?>> getAllAxons() {
+    return Collections.singletonList(getAxons());
+  }
   
   /**
    * @return The Neurons on the left hand side of these DirectedSynapses.
@@ -55,6 +68,12 @@ public interface DirectedSynapses<L extends Neurons, R extends Neurons>
    * Forward Propagates the activations through the Synapses via the Axons and 
    * DifferentiableActivationFunction.
    * 
+   * <p>If the activation function declares an ElementWiseOperation, implementations should fuse 
+   * the bias and activation into the epilogue of the Axons multiplication 
+   * ( see Matrix.mmulAndApply ), retaining the pre-activation only if 
+   * DirectedSynapsesContext.isPreActivationRetained(), and applying the operation's 
+   * approximation if DifferentiableActivationFunction.isApproximated(synapsesContext).
+   * 
    * @param input The input to the DirectedSynapses
    * @param synapsesContext The context within which we forward propagate the activations
    * @return A DirectedSynapsesActivation encapsulating the artifacts generated by this forward 
@@ -22,4 +22,12 @@ package org.ml4j.nn.synapses;
  */
 public interface DirectedSynapsesContext extends SynapsesContext {
 
+  /**
+   * @return Whether the pre-activation output of the Axons should be retained when the Axons and
+   *         a known element-wise activation function are fused on forward propagation - only 
+   *         required when the activation will be back propagated.
+   */
+  default boolean isPreActivationRetained() {
+    return true;
+  }
 }
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j;
+
+import java.io.Serializable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+
+/**
+ * A minimal row-major, versioned and serializable Matrix for tests, implemented as a proxy 
+ * supporting only the operations the code under test uses - any other operation throws
+ * UnsupportedOperationException.
+ *
+ * @author Michael Lavelle
+ */
+public final class ArrayMatrix implements InvocationHandler, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private int rows;
+  private int columns;
+  private double[] data;
+  private long version;
+
+  private ArrayMatrix(int rows, int columns, double[] data) {
+    this.rows = rows;
+    this.columns = columns;
+    this.data = data;
+  }
+
+  /**
+   * @param rows The number of rows.
+   * @param columns The number of columns.
+   * @param data The row-major data, which the Matrix wraps without copying.
+   * @return The Matrix.
+   */
+  public static Matrix create(int rows, int columns, double[] data) {
+    if (data.length != rows * columns) {
+      throw new IllegalArgumentException("Data length " + data.length + " is not " + rows + "x"
+          + columns);
+    }
+    return (Matrix) Proxy.newProxyInstance(ArrayMatrix.class.getClassLoader(),
+        new Class<?>[] {Matrix.class}, new ArrayMatrix(rows, columns, data));
+  }
+
+  /**
+   * @return A MatrixFactory creating ArrayMatrix instances.
+   */
+  public static MatrixFactory factory() {
+    return (MatrixFactory) Proxy.newProxyInstance(ArrayMatrix.class.getClassLoader(),
+        new Class<?>[] {MatrixFactory.class}, (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "createZeros":
+              return create((Integer) args[0], (Integer) args[1],
+                  new double[(Integer) args[0] * (Integer) args[1]]);
+            case "createMatrix":
+              if (args != null && args.length == 3) {
+                return create((Integer) args[0], (Integer) args[1], (double[]) args[2]);
+              }
+              if (args != null && args.length == 2 && args[0] instanceof Integer) {
+                return create((Integer) args[0], (Integer) args[1],
+                    new double[(Integer) args[0] * (Integer) args[1]]);
+              }
+              throw new UnsupportedOperationException(method.toString());
+            case "createOnes":
+              double[] ones = new double[(Integer) args[0] * (Integer) args[1]];
+              Arrays.fill(ones, 1d);
+              return create((Integer) args[0], (Integer) args[1], ones);
+            case "getKernelAutotuner":
+              return null;
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+
+  /**
+   * @param matrix An ArrayMatrix.
+   * @return The data the Matrix wraps.
+   */
+  public static double[] data(Matrix matrix) {
+    return ((ArrayMatrix) Proxy.getInvocationHandler(matrix)).data;
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) {
+    switch (method.getName()) {
+      case "getRows":
+        return rows;
+      case "getColumns":
+        return columns;
+      case "getLength":
+        return data.length;
+      case "getVersion":
+        return version;
+      case "get":
+        if (args.length == 1) {
+          return data[(Integer) args[0]];
+        }
+        return data[(Integer) args[0] * columns + (Integer) args[1]];
+      case "put":
+        version++;
+        if (args.length == 2) {
+          data[(Integer) args[0]] = (Double) args[1];
+        } else {
+          data[(Integer) args[0] * columns + (Integer) args[1]] = (Double) args[2];
+        }
+        return null;
+      case "getRowByRowArray":
+      case "toArray":
+        return data.clone();
+      case "dup":
+        return create(rows, columns, data.clone());
+      case "transpose":
+        double[] transposed = new double[data.length];
+        for (int r = 0; r < rows; r++) {
+          for (int c = 0; c < columns; c++) {
+            transposed[c * rows + r] = data[r * columns + c];
+          }
+        }
+        return create(columns, rows, transposed);
+      case "mmul":
+        return mmul((Matrix) args[0]);
+      case "appendHorizontally":
+        return appendHorizontally((Matrix) args[0]);
+      case "addi":
+        return elementWisei(proxy, args[0], 1d);
+      case "subi":
+        return elementWisei(proxy, args[0], -1d);
+      case "muli":
+        version++;
+        for (int i = 0; i < data.length; i++) {
+          data[i] *= args[0] instanceof Matrix ? ((Matrix) args[0]).get(i) : (Double) args[0];
+        }
+        return proxy;
+      case "muliDerivativeFromOutput":
+        version++;
+        for (int i = 0; i < data.length; i++) {
+          data[i] *= ((ElementWiseOperation) args[1]).derivativeFromOutput(
+              ((Matrix) args[0]).get(i));
+        }
+        return proxy;
+      case "hashCode":
+        return System.identityHashCode(proxy);
+      case "equals":
+        return proxy == args[0];
+      case "toString":
+        return "ArrayMatrix:" + rows + "x" + columns;
+      default:
+        throw new UnsupportedOperationException(method.getName());
+    }
+  }
+
+  private Matrix mmul(Matrix other) {
+    int otherColumns = other.getColumns();
+    double[] otherData = other.getRowByRowArray();
+    double[] product = new double[rows * otherColumns];
+    for (int r = 0; r < rows; r++) {
+      for (int i = 0; i < columns; i++) {
+        double value = data[r * columns + i];
+        for (int c = 0; c < otherColumns; c++) {
+          product[r * otherColumns + c] += value * otherData[i * otherColumns + c];
+        }
+      }
+    }
+    return create(rows, otherColumns, product);
+  }
+
+  private Matrix appendHorizontally(Matrix other) {
+    int otherColumns = other.getColumns();
+    double[] otherData = other.getRowByRowArray();
+    double[] appended = new double[rows * (columns + otherColumns)];
+    for (int r = 0; r < rows; r++) {
+      System.arraycopy(data, r * columns, appended, r * (columns + otherColumns), columns);
+      System.arraycopy(otherData, r * otherColumns, appended, 
+          r * (columns + otherColumns) + columns, otherColumns);
+    }
+    return create(rows, columns + otherColumns, appended);
+  }
+
+  private Object elementWisei(Object proxy, Object other, double sign) {
+    version++;
+    for (int i = 0; i < data.length; i++) {
+      data[i] += sign * (other instanceof Matrix ? ((Matrix) other).get(i) : (Double) other);
+    }
+    return proxy;
+  }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.ml4j.nn.activationfunctions;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ml4j.ArrayMatrix;
+import org.ml4j.ElementWiseOperation;
+import org.ml4j.Matrix;
+import org.ml4j.nn.axons.AxonsGradient;
+import org.ml4j.nn.costfunctions.CostFunctionGradient;
+import org.ml4j.nn.neurons.NeuronsActivation;
+import org.ml4j.nn.neurons.NeuronsActivationContext;
+import org.ml4j.nn.neurons.NeuronsActivationFeatureOrientation;
+import org.ml4j.nn.synapses.DirectedSynapsesContext;
+import org.ml4j.nn.synapses.DirectedSynapsesGradient;
+
+import java.util.Random;
+
+/**
+ * Tests that back propagating in place through a DifferentiableActivationFunctionActivation
+ * matches back propagating out of place.
+ *
+ * @author Michael Lavelle
+ */
+public class DifferentiableActivationFunctionActivationTest {
+
+  private static final int EXAMPLE_COUNT = 4;
+  private static final int FEATURE_COUNT = 3;
+
+  private static final ElementWiseOperation[] OPERATIONS = new ElementWiseOperation[] {
+      ElementWiseOperation.SIGMOID, ElementWiseOperation.TANH, ElementWiseOperation.RELU};
+
+  @Test
+  public void testInPlaceBackPropagationMatchesOutOfPlace() {
+    Random random = new Random(1);
+    for (ElementWiseOperation operation : OPERATIONS) {
+      TestActivation activation = activate(operation, random);
+      double[] outerGradient = randomArray(random, EXAMPLE_COUNT * FEATURE_COUNT);
+      Matrix expected = activation.backPropagate(gradient(ArrayMatrix.create(EXAMPLE_COUNT, 
+          FEATURE_COUNT, outerGradient.clone()), 
+          NeuronsActivationFeatureOrientation.COLUMNS_SPAN_FEATURE_SET), null).getOutput()
+          .getActivations();
+
+      Matrix da = ArrayMatrix.create(EXAMPLE_COUNT, FEATURE_COUNT, outerGradient);
+      DirectedSynapsesGradient gradient = 
+          gradient(da, NeuronsActivationFeatureOrientation.COLUMNS_SPAN_FEATURE_SET);
+      // Cache the transpose, which must be recomputed once da is overwritten.
+      gradient.getOutput().getActivations(
+          NeuronsActivationFeatureOrientation.ROWS_SPAN_FEATURE_SET);
+      NeuronsActivation inPlace = 
+          activation.backPropagateInPlace(gradient, null).getOutput();
+      Assert.assertSame(da, inPlace.getActivations());
+      Assert.assertArrayEquals(operation.name(), ArrayMatrix.data(expected), 
+          ArrayMatrix.data(da), 0d);
+      Assert.assertArrayEquals(operation.name(), ArrayMatrix.data(expected.transpose()),
+          ArrayMatrix.data(inPlace.getActivations(
+              NeuronsActivationFeatureOrientation.ROWS_SPAN_FEATURE_SET)), 0d);
+    }
+  }
+
+  @Test
+  public void testOrientationMismatchFallsBackWithoutMutatingOuterGradient() {
+    Random random = new Random(2);
+    for (ElementWiseOperation operation : OPERATIONS) {
+      TestActivation activation = activate(operation, random);
+      double[] outerGradient = randomArray(random, EXAMPLE_COUNT * FEATURE_COUNT);
+      Matrix expected = activation.backPropagate(gradient(ArrayMatrix.create(EXAMPLE_COUNT, 
+          FEATURE_COUNT, outerGradient.clone()), 
+          NeuronsActivationFeatureOrientation.COLUMNS_SPAN_FEATURE_SET), null).getOutput()
+          .getActivations();
+
+      // The same outer gradient, with features spanning the rows.
+      Matrix da = ArrayMatrix.create(EXAMPLE_COUNT, FEATURE_COUNT, outerGradient).transpose();
+      double[] daValues = ArrayMatrix.data(da).clone();
+      long daVersion = da.getVersion();
+      NeuronsActivation fallback = activation.backPropagateInPlace(
+          gradient(da, NeuronsActivationFeatureOrientation.ROWS_SPAN_FEATURE_SET), null)
+          .getOutput();
+      Assert.assertNotSame(da, fallback.getActivations());
+      Assert.assertArrayEquals(operation.name(), ArrayMatrix.data(expected), 
+          ArrayMatrix.data(fallback.getActivations(
+              NeuronsActivationFeatureOrientation.COLUMNS_SPAN_FEATURE_SET)), 0d);
+      Assert.assertArrayEquals(operation.name(), daValues, ArrayMatrix.data(da), 0d);
+      Assert.assertEquals(daVersion, da.getVersion());
+    }
+  }
+
+  private static TestActivation activate(ElementWiseOperation operation, Random random) {
+    double[] input = randomArray(random, EXAMPLE_COUNT * FEATURE_COUNT);
+    double[] output = new double[input.length];
+    for (int i = 0; i < input.length; i++) {
+      output[i] = operation.apply(input[i]);
+    }
+    return new TestActivation(new TestActivationFunction(operation), 
+        new NeuronsActivation(ArrayMatrix.create(EXAMPLE_COUNT, FEATURE_COUNT, input),
+            NeuronsActivationFeatureOrientation.COLUMNS_SPAN_FEATURE_SET),
+        new NeuronsActivation(ArrayMatrix.create(EXAMPLE_COUNT, FEATURE_COUNT, output),
+            NeuronsActivationFeatureOrientation.COLUMNS_SPAN_FEATURE_SET));
+  }
+
+  private static DirectedSynapsesGradient gradient(Matrix activations, 
+      NeuronsActivationFeatureOrientation featureOrientation) {
+    NeuronsActivation output = new NeuronsActivation(activations, featureOrientation);
+    return new DirectedSynapsesGradient() {
+
+      @Override
+      public AxonsGradient getTotalTrainableAxonsGradient() {
+        return null;
+      }
+
+      @Override
+      public AxonsGradient getAverageTrainableAxonsGradient() {
+        return null;
+      }
+
+      @Override
+      public NeuronsActivation getOutput() {
+        return output;
+      }
+    };
+  }
+
+  private static double[] randomArray(Random random, int length) {
+    double[] values = new double[length];
+    for (int i = 0; i < length; i++) {
+      values[i] = random.nextGaussian();
+    }
+    return values;
+  }
+
+  /**
+   * An ActivationFunction applying a known ElementWiseOperation.
+   */
+  private static class TestActivationFunction implements DifferentiableActivationFunction {
+
+    private static final long serialVersionUID = 1L;
+
+    private ElementWiseOperation operation;
+
+    TestActivationFunction(ElementWiseOperation operation) {
+      this.operation = operation;
+    }
+
+    @Override
+    public ElementWiseOperation getElementWiseOperation() {
+      return operation;
+    }
+
+    @Override
+    public DifferentiableActivationFunctionActivation activate(NeuronsActivation input,
+        NeuronsActivationContext context) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public NeuronsActivation activationGradient(
+        DifferentiableActivationFunctionActivation outputActivation, 
+        NeuronsActivationContext context) {
+      Matrix output = outputActivation.getOutput().getActivations();
+      double[] gradient = new double[output.getLength()];
+      for (int i = 0; i < gradient.length; i++) {
+        gradient[i] = operation.derivativeFromOutput(output.get(i));
+      }
+      return new NeuronsActivation(ArrayMatrix.create(output.getRows(), output.getColumns(), 
+          gradient), outputActivation.getOutput().getFeatureOrientation());
+    }
+  }
+
+  /**
+   * An activation back propagating out of place, as dA .* f'(Z) in a new Matrix.
+   */
+  private static class TestActivation implements DifferentiableActivationFunctionActivation {
+
+    private DifferentiableActivationFunction activationFunction;
+    private NeuronsActivation input;
+    private NeuronsActivation output;
+
+    TestActivation(DifferentiableActivationFunction activationFunction, NeuronsActivation input,
+        NeuronsActivation output) {
+      this.activationFunction = activationFunction;
+      this.input = input;
+      this.output = output;
+    }
+
+    @Override
+    public NeuronsActivation getInput() {
+      return input;
+    }
+
+    @Override
+    public NeuronsActivation getOutput() {
+      return output;
+    }
+
+    @Override
+    public DifferentiableActivationFunction getActivationFunction() {
+      return activationFunction;
+    }
+
+    @Override
+    public ActivationFunctionGradient backPropagate(DirectedSynapsesGradient da,
+        DirectedSynapsesContext context) {
+      Matrix product = da.getOutput().getActivations(output.getFeatureOrientation()).dup()
+          .muli(activationFunction.activationGradient(this, null).getActivations());
+      return () -> new NeuronsActivation(product, output.getFeatureOrientation());
+    }
+
+    @Override
+    public ActivationFunctionGradient backPropagate(CostFunctionGradient da,
+        DirectedSynapsesContext context) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.axons;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures the throughput of sparse row adjustments by ConcurrentWeightUpdater from 1 up to the
+ * number of available processors, for each concurrency mode, reporting the speedup over a single
+ * thread and the fraction of adjustments lost. Run with:
+ * 
+ * <pre>
+ * java -cp target/classes:target/test-classes:../ml4j-matrices-api/target/classes 
+ *     org.ml4j.nn.axons.ConcurrentWeightUpdaterBenchmark
+ * </pre>
+ * 
+ * @author Michael Lavelle
+ */
+public final class ConcurrentWeightUpdaterBenchmark {
+
+  private static final int ROWS = 4096;
+  private static final int COLUMNS = 8;
+  private static final int ADJUSTMENTS_PER_THREAD = 200000;
+  private static final int ITERATIONS = 5;
+
+  private ConcurrentWeightUpdaterBenchmark() {
+  }
+
+  /**
+   * @param args Unused.
+   */
+  public static void main(String[] args) throws Exception {
+    int maximumThreadCount = Runtime.getRuntime().availableProcessors();
+    System.out.println("concurrency, threads, thousand row updates/s, speedup, lost fraction");
+    for (WeightUpdateConcurrency concurrency : new WeightUpdateConcurrency[] {
+        WeightUpdateConcurrency.HOGWILD, WeightUpdateConcurrency.STRIPED}) {
+      double singleThreadRate = 0d;
+      for (int threadCount = 1; threadCount <= maximumThreadCount; threadCount++) {
+        double bestRate = 0d;
+        double lostFraction = 0d;
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+          double[] weights = new double[ROWS * COLUMNS];
+          ConcurrentWeightUpdater updater = 
+              new ConcurrentWeightUpdater(concurrency, ROWS, COLUMNS);
+          long start = System.nanoTime();
+          runConcurrently(threadCount, thread -> adjustRandomRows(updater, weights, thread));
+          double seconds = (System.nanoTime() - start) / 1e9d;
+          bestRate = Math.max(bestRate, threadCount * ADJUSTMENTS_PER_THREAD / seconds);
+          double expectedTotal = (double) COLUMNS * threadCount * ADJUSTMENTS_PER_THREAD;
+          lostFraction = 1d - Arrays.stream(weights).sum() / expectedTotal;
+        }
+        if (threadCount == 1) {
+          singleThreadRate = bestRate;
+        }
+        System.out.println(String.format("%s, %d, %.1f, %.2f, %.2e", concurrency, threadCount,
+            bestRate / 1000d, bestRate / singleThreadRate, lostFraction));
+      }
+    }
+  }
+
+  private static void adjustRandomRows(ConcurrentWeightUpdater updater, double[] weights, 
+      int thread) {
+    Random random = new Random(thread);
+    double[] rowAdjustments = new double[COLUMNS];
+    Arrays.fill(rowAdjustments, 1d);
+    int[] rowIndexes = new int[1];
+    for (int i = 0; i < ADJUSTMENTS_PER_THREAD; i++) {
+      rowIndexes[0] = random.nextInt(ROWS);
+      updater.adjustRows(weights, rowIndexes, rowAdjustments, 
+          ConnectionWeightsAdjustmentDirection.ADDITION);
+    }
+  }
+
+  private interface ThreadBody {
+    void run(int thread) throws Exception;
+  }
+
+  private static void runConcurrently(int threadCount, ThreadBody body) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    try {
+      List<Callable<Void>> tasks = new ArrayList<>();
+      for (int i = 0; i < threadCount; i++) {
+        int thread = i;
+        tasks.add(() -> {
+          body.run(thread);
+          return null;
+        });
+      }
+      for (Future<Void> future : executor.invokeAll(tasks)) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.axons;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ml4j.ArrayMatrix;
+import org.ml4j.Matrix;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Convergence and lost-update tests of ConcurrentWeightUpdater under concurrent adjustment from
+ * several training threads - see ConcurrentWeightUpdaterBenchmark for throughput.
+ * 
+ * @author Michael Lavelle
+ */
+public class ConcurrentWeightUpdaterTest {
+
+  private static final int THREAD_COUNT = 4;
+  private static final int ROWS = 64;
+  private static final int COLUMNS = 8;
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNonPositiveRowsPerStripeIsRejected() {
+    new ConcurrentWeightUpdater(WeightUpdateConcurrency.STRIPED, ROWS, COLUMNS, 0);
+  }
+
+  @Test
+  public void testStripedDenseAdjustmentsAreNotLost() throws Exception {
+    ConcurrentWeightUpdater updater = 
+        new ConcurrentWeightUpdater(WeightUpdateConcurrency.STRIPED, ROWS, COLUMNS);
+    double[] weights = new double[ROWS * COLUMNS];
+    double[] adjustments = new double[ROWS * COLUMNS];
+    Arrays.fill(adjustments, 1d);
+    int adjustmentsPerThread = 500;
+    runConcurrently(thread -> {
+      for (int i = 0; i < adjustmentsPerThread; i++) {
+        updater.adjust(weights, adjustments, ConnectionWeightsAdjustmentDirection.ADDITION);
+      }
+    });
+    for (double weight : weights) {
+      Assert.assertEquals(THREAD_COUNT * adjustmentsPerThread, weight, 0d);
+    }
+  }
+
+  @Test
+  public void testStripedRowAdjustmentsAreNotLost() throws Exception {
+    ConcurrentWeightUpdater updater = 
+        new ConcurrentWeightUpdater(WeightUpdateConcurrency.STRIPED, ROWS, COLUMNS, 4);
+    double[] weights = new double[ROWS * COLUMNS];
+    int adjustmentsPerThread = 20000;
+    runConcurrently(thread -> {
+      Random random = new Random(thread);
+      double[] rowAdjustments = new double[2 * COLUMNS];
+      Arrays.fill(rowAdjustments, 1d);
+      for (int i = 0; i < adjustmentsPerThread; i++) {
+        int row = random.nextInt(ROWS - 1);
+        updater.adjustRows(weights, new int[] {row, row + 1}, rowAdjustments, 
+            ConnectionWeightsAdjustmentDirection.ADDITION);
+      }
+    });
+    double total = 0d;
+    for (double weight : weights) {
+      total += weight;
+    }
+    Assert.assertEquals(2d * COLUMNS * THREAD_COUNT * adjustmentsPerThread, total, 0d);
+  }
+
+  @Test
+  public void testSparseGradientDescentConverges() throws Exception {
+    for (WeightUpdateConcurrency concurrency : new WeightUpdateConcurrency[] {
+        WeightUpdateConcurrency.HOGWILD, WeightUpdateConcurrency.STRIPED}) {
+      double[] target = new double[ROWS * COLUMNS];
+      Random targetRandom = new Random(1);
+      for (int i = 0; i < target.length; i++) {
+        target[i] = targetRandom.nextGaussian();
+      }
+      ConcurrentWeightUpdater updater = new ConcurrentWeightUpdater(concurrency, ROWS, COLUMNS);
+      double[] weights = new double[ROWS * COLUMNS];
+      runConcurrently(thread -> {
+        Random random = new Random(thread);
+        double[] gradient = new double[COLUMNS];
+        for (int i = 0; i < 10000; i++) {
+          // Gradient of 0.5 * |w - target|^2 restricted to a single row
+          int row = random.nextInt(ROWS);
+          for (int c = 0; c < COLUMNS; c++) {
+            gradient[c] = 0.1d * (weights[row * COLUMNS + c] - target[row * COLUMNS + c]);
+          }
+          updater.adjustRows(weights, new int[] {row}, gradient, 
+              ConnectionWeightsAdjustmentDirection.SUBTRACTION);
+        }
+      });
+      for (int i = 0; i < weights.length; i++) {
+        Assert.assertEquals(concurrency.toString(), target[i], weights[i], 1e-6);
+      }
+    }
+  }
+
+  @Test
+  public void testMatrixAdjustmentsMatchArrayAdjustments() throws Exception {
+    ConcurrentWeightUpdater updater = 
+        new ConcurrentWeightUpdater(WeightUpdateConcurrency.STRIPED, ROWS, COLUMNS, 4);
+    double[] expected = new double[ROWS * COLUMNS];
+    double[] adjustments = new double[ROWS * COLUMNS];
+    double[] rowAdjustments = new double[2 * COLUMNS];
+    Random random = new Random(1);
+    for (int i = 0; i < adjustments.length; i++) {
+      adjustments[i] = random.nextGaussian();
+    }
+    for (int i = 0; i < rowAdjustments.length; i++) {
+      rowAdjustments[i] = random.nextGaussian();
+    }
+    Matrix weights = createMatrix(ROWS, COLUMNS, new double[ROWS * COLUMNS]);
+    updater.adjust(expected, adjustments, ConnectionWeightsAdjustmentDirection.ADDITION);
+    updater.adjust(weights, createMatrix(ROWS, COLUMNS, adjustments), 
+        ConnectionWeightsAdjustmentDirection.ADDITION);
+    int[] rowIndexes = {3, ROWS - 1};
+    updater.adjustRows(expected, rowIndexes, rowAdjustments, 
+        ConnectionWeightsAdjustmentDirection.SUBTRACTION);
+    updater.adjustRows(weights, rowIndexes, createMatrix(2, COLUMNS, rowAdjustments),
+        ConnectionWeightsAdjustmentDirection.SUBTRACTION);
+    for (int r = 0; r < ROWS; r++) {
+      for (int c = 0; c < COLUMNS; c++) {
+        Assert.assertEquals(expected[r * COLUMNS + c], weights.get(r, c), 0d);
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMatrixOfWrongShapeIsRejected() {
+    new ConcurrentWeightUpdater(WeightUpdateConcurrency.HOGWILD, ROWS, COLUMNS).adjust(
+        createMatrix(ROWS, COLUMNS + 1, new double[ROWS * (COLUMNS + 1)]),
+        createMatrix(ROWS, COLUMNS + 1, new double[ROWS * (COLUMNS + 1)]),
+        ConnectionWeightsAdjustmentDirection.ADDITION);
+  }
+
+  @Test
+  public void testTrainableAxonsRowAdjustmentsDelegateToConcurrentWeightUpdater()
+      throws Exception {
+    for (WeightUpdateConcurrency concurrency : WeightUpdateConcurrency.values()) {
+      VersionedTrainableAxons axons = new VersionedTrainableAxons(
+          new VersionedConnectionWeights(ArrayMatrix.create(ROWS, COLUMNS, 
+              new double[ROWS * COLUMNS]), concurrency));
+      Assert.assertEquals(concurrency, axons.getWeightUpdateConcurrency());
+      int adjustmentsPerThread = 1000;
+      runConcurrently(thread -> {
+        double[] rowAdjustment = new double[COLUMNS];
+        Arrays.fill(rowAdjustment, 1d);
+        for (int i = 0; i < adjustmentsPerThread; i++) {
+          // Each thread adjusts its own rows, so no adjustment is lost in any mode.
+          axons.adjustConnectionWeights(new int[] {thread * ROWS / THREAD_COUNT + i % 4},
+              ArrayMatrix.create(1, COLUMNS, rowAdjustment),
+              ConnectionWeightsAdjustmentDirection.ADDITION, null);
+        }
+      });
+      Matrix weights = axons.getDetachedConnectionWeights();
+      double total = 0d;
+      for (int r = 0; r < ROWS; r++) {
+        for (int c = 0; c < COLUMNS; c++) {
+          total += weights.get(r, c);
+        }
+      }
+      Assert.assertEquals(concurrency.toString(), 
+          (double) COLUMNS * THREAD_COUNT * adjustmentsPerThread, total, 0d);
+    }
+  }
+
+  private interface ThreadBody {
+    void run(int thread) throws Exception;
+  }
+
+  private static void runConcurrently(ThreadBody body) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+    try {
+      List<Callable<Void>> tasks = new ArrayList<>();
+      for (int i = 0; i < THREAD_COUNT; i++) {
+        int thread = i;
+        tasks.add(() -> {
+          body.run(thread);
+          return null;
+        });
+      }
+      for (Future<Void> future : executor.invokeAll(tasks)) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static Matrix createMatrix(int rows, int columns, double[] data) {
+    double[] values = data.clone();
+    return (Matrix) Proxy.newProxyInstance(ConcurrentWeightUpdaterTest.class.getClassLoader(),
+        new Class<?>[] {Matrix.class}, (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getRows":
+              return rows;
+            case "getColumns":
+              return columns;
+            case "get":
+              return values[(Integer) args[0] * columns + (Integer) args[1]];
+            case "put":
+              values[(Integer) args[0] * columns + (Integer) args[1]] = (Double) args[2];
+              return null;
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+}
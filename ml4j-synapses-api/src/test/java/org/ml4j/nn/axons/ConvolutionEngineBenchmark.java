@@ -0,0 +1,170 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.axons;
+
+import org.ml4j.ArrayMatrix;
+import org.ml4j.MatrixFactory;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares the throughput and accuracy of the forward, input-gradient and weight-gradient paths
+ * of each applicable ConvolutionAlgorithm with the direct reference kernels, for a few typical 
+ * layer geometries. The GEMM-based algorithms are measured with the row-major ArrayMatrix GEMM 
+ * of the tests - substitute the MatrixFactory of a backend to measure that backend. Run with:
+ * 
+ * <pre>
+ * java -cp target/classes:target/test-classes:../ml4j-matrices-api/target/classes 
+ *     org.ml4j.nn.axons.ConvolutionEngineBenchmark
+ * </pre>
+ * 
+ * @author Michael Lavelle
+ */
+public final class ConvolutionEngineBenchmark {
+
+  private static final int ITERATIONS = 5;
+
+  private static final int[][] GEOMETRIES = new int[][] {
+      // exampleCount, depth, height, width, outputDepth, filterHeight, filterWidth, stride, 
+      // zeroPadding
+      {16, 32, 16, 16, 32, 1, 1, 1, 0},
+      {16, 16, 16, 16, 16, 3, 3, 1, 1},
+      {8, 4, 32, 32, 4, 9, 9, 1, 4},
+      {16, 16, 16, 16, 16, 3, 3, 2, 1}};
+
+  private ConvolutionEngineBenchmark() {
+  }
+
+  /**
+   * @param args Unused.
+   */
+  public static void main(String[] args) {
+    MatrixFactory matrixFactory = ArrayMatrix.factory();
+    Random random = new Random(1);
+    System.out.println("geometry, algorithm, forward ms, input gradient ms, "
+        + "weight gradient ms, maximum error");
+    for (int[] geometry : GEOMETRIES) {
+      int exampleCount = geometry[0];
+      int depth = geometry[1];
+      int height = geometry[2];
+      int width = geometry[3];
+      int outputDepth = geometry[4];
+      int filterHeight = geometry[5];
+      int filterWidth = geometry[6];
+      int stride = geometry[7];
+      int zeroPadding = geometry[8];
+      int inputLength = depth * height * width;
+      int outputLength = outputDepth 
+          * ConvolutionKernels.getOutputSize(height, filterHeight, stride, zeroPadding)
+          * ConvolutionKernels.getOutputSize(width, filterWidth, stride, zeroPadding);
+      double[] input = PoolingKernelsTest.randomArray(random, exampleCount * inputLength);
+      double[] outputGradient = PoolingKernelsTest.randomArray(random, 
+          exampleCount * outputLength);
+      double[] filters = PoolingKernelsTest.randomArray(random, 
+          outputDepth * depth * filterHeight * filterWidth);
+      double[] output = new double[exampleCount * outputLength];
+      double[] inputGradient = new double[input.length];
+      double[] weightGradient = new double[filters.length];
+
+      // The reference kernels take one example at a time, held one after another.
+      double[] exampleInput = new double[inputLength];
+      double[] exampleOutputGradient = new double[outputLength];
+      double[] exampleOutput = new double[outputLength];
+      double[] exampleInputGradient = new double[inputLength];
+      double forwardMillis = millis(() -> {
+        for (int n = 0; n < exampleCount; n++) {
+          System.arraycopy(input, n * inputLength, exampleInput, 0, inputLength);
+          ConvolutionKernels.directConvolution(exampleInput, depth, height, width, filters, 
+              outputDepth, filterHeight, filterWidth, stride, zeroPadding, exampleOutput);
+          System.arraycopy(exampleOutput, 0, output, n * outputLength, outputLength);
+        }
+      });
+      double inputGradientMillis = millis(() -> {
+        for (int n = 0; n < exampleCount; n++) {
+          System.arraycopy(outputGradient, n * outputLength, exampleOutputGradient, 0, 
+              outputLength);
+          ConvolutionKernels.directInputGradient(exampleOutputGradient, depth, height, width, 
+              filters, outputDepth, filterHeight, filterWidth, stride, zeroPadding, 
+              exampleInputGradient);
+          System.arraycopy(exampleInputGradient, 0, inputGradient, n * inputLength, 
+              inputLength);
+        }
+      });
+      double weightGradientMillis = millis(() -> {
+        Arrays.fill(weightGradient, 0d);
+        for (int n = 0; n < exampleCount; n++) {
+          System.arraycopy(input, n * inputLength, exampleInput, 0, inputLength);
+          System.arraycopy(outputGradient, n * outputLength, exampleOutputGradient, 0, 
+              outputLength);
+          ConvolutionKernels.directWeightGradient(exampleInput, exampleOutputGradient, depth, 
+              height, width, outputDepth, filterHeight, filterWidth, stride, zeroPadding, 
+              weightGradient);
+        }
+      });
+      String name = Arrays.toString(geometry).replace(", ", "x");
+      System.out.println(String.format("%s, DIRECT, %.2f, %.2f, %.2f, 0", name, forwardMillis,
+          inputGradientMillis, weightGradientMillis));
+      double[] expectedOutput = ConvolutionEngineTest.toFeatureMajor(output, outputLength);
+      double[] expectedInputGradient = ConvolutionEngineTest.toFeatureMajor(inputGradient, 
+          inputLength);
+      double[] expectedWeightGradient = weightGradient.clone();
+
+      double[] featureMajorInput = ConvolutionEngineTest.toFeatureMajor(input, inputLength);
+      double[] featureMajorOutputGradient = ConvolutionEngineTest.toFeatureMajor(
+          outputGradient, outputLength);
+      for (ConvolutionAlgorithm algorithm : ConvolutionAlgorithmSelector
+          .getApplicableAlgorithms(filterWidth, filterHeight, stride, zeroPadding)) {
+        forwardMillis = millis(() -> ConvolutionEngine.forward(algorithm, matrixFactory, 
+            featureMajorInput, exampleCount, depth, height, width, filters, outputDepth, 
+            filterHeight, filterWidth, stride, zeroPadding, output));
+        inputGradientMillis = millis(() -> ConvolutionEngine.inputGradient(algorithm, 
+            matrixFactory, featureMajorOutputGradient, exampleCount, depth, height, width, 
+            filters, outputDepth, filterHeight, filterWidth, stride, zeroPadding, 
+            inputGradient));
+        weightGradientMillis = millis(() -> ConvolutionEngine.weightGradient(algorithm, 
+            matrixFactory, featureMajorInput, featureMajorOutputGradient, exampleCount, depth, 
+            height, width, outputDepth, filterHeight, filterWidth, stride, zeroPadding, 
+            weightGradient));
+        double error = Math.max(maximumError(expectedOutput, output), Math.max(
+            maximumError(expectedInputGradient, inputGradient), 
+            maximumError(expectedWeightGradient, weightGradient)));
+        System.out.println(String.format("%s, %s, %.2f, %.2f, %.2f, %.1e", name, algorithm, 
+            forwardMillis, inputGradientMillis, weightGradientMillis, error));
+      }
+    }
+  }
+
+  private static double millis(Runnable kernel) {
+    kernel.run();
+    long best = Long.MAX_VALUE;
+    for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+      long start = System.nanoTime();
+      kernel.run();
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    return best / 1e6;
+  }
+
+  private static double maximumError(double[] expected, double[] actual) {
+    double error = 0d;
+    for (int i = 0; i < expected.length; i++) {
+      error = Math.max(error, Math.abs(expected[i] - actual[i]));
+    }
+    return error;
+  }
+}
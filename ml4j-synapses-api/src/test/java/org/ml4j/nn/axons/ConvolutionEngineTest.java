@@ -0,0 +1,216 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.axons;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ml4j.ArrayMatrix;
+import org.ml4j.KernelAutotuner;
+import org.ml4j.KernelTuningCache;
+import org.ml4j.KernelTuningKey;
+import org.ml4j.MatrixFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Tests every ConvolutionAlgorithm of the ConvolutionEngine against the direct reference 
+ * kernels, for the forward, input-gradient and weight-gradient paths, and the selection of the
+ * algorithms by ConvolutionAlgorithmSelector.
+ *
+ * @author Michael Lavelle
+ */
+public class ConvolutionEngineTest {
+
+  private static final int EXAMPLE_COUNT = 3;
+
+  private static final int[][] GEOMETRIES = new int[][] {
+      // depth, height, width, outputDepth, filterHeight, filterWidth, stride, zeroPadding
+      {3, 7, 6, 4, 3, 3, 1, 1}, 
+      // An odd output width, so that the last Winograd tiles are partial.
+      {3, 8, 5, 2, 3, 3, 1, 0},
+      // Padding beyond the filter, so that the Winograd input gradient has negative padding.
+      {2, 6, 6, 3, 3, 3, 1, 3},
+      {4, 5, 6, 3, 1, 1, 1, 0},
+      {2, 11, 10, 2, 7, 7, 1, 3},
+      {2, 9, 9, 2, 5, 4, 1, 0},
+      {3, 7, 6, 4, 3, 2, 2, 1}};
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testEveryAlgorithmMatchesTheDirectReferenceOnEveryPath() {
+    MatrixFactory matrixFactory = ArrayMatrix.factory();
+    Set<ConvolutionAlgorithm> tested = EnumSet.noneOf(ConvolutionAlgorithm.class);
+    Random random = new Random(1);
+    for (int[] geometry : GEOMETRIES) {
+      int depth = geometry[0];
+      int height = geometry[1];
+      int width = geometry[2];
+      int outputDepth = geometry[3];
+      int filterHeight = geometry[4];
+      int filterWidth = geometry[5];
+      int stride = geometry[6];
+      int zeroPadding = geometry[7];
+      int inputLength = depth * height * width;
+      int outputLength = outputDepth 
+          * ConvolutionKernels.getOutputSize(height, filterHeight, stride, zeroPadding)
+          * ConvolutionKernels.getOutputSize(width, filterWidth, stride, zeroPadding);
+      double[] input = PoolingKernelsTest.randomArray(random, EXAMPLE_COUNT * inputLength);
+      double[] outputGradient = PoolingKernelsTest.randomArray(random, 
+          EXAMPLE_COUNT * outputLength);
+      double[] filters = PoolingKernelsTest.randomArray(random, 
+          outputDepth * depth * filterHeight * filterWidth);
+
+      double[] expectedOutput = new double[EXAMPLE_COUNT * outputLength];
+      double[] expectedInputGradient = new double[EXAMPLE_COUNT * inputLength];
+      double[] expectedWeightGradient = new double[filters.length];
+      for (int n = 0; n < EXAMPLE_COUNT; n++) {
+        double[] example = slice(input, n, inputLength);
+        double[] exampleOutputGradient = slice(outputGradient, n, outputLength);
+        System.arraycopy(ConvolutionKernels.directConvolution(example, depth, height, width,
+            filters, outputDepth, filterHeight, filterWidth, stride, zeroPadding, 
+            new double[outputLength]), 0, expectedOutput, n * outputLength, outputLength);
+        System.arraycopy(ConvolutionKernels.directInputGradient(exampleOutputGradient, depth,
+            height, width, filters, outputDepth, filterHeight, filterWidth, stride, 
+            zeroPadding, new double[inputLength]), 0, expectedInputGradient, n * inputLength,
+            inputLength);
+        ConvolutionKernels.directWeightGradient(example, exampleOutputGradient, depth, height,
+            width, outputDepth, filterHeight, filterWidth, stride, zeroPadding, 
+            expectedWeightGradient);
+      }
+
+      double[] featureMajorInput = toFeatureMajor(input, inputLength);
+      double[] featureMajorOutputGradient = toFeatureMajor(outputGradient, outputLength);
+      for (ConvolutionAlgorithm algorithm : ConvolutionAlgorithmSelector
+          .getApplicableAlgorithms(filterWidth, filterHeight, stride, zeroPadding)) {
+        String message = algorithm + " for geometry " + Arrays.toString(geometry);
+        Assert.assertArrayEquals(message, toFeatureMajor(expectedOutput, outputLength),
+            ConvolutionEngine.forward(algorithm, matrixFactory, featureMajorInput, 
+                EXAMPLE_COUNT, depth, height, width, filters, outputDepth, filterHeight, 
+                filterWidth, stride, zeroPadding, new double[expectedOutput.length]), 1e-10);
+        Assert.assertArrayEquals(message, toFeatureMajor(expectedInputGradient, inputLength),
+            ConvolutionEngine.inputGradient(algorithm, matrixFactory, 
+                featureMajorOutputGradient, EXAMPLE_COUNT, depth, height, width, filters, 
+                outputDepth, filterHeight, filterWidth, stride, zeroPadding, 
+                new double[input.length]), 1e-10);
+        Assert.assertArrayEquals(message, expectedWeightGradient,
+            ConvolutionEngine.weightGradient(algorithm, matrixFactory, featureMajorInput, 
+                featureMajorOutputGradient, EXAMPLE_COUNT, depth, height, width, outputDepth,
+                filterHeight, filterWidth, stride, zeroPadding, new double[filters.length]),
+            1e-10);
+        tested.add(algorithm);
+      }
+    }
+    Assert.assertEquals(EnumSet.allOf(ConvolutionAlgorithm.class), tested);
+  }
+
+  @Test
+  public void testBatchIm2colOfOneExampleIsIm2col() {
+    Random random = new Random(2);
+    double[] volume = PoolingKernelsTest.randomArray(random, 3 * 7 * 6);
+    int columnsLength = 3 * 3 * 2 * ConvolutionKernels.getOutputSize(7, 3, 2, 1) 
+        * ConvolutionKernels.getOutputSize(6, 2, 2, 1);
+    Assert.assertArrayEquals(ConvolutionKernels.im2col(volume, 3, 7, 6, 3, 2, 2, 1, 
+        new double[columnsLength]), ConvolutionKernels.batchIm2col(volume, 1, 3, 7, 6, 3, 2, 2,
+            1, new double[columnsLength]), 0d);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInapplicableAlgorithmIsRejected() {
+    ConvolutionEngine.forward(ConvolutionAlgorithm.WINOGRAD_F2X2_3X3, ArrayMatrix.factory(),
+        new double[2 * 5 * 5], 1, 2, 5, 5, new double[2 * 2 * 9], 2, 3, 3, 2, 0, 
+        new double[2 * 2 * 2]);
+  }
+
+  @Test
+  public void testSelectionFromFilterConfiguration() {
+    Assert.assertEquals(ConvolutionAlgorithm.POINTWISE_GEMM, 
+        ConvolutionAlgorithmSelector.select(1, 1, 1, 0));
+    Assert.assertEquals(ConvolutionAlgorithm.WINOGRAD_F2X2_3X3, 
+        ConvolutionAlgorithmSelector.select(3, 3, 1, 1));
+    Assert.assertEquals(ConvolutionAlgorithm.FFT, ConvolutionAlgorithmSelector.select(7, 7, 1, 
+        3));
+    Assert.assertEquals(ConvolutionAlgorithm.IM2COL_GEMM, 
+        ConvolutionAlgorithmSelector.select(5, 5, 1, 2));
+    Assert.assertEquals(ConvolutionAlgorithm.IM2COL_GEMM, 
+        ConvolutionAlgorithmSelector.select(3, 3, 2, 1));
+    Assert.assertEquals(EnumSet.of(ConvolutionAlgorithm.IM2COL_GEMM), 
+        ConvolutionAlgorithmSelector.getApplicableAlgorithms(7, 7, 2, 3));
+  }
+
+  @Test
+  public void testAutotunedSelectionIsRecordedForGeometryAndBatchSize() throws IOException {
+    KernelAutotuner autotuner = new KernelAutotuner(new KernelTuningCache(
+        temporaryFolder.getRoot().toPath().resolve("tuning.properties")), 0, 1);
+    ConvolutionAlgorithm selected = ConvolutionAlgorithmSelector.select(autotuner, 
+        ArrayMatrix.factory(), EXAMPLE_COUNT, 2, 8, 8, 2, 3, 3, 1, 1);
+    Assert.assertTrue(ConvolutionAlgorithmSelector.isApplicable(selected, 3, 3, 1, 1));
+    KernelTuningKey key = new KernelTuningKey(ConvolutionAlgorithmSelector.KERNEL_NAME, 
+        KernelTuningCache.getHostCpuModel(), EXAMPLE_COUNT, 2, 8, 8, 2, 3, 3, 1, 1);
+    Assert.assertEquals(selected.name(), 
+        autotuner.getTuningCache().getTunedConfiguration(key));
+
+    // A recorded decision is used without benchmarking, and is specific to the batch size.
+    autotuner.getTuningCache().putTunedConfiguration(key, ConvolutionAlgorithm.FFT.name());
+    Assert.assertEquals(ConvolutionAlgorithm.FFT, ConvolutionAlgorithmSelector.select(
+        autotuner, ArrayMatrix.factory(), EXAMPLE_COUNT, 2, 8, 8, 2, 3, 3, 1, 1));
+    Assert.assertNull(autotuner.getTuningCache().getTunedConfiguration(new KernelTuningKey(
+        ConvolutionAlgorithmSelector.KERNEL_NAME, KernelTuningCache.getHostCpuModel(), 1, 2, 8,
+        8, 2, 3, 3, 1, 1)));
+
+    // A batch too large to allocate scratch data for is benchmarked on a capped batch, and its
+    // recorded decision is then used without creating any scratch data.
+    int largeExampleCount = 1 << 24;
+    ConvolutionAlgorithm largeBatchSelected = ConvolutionAlgorithmSelector.select(autotuner, 
+        ArrayMatrix.factory(), largeExampleCount, 2, 8, 8, 2, 3, 3, 1, 1);
+    KernelTuningKey largeBatchKey = new KernelTuningKey(ConvolutionAlgorithmSelector.KERNEL_NAME,
+        KernelTuningCache.getHostCpuModel(), largeExampleCount, 2, 8, 8, 2, 3, 3, 1, 1);
+    Assert.assertEquals(largeBatchSelected.name(), 
+        autotuner.getTuningCache().getTunedConfiguration(largeBatchKey));
+    autotuner.getTuningCache().putTunedConfiguration(largeBatchKey, 
+        ConvolutionAlgorithm.IM2COL_GEMM.name());
+    Assert.assertEquals(ConvolutionAlgorithm.IM2COL_GEMM, ConvolutionAlgorithmSelector.select(
+        autotuner, ArrayMatrix.factory(), largeExampleCount, 2, 8, 8, 2, 3, 3, 1, 1));
+  }
+
+  private static double[] slice(double[] batch, int example, int length) {
+    double[] slice = new double[length];
+    System.arraycopy(batch, example * length, slice, 0, length);
+    return slice;
+  }
+
+  /**
+   * Convert a batch of volumes held one example after another to the feature-major batch.
+   */
+  static double[] toFeatureMajor(double[] volumes, int volumeLength) {
+    int exampleCount = volumes.length / volumeLength;
+    double[] featureMajor = new double[volumes.length];
+    for (int n = 0; n < exampleCount; n++) {
+      for (int feature = 0; feature < volumeLength; feature++) {
+        featureMajor[feature * exampleCount + n] = volumes[n * volumeLength + feature];
+      }
+    }
+    return featureMajor;
+  }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.axons;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ml4j.ArrayMatrix;
+import org.ml4j.Matrix;
+import org.ml4j.nn.neurons.Neurons3DLayout;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tests the ConvolutionKernels against the direct reference convolution.
+ *
+ * @author Michael Lavelle
+ */
+public class ConvolutionKernelsTest {
+
+  private static final int DEPTH = 3;
+  private static final int HEIGHT = 7;
+  private static final int WIDTH = 6;
+  private static final int OUTPUT_DEPTH = 4;
+  private static final int FILTER_HEIGHT = 3;
+  private static final int FILTER_WIDTH = 2;
+  private static final int STRIDE = 2;
+  private static final int ZERO_PADDING = 1;
+
+  private static final int OUTPUT_HEIGHT = ConvolutionKernels.getOutputSize(HEIGHT,
+      FILTER_HEIGHT, STRIDE, ZERO_PADDING);
+  private static final int OUTPUT_WIDTH = ConvolutionKernels.getOutputSize(WIDTH, FILTER_WIDTH,
+      STRIDE, ZERO_PADDING);
+  private static final int FIELD_SIZE = DEPTH * FILTER_HEIGHT * FILTER_WIDTH;
+  private static final int OUTPUT_AREA = OUTPUT_HEIGHT * OUTPUT_WIDTH;
+
+  @Test
+  public void testChannelsLastIm2colGemmMatchesDirectConvolution() {
+    Random random = new Random(1);
+    double[] input = PoolingKernelsTest.randomArray(random, DEPTH * HEIGHT * WIDTH);
+    double[] filters = PoolingKernelsTest.randomArray(random, OUTPUT_DEPTH * FIELD_SIZE);
+    double[] expected = ConvolutionKernels.directConvolution(input, DEPTH, HEIGHT, WIDTH,
+        filters, OUTPUT_DEPTH, FILTER_HEIGHT, FILTER_WIDTH, STRIDE, ZERO_PADDING,
+        new double[OUTPUT_DEPTH * OUTPUT_AREA]);
+
+    // Filters are volumes themselves, so are flattened in the layout of the input.
+    double[] channelsLastFilters = PoolingKernelsTest.toChannelsLast(filters, OUTPUT_DEPTH, DEPTH,
+        FILTER_HEIGHT, FILTER_WIDTH);
+    double[] columns = ConvolutionKernels.im2col(PoolingKernelsTest.toChannelsLast(input, 1,
+        DEPTH, HEIGHT, WIDTH), DEPTH, HEIGHT, WIDTH, FILTER_HEIGHT, FILTER_WIDTH, STRIDE,
+        ZERO_PADDING, Neurons3DLayout.CHANNELS_LAST, new double[FIELD_SIZE * OUTPUT_AREA]);
+    double[] output = new double[OUTPUT_AREA * OUTPUT_DEPTH];
+    for (int position = 0; position < OUTPUT_AREA; position++) {
+      for (int od = 0; od < OUTPUT_DEPTH; od++) {
+        double sum = 0d;
+        for (int k = 0; k < FIELD_SIZE; k++) {
+          sum += columns[position * FIELD_SIZE + k] * channelsLastFilters[od * FIELD_SIZE + k];
+        }
+        output[position * OUTPUT_DEPTH + od] = sum;
+      }
+    }
+    Assert.assertArrayEquals(PoolingKernelsTest.toChannelsLast(expected, 1, OUTPUT_DEPTH,
+        OUTPUT_HEIGHT, OUTPUT_WIDTH), output, 1e-12);
+  }
+
+  @Test
+  public void testCol2imIsTheAdjointOfIm2colInEitherLayout() {
+    Random random = new Random(2);
+    for (Neurons3DLayout layout : Neurons3DLayout.values()) {
+      double[] volume = PoolingKernelsTest.randomArray(random, DEPTH * HEIGHT * WIDTH);
+      double[] columns = PoolingKernelsTest.randomArray(random, FIELD_SIZE * OUTPUT_AREA);
+      double[] lowered = ConvolutionKernels.im2col(volume, DEPTH, HEIGHT, WIDTH, FILTER_HEIGHT,
+          FILTER_WIDTH, STRIDE, ZERO_PADDING, layout, new double[FIELD_SIZE * OUTPUT_AREA]);
+      double[] scattered = ConvolutionKernels.col2im(columns, DEPTH, HEIGHT, WIDTH,
+          FILTER_HEIGHT, FILTER_WIDTH, STRIDE, ZERO_PADDING, layout, new double[volume.length]);
+      Assert.assertEquals(layout.name(), dot(lowered, columns), dot(volume, scattered), 1e-10);
+    }
+  }
+
+  @Test
+  public void testPointwiseConvolutionOfBatchMatchesDirectConvolutionInEitherLayout() {
+    Random random = new Random(3);
+    int exampleCount = 5;
+    int area = HEIGHT * WIDTH;
+    double[] volumes = PoolingKernelsTest.randomArray(random, exampleCount * DEPTH * area);
+    double[] weights = PoolingKernelsTest.randomArray(random, OUTPUT_DEPTH * DEPTH);
+    double[] expected = new double[exampleCount * OUTPUT_DEPTH * area];
+    for (int n = 0; n < exampleCount; n++) {
+      double[] output = ConvolutionKernels.directConvolution(
+          Arrays.copyOfRange(volumes, n * DEPTH * area, (n + 1) * DEPTH * area), DEPTH, HEIGHT,
+          WIDTH, weights, OUTPUT_DEPTH, 1, 1, 1, 0, new double[OUTPUT_DEPTH * area]);
+      System.arraycopy(output, 0, expected, n * OUTPUT_DEPTH * area, output.length);
+    }
+
+    Matrix featureMajorOutput = ConvolutionKernels.pointwiseConvolution(ArrayMatrix.factory(),
+        ConvolutionEngineTest.toFeatureMajor(volumes, DEPTH * area), exampleCount, DEPTH, area,
+        weights, OUTPUT_DEPTH);
+    Assert.assertArrayEquals(ConvolutionEngineTest.toFeatureMajor(expected, OUTPUT_DEPTH * area),
+        featureMajorOutput.getRowByRowArray(), 1e-12);
+
+    Matrix channelsLastOutput = ConvolutionKernels.pointwiseConvolution(ArrayMatrix.factory(),
+        PoolingKernelsTest.toChannelsLast(volumes, exampleCount, DEPTH, HEIGHT, WIDTH),
+        exampleCount, DEPTH, area, weights, OUTPUT_DEPTH, Neurons3DLayout.CHANNELS_LAST);
+    Assert.assertArrayEquals(PoolingKernelsTest.toChannelsLast(expected, exampleCount,
+        OUTPUT_DEPTH, HEIGHT, WIDTH), channelsLastOutput.getRowByRowArray(), 1e-12);
+  }
+
+  @Test
+  public void testTransposedConvolutionMatchesDirectReference() {
+    Random random = new Random(4);
+    // The transposed convolution maps the output volume of the convolution back to its input.
+    double[] volume = PoolingKernelsTest.randomArray(random, OUTPUT_DEPTH * OUTPUT_AREA);
+    double[] filters = PoolingKernelsTest.randomArray(random, OUTPUT_DEPTH * FIELD_SIZE);
+    Assert.assertEquals(HEIGHT, ConvolutionKernels.getTransposedOutputSize(OUTPUT_HEIGHT,
+        FILTER_HEIGHT, STRIDE, ZERO_PADDING));
+    Assert.assertEquals(WIDTH, ConvolutionKernels.getTransposedOutputSize(OUTPUT_WIDTH,
+        FILTER_WIDTH, STRIDE, ZERO_PADDING));
+    double[] output = ConvolutionKernels.transposedConvolution(ArrayMatrix.factory(), volume,
+        OUTPUT_DEPTH, OUTPUT_HEIGHT, OUTPUT_WIDTH, filters, DEPTH, FILTER_HEIGHT, FILTER_WIDTH,
+        STRIDE, ZERO_PADDING, new double[DEPTH * HEIGHT * WIDTH]);
+    Assert.assertArrayEquals(ConvolutionKernels.directInputGradient(volume, DEPTH, HEIGHT, WIDTH,
+        filters, OUTPUT_DEPTH, FILTER_HEIGHT, FILTER_WIDTH, STRIDE, ZERO_PADDING,
+        new double[DEPTH * HEIGHT * WIDTH]), output, 1e-12);
+
+    // <conv(x), y> == <x, convT(y)> for the same filters.
+    double[] input = PoolingKernelsTest.randomArray(random, DEPTH * HEIGHT * WIDTH);
+    double[] convolved = ConvolutionKernels.directConvolution(input, DEPTH, HEIGHT, WIDTH,
+        filters, OUTPUT_DEPTH, FILTER_HEIGHT, FILTER_WIDTH, STRIDE, ZERO_PADDING,
+        new double[OUTPUT_DEPTH * OUTPUT_AREA]);
+    Assert.assertEquals(dot(convolved, volume), dot(input, output), 1e-10);
+  }
+
+  @Test
+  public void testDepthwiseConvolutionMatchesDirectReferenceWithBlockDiagonalFilters() {
+    Random random = new Random(5);
+    int exampleCount = 3;
+    int inputLength = DEPTH * HEIGHT * WIDTH;
+    int outputLength = DEPTH * OUTPUT_AREA;
+    int filterArea = FILTER_HEIGHT * FILTER_WIDTH;
+    double[] volumes = PoolingKernelsTest.randomArray(random, exampleCount * inputLength);
+    double[] outputGradients = PoolingKernelsTest.randomArray(random, 
+        exampleCount * outputLength);
+    double[] filters = PoolingKernelsTest.randomArray(random, DEPTH * filterArea);
+    // Filter d of the equivalent convolution is zero except on channel d.
+    double[] blockDiagonalFilters = new double[DEPTH * FIELD_SIZE];
+    for (int d = 0; d < DEPTH; d++) {
+      System.arraycopy(filters, d * filterArea, blockDiagonalFilters, 
+          (d * DEPTH + d) * filterArea, filterArea);
+    }
+
+    double[] expectedOutput = new double[exampleCount * outputLength];
+    double[] expectedInputGradient = new double[exampleCount * inputLength];
+    double[] blockDiagonalWeightGradient = new double[DEPTH * FIELD_SIZE];
+    for (int n = 0; n < exampleCount; n++) {
+      double[] volume = Arrays.copyOfRange(volumes, n * inputLength, (n + 1) * inputLength);
+      double[] outputGradient = Arrays.copyOfRange(outputGradients, n * outputLength, 
+          (n + 1) * outputLength);
+      System.arraycopy(ConvolutionKernels.directConvolution(volume, DEPTH, HEIGHT, WIDTH, 
+          blockDiagonalFilters, DEPTH, FILTER_HEIGHT, FILTER_WIDTH, STRIDE, ZERO_PADDING, 
+          new double[outputLength]), 0, expectedOutput, n * outputLength, outputLength);
+      System.arraycopy(ConvolutionKernels.directInputGradient(outputGradient, DEPTH, HEIGHT, 
+          WIDTH, blockDiagonalFilters, DEPTH, FILTER_HEIGHT, FILTER_WIDTH, STRIDE, ZERO_PADDING,
+          new double[inputLength]), 0, expectedInputGradient, n * inputLength, inputLength);
+      ConvolutionKernels.directWeightGradient(volume, outputGradient, DEPTH, HEIGHT, WIDTH, 
+          DEPTH, FILTER_HEIGHT, FILTER_WIDTH, STRIDE, ZERO_PADDING, 
+          blockDiagonalWeightGradient);
+    }
+    double[] expectedWeightGradient = new double[DEPTH * filterArea];
+    for (int d = 0; d < DEPTH; d++) {
+      System.arraycopy(blockDiagonalWeightGradient, (d * DEPTH + d) * filterArea, 
+          expectedWeightGradient, d * filterArea, filterArea);
+    }
+
+    double[] featureMajorInput = ConvolutionEngineTest.toFeatureMajor(volumes, inputLength);
+    double[] featureMajorOutputGradient = 
+        ConvolutionEngineTest.toFeatureMajor(outputGradients, outputLength);
+    // The outputs are filled with garbage, as the kernels overwrite them.
+    double[] output = PoolingKernelsTest.randomArray(random, expectedOutput.length);
+    Assert.assertArrayEquals(ConvolutionEngineTest.toFeatureMajor(expectedOutput, outputLength),
+        ConvolutionKernels.depthwiseConvolution(featureMajorInput, exampleCount, DEPTH, HEIGHT, 
+            WIDTH, filters, FILTER_HEIGHT, FILTER_WIDTH, STRIDE, ZERO_PADDING, output), 1e-12);
+    double[] inputGradient = PoolingKernelsTest.randomArray(random, volumes.length);
+    Assert.assertArrayEquals(ConvolutionEngineTest.toFeatureMajor(expectedInputGradient, 
+        inputLength), ConvolutionKernels.depthwiseInputGradient(featureMajorOutputGradient, 
+            exampleCount, DEPTH, HEIGHT, WIDTH, filters, FILTER_HEIGHT, FILTER_WIDTH, STRIDE, 
+            ZERO_PADDING, inputGradient), 1e-12);
+    double[] weightGradient = PoolingKernelsTest.randomArray(random, filters.length);
+    Assert.assertArrayEquals(expectedWeightGradient, ConvolutionKernels.depthwiseWeightGradient(
+        featureMajorInput, featureMajorOutputGradient, exampleCount, DEPTH, HEIGHT, WIDTH, 
+        FILTER_HEIGHT, FILTER_WIDTH, STRIDE, ZERO_PADDING, weightGradient), 1e-12);
+
+    // A single volume is a batch of one example.
+    Assert.assertArrayEquals(Arrays.copyOf(expectedOutput, outputLength), 
+        ConvolutionKernels.depthwiseConvolution(Arrays.copyOf(volumes, inputLength), DEPTH, 
+            HEIGHT, WIDTH, filters, FILTER_HEIGHT, FILTER_WIDTH, STRIDE, ZERO_PADDING, 
+            new double[outputLength]), 1e-12);
+  }
+
+  static double dot(double[] first, double[] second) {
+    double sum = 0d;
+    for (int i = 0; i < first.length; i++) {
+      sum += first[i] * second[i];
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.axons;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tests that DropoutMask keeps elements with its keep probability, reproducibly for a seed, and
+ * that applyInverted zeros dropped elements and scales kept elements by 1 / keepProbability.
+ *
+ * @author Michael Lavelle
+ */
+public class DropoutMaskTest {
+
+  /**
+   * Not a multiple of 64, so that the final word of the mask is partial.
+   */
+  private static final int LENGTH = (1 << 20) + 37;
+
+  @Test
+  public void testKeptFractionMatchesKeepProbability() {
+    for (double keepProbability : new double[] {0.1, 0.5, 0.8}) {
+      DropoutMask mask = DropoutMask.generate(LENGTH, keepProbability, 42L);
+      int keptCount = 0;
+      for (int i = 0; i < LENGTH; i++) {
+        keptCount += mask.isKept(i) ? 1 : 0;
+      }
+      Assert.assertEquals(keptCount, mask.getKeptCount());
+      // The kept count is binomial - allow six standard deviations.
+      double standardDeviation = Math.sqrt(LENGTH * keepProbability * (1 - keepProbability));
+      Assert.assertEquals("keep probability " + keepProbability, LENGTH * keepProbability,
+          keptCount, 6 * standardDeviation);
+    }
+    Assert.assertEquals(LENGTH, DropoutMask.generate(LENGTH, 1d, 42L).getKeptCount());
+  }
+
+  @Test
+  public void testMaskIsReproducibleForSeed() {
+    DropoutMask mask = DropoutMask.generate(LENGTH, 0.5, 7L);
+    Assert.assertArrayEquals(mask.getBits(), DropoutMask.generate(LENGTH, 0.5, 7L).getBits());
+    Assert.assertFalse(Arrays.equals(mask.getBits(),
+        DropoutMask.generate(LENGTH, 0.5, 8L).getBits()));
+  }
+
+  @Test
+  public void testApplyInvertedScalesKeptAndZerosDroppedElements() {
+    double keepProbability = 0.75;
+    int length = 1000;
+    DropoutMask mask = DropoutMask.generate(length, keepProbability, 3L);
+    double[] values = PoolingKernelsTest.randomArray(new Random(1), length);
+    double[] output = mask.applyInverted(values, new double[length]);
+    for (int i = 0; i < length; i++) {
+      Assert.assertEquals(mask.isKept(i) ? values[i] / keepProbability : 0d, output[i], 1e-15);
+    }
+
+    // In place, as when replaying the mask over gradients.
+    double[] inPlace = values.clone();
+    Assert.assertSame(inPlace, mask.applyInverted(inPlace, inPlace));
+    Assert.assertArrayEquals(output, inPlace, 0d);
+  }
+
+  @Test
+  public void testGetBitsReturnsACopy() {
+    DropoutMask mask = DropoutMask.generate(128, 0.5, 5L);
+    int keptCount = mask.getKeptCount();
+    mask.getBits()[0] = ~mask.getBits()[0];
+    Assert.assertEquals(keptCount, mask.getKeptCount());
+  }
+
+  @Test
+  public void testKeepProbabilityOutsideUnitIntervalIsRejected() {
+    for (double keepProbability : new double[] {0d, -0.5, 1.5, Double.NaN}) {
+      try {
+        DropoutMask.generate(LENGTH, keepProbability, 1L);
+        Assert.fail("Generated with keep probability " + keepProbability);
+      } catch (IllegalArgumentException e) {
+        // Expected.
+      }
+      try {
+        new DropoutMask(64, keepProbability, new long[1]);
+        Assert.fail("Constructed with keep probability " + keepProbability);
+      } catch (IllegalArgumentException e) {
+        // Expected.
+      }
+    }
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.axons;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ml4j.nn.neurons.Neurons3D;
+import org.ml4j.nn.neurons.Neurons3DLayout;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tests that the CHANNELS_LAST PoolingKernels agree with the CHANNELS_FIRST kernels on the same
+ * volumes, for a small batch and for a batch large enough to be pooled in parallel.
+ *
+ * @author Michael Lavelle
+ */
+public class PoolingKernelsTest {
+
+  private static final int[][] SHAPES = new int[][] {
+      // exampleCount, depth, height, width
+      {3, 4, 7, 6}, {16, 8, 32, 32}};
+
+  private static final int FILTER_HEIGHT = 3;
+  private static final int FILTER_WIDTH = 2;
+  private static final int STRIDE = 2;
+
+  @Test
+  public void testChannelsLastMaxPoolMatchesChannelsFirst() {
+    for (int[] shape : SHAPES) {
+      int exampleCount = shape[0];
+      int depth = shape[1];
+      int height = shape[2];
+      int width = shape[3];
+      int outputHeight = PoolingKernels.getOutputSize(height, FILTER_HEIGHT, STRIDE);
+      int outputWidth = PoolingKernels.getOutputSize(width, FILTER_WIDTH, STRIDE);
+      int outputLength = exampleCount * depth * outputHeight * outputWidth;
+      double[] input = randomArray(new Random(1), exampleCount * depth * height * width);
+      double[] output = new double[outputLength];
+      int[] argmaxIndexes = new int[outputLength];
+      PoolingKernels.maxPool(input, exampleCount, depth, height, width, FILTER_HEIGHT,
+          FILTER_WIDTH, STRIDE, output, argmaxIndexes);
+      double[] channelsLastInput = toChannelsLast(input, exampleCount, depth, height, width);
+      double[] channelsLastOutput = new double[outputLength];
+      int[] channelsLastArgmaxIndexes = new int[outputLength];
+      PoolingKernels.maxPool(channelsLastInput, exampleCount, depth, height, width,
+          FILTER_HEIGHT, FILTER_WIDTH, STRIDE, Neurons3DLayout.CHANNELS_LAST, channelsLastOutput,
+          channelsLastArgmaxIndexes);
+      Assert.assertArrayEquals(toChannelsLast(output, exampleCount, depth, outputHeight,
+          outputWidth), channelsLastOutput, 0d);
+
+      double[] outputGradient = randomArray(new Random(2), outputLength);
+      double[] inputGradient = PoolingKernels.maxPoolBackward(outputGradient, argmaxIndexes,
+          exampleCount, depth, height, width, FILTER_HEIGHT, FILTER_WIDTH, STRIDE,
+          new double[input.length]);
+      double[] channelsLastInputGradient = PoolingKernels.maxPoolBackward(
+          toChannelsLast(outputGradient, exampleCount, depth, outputHeight, outputWidth),
+          channelsLastArgmaxIndexes, exampleCount, depth, height, width, FILTER_HEIGHT,
+          FILTER_WIDTH, STRIDE, new double[input.length]);
+      Assert.assertArrayEquals(toChannelsLast(inputGradient, exampleCount, depth, height, width),
+          channelsLastInputGradient, 1e-12);
+    }
+  }
+
+  @Test
+  public void testChannelsLastAveragePoolMatchesChannelsFirst() {
+    for (int[] shape : SHAPES) {
+      int exampleCount = shape[0];
+      int depth = shape[1];
+      int height = shape[2];
+      int width = shape[3];
+      int outputHeight = PoolingKernels.getOutputSize(height, FILTER_HEIGHT, STRIDE);
+      int outputWidth = PoolingKernels.getOutputSize(width, FILTER_WIDTH, STRIDE);
+      int outputLength = exampleCount * depth * outputHeight * outputWidth;
+      double[] input = randomArray(new Random(3), exampleCount * depth * height * width);
+      double[] output = PoolingKernels.averagePool(input, exampleCount, depth, height, width,
+          FILTER_HEIGHT, FILTER_WIDTH, STRIDE, new double[outputLength]);
+      double[] channelsLastOutput = PoolingKernels.averagePool(
+          toChannelsLast(input, exampleCount, depth, height, width), exampleCount, depth, height,
+          width, FILTER_HEIGHT, FILTER_WIDTH, STRIDE, Neurons3DLayout.CHANNELS_LAST,
+          new double[outputLength]);
+      Assert.assertArrayEquals(toChannelsLast(output, exampleCount, depth, outputHeight,
+          outputWidth), channelsLastOutput, 1e-12);
+
+      double[] outputGradient = randomArray(new Random(4), outputLength);
+      double[] inputGradient = PoolingKernels.averagePoolBackward(outputGradient, exampleCount,
+          depth, height, width, FILTER_HEIGHT, FILTER_WIDTH, STRIDE, new double[input.length]);
+      double[] channelsLastInputGradient = PoolingKernels.averagePoolBackward(
+          toChannelsLast(outputGradient, exampleCount, depth, outputHeight, outputWidth),
+          exampleCount, depth, height, width, FILTER_HEIGHT, FILTER_WIDTH, STRIDE,
+          Neurons3DLayout.CHANNELS_LAST, new double[input.length]);
+      Assert.assertArrayEquals(toChannelsLast(inputGradient, exampleCount, depth, height, width),
+          channelsLastInputGradient, 1e-12);
+    }
+  }
+
+  @Test
+  public void testChannelsLastGlobalAveragePoolMatchesChannelsFirst() {
+    for (int[] shape : SHAPES) {
+      int exampleCount = shape[0];
+      int depth = shape[1];
+      int height = shape[2];
+      int width = shape[3];
+      double[] input = randomArray(new Random(5), exampleCount * depth * height * width);
+      double[] output = PoolingKernels.globalAveragePool(input, exampleCount, depth, height,
+          width, new double[exampleCount * depth]);
+      double[] channelsLastOutput = PoolingKernels.globalAveragePool(
+          toChannelsLast(input, exampleCount, depth, height, width), exampleCount, depth, height,
+          width, Neurons3DLayout.CHANNELS_LAST, new double[exampleCount * depth]);
+      Assert.assertArrayEquals(output, channelsLastOutput, 1e-12);
+
+      double[] outputGradient = randomArray(new Random(6), exampleCount * depth);
+      double[] inputGradient = PoolingKernels.globalAveragePoolBackward(outputGradient,
+          exampleCount, depth, height, width, new double[input.length]);
+      double[] channelsLastInputGradient = PoolingKernels.globalAveragePoolBackward(
+          outputGradient, exampleCount, depth, height, width, Neurons3DLayout.CHANNELS_LAST,
+          new double[input.length]);
+      Assert.assertArrayEquals(toChannelsLast(inputGradient, exampleCount, depth, height, width),
+          channelsLastInputGradient, 0d);
+    }
+  }
+
+  @Test
+  public void testMaxPoolBackwardWritesOnlyTheBatchOfReusedBuffers() {
+    int exampleCount = 3;
+    int depth = 4;
+    int height = 7;
+    int width = 6;
+    int inputLength = exampleCount * depth * height * width;
+    int outputLength = exampleCount * depth * PoolingKernels.getOutputSize(height, FILTER_HEIGHT,
+        STRIDE) * PoolingKernels.getOutputSize(width, FILTER_WIDTH, STRIDE);
+    double[] input = randomArray(new Random(7), inputLength);
+    double[] outputGradient = randomArray(new Random(8), outputLength);
+    int[] argmaxIndexes = new int[outputLength];
+    PoolingKernels.maxPool(input, exampleCount, depth, height, width, FILTER_HEIGHT, FILTER_WIDTH,
+        STRIDE, new double[outputLength], argmaxIndexes);
+    double[] expected = PoolingKernels.maxPoolBackward(outputGradient, argmaxIndexes,
+        exampleCount, depth, height, width, FILTER_HEIGHT, FILTER_WIDTH, STRIDE,
+        new double[inputLength]);
+
+    // Buffers sized for a larger batch, holding stale values from a previous one.
+    int[] reusedArgmaxIndexes = Arrays.copyOf(argmaxIndexes, 2 * outputLength);
+    double[] reusedOutputGradient = Arrays.copyOf(outputGradient, 2 * outputLength);
+    Arrays.fill(reusedOutputGradient, outputLength, 2 * outputLength, 1d);
+    double[] reusedInputGradient = new double[2 * inputLength];
+    Arrays.fill(reusedInputGradient, -1d);
+    PoolingKernels.maxPoolBackward(reusedOutputGradient, reusedArgmaxIndexes, exampleCount,
+        depth, height, width, FILTER_HEIGHT, FILTER_WIDTH, STRIDE, reusedInputGradient);
+    Assert.assertArrayEquals(expected, Arrays.copyOf(reusedInputGradient, inputLength), 0d);
+    for (int i = inputLength; i < reusedInputGradient.length; i++) {
+      Assert.assertEquals(-1d, reusedInputGradient[i], 0d);
+    }
+  }
+
+  /**
+   * Convert a batch of CHANNELS_FIRST volumes to CHANNELS_LAST.
+   */
+  static double[] toChannelsLast(double[] volumes, int exampleCount, int depth, int height,
+      int width) {
+    int[] permutation = new Neurons3D(width, height, depth, false)
+        .getFeaturePermutation(Neurons3DLayout.CHANNELS_LAST);
+    int volume = permutation.length;
+    double[] converted = new double[exampleCount * volume];
+    for (int example = 0; example < exampleCount; example++) {
+      for (int i = 0; i < volume; i++) {
+        converted[example * volume + i] = volumes[example * volume + permutation[i]];
+      }
+    }
+    return converted;
+  }
+
+  static double[] randomArray(Random random, int length) {
+    double[] values = new double[length];
+    for (int i = 0; i < length; i++) {
+      values[i] = random.nextGaussian();
+    }
+    return values;
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.axons;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ml4j.ArrayMatrix;
+import org.ml4j.Matrix;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the version counter of VersionedConnectionWeights, the sharing of one snapshot copy per
+ * version, its serialization, and how its adjustments combine with each 
+ * WeightUpdateConcurrency.
+ *
+ * @author Michael Lavelle
+ */
+public class VersionedConnectionWeightsTest {
+
+  private static final int ROWS = 4;
+  private static final int COLUMNS = 3;
+
+  @Test
+  public void testVersionIsIncrementedByEachAdjustment() {
+    VersionedConnectionWeights weights = new VersionedConnectionWeights(zeros());
+    Assert.assertEquals(0, weights.getVersion());
+    Assert.assertEquals(1, weights.adjust(ones(ROWS), 
+        ConnectionWeightsAdjustmentDirection.ADDITION));
+    Assert.assertEquals(2, weights.adjustRows(new int[] {1}, ones(1),
+        ConnectionWeightsAdjustmentDirection.SUBTRACTION));
+    Assert.assertEquals(2, weights.getVersion());
+    Assert.assertArrayEquals(new double[] {1, 1, 1, 0, 0, 0, 1, 1, 1, 1, 1, 1},
+        weights.getConnectionWeightsForOwner().getRowByRowArray(), 0d);
+  }
+
+  @Test
+  public void testSnapshotsShareOneCopyWithinAVersion() {
+    VersionedConnectionWeights weights = new VersionedConnectionWeights(zeros());
+    ConnectionWeightsSnapshot snapshot = weights.getSnapshot();
+    Assert.assertSame(snapshot, weights.getSnapshot());
+    Assert.assertSame(snapshot.getConnectionWeights(), 
+        weights.getSnapshot().getConnectionWeights());
+    Assert.assertNotSame(weights.getConnectionWeightsForOwner(), 
+        snapshot.getConnectionWeights());
+    Assert.assertEquals(0, snapshot.getVersion());
+  }
+
+  @Test
+  public void testSnapshotIsCopiedAfterEachAdjustment() {
+    VersionedConnectionWeights weights = new VersionedConnectionWeights(zeros());
+    ConnectionWeightsSnapshot before = weights.getSnapshot();
+    for (int adjustment = 1; adjustment <= 3; adjustment++) {
+      weights.adjust(ones(ROWS), ConnectionWeightsAdjustmentDirection.ADDITION);
+      ConnectionWeightsSnapshot after = weights.getSnapshot();
+      Assert.assertNotSame(before, after);
+      Assert.assertEquals(adjustment, after.getVersion());
+      Assert.assertEquals(adjustment, after.getConnectionWeights().get(0, 0), 0d);
+      // Earlier snapshots keep the weights of their version.
+      Assert.assertEquals(adjustment - 1, before.getConnectionWeights().get(0, 0), 0d);
+      before = after;
+    }
+  }
+
+  @Test
+  public void testSerializationRetainsWeightsVersionAndConcurrency() throws Exception {
+    VersionedConnectionWeights weights = 
+        new VersionedConnectionWeights(zeros(), WeightUpdateConcurrency.STRIPED);
+    weights.adjust(ones(ROWS), ConnectionWeightsAdjustmentDirection.ADDITION);
+    weights.getSnapshot();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(weights);
+    }
+    VersionedConnectionWeights deserialized;
+    try (ObjectInputStream in = new ObjectInputStream(
+        new ByteArrayInputStream(bytes.toByteArray()))) {
+      deserialized = (VersionedConnectionWeights) in.readObject();
+    }
+    Assert.assertEquals(1, deserialized.getVersion());
+    Assert.assertEquals(WeightUpdateConcurrency.STRIPED, 
+        deserialized.getWeightUpdateConcurrency());
+    Assert.assertArrayEquals(weights.getConnectionWeightsForOwner().getRowByRowArray(),
+        deserialized.getConnectionWeightsForOwner().getRowByRowArray(), 0d);
+    // The ConcurrentWeightUpdater is recreated.
+    Assert.assertEquals(2, deserialized.adjustRows(new int[] {0}, ones(1), 
+        ConnectionWeightsAdjustmentDirection.ADDITION));
+    Assert.assertEquals(2, deserialized.getSnapshot().getConnectionWeights().get(0, 0), 0d);
+  }
+
+  @Test
+  public void testOnlyExternallySynchronizedAdjustmentsLockTheInstance() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      for (WeightUpdateConcurrency concurrency : WeightUpdateConcurrency.values()) {
+        VersionedConnectionWeights weights = new VersionedConnectionWeights(zeros(), 
+            concurrency);
+        Future<Long> adjustment;
+        synchronized (weights) {
+          adjustment = executor.submit(() -> weights.adjustRows(new int[] {0}, ones(1),
+              ConnectionWeightsAdjustmentDirection.ADDITION));
+          if (concurrency == WeightUpdateConcurrency.EXTERNALLY_SYNCHRONIZED) {
+            Thread.sleep(100);
+            Assert.assertFalse(adjustment.isDone());
+          } else {
+            // Completes while the instance is locked - a TimeoutException otherwise.
+            Assert.assertEquals(1L, (long) adjustment.get(10, TimeUnit.SECONDS));
+          }
+        }
+        Assert.assertEquals(1L, (long) adjustment.get(10, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testTrainableAxonsSnapshotsShareTheVersionedCopy() {
+    VersionedConnectionWeights weights = new VersionedConnectionWeights(zeros());
+    VersionedTrainableAxons axons = new VersionedTrainableAxons(weights);
+    Assert.assertSame(weights.getSnapshot(), axons.getConnectionWeightsSnapshot());
+    axons.adjustConnectionWeights(ones(ROWS), ConnectionWeightsAdjustmentDirection.ADDITION);
+    Assert.assertEquals(1, axons.getConnectionWeightsSnapshot().getVersion());
+  }
+
+  private static Matrix zeros() {
+    return ArrayMatrix.create(ROWS, COLUMNS, new double[ROWS * COLUMNS]);
+  }
+
+  private static Matrix ones(int rows) {
+    double[] data = new double[rows * COLUMNS];
+    Arrays.fill(data, 1d);
+    return ArrayMatrix.create(rows, COLUMNS, data);
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.axons;
+
+import org.ml4j.Matrix;
+import org.ml4j.nn.neurons.Neurons;
+import org.ml4j.nn.neurons.NeuronsActivation;
+
+/**
+ * Minimal TrainableAxons for tests, holding their connection weights in 
+ * VersionedConnectionWeights and relying on the TrainableAxons defaults otherwise - operations 
+ * the tests do not use throw UnsupportedOperationException.
+ *
+ * @author Michael Lavelle
+ */
+final class VersionedTrainableAxons 
+    implements TrainableAxons<Neurons, Neurons, VersionedTrainableAxons> {
+
+  private static final long serialVersionUID = 1L;
+
+  private final VersionedConnectionWeights connectionWeights;
+
+  VersionedTrainableAxons(VersionedConnectionWeights connectionWeights) {
+    this.connectionWeights = connectionWeights;
+  }
+
+  @Override
+  public VersionedConnectionWeights getVersionedConnectionWeights() {
+    return connectionWeights;
+  }
+
+  @Override
+  public void adjustConnectionWeights(Matrix adjustments,
+      ConnectionWeightsAdjustmentDirection adjustmentDirection) {
+    connectionWeights.adjust(adjustments, adjustmentDirection);
+  }
+
+  @Override
+  public Matrix getDetachedConnectionWeights() {
+    return connectionWeights.getSnapshot().getConnectionWeights().dup();
+  }
+
+  @Override
+  public Neurons getLeftNeurons() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Neurons getRightNeurons() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public AxonsActivation pushLeftToRight(NeuronsActivation leftNeuronsActivation,
+      AxonsActivation previousRightToLeftActivation, AxonsContext axonsContext) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public AxonsActivation pushRightToLeft(NeuronsActivation rightNeuronsActivation,
+      AxonsActivation previousLeftToRightActivation, AxonsContext axonsContext) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public VersionedTrainableAxons dup() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean isTrainable(AxonsContext axonsContext) {
+    return true;
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ml4j.nn.costfunctions;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ml4j.ArrayMatrix;
+import org.ml4j.Matrix;
+
+import java.util.Random;
+
+/**
+ * Tests the fused cross-entropy cost functions against the unfused formulae, evaluated from the
+ * outputs of the activation function.
+ *
+ * @author Michael Lavelle
+ */
+public class CrossEntropyCostFunctionTest {
+
+  private static final int SAMPLES = 7;
+  private static final int OUTPUTS = 5;
+
+  private static final SoftmaxCrossEntropyCostFunction SOFTMAX_COST_FUNCTION =
+      new SoftmaxCrossEntropyCostFunction() {
+
+        @Override
+        public double getTotalCost(Matrix desiredOutputs, Matrix actualOutputs) {
+          return evaluate(desiredOutputs, actualOutputs, false).getTotalCost();
+        }
+
+        @Override
+        public double getAverageCost(Matrix desiredOutputs, Matrix actualOutputs) {
+          return evaluate(desiredOutputs, actualOutputs, false).getAverageCost();
+        }
+      };
+
+  private static final SigmoidCrossEntropyCostFunction SIGMOID_COST_FUNCTION =
+      new SigmoidCrossEntropyCostFunction() {
+
+        @Override
+        public double getTotalCost(Matrix desiredOutputs, Matrix actualOutputs) {
+          return evaluate(desiredOutputs, actualOutputs, false).getTotalCost();
+        }
+
+        @Override
+        public double getAverageCost(Matrix desiredOutputs, Matrix actualOutputs) {
+          return evaluate(desiredOutputs, actualOutputs, false).getAverageCost();
+        }
+      };
+
+  @Test
+  public void testSoftmaxPerSampleCostsMatchUnfusedFormula() {
+    Random random = new Random(1);
+    double[] preActivations = randomPreActivations(random);
+    double[] desiredOutputs = new double[SAMPLES * OUTPUTS];
+    for (int s = 0; s < SAMPLES; s++) {
+      desiredOutputs[s * OUTPUTS + random.nextInt(OUTPUTS)] = 1d;
+    }
+    double[] outputs = new double[preActivations.length];
+    double[] expectedCosts = new double[SAMPLES];
+    for (int s = 0; s < SAMPLES; s++) {
+      double sumExp = 0d;
+      for (int c = 0; c < OUTPUTS; c++) {
+        sumExp += Math.exp(preActivations[s * OUTPUTS + c]);
+      }
+      for (int c = 0; c < OUTPUTS; c++) {
+        int index = s * OUTPUTS + c;
+        outputs[index] = Math.exp(preActivations[index]) / sumExp;
+        expectedCosts[s] -= desiredOutputs[index] * Math.log(outputs[index]);
+      }
+    }
+    Matrix desired = ArrayMatrix.create(SAMPLES, OUTPUTS, desiredOutputs);
+    assertEvaluation(expectedCosts, SOFTMAX_COST_FUNCTION.evaluateFromPreActivations(desired,
+        ArrayMatrix.create(SAMPLES, OUTPUTS, preActivations), true));
+    assertEvaluation(expectedCosts, SOFTMAX_COST_FUNCTION.evaluate(desired,
+        ArrayMatrix.create(SAMPLES, OUTPUTS, outputs), true));
+    Assert.assertEquals(sum(expectedCosts) / SAMPLES,
+        SOFTMAX_COST_FUNCTION.getAverageCostFromPreActivations(desired,
+            ArrayMatrix.create(SAMPLES, OUTPUTS, preActivations)), 1e-12);
+  }
+
+  @Test
+  public void testSigmoidPerSampleCostsMatchUnfusedFormula() {
+    Random random = new Random(2);
+    double[] preActivations = randomPreActivations(random);
+    double[] desiredOutputs = new double[SAMPLES * OUTPUTS];
+    double[] outputs = new double[preActivations.length];
+    double[] expectedCosts = new double[SAMPLES];
+    for (int i = 0; i < preActivations.length; i++) {
+      desiredOutputs[i] = random.nextBoolean() ? 1d : 0d;
+      outputs[i] = 1d / (1d + Math.exp(-preActivations[i]));
+      expectedCosts[i / OUTPUTS] -= desiredOutputs[i] * Math.log(outputs[i])
+          + (1 - desiredOutputs[i]) * Math.log(1 - outputs[i]);
+    }
+    Matrix desired = ArrayMatrix.create(SAMPLES, OUTPUTS, desiredOutputs);
+    assertEvaluation(expectedCosts, SIGMOID_COST_FUNCTION.evaluateFromPreActivations(desired,
+        ArrayMatrix.create(SAMPLES, OUTPUTS, preActivations), true));
+    assertEvaluation(expectedCosts, SIGMOID_COST_FUNCTION.evaluate(desired,
+        ArrayMatrix.create(SAMPLES, OUTPUTS, outputs), true));
+  }
+
+  @Test
+  public void testFusedCostsAreFiniteForSaturatedPreActivations() {
+    // The sigmoid and softmax of these pre-activations round to exactly 0 and 1.
+    double[] preActivations = new double[] {800d, -800d};
+    double[] desiredOutputs = new double[] {0d, 1d};
+    CostFunctionEvaluation sigmoidEvaluation = SIGMOID_COST_FUNCTION.evaluateFromPreActivations(
+        ArrayMatrix.create(1, 2, desiredOutputs), ArrayMatrix.create(1, 2, preActivations), true);
+    Assert.assertEquals(1600d, sigmoidEvaluation.getTotalCost(), 1e-9);
+    CostFunctionEvaluation softmaxEvaluation = SOFTMAX_COST_FUNCTION.evaluateFromPreActivations(
+        ArrayMatrix.create(1, 2, desiredOutputs), ArrayMatrix.create(1, 2, preActivations), true);
+    Assert.assertEquals(1600d, softmaxEvaluation.getTotalCost(), 1e-9);
+  }
+
+  @Test
+  public void testPerSampleCostsAreOnlyRecordedWhenRequested() {
+    double[] preActivations = randomPreActivations(new Random(3));
+    Matrix desired = ArrayMatrix.create(SAMPLES, OUTPUTS, new double[SAMPLES * OUTPUTS]);
+    Assert.assertNull(SIGMOID_COST_FUNCTION.evaluateFromPreActivations(desired,
+        ArrayMatrix.create(SAMPLES, OUTPUTS, preActivations), false).getPerSampleCosts());
+  }
+
+  private static void assertEvaluation(double[] expectedCosts,
+      CostFunctionEvaluation evaluation) {
+    Assert.assertArrayEquals(expectedCosts, evaluation.getPerSampleCosts(), 1e-12);
+    Assert.assertEquals(sum(expectedCosts), evaluation.getTotalCost(), 1e-12);
+    Assert.assertEquals(sum(expectedCosts) / SAMPLES, evaluation.getAverageCost(), 1e-12);
+  }
+
+  private static double[] randomPreActivations(Random random) {
+    double[] preActivations = new double[SAMPLES * OUTPUTS];
+    for (int i = 0; i < preActivations.length; i++) {
+      preActivations[i] = 3 * random.nextGaussian();
+    }
+    return preActivations;
+  }
+
+  private static double sum(double[] values) {
+    double sum = 0d;
+    for (double value : values) {
+      sum += value;
+    }
+    return sum;
+  }
+}
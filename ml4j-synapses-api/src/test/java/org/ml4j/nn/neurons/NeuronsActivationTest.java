@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.ml4j.nn.neurons;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ml4j.ArrayMatrix;
+import org.ml4j.Matrix;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+
+/**
+ * Tests the caching of the transposed activations of a NeuronsActivation, and of the 
+ * materialised implicit bias unit of a NeuronsActivationWithPossibleBiasUnit.
+ *
+ * @author Michael Lavelle
+ */
+public class NeuronsActivationTest {
+
+  private static final NeuronsActivationFeatureOrientation COLUMNS_SPAN_FEATURE_SET = 
+      NeuronsActivationFeatureOrientation.COLUMNS_SPAN_FEATURE_SET;
+  private static final NeuronsActivationFeatureOrientation ROWS_SPAN_FEATURE_SET = 
+      NeuronsActivationFeatureOrientation.ROWS_SPAN_FEATURE_SET;
+
+  @Test
+  public void testTransposeOfVersionedActivationsIsRecomputedOnceModified() {
+    Matrix activations = ArrayMatrix.create(2, 3, new double[] {1, 2, 3, 4, 5, 6});
+    NeuronsActivation activation = new NeuronsActivation(activations, COLUMNS_SPAN_FEATURE_SET);
+    Matrix transposed = activation.getActivations(ROWS_SPAN_FEATURE_SET);
+    Assert.assertSame(transposed, activation.getActivations(ROWS_SPAN_FEATURE_SET));
+
+    activations.put(1, 2, 60d);
+    Assert.assertEquals(60d, activation.getActivations(ROWS_SPAN_FEATURE_SET).get(2, 1), 0d);
+
+    // Modifying the transpose in place makes it the activations the original is recomputed from.
+    NeuronsActivation rowsSpanFeatureSet = activation.withFeatureOrientation(
+        ROWS_SPAN_FEATURE_SET);
+    rowsSpanFeatureSet.getActivations().put(0, 1, 40d);
+    Assert.assertEquals(40d, activation.getActivations().get(1, 0), 0d);
+    Assert.assertEquals(60d, activation.getActivations().get(1, 2), 0d);
+    Assert.assertSame(activation.getActivations(), activation.getActivations());
+  }
+
+  @Test
+  public void testTransposeOfUnversionedActivationsIsRecomputedOnceInvalidated() {
+    Matrix activations = unversioned(ArrayMatrix.create(2, 3, new double[] {1, 2, 3, 4, 5, 6}));
+    NeuronsActivation activation = new NeuronsActivation(activations, COLUMNS_SPAN_FEATURE_SET);
+    activation.getActivations(ROWS_SPAN_FEATURE_SET);
+
+    activations.put(1, 2, 60d);
+    Assert.assertEquals(6d, activation.getActivations(ROWS_SPAN_FEATURE_SET).get(2, 1), 0d);
+    activation.invalidateTransposedActivations();
+    Assert.assertEquals(60d, activation.getActivations(ROWS_SPAN_FEATURE_SET).get(2, 1), 0d);
+  }
+
+  @Test
+  public void testMaterialisedImplicitBiasUnitIsRematerialisedOnceModified() {
+    Matrix activations = ArrayMatrix.create(2, 2, new double[] {1, 2, 3, 4});
+    NeuronsActivationWithPossibleBiasUnit activation = NeuronsActivationWithPossibleBiasUnit
+        .withImplicitBiasUnit(activations, COLUMNS_SPAN_FEATURE_SET, ArrayMatrix.factory());
+    Assert.assertSame(activations, activation.getActivationsWithoutBias());
+    Matrix withBias = activation.getActivationsWithBias();
+    Assert.assertArrayEquals(new double[] {1, 1, 2, 1, 3, 4}, ArrayMatrix.data(withBias), 0d);
+    Assert.assertSame(withBias, activation.getActivations());
+
+    activations.put(1, 1, 40d);
+    Assert.assertArrayEquals(new double[] {1, 1, 2, 1, 3, 40}, 
+        ArrayMatrix.data(activation.getActivationsWithBias()), 0d);
+  }
+
+  private static Matrix unversioned(Matrix matrix) {
+    return (Matrix) Proxy.newProxyInstance(NeuronsActivationTest.class.getClassLoader(),
+        new Class<?>[] {Matrix.class}, (proxy, method, args) -> {
+          if (method.getName().equals("getVersion")) {
+            return Matrix.UNVERSIONED;
+          }
+          try {
+            return method.invoke(matrix, args);
+          } catch (InvocationTargetException e) {
+            throw e.getCause();
+          }
+        });
+  }
+}